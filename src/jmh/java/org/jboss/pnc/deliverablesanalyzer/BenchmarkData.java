@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jboss.pnc.build.finder.core.BuildCheckedEvent;
+import org.jboss.pnc.build.finder.core.BuildSystem;
+import org.jboss.pnc.build.finder.core.BuildSystemInteger;
+import org.jboss.pnc.build.finder.core.Checksum;
+import org.jboss.pnc.build.finder.core.ChecksumType;
+import org.jboss.pnc.build.finder.koji.KojiBuild;
+import org.jboss.pnc.build.finder.koji.KojiLocalArchive;
+
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiBuildInfo;
+
+/**
+ * Generates synthetic, deterministic analysis data for the benchmarks. The shapes follow the ones produced by the build
+ * finder: the build with ID 0 holds the archives which were not found, every other build holds the found archives.
+ */
+public final class BenchmarkData {
+    private static final long SIZE = 4096L;
+
+    private BenchmarkData() {
+
+    }
+
+    /**
+     * Returns a checksum of the length matching the given type, derived from the given index.
+     *
+     * @param type the checksum type
+     * @param i the index
+     * @return the hexadecimal checksum
+     */
+    public static String checksum(ChecksumType type, int i) {
+        int length;
+
+        switch (type) {
+            case md5:
+                length = 32;
+                break;
+            case sha1:
+                length = 40;
+                break;
+            default:
+                length = 64;
+                break;
+        }
+
+        StringBuilder sb = new StringBuilder(length);
+        long value = (long) (i + 1) * 0x9E3779B97F4A7C15L;
+
+        while (sb.length() < length) {
+            sb.append(String.format("%016x", value));
+            value = Long.rotateLeft(value, 17) ^ type.ordinal();
+        }
+
+        return sb.substring(0, length);
+    }
+
+    /**
+     * Returns the file name of the archive with the given index.
+     *
+     * @param i the index
+     * @return the file name
+     */
+    public static String filename(int i) {
+        return "artifact-" + i + "-1.0.0.redhat-00001.jar";
+    }
+
+    /**
+     * Creates the builds of an analysis.
+     *
+     * @param builds the number of found builds
+     * @param archivesPerBuild the number of archives of every found build
+     * @param notFound the number of archives which were not found
+     * @return the builds keyed by the build system and ID, as returned by the build finder
+     */
+    public static Map<BuildSystemInteger, KojiBuild> createBuilds(int builds, int archivesPerBuild, int notFound) {
+        Map<BuildSystemInteger, KojiBuild> map = new LinkedHashMap<>(builds + 1);
+        KojiBuild buildZero = new KojiBuild(createBuildInfo(0, false));
+        List<KojiLocalArchive> notFoundArchives = new ArrayList<>(notFound);
+
+        for (int i = 0; i < notFound; i++) {
+            notFoundArchives.add(createLocalArchive(0, i, null));
+        }
+
+        buildZero.setArchives(notFoundArchives);
+        map.put(new BuildSystemInteger(0), buildZero);
+
+        int archive = notFound;
+
+        for (int id = 1; id <= builds; id++) {
+            BuildSystem buildSystem = id % 2 == 0 ? BuildSystem.pnc : BuildSystem.koji;
+            KojiBuild build = new KojiBuild(createBuildInfo(id, id % 3 != 0));
+            List<KojiLocalArchive> archives = new ArrayList<>(archivesPerBuild);
+
+            for (int i = 0; i < archivesPerBuild; i++) {
+                archives.add(createLocalArchive(id, archive++, id % 4 == 0 ? "npm" : "maven"));
+            }
+
+            build.setArchives(archives);
+            map.put(new BuildSystemInteger(id, buildSystem), build);
+        }
+
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * Creates the events sent by the build finder when the builds of the checksums are checked. Every checksum is
+     * reported once for every build system, as the build finder does.
+     *
+     * @param count the number of checksums
+     * @return the events
+     */
+    public static List<BuildCheckedEvent> createBuildCheckedEvents(int count) {
+        List<BuildCheckedEvent> events = new ArrayList<>(count * 2);
+
+        for (int i = 0; i < count; i++) {
+            Checksum checksum = createChecksum(ChecksumType.md5, i);
+            events.add(new BuildCheckedEvent(checksum, BuildSystem.pnc));
+            events.add(new BuildCheckedEvent(checksum, BuildSystem.koji));
+        }
+
+        return Collections.unmodifiableList(events);
+    }
+
+    private static Checksum createChecksum(ChecksumType type, int i) {
+        return new Checksum(type, checksum(type, i), filename(i), SIZE);
+    }
+
+    private static KojiBuildInfo createBuildInfo(int id, boolean built) {
+        KojiBuildInfo buildInfo = new KojiBuildInfo(id, id, "artifact-" + id, "1.0.0.redhat_00001", "1");
+        buildInfo.setNvr("artifact-" + id + "-1.0.0.redhat_00001-1");
+
+        if (built) {
+            buildInfo.setExtra(Map.of("build_system", "PNC"));
+        }
+
+        return buildInfo;
+    }
+
+    private static KojiLocalArchive createLocalArchive(int buildId, int i, String buildType) {
+        String filename = filename(i);
+        KojiArchiveInfo archiveInfo = new KojiArchiveInfo();
+        archiveInfo.setArchiveId(i + 1);
+        archiveInfo.setBuildId(buildId);
+        archiveInfo.setBuildType(buildType);
+        archiveInfo.setFilename(filename);
+        archiveInfo.setSize((int) SIZE);
+        archiveInfo.setGroupId("org.example");
+        archiveInfo.setArtifactId("artifact-" + i);
+        archiveInfo.setVersion("1.0.0.redhat-00001");
+        archiveInfo.setExtension("jar");
+
+        Set<Checksum> checksums = new LinkedHashSet<>(3);
+
+        for (ChecksumType type : ChecksumType.values()) {
+            checksums.add(createChecksum(type, i));
+        }
+
+        return new KojiLocalArchive(archiveInfo, List.of(filename), checksums);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.infinispan.commons.api.BasicCache;
+import org.infinispan.commons.api.BasicCacheContainer;
+import org.infinispan.configuration.cache.StorageType;
+import org.jboss.pnc.build.finder.core.BuildConfig;
+import org.jboss.pnc.build.finder.core.ChecksumType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the reads and writes of the embedded checksum cache, configured by the {@link CacheProvider} the same way as
+ * in the service. The memory is bounded below the number of keys, so that a part of the reads hits the store.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class CacheProviderBenchmark {
+    private static final String CACHE_NAME = "checksums-md5";
+
+    @Param({ "HEAP", "OFF_HEAP" })
+    StorageType storage;
+
+    @Param({ "SINGLE_FILE", "ROCKSDB" })
+    CacheProvider.StoreType store;
+
+    @Param({ "100000" })
+    int keys;
+
+    @Param({ "10000" })
+    long maxCount;
+
+    private Path location;
+
+    private BasicCacheContainer cacheManager;
+
+    private BasicCache<String, String> cache;
+
+    private String[] checksums;
+
+    @Setup
+    public void setup() throws IOException {
+        location = Files.createTempDirectory("cache-benchmark");
+
+        BuildConfig config = new BuildConfig();
+        config.setChecksumTypes(Collections.singleton(ChecksumType.md5));
+
+        CacheProvider cacheProvider = new CacheProvider();
+        cacheProvider.config = config;
+        cacheProvider.infinispanMode = CacheProvider.InfinispanMode.EMBEDDED;
+        cacheProvider.infinispanCacheLocation = Optional.of(location.toString());
+        cacheProvider.infinispanMemoryStorage = storage;
+        cacheProvider.infinispanMemoryMaxCount = Optional.of(maxCount);
+        cacheProvider.infinispanMemoryMaxSize = Optional.empty();
+        cacheProvider.infinispanStore = store;
+
+        cacheManager = cacheProvider.initCaches();
+        cache = cacheManager.getCache(CACHE_NAME);
+        checksums = new String[keys];
+
+        for (int i = 0; i < keys; i++) {
+            checksums[i] = BenchmarkData.checksum(ChecksumType.md5, i);
+            cache.put(checksums[i], BenchmarkData.filename(i));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        cacheManager.stop();
+
+        try (Stream<Path> paths = Files.walk(location)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        @Setup
+        public void setup() {
+            next = (int) Thread.currentThread().getId() * 7919;
+        }
+    }
+
+    @Benchmark
+    public String get(Cursor cursor) {
+        return cache.get(checksums[Math.floorMod(cursor.next++, checksums.length)]);
+    }
+
+    @Benchmark
+    public String put(Cursor cursor) {
+        int i = Math.floorMod(cursor.next++, checksums.length);
+        return cache.put(checksums[i], BenchmarkData.filename(i));
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.pnc.api.deliverablesanalyzer.dto.AnalysisReport;
+import org.jboss.pnc.deliverablesanalyzer.model.FinderResultCreator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Measures the serialization of the analysis report sent to the callback, with the same object mapper configuration as
+ * the HTTP client.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CallbackSerializationBenchmark {
+    @Param({ "10", "100", "1000" })
+    int builds;
+
+    @Param({ "10" })
+    int archivesPerBuild;
+
+    @Param({ "100" })
+    int notFound;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private AnalysisReport report;
+
+    @Setup
+    public void setup() throws MalformedURLException {
+        URL url = new URL("https://example.com/product-1.0.0.zip");
+        report = new AnalysisReport(
+                List.of(
+                        FinderResultCreator.createFinderResult(
+                                "1",
+                                url,
+                                BenchmarkData.createBuilds(builds, archivesPerBuild, notFound))));
+    }
+
+    @Benchmark
+    public String serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(report);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.pnc.build.finder.core.BuildCheckedEvent;
+import org.jboss.pnc.build.finder.core.ChecksumsComputedEvent;
+import org.jboss.pnc.deliverablesanalyzer.model.FinderStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the progress tracking of an analysis while the lookup threads report the checked checksums concurrently and
+ * the status endpoint reads the progress.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FinderStatusBenchmark {
+    @Param({ "100000" })
+    int checksums;
+
+    private List<BuildCheckedEvent> events;
+
+    private FinderStatus status;
+
+    @Setup(Level.Trial)
+    public void setupEvents() {
+        events = BenchmarkData.createBuildCheckedEvents(checksums);
+    }
+
+    @Setup(Level.Iteration)
+    public void setupStatus() {
+        status = new FinderStatus();
+        // More than the events, so that the status never clears its map during an iteration
+        status.checksumsComputed(new ChecksumsComputedEvent(Integer.MAX_VALUE));
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        @Setup(Level.Iteration)
+        public void setup() {
+            next = (int) Thread.currentThread().getId();
+        }
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void buildChecked(Cursor cursor) {
+        status.buildChecked(events.get(Math.floorMod(cursor.next++, events.size())));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int buildCheckedAndPercent(Cursor cursor) {
+        status.buildChecked(events.get(Math.floorMod(cursor.next++, events.size())));
+        return status.getPercent();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.pnc.deliverablesanalyzer.model.FinderStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cache of the analysis statuses while new analyses are registered and the status endpoint is polled.
+ * Every put purges the expired entries first, so the latency of the puts grows with the number of analyses.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Group)
+public class StatusCacheBenchmark {
+    @Param({ "10", "1000" })
+    int analyses;
+
+    private StatusCache<String, FinderStatus> cache;
+
+    private String[] ids;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        cache = new StatusCache<>();
+        ids = new String[analyses];
+
+        for (int i = 0; i < analyses; i++) {
+            ids[i] = Integer.toString(i);
+            cache.put(ids[i], new FinderStatus());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+    }
+
+    @Benchmark
+    @Group("polling")
+    @GroupThreads(1)
+    public FinderStatus put(Cursor cursor) {
+        return cache.put(ids[cursor.next++ % ids.length], new FinderStatus());
+    }
+
+    @Benchmark
+    @Group("polling")
+    @GroupThreads(7)
+    public FinderStatus get(Cursor cursor) {
+        return cache.get(ids[cursor.next++ % ids.length]);
+    }
+}
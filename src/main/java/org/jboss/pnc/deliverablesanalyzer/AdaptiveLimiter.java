@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Concurrency limit adapting to the latency of the calls. The limit grows by one for every limit of calls completing
+ * within the latency threshold and it is halved by a call which is slower or fails (additive increase, multiplicative
+ * decrease). A caller waits while the number of calls in flight reaches the limit.
+ */
+public class AdaptiveLimiter {
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final long latencyThresholdNanos;
+
+    private double limit;
+
+    private int inFlight;
+
+    /**
+     * Creates the limiter starting at the maximum limit.
+     *
+     * @param minLimit lowest limit
+     * @param maxLimit highest limit
+     * @param latencyThreshold latency above which the limit is decreased
+     */
+    public AdaptiveLimiter(int minLimit, int maxLimit, Duration latencyThreshold) {
+        this.minLimit = Math.max(1, Math.min(minLimit, maxLimit));
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.limit = maxLimit;
+    }
+
+    /**
+     * Waits until a call can be made.
+     */
+    public synchronized void acquire() {
+        while (inFlight >= getLimit()) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while waiting for the concurrency limit");
+            }
+        }
+
+        inFlight++;
+    }
+
+    /**
+     * Records the completion of a call and adapts the limit.
+     *
+     * @param latencyNanos latency of the call
+     * @param failed whether the call failed
+     */
+    public synchronized void release(long latencyNanos, boolean failed) {
+        inFlight--;
+
+        if (failed || latencyNanos > latencyThresholdNanos) {
+            limit = Math.max(minLimit, limit / 2.0D);
+        } else {
+            limit = Math.min(maxLimit, limit + 1.0D / limit);
+        }
+
+        notifyAll();
+    }
+
+    /**
+     * Records a call which was cancelled before it completed, without adapting the limit.
+     */
+    public synchronized void cancel() {
+        inFlight--;
+        notifyAll();
+    }
+
+    /**
+     * Returns the current limit.
+     *
+     * @return limit
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Returns the number of calls in flight.
+     *
+     * @return calls in flight
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import org.jboss.pnc.build.finder.core.BuildConfig;
+import org.jboss.pnc.build.finder.core.BuildSystem;
+import org.jboss.pnc.build.finder.core.ChecksumType;
+import org.jboss.pnc.deliverablesanalyzer.model.LookupTuning;
+
+/**
+ * Read-only view of a configuration shared by several analyses. The lookup settings which are not set by the request
+ * configuration are taken from the tuning of the analysis, so the shared configuration is never modified.
+ */
+final class AnalysisConfig extends BuildConfig {
+    private final BuildConfig config;
+
+    private final LookupTuning tuning;
+
+    private final Set<String> requestedSettings;
+
+    AnalysisConfig(BuildConfig config, LookupTuning tuning, Set<String> requestedSettings) {
+        this.config = config;
+        this.tuning = tuning;
+        this.requestedSettings = requestedSettings;
+    }
+
+    /**
+     * Returns the tuned value of a lookup setting, or null if the request configuration sets it or if the lookups of
+     * the setting are not tuned.
+     */
+    private <T> T getTuned(String name, Function<LookupTuning, T> setting) {
+        return tuning != null && !requestedSettings.contains(name) ? setting.apply(tuning) : null;
+    }
+
+    private static <T> List<T> unmodifiable(List<T> values) {
+        return values != null ? Collections.unmodifiableList(values) : null;
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("The configuration is shared by the analyses and can't be modified");
+    }
+
+    @Override
+    public List<String> getArchiveExtensions() {
+        return unmodifiable(config.getArchiveExtensions());
+    }
+
+    @Override
+    public void setArchiveExtensions(List<String> archiveExtensions) {
+        throw readOnly();
+    }
+
+    @Override
+    public List<String> getArchiveTypes() {
+        return unmodifiable(config.getArchiveTypes());
+    }
+
+    @Override
+    public void setArchiveTypes(List<String> archiveTypes) {
+        throw readOnly();
+    }
+
+    @Override
+    public List<BuildSystem> getBuildSystems() {
+        return unmodifiable(config.getBuildSystems());
+    }
+
+    @Override
+    public void setBuildSystems(List<BuildSystem> buildSystems) {
+        throw readOnly();
+    }
+
+    @Override
+    public Long getCacheLifespan() {
+        return config.getCacheLifespan();
+    }
+
+    @Override
+    public void setCacheLifespan(Long cacheLifespan) {
+        throw readOnly();
+    }
+
+    @Override
+    public Long getCacheMaxIdle() {
+        return config.getCacheMaxIdle();
+    }
+
+    @Override
+    public void setCacheMaxIdle(Long cacheMaxIdle) {
+        throw readOnly();
+    }
+
+    @Override
+    public Boolean getChecksumOnly() {
+        return config.getChecksumOnly();
+    }
+
+    @Override
+    public void setChecksumOnly(Boolean checksumOnly) {
+        throw readOnly();
+    }
+
+    @Override
+    public Set<ChecksumType> getChecksumTypes() {
+        Set<ChecksumType> checksumTypes = config.getChecksumTypes();
+        return checksumTypes != null ? Collections.unmodifiableSet(checksumTypes) : null;
+    }
+
+    @Override
+    public void setChecksumTypes(Set<ChecksumType> checksumTypes) {
+        throw readOnly();
+    }
+
+    @Override
+    public Boolean getDisableCache() {
+        return config.getDisableCache();
+    }
+
+    @Override
+    public void setDisableCache(Boolean disableCache) {
+        throw readOnly();
+    }
+
+    @Override
+    public Boolean getDisableRecursion() {
+        return config.getDisableRecursion();
+    }
+
+    @Override
+    public void setDisableRecursion(Boolean disableRecursion) {
+        throw readOnly();
+    }
+
+    @Override
+    public List<Pattern> getExcludes() {
+        return unmodifiable(config.getExcludes());
+    }
+
+    @Override
+    public void setExcludes(List<Pattern> excludes) {
+        throw readOnly();
+    }
+
+    @Override
+    public URL getKojiHubURL() {
+        return config.getKojiHubURL();
+    }
+
+    @Override
+    public void setKojiHubURL(URL kojiHubURL) {
+        throw readOnly();
+    }
+
+    @Override
+    public int getKojiMulticallSize() {
+        Integer tuned = getTuned("kojiMulticallSize", LookupTuning::getKojiMulticallSize);
+        return tuned != null ? tuned : config.getKojiMulticallSize();
+    }
+
+    @Override
+    public void setKojiMulticallSize(Integer kojiMulticallSize) {
+        throw readOnly();
+    }
+
+    @Override
+    public Integer getKojiNumThreads() {
+        Integer tuned = getTuned("kojiNumThreads", LookupTuning::getKojiNumThreads);
+        return tuned != null ? tuned : config.getKojiNumThreads();
+    }
+
+    @Override
+    public void setKojiNumThreads(Integer kojiNumThreads) {
+        throw readOnly();
+    }
+
+    @Override
+    public URL getKojiWebURL() {
+        return config.getKojiWebURL();
+    }
+
+    @Override
+    public void setKojiWebURL(URL kojiWebURL) {
+        throw readOnly();
+    }
+
+    @Override
+    public String getOutputDirectory() {
+        return config.getOutputDirectory();
+    }
+
+    @Override
+    public void setOutputDirectory(String outputDirectory) {
+        throw readOnly();
+    }
+
+    @Override
+    public Integer getPncPartitionSize() {
+        Integer tuned = getTuned("pncPartitionSize", LookupTuning::getPncPartitionSize);
+        return tuned != null ? tuned : config.getPncPartitionSize();
+    }
+
+    @Override
+    public void setPncPartitionSize(Integer pncPartitionSize) {
+        throw readOnly();
+    }
+
+    @Override
+    public Long getPncNumThreads() {
+        Integer tuned = getTuned("pncNumThreads", LookupTuning::getPncNumThreads);
+        return tuned != null ? Long.valueOf(tuned) : config.getPncNumThreads();
+    }
+
+    @Override
+    public void setPncNumThreads(Long pncNumThreads) {
+        throw readOnly();
+    }
+
+    @Override
+    public URL getPncURL() {
+        return config.getPncURL();
+    }
+
+    @Override
+    public void setPncURL(URL pncURL) {
+        throw readOnly();
+    }
+
+    @Override
+    public Boolean getUseBuildsFile() {
+        return config.getUseBuildsFile();
+    }
+
+    @Override
+    public void setUseBuildsFile(Boolean useBuildsFile) {
+        throw readOnly();
+    }
+
+    @Override
+    public Boolean getUseChecksumsFile() {
+        return config.getUseChecksumsFile();
+    }
+
+    @Override
+    public void setUseChecksumsFile(Boolean useChecksumsFile) {
+        throw readOnly();
+    }
+
+    @Override
+    public String toString() {
+        return "AnalysisConfig{" + "config=" + config + ", tuning=" + tuning + ", requestedSettings="
+                + requestedSettings + '}';
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+
+/**
+ * Bounded executors running the analyses, isolated from the worker threads of Quarkus which serve the REST requests.
+ * The cancel, status, health and version requests are therefore not queued behind the analyses, however many of them
+ * are running. Each level of an analysis has its own executor, so that a task waiting for the tasks of the level below
+ * never takes the threads they need:
+ * <ul>
+ * <li>analyses: the analyses, from the end of the request to the callback</li>
+ * <li>deliverables: the deliverables of the analyses</li>
+ * <li>workers: the checksums and the lookup of the deliverables, which run at the same time</li>
+ * </ul>
+ * The tasks beyond the threads of an executor wait in its queue.
+ */
+@ApplicationScoped
+public class AnalysisExecutors {
+    public static final String ACTIVE = "analysis.executor.active";
+
+    public static final String QUEUED = "analysis.executor.queued";
+
+    /**
+     * Number of analyses running at the same time.
+     */
+    @ConfigProperty(name = "analysis.executor.analyses", defaultValue = "8")
+    int analysisThreads;
+
+    /**
+     * Number of deliverables analyzed at the same time by all the analyses.
+     */
+    @ConfigProperty(name = "analysis.executor.deliverables", defaultValue = "16")
+    int deliverableThreads;
+
+    /**
+     * Number of checksum and lookup tasks running at the same time. Every deliverable runs two of them.
+     */
+    @ConfigProperty(name = "analysis.executor.workers", defaultValue = "32")
+    int workerThreads;
+
+    @Inject
+    MetricRegistry registry;
+
+    private ThreadPoolExecutor analyses;
+
+    private ThreadPoolExecutor deliverables;
+
+    private ThreadPoolExecutor workers;
+
+    @PostConstruct
+    void init() {
+        analyses = create("analysis", analysisThreads);
+        deliverables = create("deliverable", deliverableThreads);
+        workers = create("analysis-worker", workerThreads);
+    }
+
+    @PreDestroy
+    void destroy() {
+        analyses.shutdownNow();
+        deliverables.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Returns the number of analyses running at the same time, the others wait in the queue.
+     *
+     * @return number of threads of the analysis executor
+     */
+    public int getAnalysisThreads() {
+        return analysisThreads;
+    }
+
+    public ExecutorService getAnalyses() {
+        return analyses;
+    }
+
+    public ExecutorService getDeliverables() {
+        return deliverables;
+    }
+
+    public ExecutorService getWorkers() {
+        return workers;
+    }
+
+    private ThreadPoolExecutor create(String name, int threads) {
+        BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                queue,
+                createThreadFactory(name));
+        Tag tag = new Tag("pool", name);
+
+        register(ACTIVE, "Number of threads of the analysis executor running a task", executor::getActiveCount, tag);
+        register(QUEUED, "Number of tasks waiting for a thread of the analysis executor", queue::size, tag);
+
+        return executor;
+    }
+
+    private void register(String name, String description, Supplier<Number> value, Tag tag) {
+        Metadata metadata = Metadata.builder()
+                .withName(name)
+                .withDescription(description)
+                .withType(MetricType.GAUGE)
+                .withUnit(MetricUnits.NONE)
+                .build();
+
+        registry.gauge(metadata, value, tag);
+    }
+
+    private static ThreadFactory createThreadFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
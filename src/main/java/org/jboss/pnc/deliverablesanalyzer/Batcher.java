@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Histogram;
+
+/**
+ * Collects the items submitted by all the callers and sends them in batches. A batch is sent as soon as enough items
+ * are queued to fill it, the remaining items are sent after the window, so that a single caller waits at most the
+ * window for its last batch.
+ *
+ * @param <T> type of the items
+ * @param <R> type of the results of the items
+ */
+public class Batcher<T, R> {
+    private final IntSupplier batchSize;
+
+    private final long windowNanos;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final Executor senders;
+
+    private final Sender<T, R> sender;
+
+    private final Counter batches;
+
+    private final Histogram batchSizes;
+
+    private final Observer observer;
+
+    private final Queue<Pending<T, R>> queue = new ArrayDeque<>();
+
+    private ScheduledFuture<?> flushTask;
+
+    /**
+     * Creates the batcher.
+     *
+     * @param batchSize maximum number of items in a batch, read before every batch
+     * @param window how long the items are collected before a batch which is not full is sent
+     * @param scheduler scheduler of the sending of the batches which are not full
+     * @param senders executor sending the batches
+     * @param sender sends a batch and returns the results of its items in the same order
+     * @param batches counter of the sent batches
+     * @param batchSizes histogram of the sizes of the sent batches
+     * @param observer observer of the latency and the outcome of the sent batches
+     */
+    public Batcher(
+            IntSupplier batchSize,
+            Duration window,
+            ScheduledExecutorService scheduler,
+            Executor senders,
+            Sender<T, R> sender,
+            Counter batches,
+            Histogram batchSizes,
+            Observer observer) {
+        this.batchSize = batchSize;
+        this.windowNanos = window.toNanos();
+        this.scheduler = scheduler;
+        this.senders = senders;
+        this.sender = sender;
+        this.batches = batches;
+        this.batchSizes = batchSizes;
+        this.observer = observer;
+    }
+
+    /**
+     * Queues the items to be sent with the items of the other callers.
+     *
+     * @param items items
+     * @return results of the items in the same order
+     */
+    public List<CompletableFuture<R>> submit(List<T> items) {
+        List<CompletableFuture<R>> results = new ArrayList<>(items.size());
+
+        synchronized (queue) {
+            for (T item : items) {
+                Pending<T, R> pending = new Pending<>(item);
+                queue.add(pending);
+                results.add(pending.result);
+            }
+
+            int size = getBatchSize();
+
+            while (queue.size() >= size) {
+                send(poll(size));
+            }
+
+            if (!queue.isEmpty() && flushTask == null) {
+                try {
+                    flushTask = scheduler.schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+                } catch (RejectedExecutionException e) {
+                    // The scheduler is shut down, so the remaining items are sent without waiting for the window
+                    sendAll(size);
+                }
+            }
+        }
+
+        return results;
+    }
+
+    private void flush() {
+        synchronized (queue) {
+            flushTask = null;
+            sendAll(getBatchSize());
+        }
+    }
+
+    private void sendAll(int size) {
+        while (!queue.isEmpty()) {
+            send(poll(size));
+        }
+    }
+
+    private int getBatchSize() {
+        return Math.max(1, batchSize.getAsInt());
+    }
+
+    private List<Pending<T, R>> poll(int size) {
+        List<Pending<T, R>> batch = new ArrayList<>(Math.min(queue.size(), size));
+
+        while (batch.size() < size && !queue.isEmpty()) {
+            batch.add(queue.poll());
+        }
+
+        return batch;
+    }
+
+    private void send(List<Pending<T, R>> batch) {
+        try {
+            senders.execute(() -> sendNow(batch));
+        } catch (RejectedExecutionException e) {
+            // The senders are shut down or saturated, the callers must not wait for a batch which is never sent
+            for (Pending<T, R> pending : batch) {
+                pending.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void sendNow(List<Pending<T, R>> batch) {
+        batches.inc();
+        batchSizes.update(batch.size());
+
+        List<T> items = new ArrayList<>(batch.size());
+
+        for (Pending<T, R> pending : batch) {
+            items.add(pending.item);
+        }
+
+        long start = System.nanoTime();
+
+        try {
+            List<R> results = sender.send(items);
+            observer.batchSent(items.size(), System.nanoTime() - start, false);
+
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result.complete(results.get(i));
+            }
+        } catch (Exception e) {
+            observer.batchSent(items.size(), System.nanoTime() - start, true);
+
+            for (Pending<T, R> pending : batch) {
+                pending.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Sends a batch of items.
+     *
+     * @param <T> type of the items
+     * @param <R> type of the results of the items
+     */
+    @FunctionalInterface
+    public interface Sender<T, R> {
+        List<R> send(List<T> items) throws Exception;
+    }
+
+    /**
+     * Observes the sent batches.
+     */
+    @FunctionalInterface
+    public interface Observer {
+        void batchSent(int size, long latencyNanos, boolean failed);
+    }
+
+    private static final class Pending<T, R> {
+        private final T item;
+
+        private final CompletableFuture<R> result = new CompletableFuture<>();
+
+        private Pending(T item) {
+            this.item = item;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.IntSupplier;
+
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Histogram;
+import org.jboss.pnc.build.finder.koji.ClientSession;
+
+import com.redhat.red.build.koji.KojiClientException;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveQuery;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveType;
+import com.redhat.red.build.koji.model.xmlrpc.KojiBuildInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiIdOrName;
+import com.redhat.red.build.koji.model.xmlrpc.KojiRpmInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiTagInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiTaskInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiTaskRequest;
+
+/**
+ * Koji session which queues the checksum lookups of all its callers and sends them in shared multicalls. A multicall
+ * is sent as soon as the queue holds enough queries to fill it, the remaining queries are sent after the window. The
+ * callers wait for the results of their own queries.
+ */
+public class BatchingClientSession implements ClientSession {
+    private final ClientSession delegate;
+
+    private final Batcher<KojiArchiveQuery, List<KojiArchiveInfo>> batcher;
+
+    public BatchingClientSession(
+            ClientSession delegate,
+            IntSupplier multicallSize,
+            Duration window,
+            ScheduledExecutorService scheduler,
+            Executor senders,
+            Counter multicalls,
+            Histogram multicallSizes,
+            Batcher.Observer observer) {
+        this.delegate = delegate;
+        this.batcher = new Batcher<>(
+                multicallSize,
+                window,
+                scheduler,
+                senders,
+                delegate::listArchives,
+                multicalls,
+                multicallSizes,
+                observer);
+    }
+
+    @Override
+    public List<KojiArchiveInfo> listArchives(KojiArchiveQuery query) throws KojiClientException {
+        return delegate.listArchives(query);
+    }
+
+    @Override
+    public List<List<KojiArchiveInfo>> listArchives(List<KojiArchiveQuery> queries) throws KojiClientException {
+        // Only the lookups by checksum are batched, any other query is sent as it is
+        if (queries.isEmpty() || queries.stream().anyMatch(query -> query.getChecksum() == null)) {
+            return delegate.listArchives(queries);
+        }
+
+        List<CompletableFuture<List<KojiArchiveInfo>>> futures = batcher.submit(queries);
+        List<List<KojiArchiveInfo>> results = new ArrayList<>(futures.size());
+
+        for (CompletableFuture<List<KojiArchiveInfo>> future : futures) {
+            results.add(await(future));
+        }
+
+        return results;
+    }
+
+    private static List<KojiArchiveInfo> await(CompletableFuture<List<KojiArchiveInfo>> result)
+            throws KojiClientException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for a Koji multicall");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof KojiClientException) {
+                throw (KojiClientException) cause;
+            }
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            throw new KojiClientException("Koji multicall failed", cause);
+        }
+    }
+
+    @Override
+    public Map<String, KojiArchiveType> getArchiveTypeMap() throws KojiClientException {
+        return delegate.getArchiveTypeMap();
+    }
+
+    @Override
+    public KojiBuildInfo getBuild(int buildId) throws KojiClientException {
+        return delegate.getBuild(buildId);
+    }
+
+    @Override
+    public KojiTaskInfo getTaskInfo(int taskId, boolean request) throws KojiClientException {
+        return delegate.getTaskInfo(taskId, request);
+    }
+
+    @Override
+    public KojiTaskRequest getTaskRequest(int taskId) throws KojiClientException {
+        return delegate.getTaskRequest(taskId);
+    }
+
+    @Override
+    public List<KojiTagInfo> listTags(int id) throws KojiClientException {
+        return delegate.listTags(id);
+    }
+
+    @Override
+    public void enrichArchiveTypeInfo(List<KojiArchiveInfo> archiveInfos) throws KojiClientException {
+        delegate.enrichArchiveTypeInfo(archiveInfos);
+    }
+
+    @Override
+    public List<KojiBuildInfo> getBuild(List<KojiIdOrName> idsOrNames) throws KojiClientException {
+        return delegate.getBuild(idsOrNames);
+    }
+
+    @Override
+    public List<KojiRpmInfo> getRPM(List<KojiIdOrName> idsOrNames) throws KojiClientException {
+        return delegate.getRPM(idsOrNames);
+    }
+
+    @Override
+    public List<KojiTaskInfo> getTaskInfo(List<Integer> taskIds, List<Boolean> requests) throws KojiClientException {
+        return delegate.getTaskInfo(taskIds, requests);
+    }
+
+    @Override
+    public List<List<KojiRpmInfo>> listBuildRPMs(List<KojiIdOrName> idsOrNames) throws KojiClientException {
+        return delegate.listBuildRPMs(idsOrNames);
+    }
+
+    @Override
+    public List<List<KojiTagInfo>> listTags(List<KojiIdOrName> idsOrNames) throws KojiClientException {
+        return delegate.listTags(idsOrNames);
+    }
+}
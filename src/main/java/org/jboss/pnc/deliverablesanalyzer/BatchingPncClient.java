@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Histogram;
+import org.jboss.pnc.build.finder.pnc.client.PncClient;
+import org.jboss.pnc.build.finder.pnc.client.PncClientImpl;
+import org.jboss.pnc.build.finder.pnc.client.StaticRemoteCollection;
+import org.jboss.pnc.client.RemoteCollection;
+import org.jboss.pnc.client.RemoteResourceException;
+import org.jboss.pnc.dto.Artifact;
+import org.jboss.pnc.dto.BuildPushResult;
+import org.jboss.pnc.dto.ProductVersion;
+
+/**
+ * PNC client which queues the artifact lookups of all its callers and sends them in shared requests. Build Finder looks
+ * up every checksum with its own request, so the client collects the checksums of all the running analyses and looks
+ * them up with a single {@code =in=} query as soon as enough checksums are queued to fill a partition, or after the
+ * window. The callers wait for the artifacts of their own checksums.
+ * <p>
+ * The client is shared by all the analyses, so {@link #close()} does nothing and the client is closed by
+ * {@link #shutdown()}.
+ */
+public class BatchingPncClient implements PncClient {
+    private final PncClient delegate;
+
+    private final Batcher<String, RemoteCollection<Artifact>> md5s;
+
+    private final Batcher<String, RemoteCollection<Artifact>> sha1s;
+
+    private final Batcher<String, RemoteCollection<Artifact>> sha256s;
+
+    public BatchingPncClient(
+            PncClient delegate,
+            ArtifactQuery query,
+            IntSupplier partitionSize,
+            Duration window,
+            ScheduledExecutorService scheduler,
+            Executor senders,
+            Counter requests,
+            Histogram requestSizes,
+            Batcher.Observer observer) {
+        this.delegate = delegate;
+        this.md5s = new Batcher<>(
+                partitionSize,
+                window,
+                scheduler,
+                senders,
+                checksums -> getArtifacts(query, "md5", Artifact::getMd5, checksums),
+                requests,
+                requestSizes,
+                observer);
+        this.sha1s = new Batcher<>(
+                partitionSize,
+                window,
+                scheduler,
+                senders,
+                checksums -> getArtifacts(query, "sha1", Artifact::getSha1, checksums),
+                requests,
+                requestSizes,
+                observer);
+        this.sha256s = new Batcher<>(
+                partitionSize,
+                window,
+                scheduler,
+                senders,
+                checksums -> getArtifacts(query, "sha256", Artifact::getSha256, checksums),
+                requests,
+                requestSizes,
+                observer);
+    }
+
+    @Override
+    public RemoteCollection<Artifact> getArtifactsByMd5(String md5) throws RemoteResourceException {
+        return await(md5s.submit(Collections.singletonList(md5)).get(0));
+    }
+
+    @Override
+    public RemoteCollection<Artifact> getArtifactsBySha1(String sha1) throws RemoteResourceException {
+        return await(sha1s.submit(Collections.singletonList(sha1)).get(0));
+    }
+
+    @Override
+    public RemoteCollection<Artifact> getArtifactsBySha256(String sha256) throws RemoteResourceException {
+        return await(sha256s.submit(Collections.singletonList(sha256)).get(0));
+    }
+
+    @Override
+    public BuildPushResult getBuildPushResult(String buildId) throws RemoteResourceException {
+        return delegate.getBuildPushResult(buildId);
+    }
+
+    @Override
+    public ProductVersion getProductVersion(String productMilestoneId) throws RemoteResourceException {
+        return delegate.getProductVersion(productMilestoneId);
+    }
+
+    /**
+     * Does nothing, since the client is shared by all the analyses.
+     */
+    @Override
+    public void close() {
+        // Closed by shutdown()
+    }
+
+    /**
+     * Closes the underlying client.
+     */
+    public void shutdown() {
+        delegate.close();
+    }
+
+    /**
+     * Returns the RSQL query finding the built artifacts having any of the checksums.
+     *
+     * @param field name of the checksum field
+     * @param checksums checksums
+     * @return RSQL query
+     */
+    static String getQuery(String field, List<String> checksums) {
+        return field + "=in=(" + String.join(",", checksums) + ");" + PncClientImpl.ONLY_BUILT;
+    }
+
+    private static List<RemoteCollection<Artifact>> getArtifacts(
+            ArtifactQuery query,
+            String field,
+            Function<Artifact, String> checksum,
+            List<String> checksums) throws RemoteResourceException {
+        Map<String, List<Artifact>> artifactsByChecksum = new HashMap<>(checksums.size());
+
+        for (Artifact artifact : query.getArtifacts(field, checksums)) {
+            String value = checksum.apply(artifact);
+
+            if (value != null) {
+                artifactsByChecksum.computeIfAbsent(value.toLowerCase(Locale.ROOT), key -> new ArrayList<>(1))
+                        .add(artifact);
+            }
+        }
+
+        List<RemoteCollection<Artifact>> results = new ArrayList<>(checksums.size());
+
+        for (String value : checksums) {
+            List<Artifact> artifacts = artifactsByChecksum
+                    .getOrDefault(value.toLowerCase(Locale.ROOT), Collections.emptyList());
+            results.add(new StaticRemoteCollection<>(artifacts));
+        }
+
+        return results;
+    }
+
+    private static RemoteCollection<Artifact> await(CompletableFuture<RemoteCollection<Artifact>> result)
+            throws RemoteResourceException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for a PNC request");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof RemoteResourceException) {
+                throw (RemoteResourceException) cause;
+            }
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            throw new IllegalStateException("PNC request failed", cause);
+        }
+    }
+
+    /**
+     * Finds the built artifacts having any of the checksums, with the query returned by
+     * {@link #getQuery(String, List)}.
+     */
+    @FunctionalInterface
+    public interface ArtifactQuery {
+        Collection<Artifact> getArtifacts(String field, List<String> checksums) throws RemoteResourceException;
+    }
+}
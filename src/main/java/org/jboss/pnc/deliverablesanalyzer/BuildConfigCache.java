@@ -15,22 +15,120 @@
  */
 package org.jboss.pnc.deliverablesanalyzer;
 
+import java.io.IOException;
 import java.time.Duration;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
-import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.collections4.map.LRUMap;
 import org.apache.commons.collections4.map.PassiveExpiringMap;
+import org.jboss.pnc.build.finder.core.BuildConfig;
+import org.jboss.pnc.build.finder.core.JSONUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Interns the effective configurations of the analyses. The same request configurations are sent over and over, so the
+ * effective configuration is built once per distinct request configuration, and shared by all the analyses using it.
+ * The lookup tuning changes with every analysis, so it is applied to the views of the analyses instead. This saves
+ * copying the application configuration, parsing the request configuration and compiling the exclude patterns for
+ * every analysis.
+ */
 @Singleton
-public class BuildConfigCache<K, V> extends PassiveExpiringMap<K, V> {
-    private static final long serialVersionUID = -3473704377200486238L;
+public class BuildConfigCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BuildConfigCache.class);
 
     private static final long TIME_TO_LIVE_MILLIS = Duration.ofDays(1L).toMillis();
 
-    @Inject
-    public BuildConfigCache() {
-        super(TIME_TO_LIVE_MILLIS, new ConcurrentHashMap<>());
+    private static final int MAX_ENTRIES = 1000;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * Settings which don't affect the results of an analysis, so they are not part of the fingerprint.
+     */
+    private static final Set<String> PERFORMANCE_SETTINGS = Set
+            .of("kojiMulticallSize", "kojiNumThreads", "outputDirectory", "pncNumThreads", "pncPartitionSize");
+
+    private final Map<String, EffectiveConfig> configs = new PassiveExpiringMap<>(
+            TIME_TO_LIVE_MILLIS,
+            new LRUMap<>(MAX_ENTRIES));
+
+    /**
+     * Returns the effective configuration for the request configuration, loading it if it is not cached.
+     *
+     * @param rawConfig request configuration, may be null
+     * @param loader loads the effective configuration
+     * @return effective configuration
+     * @throws IOException if the effective configuration can't be loaded
+     */
+    public synchronized EffectiveConfig get(String rawConfig, Loader loader) throws IOException {
+        String key = getKey(rawConfig);
+        EffectiveConfig effectiveConfig = configs.get(key);
+
+        if (effectiveConfig == null) {
+            Set<String> requestedSettings = new HashSet<>();
+            BuildConfig config = loader.load(rawConfig, requestedSettings);
+            effectiveConfig = new EffectiveConfig(config, requestedSettings, getFingerprint(config));
+            configs.put(key, effectiveConfig);
+            LOGGER.debug("Cached effective config {} with fingerprint {}", key, effectiveConfig.getFingerprint());
+        }
+
+        return effectiveConfig;
+    }
+
+    static String getKey(String rawConfig) {
+        return DigestUtils.sha256Hex(rawConfig != null ? rawConfig : "");
+    }
+
+    /**
+     * Computes the fingerprint of the settings affecting the results. The settings are sorted by name and the values of
+     * the lists are sorted, since their order doesn't matter.
+     *
+     * @param config configuration
+     * @return SHA-256 of the settings
+     * @throws IOException if the configuration can't be serialized
+     */
+    static String getFingerprint(BuildConfig config) throws IOException {
+        Map<String, Object> settings = OBJECT_MAPPER
+                .readValue(JSONUtils.dumpString(config), new TypeReference<TreeMap<String, Object>>() {
+                });
+        settings.keySet().removeAll(PERFORMANCE_SETTINGS);
+        settings.replaceAll((name, value) -> value instanceof List ? sort((List<?>) value) : value);
+
+        return DigestUtils.sha256Hex(OBJECT_MAPPER.writeValueAsString(settings));
+    }
+
+    private static List<?> sort(List<?> values) {
+        List<Object> sorted = new ArrayList<>(values);
+        sorted.sort(Comparator.comparing(String::valueOf));
+        return sorted;
+    }
+
+    /**
+     * Loads an effective configuration.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        /**
+         * Loads the effective configuration of a request configuration, without the lookup tuning.
+         *
+         * @param rawConfig request configuration, may be null
+         * @param requestedSettings receives the names of the lookup settings set by the request configuration
+         * @return effective configuration
+         * @throws IOException if the request configuration can't be parsed
+         */
+        BuildConfig load(String rawConfig, Set<String> requestedSettings) throws IOException;
     }
 }
@@ -0,0 +1,349 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+import org.infinispan.Cache;
+import org.infinispan.client.hotrod.RemoteCache;
+import org.infinispan.client.hotrod.RemoteCacheManager;
+import org.infinispan.client.hotrod.ServerStatistics;
+import org.infinispan.client.hotrod.configuration.NearCacheMode;
+import org.infinispan.client.hotrod.configuration.RemoteCacheConfiguration;
+import org.infinispan.client.hotrod.jmx.RemoteCacheClientStatisticsMXBean;
+import org.infinispan.commons.api.BasicCacheContainer;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.stats.Stats;
+import org.jboss.pnc.build.finder.core.BuildConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Publishes the statistics of the caches as application metrics. The number of entries is published for all the
+ * caches, the memory footprint and the store size for the embedded caches and the near cache hits for the remote
+ * caches. The hits, misses and latencies are measured by {@link InstrumentedCacheContainer}. Every metric is tagged by
+ * the cache name.
+ */
+@ApplicationScoped
+public class CacheMetrics {
+    /**
+     * Estimated heap memory used by the entries of the cache. It is only estimated when the cache is bounded by size.
+     */
+    public static final String HEAP_MEMORY = "cache.memory.heap";
+
+    /**
+     * Off-heap memory used by the entries of the cache.
+     */
+    public static final String OFF_HEAP_MEMORY = "cache.memory.offheap";
+
+    /**
+     * Number of entries kept in memory by the cache.
+     */
+    public static final String ENTRIES_IN_MEMORY = "cache.entries.memory";
+
+    /**
+     * Number of entries of the cache, including the entries in the store.
+     */
+    public static final String ENTRIES = "cache.entries";
+
+    /**
+     * Disk space used by the store of the embedded cache.
+     */
+    public static final String STORE_SIZE = "cache.store.size";
+
+    /**
+     * Number of reads served by the near cache of the remote cache.
+     */
+    public static final String NEAR_CACHE_HITS = "cache.near.hits";
+
+    /**
+     * Number of reads which missed the near cache and were sent to the server.
+     */
+    public static final String NEAR_CACHE_MISSES = "cache.near.misses";
+
+    /**
+     * Ratio of the reads served by the near cache of the remote cache.
+     */
+    public static final String NEAR_CACHE_HIT_RATIO = "cache.near.hit-ratio";
+
+    /**
+     * Number of near cache entries invalidated by the server.
+     */
+    public static final String NEAR_CACHE_INVALIDATIONS = "cache.near.invalidations";
+
+    /**
+     * Number of entries in the near cache of the remote cache.
+     */
+    public static final String NEAR_CACHE_SIZE = "cache.near.size";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheMetrics.class);
+
+    /**
+     * Counting the entries and the store size may need to go through the whole store or ask the server, so the values
+     * are refreshed at most once per this period.
+     */
+    private static final long EXPENSIVE_VALUE_PERIOD_MILLIS = Duration.ofMinutes(1L).toMillis();
+
+    @Inject
+    MetricRegistry registry;
+
+    @Inject
+    BuildConfig config;
+
+    /**
+     * Wraps the cache container, so that the reads and writes of its caches are measured.
+     *
+     * @param cacheContainer cache container, may be null if the cache is disabled
+     * @return instrumented cache container or null if the cache is disabled
+     */
+    public BasicCacheContainer instrument(BasicCacheContainer cacheContainer) {
+        return cacheContainer != null ? new InstrumentedCacheContainer(cacheContainer, registry) : null;
+    }
+
+    /**
+     * Registers the gauges for every cache of the container.
+     *
+     * @param cacheContainer cache container, may be null if the cache is disabled
+     */
+    public void register(BasicCacheContainer cacheContainer) {
+        if (cacheContainer instanceof EmbeddedCacheManager) {
+            registerEmbedded((EmbeddedCacheManager) cacheContainer);
+        } else if (cacheContainer instanceof RemoteCacheManager) {
+            registerRemote((RemoteCacheManager) cacheContainer);
+        }
+    }
+
+    private void registerEmbedded(EmbeddedCacheManager cacheManager) {
+        Path location = Paths.get(cacheManager.getCacheManagerConfiguration().globalState().persistentLocation());
+
+        for (String cacheName : cacheManager.getCacheNames()) {
+            Cache<?, ?> cache = cacheManager.getCache(cacheName);
+            Tag tag = new Tag("cache", cacheName);
+
+            register(
+                    ENTRIES,
+                    "Number of cache entries including the entries in the store",
+                    MetricUnits.NONE,
+                    new PeriodicValue(() -> getStat(cache, Stats::getCurrentNumberOfEntries)),
+                    tag);
+            register(
+                    STORE_SIZE,
+                    "Disk space used by the cache store",
+                    MetricUnits.BYTES,
+                    new PeriodicValue(() -> getStoreSize(location, cacheName)),
+                    tag);
+
+            register(
+                    HEAP_MEMORY,
+                    "Estimated heap memory used by the cache entries",
+                    MetricUnits.BYTES,
+                    () -> getStat(cache, Stats::getDataMemoryUsed),
+                    tag);
+            register(
+                    OFF_HEAP_MEMORY,
+                    "Off-heap memory used by the cache entries",
+                    MetricUnits.BYTES,
+                    () -> getStat(cache, Stats::getOffHeapMemoryUsed),
+                    tag);
+            register(
+                    ENTRIES_IN_MEMORY,
+                    "Number of cache entries kept in memory",
+                    MetricUnits.NONE,
+                    () -> getStat(cache, Stats::getCurrentNumberOfEntriesInMemory),
+                    tag);
+        }
+
+        LOGGER.info("Registered memory metrics of {} caches", cacheManager.getCacheNames().size());
+    }
+
+    private void registerRemote(RemoteCacheManager cacheManager) {
+        for (String cacheName : CacheProvider.getCacheNames(config.getChecksumTypes())) {
+            RemoteCache<?, ?> cache = cacheManager.getCache(cacheName);
+
+            if (cache != null) {
+                register(
+                        ENTRIES,
+                        "Number of cache entries including the entries in the store",
+                        MetricUnits.NONE,
+                        new PeriodicValue(
+                                () -> cache.serverStatistics().getIntStatistic(ServerStatistics.CURRENT_NR_OF_ENTRIES)),
+                        new Tag("cache", cacheName));
+            }
+        }
+
+        int count = 0;
+
+        for (Map.Entry<String, RemoteCacheConfiguration> entry : cacheManager.getConfiguration()
+                .remoteCaches()
+                .entrySet()) {
+            if (entry.getValue().nearCacheMode() == NearCacheMode.DISABLED) {
+                continue;
+            }
+
+            RemoteCache<?, ?> cache = cacheManager.getCache(entry.getKey());
+
+            if (cache == null) {
+                continue;
+            }
+
+            RemoteCacheClientStatisticsMXBean statistics = cache.clientStatistics();
+            Tag tag = new Tag("cache", entry.getKey());
+
+            register(
+                    NEAR_CACHE_HITS,
+                    "Number of reads served by the near cache",
+                    MetricUnits.NONE,
+                    statistics::getNearCacheHits,
+                    tag);
+            register(
+                    NEAR_CACHE_MISSES,
+                    "Number of reads which missed the near cache",
+                    MetricUnits.NONE,
+                    statistics::getNearCacheMisses,
+                    tag);
+            register(
+                    NEAR_CACHE_HIT_RATIO,
+                    "Ratio of the reads served by the near cache",
+                    MetricUnits.NONE,
+                    () -> getHitRatio(statistics.getNearCacheHits(), statistics.getNearCacheMisses()),
+                    tag);
+            register(
+                    NEAR_CACHE_INVALIDATIONS,
+                    "Number of near cache entries invalidated by the server",
+                    MetricUnits.NONE,
+                    statistics::getNearCacheInvalidations,
+                    tag);
+            register(
+                    NEAR_CACHE_SIZE,
+                    "Number of entries in the near cache",
+                    MetricUnits.NONE,
+                    statistics::getNearCacheSize,
+                    tag);
+            count++;
+        }
+
+        LOGGER.info("Registered near cache metrics of {} caches", count);
+    }
+
+    static double getHitRatio(long hits, long misses) {
+        long total = hits + misses;
+        return total > 0L ? (double) hits / total : 0.0D;
+    }
+
+    /**
+     * Returns the size of the files of the cache store. The files of the cache are the files under a directory named
+     * after the cache or the files named after the cache.
+     *
+     * @param location location of the stores
+     * @param cacheName name of the cache
+     * @return size of the files in bytes
+     */
+    static long getStoreSize(Path location, String cacheName) {
+        if (!Files.isDirectory(location)) {
+            return 0L;
+        }
+
+        try (Stream<Path> files = Files.walk(location)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> isStoreFile(location.relativize(file), cacheName))
+                    .mapToLong(file -> file.toFile().length())
+                    .sum();
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.debug("Could not compute store size of cache {}", cacheName, e);
+            return 0L;
+        }
+    }
+
+    private static boolean isStoreFile(Path relativePath, String cacheName) {
+        for (Path element : relativePath) {
+            String name = element.toString();
+
+            if (name.equals(cacheName) || name.startsWith(cacheName + ".")) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static long getStat(Cache<?, ?> cache, ToLongFunction<Stats> stat) {
+        return cache.getStatus().allowInvocations() ? stat.applyAsLong(cache.getAdvancedCache().getStats()) : 0L;
+    }
+
+    private void register(String name, String description, String unit, Supplier<Number> value, Tag tag) {
+        Metadata metadata = Metadata.builder()
+                .withName(name)
+                .withDescription(description)
+                .withType(MetricType.GAUGE)
+                .withUnit(unit)
+                .build();
+
+        registry.gauge(metadata, value, tag);
+    }
+
+    /**
+     * Value refreshed at most once per {@link #EXPENSIVE_VALUE_PERIOD_MILLIS}.
+     */
+    private static final class PeriodicValue implements Supplier<Number> {
+        private final Supplier<Number> supplier;
+
+        private volatile Number value;
+
+        private volatile long expiration;
+
+        private PeriodicValue(Supplier<Number> supplier) {
+            this.supplier = supplier;
+        }
+
+        @Override
+        public Number get() {
+            long now = System.currentTimeMillis();
+
+            if (value == null || now >= expiration) {
+                try {
+                    value = supplier.get();
+                } catch (RuntimeException e) {
+                    LOGGER.debug("Could not refresh cache metric", e);
+
+                    if (value == null) {
+                        value = 0L;
+                    }
+                }
+
+                expiration = now + EXPENSIVE_VALUE_PERIOD_MILLIS;
+            }
+
+            return value;
+        }
+    }
+}
@@ -20,8 +20,13 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.ServiceLoader;
 import java.util.Set;
 
 import javax.enterprise.inject.Disposes;
@@ -31,14 +36,20 @@ import javax.inject.Inject;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.infinispan.client.hotrod.RemoteCacheManager;
 import org.infinispan.client.hotrod.configuration.ConfigurationBuilder;
+import org.infinispan.client.hotrod.configuration.NearCacheMode;
 import org.infinispan.client.hotrod.configuration.ServerConfigurationBuilder;
 import org.infinispan.commons.api.BasicCacheContainer;
+import org.infinispan.commons.dataconversion.MediaType;
 import org.infinispan.commons.util.Version;
+import org.infinispan.configuration.cache.CacheMode;
 import org.infinispan.configuration.cache.Configuration;
+import org.infinispan.configuration.cache.PersistenceConfigurationBuilder;
+import org.infinispan.configuration.cache.StorageType;
 import org.infinispan.configuration.global.GlobalConfiguration;
 import org.infinispan.configuration.global.GlobalConfigurationBuilder;
-import org.infinispan.configuration.global.GlobalConfigurationChildBuilder;
+import org.infinispan.eviction.EvictionStrategy;
 import org.infinispan.manager.DefaultCacheManager;
+import org.infinispan.remoting.transport.jgroups.JGroupsTransport;
 import org.jboss.pnc.build.finder.core.BuildConfig;
 import org.jboss.pnc.build.finder.core.ChecksumType;
 import org.jboss.pnc.build.finder.core.ConfigDefaults;
@@ -75,12 +86,103 @@ public class CacheProvider {
     @ConfigProperty(name = "quarkus.infinispan-client.auth-password")
     Optional<String> infinispanPassword;
 
+    /*
+     * Maximum number of entries in the near cache of every remote lookup cache, 0 disables the near cache. The
+     * ConfigProperty is the same as the one used by infinispan-quarkus-client to help with future migration.
+     */
+    @ConfigProperty(name = "quarkus.infinispan-client.near-cache-max-entries", defaultValue = "0")
+    int infinispanNearCacheMaxEntries;
+
     /**
      * Set the infinispan mode as either embedded or remote.
      */
     @ConfigProperty(name = "infinispan.mode")
     InfinispanMode infinispanMode;
 
+    /**
+     * Directory of the embedded cache store. Every node running on the same host must use its own directory.
+     */
+    @ConfigProperty(name = "infinispan.cache.location")
+    Optional<String> infinispanCacheLocation;
+
+    /**
+     * Name of the cluster joined by the nodes in the clustered infinispan mode.
+     */
+    @ConfigProperty(name = "infinispan.cluster.name", defaultValue = "deliverables-analyzer")
+    String infinispanClusterName;
+
+    /**
+     * JGroups stack used in the clustered infinispan mode. It can be any of the stacks bundled with Infinispan: udp,
+     * tcp, kubernetes, ec2, google or azure.
+     */
+    @ConfigProperty(name = "infinispan.cluster.stack", defaultValue = "tcp")
+    String infinispanClusterStack;
+
+    /**
+     * Number of nodes owning every entry of the distributed caches in the clustered infinispan mode.
+     */
+    @ConfigProperty(name = "infinispan.cluster.num-owners", defaultValue = "2")
+    int infinispanClusterNumOwners;
+
+    /**
+     * Storage of the in-memory data container of the embedded caches: HEAP or OFF_HEAP.
+     */
+    @ConfigProperty(name = "infinispan.memory.storage", defaultValue = "HEAP")
+    StorageType infinispanMemoryStorage;
+
+    /**
+     * Maximum number of entries kept in memory by every embedded cache.
+     */
+    @ConfigProperty(name = "infinispan.memory.max-count")
+    Optional<Long> infinispanMemoryMaxCount;
+
+    /**
+     * Maximum amount of memory used by every embedded cache, e.g. 256MB. Cannot be combined with the max count.
+     */
+    @ConfigProperty(name = "infinispan.memory.max-size")
+    Optional<String> infinispanMemoryMaxSize;
+
+    /**
+     * Persistent store of the embedded caches: SINGLE_FILE or ROCKSDB. The existing entries are not migrated when the
+     * store is changed.
+     */
+    @ConfigProperty(name = "infinispan.store", defaultValue = "SINGLE_FILE")
+    StoreType infinispanStore;
+
+    /**
+     * Return the names of all the caches used by the analysis.
+     *
+     * @param checksumTypes checksum types of the analysis
+     * @return list of cache names
+     */
+    public static List<String> getCacheNames(Collection<ChecksumType> checksumTypes) {
+        List<String> cacheNames = new ArrayList<>(4 * checksumTypes.size() + 3);
+
+        for (ChecksumType checksumType : checksumTypes) {
+            cacheNames.add("files-" + checksumType);
+            cacheNames.add("checksums-" + checksumType);
+            cacheNames.add("checksums-pnc-" + checksumType);
+            cacheNames.add("rpms-" + checksumType);
+        }
+
+        cacheNames.add("builds");
+        cacheNames.add("builds-pnc");
+        cacheNames.add(NotFoundCache.CACHE_NAME);
+
+        return Collections.unmodifiableList(cacheNames);
+    }
+
+    /**
+     * Return whether the cache holds results of Koji or PNC lookups, which are worth sharing between the nodes of a
+     * cluster. The files caches are specific to the distributions analyzed by the node.
+     *
+     * @param cacheName name of the cache
+     * @return true if the cache holds lookup results
+     */
+    static boolean isLookupCache(String cacheName) {
+        return !cacheName.startsWith("files-");
+    }
+
     private static void ensureConfigurationDirectoryExists() throws IOException {
         Path configPath = Paths.get(ConfigDefaults.CONFIG_PATH);
 
@@ -107,7 +209,10 @@ public class CacheProvider {
         switch (infinispanMode) {
             case EMBEDDED:
                 LOGGER.info("Using Embedded Infinispan cache");
-                return setupEmbeddedCacheManager();
+                return setupEmbeddedCacheManager(false);
+            case CLUSTERED:
+                LOGGER.info("Using Clustered Embedded Infinispan cache");
+                return setupEmbeddedCacheManager(true);
             case REMOTE:
                 LOGGER.info("Using Remote Infinispan cache");
                 return setupDistributedCacheManager();
@@ -129,15 +234,19 @@ public class CacheProvider {
 
     /**
      * Setup the embedded infinispan cache. The caches are also setup.
+     * <p>
+     * In the clustered mode, the cache manager joins the other nodes of the cluster using JGroups. The caches holding
+     * the results of Koji and PNC lookups are distributed between the nodes, so every node benefits from lookups done
+     * by the others. Every node still persists the entries it owns in its own store.
      *
+     * @param clustered whether the cache manager should join a cluster
      * @return embedded cache manager
      * @throws IOException if something went wrong
      */
-    private DefaultCacheManager setupEmbeddedCacheManager() throws IOException {
+    DefaultCacheManager setupEmbeddedCacheManager(boolean clustered) throws IOException {
         LOGGER.info("Initializing {} {} cache", Version.getBrandName(), Version.getVersion());
-        ensureConfigurationDirectoryExists();
 
-        Path locationPath = Paths.get(ConfigDefaults.CONFIG_PATH, "cache");
+        Path locationPath = getCacheLocation();
         String location = locationPath.toAbsolutePath().toString();
 
         LOGGER.info("Cache location is: {}", location);
@@ -158,8 +267,27 @@ public class CacheProvider {
             throw new IOException("Cache location is not writable: " + locationPath);
         }
 
-        GlobalConfigurationChildBuilder globalConfig = new GlobalConfigurationBuilder();
+        GlobalConfigurationBuilder globalConfig;
+
+        if (clustered) {
+            String jgroupsConfigurationFile = "default-configs/default-jgroups-" + infinispanClusterStack + ".xml";
 
+            LOGGER.info(
+                    "Joining cluster {} using JGroups configuration {}",
+                    infinispanClusterName,
+                    jgroupsConfigurationFile);
+
+            globalConfig = GlobalConfigurationBuilder.defaultClusteredBuilder();
+            globalConfig.transport()
+                    .clusterName(infinispanClusterName)
+                    .addProperty(JGroupsTransport.CONFIGURATION_FILE, jgroupsConfigurationFile);
+        } else {
+            globalConfig = new GlobalConfigurationBuilder();
+        }
+
+        // The cache statistics are published by CacheMetrics. The built-in Infinispan metrics are disabled, because
+        // they are not compatible with the MicroProfile Metrics API provided by Quarkus.
+        globalConfig.metrics().gauges(false).histograms(false);
         globalConfig.globalState()
                 .persistentLocation(location)
                 .serialization()
@@ -168,20 +296,9 @@ public class CacheProvider {
                 .addRegexp(".*")
                 .create();
 
-        Configuration configuration = new org.infinispan.configuration.cache.ConfigurationBuilder().expiration()
-                .lifespan(config.getCacheLifespan())
-                .maxIdle(config.getCacheMaxIdle())
-                .wakeUpInterval(-1L)
-                .persistence()
-                .passivation(false)
-                .addSingleFileStore()
-                .segmented(true)
-                .shared(false)
-                .preload(true)
-                .fetchPersistentState(true)
-                .purgeOnStartup(false)
-                .location(location)
-                .build();
+        Configuration localConfiguration = createConfiguration(CacheMode.LOCAL, location);
+        Configuration lookupConfiguration = clustered ? createConfiguration(CacheMode.DIST_SYNC, location)
+                : localConfiguration;
 
         Set<ChecksumType> checksumTypes = config.getChecksumTypes();
         GlobalConfiguration globalConfiguration = globalConfig.build();
@@ -189,18 +306,127 @@ public class CacheProvider {
 
         LOGGER.info("Setting up caches for checksum types size: {}", checksumTypes.size());
 
-        for (ChecksumType checksumType : checksumTypes) {
-            cacheManager.defineConfiguration("files-" + checksumType, configuration);
-            cacheManager.defineConfiguration("checksums-" + checksumType, configuration);
-            cacheManager.defineConfiguration("checksums-pnc-" + checksumType, configuration);
-            cacheManager.defineConfiguration("rpms-" + checksumType, configuration);
+        for (String cacheName : getCacheNames(checksumTypes)) {
+            cacheManager
+                    .defineConfiguration(cacheName, isLookupCache(cacheName) ? lookupConfiguration : localConfiguration);
+        }
+
+        if (clustered) {
+            Configuration registryConfiguration = new org.infinispan.configuration.cache.ConfigurationBuilder()
+                    .clustering()
+                    .cacheMode(CacheMode.REPL_SYNC)
+                    .build();
+
+            cacheManager.defineConfiguration(SharedOperationRegistry.OPERATIONS_CACHE, registryConfiguration);
+            cacheManager.defineConfiguration(SharedOperationRegistry.CANCELS_CACHE, registryConfiguration);
         }
 
-        cacheManager.defineConfiguration("builds", configuration);
-        cacheManager.defineConfiguration("builds-pnc", configuration);
         return cacheManager;
     }
 
+    private Path getCacheLocation() throws IOException {
+        if (infinispanCacheLocation.isPresent()) {
+            return Paths.get(infinispanCacheLocation.get());
+        }
+
+        ensureConfigurationDirectoryExists();
+
+        return Paths.get(ConfigDefaults.CONFIG_PATH, "cache");
+    }
+
+    /**
+     * Return whether the number of entries kept in memory by the embedded caches is bounded.
+     *
+     * @return true if max count or max size is configured
+     */
+    boolean isMemoryBounded() {
+        return infinispanMemoryMaxCount.isPresent() || infinispanMemoryMaxSize.isPresent();
+    }
+
+    /**
+     * Create the configuration of the embedded caches. When the memory is bounded, the entries exceeding the bound are
+     * evicted from memory and passivated to the store, so that the heap stays flat no matter how big the store gets.
+     * The caches are not preloaded, they are warmed up in the background by {@link CacheWarmer}.
+     *
+     * @param cacheMode cache mode
+     * @param location location of the store
+     * @return cache configuration
+     */
+    private Configuration createConfiguration(CacheMode cacheMode, String location) {
+        if (infinispanMemoryMaxCount.isPresent() && infinispanMemoryMaxSize.isPresent()) {
+            throw new IllegalArgumentException(
+                    "Only one of infinispan.memory.max-count and infinispan.memory.max-size may be set");
+        }
+
+        org.infinispan.configuration.cache.ConfigurationBuilder builder = new org.infinispan.configuration.cache.ConfigurationBuilder();
+
+        builder.clustering().cacheMode(cacheMode);
+
+        if (cacheMode.isDistributed()) {
+            builder.clustering().hash().numOwners(infinispanClusterNumOwners);
+        }
+
+        builder.statistics().enable();
+        builder.memory().storage(infinispanMemoryStorage);
+
+        if (infinispanMemoryMaxCount.isPresent()) {
+            builder.memory().maxCount(infinispanMemoryMaxCount.get()).whenFull(EvictionStrategy.REMOVE);
+        } else if (infinispanMemoryMaxSize.isPresent()) {
+            // Memory based eviction needs the entries to be stored in binary form
+            builder.encoding().mediaType(MediaType.APPLICATION_PROTOSTREAM_TYPE);
+            builder.memory().maxSize(infinispanMemoryMaxSize.get()).whenFull(EvictionStrategy.REMOVE);
+        }
+
+        long maxIdle = config.getCacheMaxIdle();
+
+        // A bounded off-heap data container of a local cache is not segmented, but Infinispan touches it with the
+        // segment of the key when checking max idle, which fails. Such caches only expire by lifespan.
+        if (!cacheMode.isClustered() && infinispanMemoryStorage == StorageType.OFF_HEAP && isMemoryBounded()
+                && maxIdle > 0L) {
+            LOGGER.warn("Max idle is not supported by bounded off-heap local caches, only lifespan is used");
+            maxIdle = -1L;
+        }
+
+        builder.expiration().lifespan(config.getCacheLifespan()).maxIdle(maxIdle).wakeUpInterval(-1L);
+        builder.persistence().passivation(isMemoryBounded());
+        addStore(builder.persistence(), infinispanStore, location);
+
+        return builder.build();
+    }
+
+    /**
+     * Add the persistent store of the embedded caches. The stores other than SINGLE_FILE are added by a
+     * {@link CacheStoreFactory}, which is only present when the service is built with the profile of the store.
+     *
+     * @param persistence persistence configuration of the cache
+     * @param storeType type of the store
+     * @param location base location of the store
+     * @throws IllegalArgumentException if the store is not part of the build
+     */
+    public static void addStore(PersistenceConfigurationBuilder persistence, StoreType storeType, String location) {
+        if (storeType == StoreType.SINGLE_FILE) {
+            persistence.addSingleFileStore()
+                    .segmented(true)
+                    .shared(false)
+                    .preload(false)
+                    .fetchPersistentState(true)
+                    .purgeOnStartup(false)
+                    .location(location);
+            return;
+        }
+
+        for (CacheStoreFactory factory : ServiceLoader.load(CacheStoreFactory.class)) {
+            if (factory.getStoreType() == storeType) {
+                factory.addStore(persistence, location);
+                return;
+            }
+        }
+
+        throw new IllegalArgumentException(
+                "Store " + storeType + " is not part of this build, build the service with the "
+                        + storeType.name().toLowerCase(Locale.ENGLISH) + " profile");
+    }
+
     /**
      * Setup the distributed Infinispan cache manager from configs. It is assumed that the caches are already setup on
      * the remote Infinispan server.
@@ -233,9 +459,38 @@ public class CacheProvider {
         // Tell Infinispan how to marshall and unmarshall the DTOs
         builder.addContextInitializer(new ProtobufSerializerImpl());
         builder.security().authentication().username(infinispanUsername.get()).password(infinispanPassword.get());
+        configureNearCaches(builder);
         return new RemoteCacheManager(builder.build());
     }
 
+    /**
+     * Configure a near cache in front of every remote lookup cache. The near cache keeps the recently read entries in
+     * memory of the client and is invalidated by the events sent by the server when the entries are modified, so that
+     * the popular artifacts don't need a network round trip on every lookup. The client statistics are enabled to
+     * measure the near cache hits.
+     *
+     * @param builder remote cache manager configuration
+     */
+    void configureNearCaches(ConfigurationBuilder builder) {
+        builder.statistics().enable();
+
+        if (infinispanNearCacheMaxEntries <= 0) {
+            LOGGER.info("Near cache is disabled");
+            return;
+        }
+
+        LOGGER.info("Using near cache with max {} entries per cache", infinispanNearCacheMaxEntries);
+
+        for (String cacheName : getCacheNames(config.getChecksumTypes())) {
+            if (isLookupCache(cacheName)) {
+                builder.remoteCache(cacheName)
+                        .nearCacheMode(NearCacheMode.INVALIDATED)
+                        .nearCacheMaxEntries(infinispanNearCacheMaxEntries)
+                        .nearCacheUseBloomFilter(true);
+            }
+        }
+    }
+
     private static void throwRuntimeExceptionIfOptionalEmpty(Optional<?> optional, String key) {
         if (optional.isEmpty()) {
             throw new RuntimeException(key + " is not specified in the config");
@@ -246,6 +501,18 @@ public class CacheProvider {
      * Enum to describe the possible Infinispan server mode.
      */
     enum InfinispanMode {
-        REMOTE, EMBEDDED
+        REMOTE, EMBEDDED, CLUSTERED
+    }
+
+    /**
+     * Enum to describe the possible persistent stores of the embedded caches.
+     * <ul>
+     * <li>SINGLE_FILE: single file per cache segment, with an in-memory index of all the keys</li>
+     * <li>ROCKSDB: log-structured merge tree with an on-disk index and background compaction, suitable for millions of
+     * keys. Only available when the service is built with the rocksdb profile</li>
+     * </ul>
+     */
+    public enum StoreType {
+        SINGLE_FILE, ROCKSDB
     }
 }
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import org.infinispan.configuration.cache.PersistenceConfigurationBuilder;
+
+/**
+ * Adds a persistent store which is not part of the default build to the embedded caches. The implementations are
+ * discovered with {@link java.util.ServiceLoader}, so that their dependencies, e.g. native libraries, are only
+ * packaged by the builds which need them.
+ */
+public interface CacheStoreFactory {
+    /**
+     * Get the type of the store added by this factory.
+     *
+     * @return the store type
+     */
+    CacheProvider.StoreType getStoreType();
+
+    /**
+     * Add the store to the persistence configuration of a cache.
+     *
+     * @param persistence persistence configuration of the cache
+     * @param location base location of the store
+     */
+    void addStore(PersistenceConfigurationBuilder persistence, String location);
+}
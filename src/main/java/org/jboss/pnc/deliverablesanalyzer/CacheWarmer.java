@@ -0,0 +1,454 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.infinispan.AdvancedCache;
+import org.infinispan.Cache;
+import org.infinispan.CacheStream;
+import org.infinispan.commons.api.BasicCacheContainer;
+import org.infinispan.context.Flag;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.notifications.Listener;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryCreated;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryVisited;
+import org.infinispan.notifications.cachelistener.event.CacheEntryCreatedEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryVisitedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.quarkus.scheduler.Scheduled;
+
+/**
+ * Warms up the embedded caches in the background, so that the service doesn't have to wait for the whole store to be
+ * preloaded on startup.
+ * <p>
+ * The warmer records how often every key is accessed and periodically saves the hottest keys of every cache to the
+ * cache location. On the next start, the saved keys are loaded first, hottest first, and then, unless the memory of
+ * the cache is bounded, all the remaining entries of the store. The lookups stay correct during the warm-up, since the
+ * entries which are not in memory yet are read from the store. In a cluster, every node only warms up the entries it
+ * owns.
+ */
+@ApplicationScoped
+public class CacheWarmer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheWarmer.class);
+
+    private static final String HOT_KEYS_DIRECTORY = "hot-keys";
+
+    private static final char STRING_KEY = 'S';
+
+    private static final char INTEGER_KEY = 'I';
+
+    /**
+     * Maximum number of keys recorded and saved for every cache.
+     */
+    @ConfigProperty(name = "infinispan.warmup.max-keys", defaultValue = "100000")
+    int maxKeys;
+
+    /**
+     * Whether all the entries of the store are loaded after the hot keys. It is ignored for caches with bounded memory.
+     */
+    @ConfigProperty(name = "infinispan.warmup.full", defaultValue = "true")
+    boolean full;
+
+    private final Map<String, Map<Object, LongAdder>> frequencies = new ConcurrentHashMap<>();
+
+    private final AtomicLong hotKeysLoaded = new AtomicLong();
+
+    private final AtomicLong entriesLoaded = new AtomicLong();
+
+    private volatile long hotKeysTotal;
+
+    private volatile State state = State.DISABLED;
+
+    private volatile Path hotKeysLocation;
+
+    private ExecutorService executor;
+
+    private EmbeddedCacheManager cacheManager;
+
+    /**
+     * Starts recording the accesses and warming up the caches of the container in the background. Nothing is done
+     * unless the container is embedded.
+     *
+     * @param cacheContainer cache container, may be null if the cache is disabled
+     */
+    public synchronized void start(BasicCacheContainer cacheContainer) {
+        if (!(cacheContainer instanceof EmbeddedCacheManager) || executor != null) {
+            return;
+        }
+
+        cacheManager = (EmbeddedCacheManager) cacheContainer;
+        hotKeysLocation = Paths
+                .get(cacheManager.getCacheManagerConfiguration().globalState().persistentLocation(), HOT_KEYS_DIRECTORY);
+        state = State.COLD;
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-warmer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.submit(this::warmUp);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (executor == null) {
+            return;
+        }
+
+        executor.shutdownNow();
+        executor = null;
+        saveHotKeys();
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public long getHotKeysLoaded() {
+        return hotKeysLoaded.get();
+    }
+
+    public long getHotKeysTotal() {
+        return hotKeysTotal;
+    }
+
+    public long getEntriesLoaded() {
+        return entriesLoaded.get();
+    }
+
+    private void warmUp() {
+        state = State.WARMING;
+        long start = System.currentTimeMillis();
+
+        try {
+            List<Cache<Object, Object>> caches = new ArrayList<>();
+
+            for (String cacheName : cacheManager.getCacheNames()) {
+                Cache<Object, Object> cache = cacheManager.getCache(cacheName);
+
+                if (!cache.getCacheConfiguration().persistence().usingStores()) {
+                    continue;
+                }
+
+                cache.addListener(new AccessListener(cacheName));
+                caches.add(cache);
+            }
+
+            List<HotKey> hotKeys = loadHotKeys(caches);
+            hotKeysTotal = hotKeys.size();
+
+            LOGGER.info("Warming up {} caches, starting with {} hot keys", caches.size(), hotKeysTotal);
+
+            for (HotKey hotKey : hotKeys) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+
+                if (isLocallyOwned(hotKey.cache, hotKey.key)) {
+                    load(hotKey.cache, hotKey.key);
+                }
+
+                hotKeysLoaded.incrementAndGet();
+            }
+
+            if (full) {
+                for (Cache<Object, Object> cache : caches) {
+                    if (!cache.getCacheConfiguration().memory().isEvictionEnabled()) {
+                        loadAll(cache);
+                    }
+                }
+            }
+
+            state = State.WARM;
+
+            LOGGER.info(
+                    "Warmed up caches with {} hot keys and {} entries in {} ms",
+                    hotKeysLoaded.get(),
+                    entriesLoaded.get(),
+                    System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            state = State.FAILED;
+            LOGGER.warn("Warming up caches failed, the entries will be loaded when accessed", e);
+        }
+    }
+
+    private static boolean isDistributed(Cache<Object, Object> cache) {
+        return cache.getCacheConfiguration().clustering().cacheMode().isDistributed();
+    }
+
+    private static boolean isLocallyOwned(Cache<Object, Object> cache, Object key) {
+        return !isDistributed(cache)
+                || cache.getAdvancedCache().getDistributionManager().getCacheTopology().isReadOwner(key);
+    }
+
+    /**
+     * Loads an entry into memory. The entry is only read from this node, so that the warm-up never fetches the entries
+     * owned by the other nodes of a cluster.
+     */
+    private void load(Cache<Object, Object> cache, Object key) {
+        AdvancedCache<Object, Object> advancedCache = cache.getAdvancedCache()
+                .withFlags(Flag.SKIP_LISTENER_NOTIFICATION, Flag.SKIP_STATISTICS, Flag.CACHE_MODE_LOCAL);
+
+        if (advancedCache.get(key) != null) {
+            entriesLoaded.incrementAndGet();
+        }
+    }
+
+    /**
+     * Loads all the entries of the store of this node. The keys of a distributed cache are restricted to the segments
+     * owned by this node, instead of iterating the keys of the whole cluster.
+     */
+    private void loadAll(Cache<Object, Object> cache) {
+        CacheStream<Object> keys = cache.getAdvancedCache()
+                .withFlags(Flag.SKIP_LISTENER_NOTIFICATION, Flag.CACHE_MODE_LOCAL)
+                .keySet()
+                .stream();
+
+        if (isDistributed(cache)) {
+            keys = keys.filterKeySegments(
+                    cache.getAdvancedCache().getDistributionManager().getCacheTopology().getLocalReadSegments());
+        }
+
+        try (CacheStream<Object> stream = keys) {
+            Iterator<Object> iterator = stream.iterator();
+
+            while (iterator.hasNext()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+
+                load(cache, iterator.next());
+            }
+        }
+    }
+
+    private void recordAccess(String cacheName, Object key) {
+        Map<Object, LongAdder> cacheFrequencies = frequencies
+                .computeIfAbsent(cacheName, name -> new ConcurrentHashMap<>());
+        LongAdder frequency = cacheFrequencies.get(key);
+
+        if (frequency == null) {
+            if (cacheFrequencies.size() >= maxKeys || encodeKey(key) == null) {
+                return;
+            }
+
+            frequency = cacheFrequencies.computeIfAbsent(key, k -> new LongAdder());
+        }
+
+        frequency.increment();
+    }
+
+    /**
+     * Saves the hottest keys of every cache to the cache location.
+     */
+    @Scheduled(every = "{infinispan.warmup.save-period}", delayed = "{infinispan.warmup.save-period}")
+    void saveHotKeys() {
+        Path location = hotKeysLocation;
+
+        if (location == null) {
+            return;
+        }
+
+        try {
+            Files.createDirectories(location);
+
+            for (Map.Entry<String, Map<Object, LongAdder>> cacheFrequencies : frequencies.entrySet()) {
+                Path file = location.resolve(cacheFrequencies.getKey());
+                Path tmpFile = location.resolve(cacheFrequencies.getKey() + ".tmp");
+                List<Map.Entry<Object, Long>> sorted = cacheFrequencies.getValue()
+                        .entrySet()
+                        .stream()
+                        .map(entry -> Map.entry(entry.getKey(), entry.getValue().sum()))
+                        .sorted(Map.Entry.<Object, Long> comparingByValue().reversed())
+                        .limit(maxKeys)
+                        .collect(Collectors.toList());
+
+                try (BufferedWriter writer = Files.newBufferedWriter(tmpFile, UTF_8)) {
+                    for (Map.Entry<Object, Long> entry : sorted) {
+                        writer.write(entry.getValue() + "\t" + encodeKey(entry.getKey()));
+                        writer.newLine();
+                    }
+                }
+
+                Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+                // Forget the colder half when full, so that new keys can be recorded
+                if (cacheFrequencies.getValue().size() >= maxKeys) {
+                    Set<Object> retained = sorted.stream()
+                            .limit(maxKeys / 2L)
+                            .map(Map.Entry::getKey)
+                            .collect(Collectors.toSet());
+                    cacheFrequencies.getValue().keySet().retainAll(retained);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not save hot keys to {}", location, e);
+        }
+    }
+
+    /**
+     * Loads the hot keys saved by the previous run. The saved frequencies are halved, so that the keys which are not
+     * accessed anymore cool down over time.
+     *
+     * @param caches caches to load the hot keys for
+     * @return hot keys of all the caches, hottest first
+     */
+    private List<HotKey> loadHotKeys(List<Cache<Object, Object>> caches) {
+        List<HotKey> hotKeys = new ArrayList<>();
+
+        for (Cache<Object, Object> cache : caches) {
+            Path file = hotKeysLocation.resolve(cache.getName());
+
+            if (!Files.isRegularFile(file)) {
+                continue;
+            }
+
+            Map<Object, LongAdder> cacheFrequencies = frequencies
+                    .computeIfAbsent(cache.getName(), name -> new ConcurrentHashMap<>());
+
+            try (BufferedReader reader = Files.newBufferedReader(file, UTF_8)) {
+                String line;
+
+                while ((line = reader.readLine()) != null && cacheFrequencies.size() < maxKeys) {
+                    int tab = line.indexOf('\t');
+
+                    if (tab <= 0) {
+                        continue;
+                    }
+
+                    long frequency = Long.parseLong(line.substring(0, tab));
+                    Object key = decodeKey(line.substring(tab + 1));
+
+                    if (key != null) {
+                        cacheFrequencies.computeIfAbsent(key, k -> new LongAdder()).add(frequency / 2L);
+                        hotKeys.add(new HotKey(cache, key, frequency));
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                LOGGER.warn("Could not load hot keys from {}", file, e);
+            }
+        }
+
+        hotKeys.sort(Comparator.comparingLong((HotKey hotKey) -> hotKey.frequency).reversed());
+
+        return hotKeys;
+    }
+
+    static String encodeKey(Object key) {
+        if (key instanceof String) {
+            String value = (String) key;
+            return value.indexOf('\n') < 0 && value.indexOf('\r') < 0 ? STRING_KEY + value : null;
+        } else if (key instanceof Integer) {
+            return INTEGER_KEY + key.toString();
+        }
+
+        return null;
+    }
+
+    static Object decodeKey(String encoded) {
+        if (encoded.isEmpty()) {
+            return null;
+        }
+
+        String value = encoded.substring(1);
+
+        switch (encoded.charAt(0)) {
+            case STRING_KEY:
+                return value;
+            case INTEGER_KEY:
+                try {
+                    return Integer.valueOf(value);
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * State of the warm-up.
+     */
+    public enum State {
+        DISABLED, COLD, WARMING, WARM, FAILED
+    }
+
+    private static final class HotKey {
+        private final Cache<Object, Object> cache;
+
+        private final Object key;
+
+        private final long frequency;
+
+        private HotKey(Cache<Object, Object> cache, Object key, long frequency) {
+            this.cache = cache;
+            this.key = key;
+            this.frequency = frequency;
+        }
+    }
+
+    /**
+     * Listener recording the accesses to the entries of a cache.
+     */
+    @Listener(sync = true)
+    public class AccessListener {
+        private final String cacheName;
+
+        AccessListener(String cacheName) {
+            this.cacheName = cacheName;
+        }
+
+        @CacheEntryVisited
+        public void handleVisited(CacheEntryVisitedEvent<Object, Object> event) {
+            if (!event.isPre()) {
+                recordAccess(cacheName, event.getKey());
+            }
+        }
+
+        @CacheEntryCreated
+        public void handleCreated(CacheEntryCreatedEvent<Object, Object> event) {
+            if (!event.isPre()) {
+                recordAccess(cacheName, event.getKey());
+            }
+        }
+    }
+}
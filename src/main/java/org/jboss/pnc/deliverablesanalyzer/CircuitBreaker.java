@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker failing the calls fast during an outage. The breaker opens after a number of consecutive failures and
+ * rejects the calls while it is open. After the open duration, it lets a single trial call through, which closes it on
+ * success or opens it again on failure.
+ */
+public class CircuitBreaker {
+    /**
+     * State of the breaker.
+     */
+    public enum State {
+        /**
+         * The calls are made.
+         */
+        CLOSED,
+        /**
+         * A single trial call is made.
+         */
+        HALF_OPEN,
+        /**
+         * The calls are rejected.
+         */
+        OPEN
+    }
+
+    private final int failureThreshold;
+
+    private final long openDurationNanos;
+
+    private final LongSupplier nanoTime;
+
+    private State state = State.CLOSED;
+
+    private int failures;
+
+    private long openedAt;
+
+    private boolean trialInFlight;
+
+    /**
+     * Creates the breaker.
+     *
+     * @param failureThreshold number of consecutive failures opening the breaker
+     * @param openDuration how long the breaker stays open before a trial call
+     */
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this(failureThreshold, openDuration, System::nanoTime);
+    }
+
+    CircuitBreaker(int failureThreshold, Duration openDuration, LongSupplier nanoTime) {
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Checks whether a call can be made. Every permitted call must be followed by {@link #onSuccess()},
+     * {@link #onFailure()} or {@link #onCancel()}.
+     *
+     * @return true if the call can be made, false if it must be rejected
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && nanoTime.getAsLong() - openedAt >= openDurationNanos) {
+            state = State.HALF_OPEN;
+        }
+
+        switch (state) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (trialInFlight) {
+                    return false;
+                }
+
+                trialInFlight = true;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Records a successful call.
+     */
+    public synchronized void onSuccess() {
+        failures = 0;
+        trialInFlight = false;
+        state = State.CLOSED;
+    }
+
+    /**
+     * Records a failed call.
+     */
+    public synchronized void onFailure() {
+        failures++;
+        trialInFlight = false;
+
+        if (state == State.HALF_OPEN || failures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = nanoTime.getAsLong();
+        }
+    }
+
+    /**
+     * Records a call which was cancelled before it completed. The cancel says nothing about the health of the callee,
+     * so the state is kept, but another trial call can be made.
+     */
+    public synchronized void onCancel() {
+        trialInFlight = false;
+    }
+
+    /**
+     * Returns the state of the breaker.
+     *
+     * @return state
+     */
+    public synchronized State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.util.Set;
+
+import org.jboss.pnc.build.finder.core.BuildConfig;
+import org.jboss.pnc.deliverablesanalyzer.model.LookupTuning;
+
+/**
+ * Effective configuration of the analyses sharing the same request configuration. The configuration is shared by the
+ * analyses, so they only get read-only views of it, which take the lookup settings from their own tuning.
+ */
+public final class EffectiveConfig {
+    private final BuildConfig config;
+
+    private final Set<String> requestedSettings;
+
+    private final String fingerprint;
+
+    public EffectiveConfig(BuildConfig config, Set<String> requestedSettings, String fingerprint) {
+        this.config = config;
+        this.requestedSettings = Set.copyOf(requestedSettings);
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Returns the configuration of an analysis, with the exclude patterns already compiled. The lookup settings which
+     * are not set by the request configuration are taken from the tuning.
+     *
+     * @param tuning lookup tuning of the analysis, may be null if the tuning is disabled
+     * @return read-only view of the shared configuration
+     */
+    public BuildConfig getConfig(LookupTuning tuning) {
+        return new AnalysisConfig(config, tuning, requestedSettings);
+    }
+
+    /**
+     * Returns the fingerprint of the settings affecting the results of the analysis. The configurations differing only
+     * in the performance settings have the same fingerprint, which is stable across restarts and replicas.
+     *
+     * @return SHA-256 of the settings
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+}
@@ -15,6 +15,7 @@
  */
 package org.jboss.pnc.deliverablesanalyzer;
 
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
@@ -26,6 +27,7 @@ import java.util.Map;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
@@ -35,7 +37,6 @@ import javax.inject.Inject;
 import javax.inject.Provider;
 
 import org.apache.commons.collections4.MultiValuedMap;
-import org.eclipse.microprofile.context.ManagedExecutor;
 import org.infinispan.commons.api.BasicCacheContainer;
 import org.infinispan.manager.DefaultCacheManager;
 import org.jboss.pnc.api.deliverablesanalyzer.dto.FinderResult;
@@ -50,23 +51,38 @@ import org.jboss.pnc.build.finder.core.LocalFile;
 import org.jboss.pnc.build.finder.koji.ClientSession;
 import org.jboss.pnc.build.finder.koji.KojiBuild;
 import org.jboss.pnc.build.finder.pnc.client.PncClient;
-import org.jboss.pnc.build.finder.pnc.client.PncClientImpl;
+import org.jboss.pnc.deliverablesanalyzer.StageTimer.Stage;
+import org.jboss.pnc.deliverablesanalyzer.jfr.DeliverableEvent;
 import org.jboss.pnc.deliverablesanalyzer.model.FinderResultCreator;
+import org.jboss.pnc.deliverablesanalyzer.model.StageTimings;
+import org.jboss.pnc.deliverablesanalyzer.tracing.Tracing;
+import org.jboss.pnc.deliverablesanalyzer.worker.AnalysisWorkers;
+import org.jboss.pnc.deliverablesanalyzer.worker.ForkedDistributionAnalyzer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.redhat.red.build.koji.KojiClientException;
 
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import io.quarkus.runtime.Startup;
+
+/**
+ * Runs the analyses. The bean is created on startup, so that the caches start warming up before the first analysis.
+ */
+@Startup
 @ApplicationScoped
 public class Finder {
     private static final Logger LOGGER = LoggerFactory.getLogger(Finder.class);
 
     private BasicCacheContainer cacheManager;
 
+    private ClientSession sharedSession;
+
     private Map<String, CancelWrapper> runningOperations = new ConcurrentHashMap<>();
 
     @Inject
-    ManagedExecutor executor;
+    AnalysisExecutors executors;
 
     @Inject
     BuildConfig config;
@@ -74,26 +90,72 @@ public class Finder {
     @Inject
     Provider<BasicCacheContainer> cacheProvider;
 
-    @Inject
-    ManagedExecutor pool;
-
     @Inject
     ClientSession kojiSession;
 
     @Inject
     Cleaner cleaner;
 
+    @Inject
+    SharedOperationRegistry operationRegistry;
+
+    @Inject
+    CacheMetrics cacheMetrics;
+
+    @Inject
+    CacheWarmer cacheWarmer;
+
+    @Inject
+    NotFoundCache notFoundCache;
+
+    @Inject
+    LookupSingleFlight lookupSingleFlight;
+
+    @Inject
+    KojiLookupBroker kojiLookupBroker;
+
+    @Inject
+    PncProvider pncProvider;
+
+    @Inject
+    StageTimer stageTimer;
+
+    @Inject
+    AnalysisWorkers workers;
+
+    @Inject
+    Tracer tracer;
+
     @PostConstruct
     public void init() {
+        BasicCacheContainer cacheContainer = null;
+
         if (Boolean.FALSE.equals(config.getDisableCache())) {
-            cacheManager = cacheProvider.get();
-            LOGGER.info("Initialized cache {}", cacheManager);
+            cacheContainer = cacheProvider.get();
+            LOGGER.info("Initialized cache {}", cacheContainer);
+            cacheMetrics.register(cacheContainer);
+            cacheWarmer.start(cacheContainer);
+            cacheManager = cacheMetrics.instrument(cacheContainer);
+            notFoundCache.start(cacheManager);
         } else {
             LOGGER.info("Cache disabled");
         }
+
+        sharedSession = lookupSingleFlight.wrap(kojiLookupBroker.wrap(kojiSession));
+        operationRegistry.start(cacheContainer, this::cancelLocal);
     }
 
+    /**
+     * Cancels the analysis. If the analysis doesn't run on this node, the cancel is forwarded to the owning node.
+     *
+     * @param id ID of the analysis
+     * @return true if the analysis was found on this or on any other node, false otherwise
+     */
     public boolean cancel(String id) {
+        return cancelLocal(id) || operationRegistry.requestCancel(id);
+    }
+
+    private boolean cancelLocal(String id) {
         CancelWrapper cancelWrapper = runningOperations.get(id);
 
         if (cancelWrapper != null) {
@@ -113,6 +175,8 @@ public class Finder {
      * @param distributionAnalyzerListener A listener for events from DistributionAnalyzer
      * @param buildFinderListener A listener for events from Buildfinder
      * @param config Configuration of the analysis
+     * @param recheckNotFound Whether the checksums recently not found in Koji and PNC should be looked up again
+     * @param timings Timings of the stages of the analysis, updated as the stages run
      * @return Results of the analysis if the whole operation was successful. Partial fail results in fail of the whole
      *         analysis.
      * @throws CancellationException Thrown in case of cancel operation performed during the analysis
@@ -123,12 +187,20 @@ public class Finder {
             List<String> urls,
             DistributionAnalyzerListener distributionAnalyzerListener,
             BuildFinderListener buildFinderListener,
-            BuildConfig config) throws Throwable {
+            BuildConfig config,
+            boolean recheckNotFound,
+            StageTimings timings) throws Throwable {
         CancelWrapper cancelWrapper = new CancelWrapper();
         runningOperations.put(id, cancelWrapper);
+        operationRegistry.register(id);
 
-        List<Future<FinderResult>> submittedTasks = urls.stream().map(url -> executor.submit(() -> {
+        long submitted = System.nanoTime();
+        ExecutorService executor = executors.getDeliverables();
+        List<Future<FinderResult>> tasks = urls.stream().map(url -> executor.submit(Tracing.span(tracer, "url", () -> {
+            Span.current().setAttribute("url", url);
+            stageTimer.record(Stage.QUEUE, System.nanoTime() - submitted, timings);
             LOGGER.debug("Analysis of URL {} started.", url);
+            timings.enter(StageTimings.DELIVERABLES);
 
             try {
                 FinderResult result = find(
@@ -136,18 +208,22 @@ public class Finder {
                         URI.create(url).normalize().toURL(),
                         distributionAnalyzerListener,
                         buildFinderListener,
-                        config);
+                        config,
+                        recheckNotFound,
+                        timings);
 
                 LOGGER.debug("Analysis of URL {} finished.", url);
 
                 return result;
             } catch (KojiClientException | MalformedURLException e) {
                 throw new ExecutionException(e);
+            } finally {
+                timings.exit(StageTimings.DELIVERABLES);
             }
-        })).collect(Collectors.toList());
+        }))).collect(Collectors.toList());
 
         try {
-            return awaitResults(submittedTasks, cancelWrapper);
+            return awaitResults(tasks, cancelWrapper);
         } catch (CancellationException e) {
             LOGGER.debug("Analysis {} was cancelled", id, e);
             throw e;
@@ -156,6 +232,7 @@ public class Finder {
             throw e.getCause();
         } finally {
             runningOperations.remove(id);
+            operationRegistry.unregister(id);
         }
     }
 
@@ -202,7 +279,9 @@ public class Finder {
             URL url,
             DistributionAnalyzerListener distributionAnalyzerListener,
             BuildFinderListener buildFinderListener,
-            BuildConfig config) throws KojiClientException {
+            BuildConfig config,
+            boolean recheckNotFound,
+            StageTimings timings) throws KojiClientException {
         FinderResult result;
 
         List<String> files = Collections.singletonList(url.toExternalForm());
@@ -213,11 +292,18 @@ public class Finder {
                 config,
                 cacheManager != null ? cacheManager : "disabled");
 
-        DistributionAnalyzer analyzer = new DistributionAnalyzer(files, config, cacheManager);
+        DistributionAnalyzer analyzer = workers.isForked()
+                ? new ForkedDistributionAnalyzer(id, url.toExternalForm(), config, workers)
+                : new DistributionAnalyzer(files, config, Tracing.proxy(tracer, cacheManager));
         analyzer.setListener(distributionAnalyzerListener);
 
-        Future<Map<ChecksumType, MultiValuedMap<String, LocalFile>>> futureChecksum = pool.submit(analyzer);
-        result = findBuilds(id, url, analyzer, futureChecksum, buildFinderListener);
+        Future<Map<ChecksumType, MultiValuedMap<String, LocalFile>>> futureChecksum = executors.getWorkers()
+                .submit(
+                        Tracing.span(
+                                tracer,
+                                "checksums",
+                                () -> stageTimer.time(Stage.CHECKSUMS, timings, () -> checksum(id, url, analyzer))));
+        result = findBuilds(id, url, analyzer, futureChecksum, buildFinderListener, config, recheckNotFound, timings);
 
         LOGGER.info("Done finding builds for {}", url);
 
@@ -236,29 +322,69 @@ public class Finder {
         return result;
     }
 
+    private static Map<ChecksumType, MultiValuedMap<String, LocalFile>> checksum(
+            String id,
+            URL url,
+            DistributionAnalyzer analyzer) throws IOException {
+        DeliverableEvent event = new DeliverableEvent(id, url.toExternalForm());
+        event.begin();
+
+        try {
+            Map<ChecksumType, MultiValuedMap<String, LocalFile>> checksums = analyzer.call();
+            event.setFiles(checksums.values().stream().findFirst().map(MultiValuedMap::size).orElse(0));
+            return checksums;
+        } finally {
+            event.commit();
+        }
+    }
+
     private FinderResult findBuilds(
             String id,
             URL url,
             DistributionAnalyzer analyzer,
             Future<Map<ChecksumType, MultiValuedMap<String, LocalFile>>> futureChecksum,
-            BuildFinderListener buildFinderListener) throws KojiClientException {
+            BuildFinderListener buildFinderListener,
+            BuildConfig config,
+            boolean recheckNotFound,
+            StageTimings timings) throws KojiClientException {
 
         URL pncURL = config.getPncURL();
-
-        try (PncClient pncClient = pncURL != null ? new PncClientImpl(config) : null) {
+        ClientSession session = Tracing.proxy(
+                tracer,
+                ClientSession.class,
+                stageTimer.wrap(notFoundCache.wrap(sharedSession, recheckNotFound), timings),
+                "koji.");
+        BasicCacheContainer tracedCacheManager = Tracing.proxy(tracer, cacheManager);
+
+        PncClient sharedPncClient = pncProvider.get();
+
+        try (PncClient pncClient = sharedPncClient != null
+                ? Tracing.proxy(
+                        tracer,
+                        PncClient.class,
+                        stageTimer.wrap(
+                                notFoundCache.wrap(lookupSingleFlight.wrap(sharedPncClient), recheckNotFound),
+                                timings),
+                        "pnc.")
+                : null) {
             BuildFinder buildFinder;
 
             if (pncClient == null) {
                 LOGGER.warn("Initializing Build Finder with PNC support disabled because PNC URL is not set");
-                buildFinder = new BuildFinder(kojiSession, config, analyzer, cacheManager);
+                buildFinder = new BuildFinder(session, config, analyzer, tracedCacheManager);
             } else {
                 LOGGER.info("Initializing Build Finder PNC client with URL {}", pncURL);
-                buildFinder = new BuildFinder(kojiSession, config, analyzer, cacheManager, pncClient);
+                buildFinder = new BuildFinder(session, config, analyzer, tracedCacheManager, pncClient);
             }
 
             buildFinder.setListener(buildFinderListener);
 
-            Future<Map<BuildSystemInteger, KojiBuild>> futureBuilds = pool.submit(buildFinder);
+            Future<Map<BuildSystemInteger, KojiBuild>> futureBuilds = executors.getWorkers()
+                    .submit(
+                            Tracing.span(
+                                    tracer,
+                                    "lookup",
+                                    () -> stageTimer.time(Stage.LOOKUP, timings, buildFinder::call)));
 
             try {
                 Map<ChecksumType, MultiValuedMap<String, LocalFile>> checksums = futureChecksum.get();
@@ -271,7 +397,8 @@ public class Finder {
                     LOGGER.info("Got {} checksum types and {} builds", checksums.size(), numBuilds);
                 }
 
-                FinderResult result = FinderResultCreator.createFinderResult(id, url, builds);
+                FinderResult result = stageTimer
+                        .time(Stage.RESULT, timings, () -> FinderResultCreator.createFinderResult(id, url, builds));
 
                 LOGGER.info("Returning result for {}", url);
 
@@ -279,6 +406,8 @@ public class Finder {
             } catch (ExecutionException e) {
                 throw new KojiClientException("Got ExecutionException", e);
             } catch (InterruptedException e) {
+                // Stops the checksums of a cancelled analysis, and its worker if it was forked
+                futureChecksum.cancel(true);
                 Thread.currentThread().interrupt();
             }
         } catch (Exception e) {
@@ -289,7 +418,7 @@ public class Finder {
     }
 
     private class CancelWrapper {
-        private boolean cancelled = false;
+        private volatile boolean cancelled = false;
 
         public void cancel() {
             this.cancelled = true;
@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+import org.eclipse.microprofile.metrics.Timer;
+import org.infinispan.commons.api.BasicCache;
+import org.infinispan.commons.api.BasicCacheContainer;
+import org.jboss.pnc.deliverablesanalyzer.jfr.CacheMissEvent;
+
+/**
+ * Cache container measuring the accesses to its caches. For every cache, it counts the hits and misses of the reads
+ * and measures the latency of the reads and writes. It works the same for the embedded and the remote caches, since
+ * it only relies on the {@link BasicCache} interface used by the analysis. The misses are also flight recorder events.
+ */
+public class InstrumentedCacheContainer implements BasicCacheContainer {
+    /**
+     * Number of reads which found the entry.
+     */
+    public static final String HITS = "cache.hits";
+
+    /**
+     * Number of reads which didn't find the entry.
+     */
+    public static final String MISSES = "cache.misses";
+
+    /**
+     * Latency of the reads.
+     */
+    public static final String GETS = "cache.get";
+
+    /**
+     * Latency of the writes.
+     */
+    public static final String PUTS = "cache.put";
+
+    private static final Set<String> READS = Set.of("get");
+
+    private static final Set<String> WRITES = Set.of("put", "putAll", "putIfAbsent", "replace");
+
+    private final BasicCacheContainer delegate;
+
+    private final MetricRegistry registry;
+
+    private final Map<String, BasicCache<?, ?>> caches = new ConcurrentHashMap<>();
+
+    public InstrumentedCacheContainer(BasicCacheContainer delegate, MetricRegistry registry) {
+        this.delegate = delegate;
+        this.registry = registry;
+    }
+
+    public BasicCacheContainer getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public <K, V> BasicCache<K, V> getCache() {
+        return delegate.getCache();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <K, V> BasicCache<K, V> getCache(String cacheName) {
+        return (BasicCache<K, V>) caches.computeIfAbsent(cacheName, name -> {
+            BasicCache<Object, Object> cache = delegate.getCache(name);
+            return cache != null ? instrument(name, cache) : null;
+        });
+    }
+
+    @Override
+    public Set<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+
+    @Override
+    public void start() {
+        delegate.start();
+    }
+
+    @Override
+    public void stop() {
+        delegate.stop();
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+
+    private BasicCache<?, ?> instrument(String cacheName, BasicCache<Object, Object> cache) {
+        Tag tag = new Tag("cache", cacheName);
+        Counter hits = registry.counter(
+                Metadata.builder()
+                        .withName(HITS)
+                        .withDescription("Number of cache reads which found the entry")
+                        .withType(MetricType.COUNTER)
+                        .build(),
+                tag);
+        Counter misses = registry.counter(
+                Metadata.builder()
+                        .withName(MISSES)
+                        .withDescription("Number of cache reads which didn't find the entry")
+                        .withType(MetricType.COUNTER)
+                        .build(),
+                tag);
+        Timer gets = registry.timer(
+                Metadata.builder()
+                        .withName(GETS)
+                        .withDescription("Latency of the cache reads")
+                        .withType(MetricType.TIMER)
+                        .withUnit(MetricUnits.NANOSECONDS)
+                        .build(),
+                tag);
+        Timer puts = registry.timer(
+                Metadata.builder()
+                        .withName(PUTS)
+                        .withDescription("Latency of the cache writes")
+                        .withType(MetricType.TIMER)
+                        .withUnit(MetricUnits.NANOSECONDS)
+                        .build(),
+                tag);
+
+        return (BasicCache<?, ?>) Proxy.newProxyInstance(
+                BasicCache.class.getClassLoader(),
+                new Class<?>[] { BasicCache.class },
+                new InstrumentedCache(cacheName, cache, hits, misses, gets, puts));
+    }
+
+    private static final class InstrumentedCache implements InvocationHandler {
+        private final String cacheName;
+
+        private final BasicCache<Object, Object> cache;
+
+        private final Counter hits;
+
+        private final Counter misses;
+
+        private final Timer gets;
+
+        private final Timer puts;
+
+        private InstrumentedCache(
+                String cacheName,
+                BasicCache<Object, Object> cache,
+                Counter hits,
+                Counter misses,
+                Timer gets,
+                Timer puts) {
+            this.cacheName = cacheName;
+            this.cache = cache;
+            this.hits = hits;
+            this.misses = misses;
+            this.gets = gets;
+            this.puts = puts;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            if (READS.contains(name) && args != null && args.length == 1) {
+                Timer.Context context = gets.time();
+                Object value;
+
+                try {
+                    value = invoke(method, args);
+                } finally {
+                    context.stop();
+                }
+
+                if (value != null) {
+                    hits.inc();
+                } else {
+                    misses.inc();
+                    new CacheMissEvent(cacheName).commit();
+                }
+
+                return value;
+            }
+
+            if (WRITES.contains(name)) {
+                Timer.Context context = puts.time();
+
+                try {
+                    return invoke(method, args);
+                } finally {
+                    context.stop();
+                }
+            }
+
+            return invoke(method, args);
+        }
+
+        private Object invoke(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(cache, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Histogram;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.jboss.pnc.build.finder.koji.ClientSession;
+import org.jboss.pnc.deliverablesanalyzer.jfr.LookupBatchEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Batches the Koji checksum lookups of all the running analyses into shared multicalls. Every analysis sends its own
+ * multicalls of at most {@code kojiMulticallSize} checksums, which are small when several analyses run at the same
+ * time. The broker collects the checksums of all the analyses and sends a multicall as soon as it is full or after a
+ * short window, so that a single analysis is not slowed down noticeably. The size of the multicalls is chosen by the
+ * {@link LookupTuner}.
+ */
+@ApplicationScoped
+public class KojiLookupBroker {
+    /**
+     * Number of multicalls sent by the broker.
+     */
+    public static final String MULTICALLS = "koji.multicalls";
+
+    /**
+     * Number of queries in the multicalls sent by the broker.
+     */
+    public static final String MULTICALL_SIZE = "koji.multicall.size";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KojiLookupBroker.class);
+
+    /**
+     * How many milliseconds the checksums are collected before a multicall which is not full is sent. Zero disables the
+     * broker.
+     */
+    @ConfigProperty(name = "koji.broker.window-millis", defaultValue = "20")
+    long windowMillis;
+
+    /**
+     * Maximum number of multicalls sent at the same time. Defaults to the parallelism chosen by the
+     * {@link LookupTuner}.
+     */
+    @ConfigProperty(name = "koji.broker.threads")
+    Optional<Integer> threads;
+
+    @Inject
+    MetricRegistry registry;
+
+    @Inject
+    LookupTuner tuner;
+
+    private ScheduledExecutorService scheduler;
+
+    private ResizableExecutor senders;
+
+    /**
+     * Wraps the Koji session, so that its checksum lookups are batched with the lookups of the other analyses. The
+     * wrapped session should be shared by all the analyses.
+     *
+     * @param session Koji session
+     * @return wrapped session or the session itself if the broker is disabled
+     */
+    public synchronized ClientSession wrap(ClientSession session) {
+        if (!isBatching()) {
+            LOGGER.info("Koji lookup broker is disabled");
+            return session;
+        }
+
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(createThreadFactory("koji-broker-timer"));
+            senders = new ResizableExecutor(
+                    () -> threads.orElseGet(tuner::getKojiThreads),
+                    createThreadFactory("koji-broker"));
+        }
+
+        LOGGER.info(
+                "Batching Koji lookups into multicalls of {} checksums within {} ms using {} threads",
+                tuner.getKojiMulticallSize(),
+                windowMillis,
+                senders.getThreads());
+
+        return new BatchingClientSession(
+                session,
+                tuner::getKojiMulticallSize,
+                Duration.ofMillis(windowMillis),
+                scheduler,
+                senders,
+                createMulticallsCounter(),
+                createMulticallSizeHistogram(),
+                LookupBatchEvent.observe("koji", tuner::recordKoji));
+    }
+
+    /**
+     * Returns whether the checksum lookups are batched by the broker. The size of the multicalls is then chosen by the
+     * {@link LookupTuner} for all the analyses.
+     *
+     * @return true if the broker is enabled
+     */
+    public boolean isBatching() {
+        return windowMillis > 0L;
+    }
+
+    @PreDestroy
+    synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            senders.shutdownNow();
+        }
+    }
+
+    private Counter createMulticallsCounter() {
+        return registry.counter(
+                Metadata.builder()
+                        .withName(MULTICALLS)
+                        .withDescription("Number of Koji multicalls sent by the lookup broker")
+                        .withType(MetricType.COUNTER)
+                        .build());
+    }
+
+    private Histogram createMulticallSizeHistogram() {
+        return registry.histogram(
+                Metadata.builder()
+                        .withName(MULTICALL_SIZE)
+                        .withDescription("Number of checksums in the Koji multicalls sent by the lookup broker")
+                        .withType(MetricType.HISTOGRAM)
+                        .build());
+    }
+
+    private static ThreadFactory createThreadFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
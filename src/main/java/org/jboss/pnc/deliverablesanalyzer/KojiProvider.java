@@ -16,11 +16,23 @@
 package org.jboss.pnc.deliverablesanalyzer;
 
 import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 import javax.enterprise.inject.Disposes;
 import javax.enterprise.inject.Produces;
 import javax.inject.Inject;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
 import org.jboss.pnc.build.finder.core.BuildConfig;
 import org.jboss.pnc.build.finder.koji.ClientSession;
 import org.jboss.pnc.build.finder.koji.KojiClientSession;
@@ -36,11 +48,77 @@ import io.quarkus.arc.DefaultBean;
  * @author jbrazdil
  */
 public class KojiProvider {
+    /**
+     * Number of sessions of the Koji session pool.
+     */
+    public static final String POOL_SIZE = "koji.pool.size";
+
+    /**
+     * Number of sessions of the pool in use.
+     */
+    public static final String POOL_ACTIVE = "koji.pool.active";
+
+    /**
+     * Current concurrency limit of the Koji calls.
+     */
+    public static final String LIMIT = "koji.limiter.limit";
+
+    /**
+     * Number of Koji calls in flight.
+     */
+    public static final String IN_FLIGHT = "koji.limiter.in-flight";
+
+    /**
+     * State of the Koji circuit breaker: 0 closed, 1 half-open, 2 open.
+     */
+    public static final String BREAKER_STATE = "koji.breaker.state";
+
+    /**
+     * Number of Koji calls rejected by the open circuit breaker.
+     */
+    public static final String BREAKER_REJECTED = "koji.breaker.rejected";
 
     private static final Logger LOGGER = LoggerFactory.getLogger(KojiProvider.class);
     @Inject
     BuildConfig config;
 
+    @Inject
+    MetricRegistry registry;
+
+    @Inject
+    TrafficCapture capture;
+
+    /**
+     * Number of Koji sessions, which is also the global cap of the Koji calls in flight. Defaults to twice
+     * {@code kojiNumThreads} of the configuration.
+     */
+    @ConfigProperty(name = "koji.pool.size")
+    Optional<Integer> poolSize;
+
+    /**
+     * Lowest concurrency limit of the Koji calls.
+     */
+    @ConfigProperty(name = "koji.limiter.min", defaultValue = "1")
+    int minLimit;
+
+    /**
+     * Latency of a Koji call above which the concurrency limit is decreased.
+     */
+    @ConfigProperty(name = "koji.limiter.latency-threshold", defaultValue = "30s")
+    Duration latencyThreshold;
+
+    /**
+     * Number of consecutive failed Koji calls opening the circuit breaker.
+     */
+    @ConfigProperty(name = "koji.breaker.failure-threshold", defaultValue = "5")
+    int failureThreshold;
+
+    /**
+     * How long the circuit breaker rejects the Koji calls before a trial call.
+     */
+    @ConfigProperty(name = "koji.breaker.open-duration", defaultValue = "30s")
+    Duration openDuration;
+
     @Produces
     @DefaultBean
     public ClientSession createSession() throws KojiClientException {
@@ -50,12 +128,62 @@ public class KojiProvider {
         if (kojiHubURL == null) {
             throw new KojiClientException("Koji hub URL is not set");
         }
-        LOGGER.info("Initializing Koji client session with URL {}", kojiHubURL);
-        return new KojiClientSession(kojiHubURL);
+
+        int size = poolSize.orElseGet(() -> 2 * config.getKojiNumThreads());
+        LOGGER.info("Initializing pool of {} Koji client sessions with URL {}", size, kojiHubURL);
+        List<ClientSession> sessions = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            if (capture.isReplaying()) {
+                sessions.add(capture.createReplaySession());
+            } else {
+                sessions.add(capture.wrap(new KojiClientSession(kojiHubURL)));
+            }
+        }
+
+        String host = kojiHubURL.getHost();
+        Tag tag = new Tag("host", host);
+        Counter rejected = registry.counter(
+                Metadata.builder()
+                        .withName(BREAKER_REJECTED)
+                        .withDescription("Number of Koji calls rejected by the open circuit breaker")
+                        .withType(MetricType.COUNTER)
+                        .build(),
+                tag);
+        KojiSessionPool pool = new KojiSessionPool(
+                host,
+                sessions,
+                new AdaptiveLimiter(minLimit, size, latencyThreshold),
+                new CircuitBreaker(failureThreshold, openDuration),
+                rejected);
+
+        register(POOL_SIZE, "Number of Koji sessions", pool::getSize, tag);
+        register(POOL_ACTIVE, "Number of Koji sessions in use", pool::getActive, tag);
+        register(LIMIT, "Concurrency limit of the Koji calls", pool.getLimiter()::getLimit, tag);
+        register(IN_FLIGHT, "Number of Koji calls in flight", pool.getLimiter()::getInFlight, tag);
+        register(
+                BREAKER_STATE,
+                "State of the Koji circuit breaker: 0 closed, 1 half-open, 2 open",
+                () -> pool.getBreaker().getState().ordinal(),
+                tag);
+
+        return pool;
     }
 
-    public void close(@Disposes KojiClientSession session) {
-        session.close();
+    public void close(@Disposes ClientSession session) {
+        if (session instanceof KojiSessionPool) {
+            ((KojiSessionPool) session).close();
+        }
     }
 
+    private void register(String name, String description, Supplier<Number> value, Tag tag) {
+        Metadata metadata = Metadata.builder()
+                .withName(name)
+                .withDescription(description)
+                .withType(MetricType.GAUGE)
+                .withUnit(MetricUnits.NONE)
+                .build();
+
+        registry.gauge(metadata, value, tag);
+    }
 }
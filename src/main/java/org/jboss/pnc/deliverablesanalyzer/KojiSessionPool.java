@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+
+import org.eclipse.microprofile.metrics.Counter;
+import org.jboss.pnc.build.finder.koji.ClientSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.redhat.red.build.koji.KojiClientException;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveQuery;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveType;
+import com.redhat.red.build.koji.model.xmlrpc.KojiBuildInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiIdOrName;
+import com.redhat.red.build.koji.model.xmlrpc.KojiRpmInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiTagInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiTaskInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiTaskRequest;
+
+/**
+ * Pool of Koji sessions to a single Koji hub. Every call borrows a session of the pool, so that the calls don't share
+ * the connection of a single session. The number of calls in flight is bounded by an {@link AdaptiveLimiter}, which
+ * lowers the parallelism when Koji slows down, and the calls are rejected by a {@link CircuitBreaker} during a Koji
+ * outage. The calls cancelled by an interrupt neither adapt the limit nor count as Koji failures.
+ */
+public class KojiSessionPool implements ClientSession, AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(KojiSessionPool.class);
+
+    private final String host;
+
+    private final List<ClientSession> sessions;
+
+    private final BlockingQueue<ClientSession> idle;
+
+    private final AdaptiveLimiter limiter;
+
+    private final CircuitBreaker breaker;
+
+    private final Counter rejected;
+
+    /**
+     * Creates the pool.
+     *
+     * @param host Koji hub host, used in the messages
+     * @param sessions sessions of the pool, at least as many as the maximum limit of the limiter
+     * @param limiter limiter of the calls in flight
+     * @param breaker circuit breaker of the calls
+     * @param rejected counter of the calls rejected by the breaker
+     */
+    public KojiSessionPool(
+            String host,
+            List<ClientSession> sessions,
+            AdaptiveLimiter limiter,
+            CircuitBreaker breaker,
+            Counter rejected) {
+        this.host = host;
+        this.sessions = new ArrayList<>(sessions);
+        this.idle = new ArrayBlockingQueue<>(sessions.size(), false, sessions);
+        this.limiter = limiter;
+        this.breaker = breaker;
+        this.rejected = rejected;
+    }
+
+    /**
+     * Returns the number of sessions of the pool.
+     *
+     * @return number of sessions
+     */
+    public int getSize() {
+        return sessions.size();
+    }
+
+    /**
+     * Returns the number of sessions in use.
+     *
+     * @return number of sessions in use
+     */
+    public int getActive() {
+        return sessions.size() - idle.size();
+    }
+
+    public AdaptiveLimiter getLimiter() {
+        return limiter;
+    }
+
+    public CircuitBreaker getBreaker() {
+        return breaker;
+    }
+
+    @Override
+    public List<KojiArchiveInfo> listArchives(KojiArchiveQuery query) throws KojiClientException {
+        return call(session -> session.listArchives(query));
+    }
+
+    @Override
+    public Map<String, KojiArchiveType> getArchiveTypeMap() throws KojiClientException {
+        return call(ClientSession::getArchiveTypeMap);
+    }
+
+    @Override
+    public KojiBuildInfo getBuild(int buildId) throws KojiClientException {
+        return call(session -> session.getBuild(buildId));
+    }
+
+    @Override
+    public KojiTaskInfo getTaskInfo(int taskId, boolean request) throws KojiClientException {
+        return call(session -> session.getTaskInfo(taskId, request));
+    }
+
+    @Override
+    public KojiTaskRequest getTaskRequest(int taskId) throws KojiClientException {
+        return call(session -> session.getTaskRequest(taskId));
+    }
+
+    @Override
+    public List<KojiTagInfo> listTags(int id) throws KojiClientException {
+        return call(session -> session.listTags(id));
+    }
+
+    @Override
+    public void enrichArchiveTypeInfo(List<KojiArchiveInfo> archiveInfos) throws KojiClientException {
+        call(session -> {
+            session.enrichArchiveTypeInfo(archiveInfos);
+            return null;
+        });
+    }
+
+    @Override
+    public List<List<KojiArchiveInfo>> listArchives(List<KojiArchiveQuery> queries) throws KojiClientException {
+        return call(session -> session.listArchives(queries));
+    }
+
+    @Override
+    public List<KojiBuildInfo> getBuild(List<KojiIdOrName> idsOrNames) throws KojiClientException {
+        return call(session -> session.getBuild(idsOrNames));
+    }
+
+    @Override
+    public List<KojiRpmInfo> getRPM(List<KojiIdOrName> idsOrNames) throws KojiClientException {
+        return call(session -> session.getRPM(idsOrNames));
+    }
+
+    @Override
+    public List<KojiTaskInfo> getTaskInfo(List<Integer> taskIds, List<Boolean> requests) throws KojiClientException {
+        return call(session -> session.getTaskInfo(taskIds, requests));
+    }
+
+    @Override
+    public List<List<KojiRpmInfo>> listBuildRPMs(List<KojiIdOrName> idsOrNames) throws KojiClientException {
+        return call(session -> session.listBuildRPMs(idsOrNames));
+    }
+
+    @Override
+    public List<List<KojiTagInfo>> listTags(List<KojiIdOrName> idsOrNames) throws KojiClientException {
+        return call(session -> session.listTags(idsOrNames));
+    }
+
+    /**
+     * Closes all the sessions of the pool.
+     */
+    @Override
+    public void close() {
+        for (ClientSession session : sessions) {
+            if (session instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) session).close();
+                } catch (Exception e) {
+                    LOGGER.warn("Error closing Koji session", e);
+                }
+            }
+        }
+    }
+
+    private <T> T call(KojiCall<T> call) throws KojiClientException {
+        if (!breaker.tryAcquire()) {
+            rejected.inc();
+            throw new KojiClientException("Koji hub " + host + " is unavailable, the circuit breaker is open");
+        }
+
+        try {
+            limiter.acquire();
+        } catch (CancellationException e) {
+            breaker.onCancel();
+            throw e;
+        }
+
+        long start = System.nanoTime();
+        boolean completed = false;
+        boolean failed = false;
+
+        try {
+            ClientSession session = borrow();
+
+            try {
+                T result = call.call(session);
+                completed = true;
+                return result;
+            } catch (KojiClientException | RuntimeException e) {
+                completed = !isCancel(e);
+                failed = completed;
+                throw e;
+            } finally {
+                idle.add(session);
+            }
+        } finally {
+            if (completed) {
+                limiter.release(System.nanoTime() - start, failed);
+
+                if (failed) {
+                    breaker.onFailure();
+                } else {
+                    breaker.onSuccess();
+                }
+            } else {
+                // A cancelled analysis says nothing about the health of Koji
+                limiter.cancel();
+                breaker.onCancel();
+            }
+        }
+    }
+
+    private static boolean isCancel(Exception e) {
+        if (Thread.currentThread().isInterrupted()) {
+            return true;
+        }
+
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CancellationException || cause instanceof InterruptedException
+                    || cause instanceof InterruptedIOException) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private ClientSession borrow() {
+        try {
+            return idle.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for a Koji session");
+        }
+    }
+
+    @FunctionalInterface
+    private interface KojiCall<T> {
+        T call(ClientSession session) throws KojiClientException;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.Tag;
+import org.jboss.pnc.build.finder.koji.ClientSession;
+import org.jboss.pnc.build.finder.pnc.client.PncClient;
+import org.jboss.pnc.build.finder.pnc.client.StaticRemoteCollection;
+import org.jboss.pnc.client.RemoteCollection;
+import org.jboss.pnc.dto.Artifact;
+
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiBuildInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiRpmInfo;
+
+/**
+ * Shares the Koji and PNC lookups of the cache misses between all the running analyses. When several analyses miss
+ * the cache for the same checksum or build at the same time, for example after the entry expired, only one of them
+ * looks it up and the others wait for its result. The waiting analyses get deep copies of the result, since Build
+ * Finder modifies the Koji objects of every analysis.
+ */
+@ApplicationScoped
+public class LookupSingleFlight {
+    /**
+     * Number of lookups which were not sent, because the same lookup was already running.
+     */
+    public static final String SUPPRESSED = "lookups.suppressed";
+
+    @Inject
+    MetricRegistry registry;
+
+    private SingleFlight<String, List<KojiArchiveInfo>> archives;
+
+    private SingleFlight<Object, KojiBuildInfo> builds;
+
+    private SingleFlight<Object, KojiRpmInfo> rpms;
+
+    private SingleFlight<String, RemoteCollection<Artifact>> artifacts;
+
+    @PostConstruct
+    void init() {
+        archives = new SingleFlight<>(createCounter("koji-archives"), LookupSingleFlight::copyArchives);
+        builds = new SingleFlight<>(createCounter("koji-builds"), build -> copy(build, KojiBuildInfo.class));
+        rpms = new SingleFlight<>(createCounter("koji-rpms"), rpm -> copy(rpm, KojiRpmInfo.class));
+        artifacts = new SingleFlight<>(
+                createCounter("pnc-artifacts"),
+                collection -> new StaticRemoteCollection<>(collection.getAll()));
+    }
+
+    /**
+     * Wraps the Koji session, so that the concurrent lookups of the same archives, builds and RPMs are shared. The
+     * wrapped session should be shared by all the analyses.
+     *
+     * @param session Koji session
+     * @return wrapped session
+     */
+    public ClientSession wrap(ClientSession session) {
+        return new SingleFlightClientSession(session, archives, builds, rpms);
+    }
+
+    /**
+     * Wraps the PNC client, so that the concurrent lookups of the same artifacts are shared with the other analyses.
+     *
+     * @param pncClient PNC client
+     * @return wrapped client
+     */
+    public PncClient wrap(PncClient pncClient) {
+        return new SingleFlightPncClient(pncClient, artifacts);
+    }
+
+    /**
+     * Copies the archives for a waiting analysis. Build Finder modifies the archives of every analysis, e.g. when it
+     * adds their type, so the analyses must not share the instances.
+     *
+     * @param archives archives looked up by another analysis
+     * @return deep copy of the archives
+     */
+    static List<KojiArchiveInfo> copyArchives(List<KojiArchiveInfo> archives) {
+        return archives.stream()
+                .map(archive -> copy(archive, KojiArchiveInfo.class))
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * Copies a Koji object through its serialized form, which covers all the fields of the object.
+     *
+     * @param value the object to copy
+     * @param type the type of the object
+     * @param <T> the type of the object
+     * @return deep copy of the object
+     */
+    static <T extends Externalizable> T copy(T value, Class<T> type) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try {
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(value);
+            }
+
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+                return type.cast(in.readObject());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not copy " + type.getSimpleName(), e);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Could not copy " + type.getSimpleName(), e);
+        }
+    }
+
+    private Counter createCounter(String lookup) {
+        Metadata metadata = Metadata.builder()
+                .withName(SUPPRESSED)
+                .withDescription("Number of lookups which were not sent, because the same lookup was already running")
+                .withType(MetricType.COUNTER)
+                .build();
+
+        return registry.counter(metadata, new Tag("lookup", lookup));
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.pnc.build.finder.core.BuildConfig;
+import org.jboss.pnc.deliverablesanalyzer.model.LookupTuning;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Chooses the batch sizes and the parallelism of the Koji and PNC lookups of every new analysis from the latency and
+ * the error rate of the recent lookups. While the lookups are fast, the batches grow and more of them are sent in
+ * parallel. When the latency exceeds the target, the batches are halved and fewer of them are sent in parallel, and
+ * when the lookups fail, both are halved. The choices stay within the configured bounds, which default to a quarter and
+ * four times the values of the configuration.
+ * <p>
+ * Only the lookups batched by the {@link KojiLookupBroker} and the {@link PncProvider} are tuned, since only their
+ * multicalls and requests are measured, and their senders follow the chosen parallelism. The lookups of a kind which is
+ * not batched keep the configuration of the analysis.
+ */
+@ApplicationScoped
+public class LookupTuner {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LookupTuner.class);
+
+    private static final int BOUND_FACTOR = 4;
+
+    @ConfigProperty(name = "tuning.enabled", defaultValue = "true")
+    boolean enabled;
+
+    /**
+     * Latency of a Koji multicall above which the multicalls are made smaller.
+     */
+    @ConfigProperty(name = "tuning.koji.target-latency", defaultValue = "10s")
+    Duration kojiTargetLatency;
+
+    /**
+     * Latency of a PNC request above which the requests are made smaller.
+     */
+    @ConfigProperty(name = "tuning.pnc.target-latency", defaultValue = "5s")
+    Duration pncTargetLatency;
+
+    /**
+     * Ratio of failed lookups above which the batches and the parallelism are halved.
+     */
+    @ConfigProperty(name = "tuning.max-error-rate", defaultValue = "0.05")
+    double maxErrorRate;
+
+    @ConfigProperty(name = "tuning.koji.multicall-size.min")
+    Optional<Integer> minKojiMulticallSize;
+
+    @ConfigProperty(name = "tuning.koji.multicall-size.max")
+    Optional<Integer> maxKojiMulticallSize;
+
+    @ConfigProperty(name = "tuning.koji.threads.min")
+    Optional<Integer> minKojiThreads;
+
+    @ConfigProperty(name = "tuning.koji.threads.max")
+    Optional<Integer> maxKojiThreads;
+
+    @ConfigProperty(name = "tuning.pnc.partition-size.min")
+    Optional<Integer> minPncPartitionSize;
+
+    @ConfigProperty(name = "tuning.pnc.partition-size.max")
+    Optional<Integer> maxPncPartitionSize;
+
+    @ConfigProperty(name = "tuning.pnc.threads.min")
+    Optional<Integer> minPncThreads;
+
+    @ConfigProperty(name = "tuning.pnc.threads.max")
+    Optional<Integer> maxPncThreads;
+
+    @Inject
+    BuildConfig config;
+
+    @Inject
+    KojiLookupBroker kojiLookupBroker;
+
+    @Inject
+    PncProvider pncProvider;
+
+    private Controller koji;
+
+    private Controller pnc;
+
+    @PostConstruct
+    void init() {
+        int kojiMulticallSize = config.getKojiMulticallSize();
+        int kojiThreads = config.getKojiNumThreads();
+        int pncPartitionSize = config.getPncPartitionSize();
+        int pncThreads = config.getPncNumThreads().intValue();
+
+        koji = new Controller(
+                kojiMulticallSize,
+                minKojiMulticallSize.orElse(Math.max(1, kojiMulticallSize / BOUND_FACTOR)),
+                maxKojiMulticallSize.orElse(kojiMulticallSize * BOUND_FACTOR),
+                kojiThreads,
+                minKojiThreads.orElse(Math.max(1, kojiThreads / BOUND_FACTOR)),
+                maxKojiThreads.orElse(kojiThreads * BOUND_FACTOR),
+                kojiTargetLatency,
+                maxErrorRate);
+        pnc = new Controller(
+                pncPartitionSize,
+                minPncPartitionSize.orElse(Math.max(1, pncPartitionSize / BOUND_FACTOR)),
+                maxPncPartitionSize.orElse(pncPartitionSize * BOUND_FACTOR),
+                pncThreads,
+                minPncThreads.orElse(Math.max(1, pncThreads / BOUND_FACTOR)),
+                maxPncThreads.orElse(pncThreads * BOUND_FACTOR),
+                pncTargetLatency,
+                maxErrorRate);
+    }
+
+    /**
+     * Chooses the batch sizes and the parallelism of the lookups of a new analysis. The settings of a kind of lookups
+     * which is not batched are left null.
+     *
+     * @return the choice or null if the tuning is disabled or no lookups are batched
+     */
+    public LookupTuning tune() {
+        boolean tuneKoji = enabled && kojiLookupBroker.isBatching();
+        boolean tunePnc = enabled && pncProvider.isBatching();
+
+        if (!tuneKoji && !tunePnc) {
+            return null;
+        }
+
+        LookupTuning tuning = new LookupTuning();
+
+        if (tuneKoji) {
+            koji.adjust();
+            tuning.setKojiMulticallSize(koji.getBatchSize());
+            tuning.setKojiNumThreads(koji.getThreads());
+            tuning.setKojiLatencyMillis(TimeUnit.NANOSECONDS.toMillis(koji.getLatencyNanos()));
+            tuning.setKojiErrorRate(koji.getErrorRate());
+        }
+
+        if (tunePnc) {
+            pnc.adjust();
+            tuning.setPncPartitionSize(pnc.getBatchSize());
+            tuning.setPncNumThreads(pnc.getThreads());
+            tuning.setPncLatencyMillis(TimeUnit.NANOSECONDS.toMillis(pnc.getLatencyNanos()));
+            tuning.setPncErrorRate(pnc.getErrorRate());
+        }
+
+        LOGGER.info("Tuned lookups: {}", tuning);
+
+        return tuning;
+    }
+
+    /**
+     * Returns the current size of the Koji multicalls.
+     *
+     * @return number of checksums in a multicall
+     */
+    public int getKojiMulticallSize() {
+        return enabled ? koji.getBatchSize() : config.getKojiMulticallSize();
+    }
+
+    /**
+     * Returns the current number of Koji multicalls sent at the same time.
+     *
+     * @return number of multicalls
+     */
+    public int getKojiThreads() {
+        return enabled ? koji.getThreads() : config.getKojiNumThreads();
+    }
+
+    /**
+     * Returns the current size of the PNC requests.
+     *
+     * @return number of checksums in a request
+     */
+    public int getPncPartitionSize() {
+        return enabled ? pnc.getBatchSize() : config.getPncPartitionSize();
+    }
+
+    /**
+     * Returns the current number of PNC requests sent at the same time.
+     *
+     * @return number of requests
+     */
+    public int getPncThreads() {
+        return enabled ? pnc.getThreads() : config.getPncNumThreads().intValue();
+    }
+
+    /**
+     * Records a Koji multicall.
+     *
+     * @param size number of checksums
+     * @param latencyNanos latency
+     * @param failed whether the multicall failed
+     */
+    public void recordKoji(int size, long latencyNanos, boolean failed) {
+        koji.record(latencyNanos, failed);
+    }
+
+    /**
+     * Records a PNC request.
+     *
+     * @param size number of checksums
+     * @param latencyNanos latency
+     * @param failed whether the request failed
+     */
+    public void recordPnc(int size, long latencyNanos, boolean failed) {
+        pnc.record(latencyNanos, failed);
+    }
+
+    /**
+     * Feedback controller of the batch size and the parallelism of a kind of lookups. The latency and the error rate
+     * are exponentially weighted moving averages of the recorded lookups.
+     */
+    static final class Controller {
+        private static final double WEIGHT = 0.2D;
+
+        private static final double INCREASE = 1.25D;
+
+        private final int minBatchSize;
+
+        private final int maxBatchSize;
+
+        private final int minThreads;
+
+        private final int maxThreads;
+
+        private final long targetLatencyNanos;
+
+        private final double maxErrorRate;
+
+        private double batchSize;
+
+        private double threads;
+
+        private double latencyNanos;
+
+        private double errorRate;
+
+        private int samples;
+
+        private boolean observed;
+
+        Controller(
+                int batchSize,
+                int minBatchSize,
+                int maxBatchSize,
+                int threads,
+                int minThreads,
+                int maxThreads,
+                Duration targetLatency,
+                double maxErrorRate) {
+            this.minBatchSize = minBatchSize;
+            this.maxBatchSize = Math.max(minBatchSize, maxBatchSize);
+            this.minThreads = minThreads;
+            this.maxThreads = Math.max(minThreads, maxThreads);
+            this.targetLatencyNanos = targetLatency.toNanos();
+            this.maxErrorRate = maxErrorRate;
+            this.batchSize = clamp(batchSize, this.minBatchSize, this.maxBatchSize);
+            this.threads = clamp(threads, this.minThreads, this.maxThreads);
+        }
+
+        synchronized void record(long nanos, boolean failed) {
+            if (observed) {
+                latencyNanos += WEIGHT * (nanos - latencyNanos);
+                errorRate += WEIGHT * ((failed ? 1.0D : 0.0D) - errorRate);
+            } else {
+                latencyNanos = nanos;
+                errorRate = failed ? 1.0D : 0.0D;
+                observed = true;
+            }
+
+            samples++;
+        }
+
+        /**
+         * Adjusts the batch size and the parallelism to the lookups recorded since the last adjustment. Nothing changes
+         * without new lookups.
+         */
+        synchronized void adjust() {
+            if (samples == 0) {
+                return;
+            }
+
+            samples = 0;
+
+            if (errorRate > maxErrorRate) {
+                batchSize = clamp(batchSize / 2.0D, minBatchSize, maxBatchSize);
+                threads = clamp(threads / 2.0D, minThreads, maxThreads);
+            } else if (latencyNanos > targetLatencyNanos) {
+                batchSize = clamp(batchSize / 2.0D, minBatchSize, maxBatchSize);
+                threads = clamp(threads - 1.0D, minThreads, maxThreads);
+            } else if (latencyNanos < targetLatencyNanos / 2.0D) {
+                batchSize = clamp(Math.max(batchSize * INCREASE, batchSize + 1.0D), minBatchSize, maxBatchSize);
+                threads = clamp(threads + 1.0D, minThreads, maxThreads);
+            }
+        }
+
+        synchronized int getBatchSize() {
+            return (int) Math.round(batchSize);
+        }
+
+        synchronized int getThreads() {
+            return (int) Math.round(threads);
+        }
+
+        synchronized long getLatencyNanos() {
+            return (long) latencyNanos;
+        }
+
+        synchronized double getErrorRate() {
+            return errorRate;
+        }
+
+        private static double clamp(double value, int min, int max) {
+            return Math.min(max, Math.max(min, value));
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.infinispan.commons.api.BasicCache;
+import org.infinispan.commons.api.BasicCacheContainer;
+import org.jboss.pnc.build.finder.core.ChecksumType;
+import org.jboss.pnc.build.finder.koji.ClientSession;
+import org.jboss.pnc.build.finder.pnc.client.PncClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers the checksums which were not found in Koji or PNC, so that the following analyses don't look them up
+ * again. The checksums of files which don't belong to any build are often a large part of a distribution and would
+ * otherwise be looked up on every analysis.
+ * <p>
+ * The entries expire after their own lifespan, which is shorter than the lifespan of the found builds, since an
+ * artifact may be imported to Koji or built in PNC later. An analysis may also bypass the cache to re-check all the
+ * checksums, in which case the results of the lookups still update the cache.
+ */
+@ApplicationScoped
+public class NotFoundCache {
+    /**
+     * Name of the cache holding the checksums which were not found.
+     */
+    public static final String CACHE_NAME = "checksums-not-found";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NotFoundCache.class);
+
+    private static final int MD5_LENGTH = 32;
+
+    private static final int SHA1_LENGTH = 40;
+
+    private static final int SHA256_LENGTH = 64;
+
+    /**
+     * How long a checksum is remembered as not found.
+     */
+    @ConfigProperty(name = "infinispan.not-found.lifespan", defaultValue = "6h")
+    Duration lifespan;
+
+    private BasicCache<String, Boolean> cache;
+
+    /**
+     * Starts using the cache of the container.
+     *
+     * @param cacheContainer cache container, may be null if the cache is disabled
+     */
+    public void start(BasicCacheContainer cacheContainer) {
+        if (cacheContainer == null) {
+            return;
+        }
+
+        cache = cacheContainer.getCache(CACHE_NAME);
+
+        if (cache == null) {
+            LOGGER.warn("Cache {} doesn't exist, the checksums which are not found will be looked up again", CACHE_NAME);
+        } else {
+            LOGGER.info("Checksums which are not found are remembered for {}", lifespan);
+        }
+    }
+
+    /**
+     * Wraps the Koji session, so that the checksums which were not found are not looked up again.
+     *
+     * @param session Koji session
+     * @param recheck whether the checksums which were not found should be looked up again
+     * @return wrapped session or the session itself if the cache is disabled
+     */
+    public ClientSession wrap(ClientSession session, boolean recheck) {
+        return cache != null ? new NotFoundClientSession(session, this, recheck) : session;
+    }
+
+    /**
+     * Wraps the PNC client, so that the checksums which were not found are not looked up again.
+     *
+     * @param pncClient PNC client
+     * @param recheck whether the checksums which were not found should be looked up again
+     * @return wrapped client or the client itself if the cache is disabled
+     */
+    public PncClient wrap(PncClient pncClient, boolean recheck) {
+        return cache != null ? new NotFoundPncClient(pncClient, this, recheck) : pncClient;
+    }
+
+    boolean isNotFound(String key) {
+        return cache.get(key) != null;
+    }
+
+    void markNotFound(String key) {
+        cache.put(key, Boolean.TRUE, lifespan.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    void markFound(String key) {
+        cache.remove(key);
+    }
+
+    /**
+     * Get the key of a checksum looked up in Koji. The Koji archive queries don't carry the checksum type, so it is
+     * derived from the length of the hexadecimal checksum.
+     *
+     * @param checksum the checksum
+     * @return the key
+     */
+    static String kojiKey(String checksum) {
+        return "koji:" + getChecksumType(checksum) + ":" + checksum;
+    }
+
+    /**
+     * Get the key of a checksum looked up in PNC.
+     *
+     * @param checksumType the checksum type
+     * @param checksum the checksum
+     * @return the key
+     */
+    static String pncKey(String checksumType, String checksum) {
+        return "pnc:" + checksumType + ":" + checksum;
+    }
+
+    private static String getChecksumType(String checksum) {
+        switch (checksum.length()) {
+            case MD5_LENGTH:
+                return ChecksumType.md5.name();
+            case SHA1_LENGTH:
+                return ChecksumType.sha1.name();
+            case SHA256_LENGTH:
+                return ChecksumType.sha256.name();
+            default:
+                return "unknown";
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.pnc.build.finder.koji.ClientSession;
+
+import com.redhat.red.build.koji.KojiClientException;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveQuery;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveType;
+import com.redhat.red.build.koji.model.xmlrpc.KojiBuildInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiIdOrName;
+import com.redhat.red.build.koji.model.xmlrpc.KojiRpmInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiTagInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiTaskInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiTaskRequest;
+
+/**
+ * Koji session which doesn't look up the archives of the checksums which were recently not found. Only the queries of
+ * the checksums which are not known to be missing are sent to Koji.
+ */
+public class NotFoundClientSession implements ClientSession {
+    private final ClientSession delegate;
+
+    private final NotFoundCache notFoundCache;
+
+    private final boolean recheck;
+
+    public NotFoundClientSession(ClientSession delegate, NotFoundCache notFoundCache, boolean recheck) {
+        this.delegate = delegate;
+        this.notFoundCache = notFoundCache;
+        this.recheck = recheck;
+    }
+
+    @Override
+    public List<KojiArchiveInfo> listArchives(KojiArchiveQuery query) throws KojiClientException {
+        return listArchives(Collections.singletonList(query)).get(0);
+    }
+
+    @Override
+    public List<List<KojiArchiveInfo>> listArchives(List<KojiArchiveQuery> queries) throws KojiClientException {
+        int size = queries.size();
+        List<List<KojiArchiveInfo>> results = new ArrayList<>(Collections.nCopies(size, null));
+        List<KojiArchiveQuery> remoteQueries = new ArrayList<>(size);
+        List<Integer> remoteIndexes = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            KojiArchiveQuery query = queries.get(i);
+            String checksum = query.getChecksum();
+
+            if (!recheck && checksum != null && notFoundCache.isNotFound(NotFoundCache.kojiKey(checksum))) {
+                results.set(i, new ArrayList<>());
+            } else {
+                remoteQueries.add(query);
+                remoteIndexes.add(i);
+            }
+        }
+
+        if (remoteQueries.isEmpty()) {
+            return results;
+        }
+
+        List<List<KojiArchiveInfo>> remoteResults = delegate.listArchives(remoteQueries);
+
+        for (int i = 0; i < remoteQueries.size(); i++) {
+            List<KojiArchiveInfo> archives = remoteResults.get(i);
+            String checksum = remoteQueries.get(i).getChecksum();
+
+            results.set(remoteIndexes.get(i), archives);
+
+            if (checksum != null) {
+                if (archives == null || archives.isEmpty()) {
+                    notFoundCache.markNotFound(NotFoundCache.kojiKey(checksum));
+                } else if (recheck) {
+                    notFoundCache.markFound(NotFoundCache.kojiKey(checksum));
+                }
+            }
+        }
+
+        return results;
+    }
+
+    @Override
+    public Map<String, KojiArchiveType> getArchiveTypeMap() throws KojiClientException {
+        return delegate.getArchiveTypeMap();
+    }
+
+    @Override
+    public KojiBuildInfo getBuild(int buildId) throws KojiClientException {
+        return delegate.getBuild(buildId);
+    }
+
+    @Override
+    public KojiTaskInfo getTaskInfo(int taskId, boolean request) throws KojiClientException {
+        return delegate.getTaskInfo(taskId, request);
+    }
+
+    @Override
+    public KojiTaskRequest getTaskRequest(int taskId) throws KojiClientException {
+        return delegate.getTaskRequest(taskId);
+    }
+
+    @Override
+    public List<KojiTagInfo> listTags(int id) throws KojiClientException {
+        return delegate.listTags(id);
+    }
+
+    @Override
+    public void enrichArchiveTypeInfo(List<KojiArchiveInfo> archiveInfos) throws KojiClientException {
+        delegate.enrichArchiveTypeInfo(archiveInfos);
+    }
+
+    @Override
+    public List<KojiBuildInfo> getBuild(List<KojiIdOrName> idsOrNames) throws KojiClientException {
+        return delegate.getBuild(idsOrNames);
+    }
+
+    @Override
+    public List<KojiRpmInfo> getRPM(List<KojiIdOrName> idsOrNames) throws KojiClientException {
+        return delegate.getRPM(idsOrNames);
+    }
+
+    @Override
+    public List<KojiTaskInfo> getTaskInfo(List<Integer> taskIds, List<Boolean> requests) throws KojiClientException {
+        return delegate.getTaskInfo(taskIds, requests);
+    }
+
+    @Override
+    public List<List<KojiRpmInfo>> listBuildRPMs(List<KojiIdOrName> idsOrNames) throws KojiClientException {
+        return delegate.listBuildRPMs(idsOrNames);
+    }
+
+    @Override
+    public List<List<KojiTagInfo>> listTags(List<KojiIdOrName> idsOrNames) throws KojiClientException {
+        return delegate.listTags(idsOrNames);
+    }
+}
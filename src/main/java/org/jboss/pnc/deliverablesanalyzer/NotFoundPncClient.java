@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.util.Collections;
+
+import org.jboss.pnc.build.finder.pnc.client.PncClient;
+import org.jboss.pnc.build.finder.pnc.client.StaticRemoteCollection;
+import org.jboss.pnc.client.RemoteCollection;
+import org.jboss.pnc.client.RemoteResourceException;
+import org.jboss.pnc.dto.Artifact;
+import org.jboss.pnc.dto.BuildPushResult;
+import org.jboss.pnc.dto.ProductVersion;
+
+/**
+ * PNC client which doesn't look up the artifacts of the checksums which were recently not found.
+ */
+public class NotFoundPncClient implements PncClient {
+    private final PncClient delegate;
+
+    private final NotFoundCache notFoundCache;
+
+    private final boolean recheck;
+
+    public NotFoundPncClient(PncClient delegate, NotFoundCache notFoundCache, boolean recheck) {
+        this.delegate = delegate;
+        this.notFoundCache = notFoundCache;
+        this.recheck = recheck;
+    }
+
+    @Override
+    public RemoteCollection<Artifact> getArtifactsByMd5(String md5) throws RemoteResourceException {
+        return getArtifacts("md5", md5, delegate::getArtifactsByMd5);
+    }
+
+    @Override
+    public RemoteCollection<Artifact> getArtifactsBySha1(String sha1) throws RemoteResourceException {
+        return getArtifacts("sha1", sha1, delegate::getArtifactsBySha1);
+    }
+
+    @Override
+    public RemoteCollection<Artifact> getArtifactsBySha256(String sha256) throws RemoteResourceException {
+        return getArtifacts("sha256", sha256, delegate::getArtifactsBySha256);
+    }
+
+    @Override
+    public BuildPushResult getBuildPushResult(String buildId) throws RemoteResourceException {
+        return delegate.getBuildPushResult(buildId);
+    }
+
+    @Override
+    public ProductVersion getProductVersion(String productMilestoneId) throws RemoteResourceException {
+        return delegate.getProductVersion(productMilestoneId);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    private RemoteCollection<Artifact> getArtifacts(String checksumType, String checksum, ArtifactLookup lookup)
+            throws RemoteResourceException {
+        String key = NotFoundCache.pncKey(checksumType, checksum);
+
+        if (!recheck && notFoundCache.isNotFound(key)) {
+            return new StaticRemoteCollection<>(Collections.emptyList());
+        }
+
+        RemoteCollection<Artifact> artifacts = lookup.getArtifacts(checksum);
+
+        if (artifacts == null || artifacts.size() == 0) {
+            notFoundCache.markNotFound(key);
+        } else if (recheck) {
+            notFoundCache.markFound(key);
+        }
+
+        return artifacts;
+    }
+
+    @FunctionalInterface
+    private interface ArtifactLookup {
+        RemoteCollection<Artifact> getArtifacts(String checksum) throws RemoteResourceException;
+    }
+}
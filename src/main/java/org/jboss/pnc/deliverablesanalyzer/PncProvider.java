@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.net.URL;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.jboss.pnc.build.finder.core.BuildConfig;
+import org.jboss.pnc.build.finder.pnc.client.PncClient;
+import org.jboss.pnc.build.finder.pnc.client.PncClientImpl;
+import org.jboss.pnc.client.ArtifactClient;
+import org.jboss.pnc.client.Configuration;
+import org.jboss.pnc.deliverablesanalyzer.jfr.LookupBatchEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Provides the PNC client of the analyses. A single client is shared by all the analyses, so that its connections are
+ * reused, and it batches the artifact lookups of all the analyses into shared requests of {@code pncPartitionSize}
+ * checksums, as chosen by the {@link LookupTuner}.
+ */
+@ApplicationScoped
+public class PncProvider {
+    /**
+     * Number of artifact requests sent to PNC.
+     */
+    public static final String REQUESTS = "pnc.requests";
+
+    /**
+     * Number of checksums in the artifact requests sent to PNC.
+     */
+    public static final String REQUEST_SIZE = "pnc.request.size";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PncProvider.class);
+
+    /**
+     * How many milliseconds the checksums are collected before a request which is not full is sent. Zero disables the
+     * sharing and every analysis uses its own client.
+     */
+    @ConfigProperty(name = "pnc.batch.window-millis", defaultValue = "20")
+    long windowMillis;
+
+    /**
+     * Maximum number of requests sent at the same time. Defaults to the parallelism chosen by the {@link LookupTuner}.
+     */
+    @ConfigProperty(name = "pnc.batch.threads")
+    Optional<Integer> threads;
+
+    @Inject
+    BuildConfig config;
+
+    @Inject
+    MetricRegistry registry;
+
+    @Inject
+    LookupTuner tuner;
+
+    @Inject
+    TrafficCapture capture;
+
+    private BatchingPncClient client;
+
+    private ArtifactClient artifactClient;
+
+    private ScheduledExecutorService scheduler;
+
+    private ResizableExecutor senders;
+
+    /**
+     * Returns the PNC client. The client must be closed after use, which does nothing for the shared client.
+     *
+     * @return PNC client or null if the PNC URL is not configured
+     */
+    public synchronized PncClient get() {
+        URL pncURL = config.getPncURL();
+
+        if (pncURL == null) {
+            return null;
+        }
+
+        if (!isBatching()) {
+            if (capture.getMode() != TrafficCapture.CaptureMode.OFF) {
+                throw new IllegalStateException("Capturing the PNC traffic requires pnc.batch.window-millis > 0");
+            }
+
+            return new PncClientImpl(config);
+        }
+
+        if (client == null) {
+            int partitionSize = config.getPncPartitionSize();
+
+            scheduler = Executors.newSingleThreadScheduledExecutor(createThreadFactory("pnc-batch-timer"));
+            senders = new ResizableExecutor(
+                    () -> threads.orElseGet(tuner::getPncThreads),
+                    createThreadFactory("pnc-batch"));
+            artifactClient = new ArtifactClient(
+                    Configuration.builder()
+                            .protocol(pncURL.getProtocol())
+                            .host(pncURL.getHost())
+                            .port(pncURL.getPort())
+                            .pageSize(partitionSize)
+                            .build());
+            client = new BatchingPncClient(
+                    new PncClientImpl(config),
+                    capture.wrap(
+                            (field, checksums) -> artifactClient
+                                    .getAll(
+                                            null,
+                                            null,
+                                            null,
+                                            Optional.empty(),
+                                            Optional.of(BatchingPncClient.getQuery(field, checksums)))
+                                    .getAll()),
+                    tuner::getPncPartitionSize,
+                    Duration.ofMillis(windowMillis),
+                    scheduler,
+                    senders,
+                    registry.counter(
+                            Metadata.builder()
+                                    .withName(REQUESTS)
+                                    .withDescription("Number of artifact requests sent to PNC")
+                                    .withType(MetricType.COUNTER)
+                                    .build()),
+                    registry.histogram(
+                            Metadata.builder()
+                                    .withName(REQUEST_SIZE)
+                                    .withDescription("Number of checksums in the artifact requests sent to PNC")
+                                    .withType(MetricType.HISTOGRAM)
+                                    .build()),
+                    LookupBatchEvent.observe("pnc", tuner::recordPnc));
+
+            LOGGER.info(
+                    "Batching PNC lookups into requests of {} checksums within {} ms using {} threads",
+                    tuner.getPncPartitionSize(),
+                    windowMillis,
+                    senders.getThreads());
+        }
+
+        return client;
+    }
+
+    /**
+     * Returns whether the artifact lookups of the analyses are batched into shared requests. The size of the requests
+     * is then chosen by the {@link LookupTuner} for all the analyses.
+     *
+     * @return true if the lookups are batched
+     */
+    public boolean isBatching() {
+        return windowMillis > 0L;
+    }
+
+    @PreDestroy
+    synchronized void stop() {
+        if (client != null) {
+            scheduler.shutdownNow();
+            senders.shutdownNow();
+            artifactClient.close();
+            client.shutdown();
+            client = null;
+        }
+    }
+
+    private static ThreadFactory createThreadFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+import org.jboss.pnc.build.finder.koji.ClientSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.redhat.red.build.koji.KojiClientException;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveQuery;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveType;
+import com.redhat.red.build.koji.model.xmlrpc.KojiBuildInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiIdOrName;
+import com.redhat.red.build.koji.model.xmlrpc.KojiRpmInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiTagInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiTaskInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiTaskRequest;
+
+/**
+ * Koji session which records the results and the latencies of the calls of its delegate with a
+ * {@link TrafficRecorder}. Every query of a multicall is recorded under its own key, so that
+ * {@link ReplayClientSession} can answer multicalls batched differently.
+ */
+public class RecordingClientSession implements ClientSession, AutoCloseable {
+    static final String LIST_ARCHIVES = "koji.listArchives";
+
+    static final String ARCHIVE_TYPES = "koji.getArchiveTypes";
+
+    static final String GET_BUILD = "koji.getBuild";
+
+    static final String GET_TASK_INFO = "koji.getTaskInfo";
+
+    static final String GET_TASK_REQUEST = "koji.getTaskRequest";
+
+    static final String LIST_TAGS = "koji.listTags";
+
+    static final String ENRICH_ARCHIVES = "koji.enrichArchiveTypeInfo";
+
+    static final String GET_RPM = "koji.getRPM";
+
+    static final String LIST_BUILD_RPMS = "koji.listBuildRPMs";
+
+    static final String ARCHIVE_TYPES_KEY = "all";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RecordingClientSession.class);
+
+    private final ClientSession delegate;
+
+    private final TrafficRecorder recorder;
+
+    public RecordingClientSession(ClientSession delegate, TrafficRecorder recorder) {
+        this.delegate = delegate;
+        this.recorder = recorder;
+    }
+
+    @Override
+    public List<KojiArchiveInfo> listArchives(KojiArchiveQuery query) throws KojiClientException {
+        return listArchives(Collections.singletonList(query)).get(0);
+    }
+
+    @Override
+    public List<List<KojiArchiveInfo>> listArchives(List<KojiArchiveQuery> queries) throws KojiClientException {
+        return recordAll(LIST_ARCHIVES, archiveQueryKeys(queries), () -> delegate.listArchives(queries));
+    }
+
+    @Override
+    public Map<String, KojiArchiveType> getArchiveTypeMap() throws KojiClientException {
+        return recordOne(ARCHIVE_TYPES, ARCHIVE_TYPES_KEY, delegate::getArchiveTypeMap);
+    }
+
+    @Override
+    public KojiBuildInfo getBuild(int buildId) throws KojiClientException {
+        return recordOne(GET_BUILD, String.valueOf(buildId), () -> delegate.getBuild(buildId));
+    }
+
+    @Override
+    public KojiTaskInfo getTaskInfo(int taskId, boolean request) throws KojiClientException {
+        return recordOne(GET_TASK_INFO, taskKey(taskId, request), () -> delegate.getTaskInfo(taskId, request));
+    }
+
+    @Override
+    public KojiTaskRequest getTaskRequest(int taskId) throws KojiClientException {
+        return recordOne(GET_TASK_REQUEST, String.valueOf(taskId), () -> delegate.getTaskRequest(taskId));
+    }
+
+    @Override
+    public List<KojiTagInfo> listTags(int id) throws KojiClientException {
+        return recordOne(LIST_TAGS, String.valueOf(id), () -> delegate.listTags(id));
+    }
+
+    @Override
+    public void enrichArchiveTypeInfo(List<KojiArchiveInfo> archiveInfos) throws KojiClientException {
+        recordAll(ENRICH_ARCHIVES, archiveKeys(archiveInfos), () -> {
+            delegate.enrichArchiveTypeInfo(archiveInfos);
+            return archiveInfos;
+        });
+    }
+
+    @Override
+    public List<KojiBuildInfo> getBuild(List<KojiIdOrName> idsOrNames) throws KojiClientException {
+        return recordAll(GET_BUILD, idOrNameKeys(idsOrNames), () -> delegate.getBuild(idsOrNames));
+    }
+
+    @Override
+    public List<KojiRpmInfo> getRPM(List<KojiIdOrName> idsOrNames) throws KojiClientException {
+        return recordAll(GET_RPM, idOrNameKeys(idsOrNames), () -> delegate.getRPM(idsOrNames));
+    }
+
+    @Override
+    public List<KojiTaskInfo> getTaskInfo(List<Integer> taskIds, List<Boolean> requests) throws KojiClientException {
+        return recordAll(GET_TASK_INFO, taskKeys(taskIds, requests), () -> delegate.getTaskInfo(taskIds, requests));
+    }
+
+    @Override
+    public List<List<KojiRpmInfo>> listBuildRPMs(List<KojiIdOrName> idsOrNames) throws KojiClientException {
+        return recordAll(LIST_BUILD_RPMS, idOrNameKeys(idsOrNames), () -> delegate.listBuildRPMs(idsOrNames));
+    }
+
+    @Override
+    public List<List<KojiTagInfo>> listTags(List<KojiIdOrName> idsOrNames) throws KojiClientException {
+        return recordAll(LIST_TAGS, idOrNameKeys(idsOrNames), () -> delegate.listTags(idsOrNames));
+    }
+
+    @Override
+    public void close() {
+        if (delegate instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) delegate).close();
+            } catch (Exception e) {
+                LOGGER.warn("Error closing Koji session", e);
+            }
+        }
+    }
+
+    private <T> T recordOne(String method, String key, KojiCall<T> call) throws KojiClientException {
+        return recordAll(method, Collections.singletonList(key), () -> Collections.singletonList(call.call())).get(0);
+    }
+
+    private <T> List<T> recordAll(String method, List<String> keys, KojiCall<List<T>> call)
+            throws KojiClientException {
+        long start = System.nanoTime();
+        List<T> results = call.call();
+        recorder.record(method, keys, results, System.nanoTime() - start);
+        return results;
+    }
+
+    static List<String> archiveQueryKeys(List<KojiArchiveQuery> queries) {
+        List<String> keys = new ArrayList<>(queries.size());
+
+        for (KojiArchiveQuery query : queries) {
+            StringJoiner key = new StringJoiner(";");
+            addKey(key, "checksum", query.getChecksum());
+            addKey(key, "filename", query.getFilename());
+            addKey(key, "type", query.getType());
+            addKey(key, "buildId", query.getBuildId());
+            addKey(key, "archiveId", query.getArchiveId());
+            keys.add(key.toString());
+        }
+
+        return keys;
+    }
+
+    static List<String> archiveKeys(List<KojiArchiveInfo> archiveInfos) {
+        List<String> keys = new ArrayList<>(archiveInfos.size());
+
+        for (KojiArchiveInfo archiveInfo : archiveInfos) {
+            keys.add(String.valueOf(archiveInfo.getArchiveId()));
+        }
+
+        return keys;
+    }
+
+    static List<String> idOrNameKeys(List<KojiIdOrName> idsOrNames) {
+        List<String> keys = new ArrayList<>(idsOrNames.size());
+
+        for (KojiIdOrName idOrName : idsOrNames) {
+            keys.add(idOrName.getId() != null ? String.valueOf(idOrName.getId()) : idOrName.getName());
+        }
+
+        return keys;
+    }
+
+    static String taskKey(int taskId, boolean request) {
+        return taskId + ":" + request;
+    }
+
+    static List<String> taskKeys(List<Integer> taskIds, List<Boolean> requests) {
+        List<String> keys = new ArrayList<>(taskIds.size());
+
+        for (int i = 0; i < taskIds.size(); i++) {
+            keys.add(taskKey(taskIds.get(i), Boolean.TRUE.equals(requests.get(i))));
+        }
+
+        return keys;
+    }
+
+    private static void addKey(StringJoiner key, String name, Object value) {
+        if (value != null) {
+            key.add(name + "=" + value);
+        }
+    }
+
+    @FunctionalInterface
+    private interface KojiCall<T> {
+        T call() throws KojiClientException;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import static org.jboss.pnc.deliverablesanalyzer.RecordingClientSession.ARCHIVE_TYPES;
+import static org.jboss.pnc.deliverablesanalyzer.RecordingClientSession.ARCHIVE_TYPES_KEY;
+import static org.jboss.pnc.deliverablesanalyzer.RecordingClientSession.ENRICH_ARCHIVES;
+import static org.jboss.pnc.deliverablesanalyzer.RecordingClientSession.GET_BUILD;
+import static org.jboss.pnc.deliverablesanalyzer.RecordingClientSession.GET_RPM;
+import static org.jboss.pnc.deliverablesanalyzer.RecordingClientSession.GET_TASK_INFO;
+import static org.jboss.pnc.deliverablesanalyzer.RecordingClientSession.GET_TASK_REQUEST;
+import static org.jboss.pnc.deliverablesanalyzer.RecordingClientSession.LIST_ARCHIVES;
+import static org.jboss.pnc.deliverablesanalyzer.RecordingClientSession.LIST_BUILD_RPMS;
+import static org.jboss.pnc.deliverablesanalyzer.RecordingClientSession.LIST_TAGS;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.jboss.pnc.build.finder.koji.ClientSession;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.redhat.red.build.koji.KojiClientException;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveQuery;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveType;
+import com.redhat.red.build.koji.model.xmlrpc.KojiBuildInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiIdOrName;
+import com.redhat.red.build.koji.model.xmlrpc.KojiRpmInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiTagInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiTaskInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiTaskRequest;
+
+/**
+ * Koji session answering the queries with the results recorded by {@link RecordingClientSession}, after the recorded
+ * latency. It stands in for Koji when benchmarking the analyses offline. A query which wasn't recorded is answered as
+ * if Koji didn't know it.
+ */
+public class ReplayClientSession implements ClientSession {
+    private static final TypeFactory TYPES = TypeFactory.defaultInstance();
+
+    private static final JavaType ARCHIVES = TYPES.constructCollectionType(List.class, KojiArchiveInfo.class);
+
+    private static final JavaType ARCHIVE_TYPE_MAP = TYPES
+            .constructMapType(Map.class, String.class, KojiArchiveType.class);
+
+    private static final JavaType BUILD = TYPES.constructType(KojiBuildInfo.class);
+
+    private static final JavaType TASK_INFO = TYPES.constructType(KojiTaskInfo.class);
+
+    private static final JavaType TASK_REQUEST = TYPES.constructType(KojiTaskRequest.class);
+
+    private static final JavaType TAGS = TYPES.constructCollectionType(List.class, KojiTagInfo.class);
+
+    private static final JavaType RPM = TYPES.constructType(KojiRpmInfo.class);
+
+    private static final JavaType RPMS = TYPES.constructCollectionType(List.class, KojiRpmInfo.class);
+
+    private final TrafficReplay replay;
+
+    public ReplayClientSession(TrafficReplay replay) {
+        this.replay = replay;
+    }
+
+    @Override
+    public List<KojiArchiveInfo> listArchives(KojiArchiveQuery query) throws KojiClientException {
+        return listArchives(Collections.singletonList(query)).get(0);
+    }
+
+    @Override
+    public List<List<KojiArchiveInfo>> listArchives(List<KojiArchiveQuery> queries) throws KojiClientException {
+        return replayAll(LIST_ARCHIVES, RecordingClientSession.archiveQueryKeys(queries), ARCHIVES, ArrayList::new);
+    }
+
+    @Override
+    public Map<String, KojiArchiveType> getArchiveTypeMap() throws KojiClientException {
+        return replayOne(ARCHIVE_TYPES, ARCHIVE_TYPES_KEY, ARCHIVE_TYPE_MAP, HashMap::new);
+    }
+
+    @Override
+    public KojiBuildInfo getBuild(int buildId) throws KojiClientException {
+        return replayOne(GET_BUILD, String.valueOf(buildId), BUILD, () -> null);
+    }
+
+    @Override
+    public KojiTaskInfo getTaskInfo(int taskId, boolean request) throws KojiClientException {
+        return replayOne(GET_TASK_INFO, RecordingClientSession.taskKey(taskId, request), TASK_INFO, () -> null);
+    }
+
+    @Override
+    public KojiTaskRequest getTaskRequest(int taskId) throws KojiClientException {
+        return replayOne(GET_TASK_REQUEST, String.valueOf(taskId), TASK_REQUEST, () -> null);
+    }
+
+    @Override
+    public List<KojiTagInfo> listTags(int id) throws KojiClientException {
+        return replayOne(LIST_TAGS, String.valueOf(id), TAGS, ArrayList::new);
+    }
+
+    @Override
+    public void enrichArchiveTypeInfo(List<KojiArchiveInfo> archiveInfos) throws KojiClientException {
+        List<String> keys = RecordingClientSession.archiveKeys(archiveInfos);
+        pause(ENRICH_ARCHIVES, keys.size());
+
+        for (int i = 0; i < keys.size(); i++) {
+            try {
+                replay.update(ENRICH_ARCHIVES, keys.get(i), archiveInfos.get(i));
+            } catch (IOException e) {
+                throw new KojiClientException("Failed to replay archive %s", e, keys.get(i));
+            }
+        }
+    }
+
+    @Override
+    public List<KojiBuildInfo> getBuild(List<KojiIdOrName> idsOrNames) throws KojiClientException {
+        return replayAll(GET_BUILD, RecordingClientSession.idOrNameKeys(idsOrNames), BUILD, () -> null);
+    }
+
+    @Override
+    public List<KojiRpmInfo> getRPM(List<KojiIdOrName> idsOrNames) throws KojiClientException {
+        return replayAll(GET_RPM, RecordingClientSession.idOrNameKeys(idsOrNames), RPM, () -> null);
+    }
+
+    @Override
+    public List<KojiTaskInfo> getTaskInfo(List<Integer> taskIds, List<Boolean> requests) throws KojiClientException {
+        return replayAll(GET_TASK_INFO, RecordingClientSession.taskKeys(taskIds, requests), TASK_INFO, () -> null);
+    }
+
+    @Override
+    public List<List<KojiRpmInfo>> listBuildRPMs(List<KojiIdOrName> idsOrNames) throws KojiClientException {
+        return replayAll(LIST_BUILD_RPMS, RecordingClientSession.idOrNameKeys(idsOrNames), RPMS, ArrayList::new);
+    }
+
+    @Override
+    public List<List<KojiTagInfo>> listTags(List<KojiIdOrName> idsOrNames) throws KojiClientException {
+        return replayAll(LIST_TAGS, RecordingClientSession.idOrNameKeys(idsOrNames), TAGS, ArrayList::new);
+    }
+
+    private <T> T replayOne(String method, String key, JavaType type, Supplier<T> missing)
+            throws KojiClientException {
+        return this.<T> replayAll(method, Collections.singletonList(key), type, missing).get(0);
+    }
+
+    private <T> List<T> replayAll(String method, List<String> keys, JavaType type, Supplier<T> missing)
+            throws KojiClientException {
+        pause(method, keys.size());
+        List<T> results = new ArrayList<>(keys.size());
+
+        for (String key : keys) {
+            results.add(replay.get(method, key, type, missing));
+        }
+
+        return results;
+    }
+
+    private void pause(String method, int size) throws KojiClientException {
+        try {
+            replay.pause(method, size);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KojiClientException("Interrupted while replaying %s", e, method);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Executor sending the batches of a {@link Batcher}, whose number of threads follows the parallelism chosen by the
+ * {@link LookupTuner}. The number of threads is checked whenever a batch is submitted: the new threads are started at
+ * once, and the threads over the number exit once they are idle.
+ */
+final class ResizableExecutor implements Executor {
+    private final ThreadPoolExecutor executor;
+
+    private final IntSupplier threads;
+
+    /**
+     * Creates the executor.
+     *
+     * @param threads supplier of the number of threads
+     * @param threadFactory factory of the threads
+     */
+    ResizableExecutor(IntSupplier threads, ThreadFactory threadFactory) {
+        int numThreads = getThreads(threads);
+        this.executor = new ThreadPoolExecutor(
+                numThreads,
+                numThreads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                threadFactory);
+        this.threads = threads;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        resize();
+        executor.execute(task);
+    }
+
+    /**
+     * Returns the current number of threads.
+     *
+     * @return number of threads
+     */
+    int getThreads() {
+        return executor.getCorePoolSize();
+    }
+
+    void shutdownNow() {
+        executor.shutdownNow();
+    }
+
+    private synchronized void resize() {
+        int numThreads = getThreads(threads);
+
+        // The maximum can't be below the core size, so the order depends on the direction
+        if (numThreads > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(numThreads);
+            executor.setCorePoolSize(numThreads);
+        } else if (numThreads < executor.getCorePoolSize()) {
+            executor.setCorePoolSize(numThreads);
+            executor.setMaximumPoolSize(numThreads);
+        }
+    }
+
+    private static int getThreads(IntSupplier threads) {
+        return Math.max(1, threads.getAsInt());
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+
+import org.infinispan.Cache;
+import org.infinispan.client.hotrod.RemoteCache;
+import org.infinispan.client.hotrod.RemoteCacheManager;
+import org.infinispan.client.hotrod.annotation.ClientCacheEntryCreated;
+import org.infinispan.client.hotrod.annotation.ClientCacheEntryModified;
+import org.infinispan.client.hotrod.annotation.ClientListener;
+import org.infinispan.client.hotrod.event.ClientCacheEntryCreatedEvent;
+import org.infinispan.client.hotrod.event.ClientCacheEntryModifiedEvent;
+import org.infinispan.commons.api.BasicCache;
+import org.infinispan.commons.api.BasicCacheContainer;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.notifications.Listener;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryCreated;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryModified;
+import org.infinispan.notifications.cachelistener.event.CacheEntryCreatedEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryModifiedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of running analyses shared by all the replicas connected to the same Infinispan server or joined in the
+ * same embedded Infinispan cluster.
+ * <p>
+ * Every node publishes the IDs of the analyses it runs together with its node ID. A cancel request received by a node
+ * which doesn't run the analysis is stored as a cancel signal in a shared cache and the owning node is notified about it
+ * by a Hot Rod client listener or by a clustered listener. When the cache manager is neither remote nor clustered, the
+ * registry stays local and every call is a no-op.
+ */
+@ApplicationScoped
+public class SharedOperationRegistry {
+    /**
+     * Name of the cache holding the running analyses (analysis ID -&gt; owner node ID)
+     */
+    public static final String OPERATIONS_CACHE = "analysis-operations";
+
+    /**
+     * Name of the cache holding the cancel signals (analysis ID -&gt; requester node ID)
+     */
+    public static final String CANCELS_CACHE = "analysis-cancels";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedOperationRegistry.class);
+
+    private static final long OPERATION_LIFESPAN_MILLIS = Duration.ofDays(1L).toMillis();
+
+    private static final long CANCEL_LIFESPAN_MILLIS = Duration.ofHours(1L).toMillis();
+
+    private final String nodeId = createNodeId();
+
+    private BasicCache<String, String> operations;
+
+    private BasicCache<String, String> cancels;
+
+    private Object cancelListener;
+
+    /**
+     * Starts sharing the running operations using the provided cache container. The sharing is enabled only for remote
+     * and clustered embedded cache managers.
+     *
+     * @param cacheContainer cache container used by the analyses, may be null if the cache is disabled
+     * @param cancelHandler handler cancelling a locally running analysis identified by an ID
+     */
+    public synchronized void start(BasicCacheContainer cacheContainer, Consumer<String> cancelHandler) {
+        if (cacheContainer instanceof RemoteCacheManager) {
+            RemoteCacheManager remoteCacheManager = (RemoteCacheManager) cacheContainer;
+            RemoteCache<String, String> remoteOperations = remoteCacheManager.getCache(OPERATIONS_CACHE);
+            RemoteCache<String, String> remoteCancels = remoteCacheManager.getCache(CANCELS_CACHE);
+
+            if (remoteOperations == null || remoteCancels == null) {
+                throw new IllegalStateException(
+                        "Caches " + OPERATIONS_CACHE + " and " + CANCELS_CACHE
+                                + " must be defined on the remote server");
+            }
+
+            CancelListener listener = new CancelListener(cancelHandler);
+            remoteCancels.addClientListener(listener);
+
+            operations = remoteOperations;
+            cancels = remoteCancels;
+            cancelListener = listener;
+        } else if (cacheContainer instanceof EmbeddedCacheManager
+                && ((EmbeddedCacheManager) cacheContainer).getCacheManagerConfiguration().isClustered()) {
+            EmbeddedCacheManager embeddedCacheManager = (EmbeddedCacheManager) cacheContainer;
+            Cache<String, String> embeddedOperations = embeddedCacheManager.getCache(OPERATIONS_CACHE);
+            Cache<String, String> embeddedCancels = embeddedCacheManager.getCache(CANCELS_CACHE);
+            ClusteredCancelListener listener = new ClusteredCancelListener(cancelHandler);
+
+            embeddedCancels.addListener(listener);
+
+            operations = embeddedOperations;
+            cancels = embeddedCancels;
+            cancelListener = listener;
+        } else {
+            LOGGER.info("Running operations are not shared, because the cache is neither remote nor clustered");
+            return;
+        }
+
+        LOGGER.info("Sharing running operations as node {}", nodeId);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (cancels instanceof RemoteCache && cancelListener != null) {
+            ((RemoteCache<String, String>) cancels).removeClientListener(cancelListener);
+        } else if (cancels instanceof Cache && cancelListener != null) {
+            ((Cache<String, String>) cancels).removeListener(cancelListener);
+        }
+
+        cancelListener = null;
+        cancels = null;
+        operations = null;
+    }
+
+    public boolean isShared() {
+        return operations != null;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Publishes an analysis running on this node.
+     *
+     * @param id ID of the analysis
+     */
+    public void register(String id) {
+        if (isShared()) {
+            operations.put(id, nodeId, OPERATION_LIFESPAN_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Removes a finished analysis together with its cancel signal.
+     *
+     * @param id ID of the analysis
+     */
+    public void unregister(String id) {
+        if (isShared()) {
+            operations.remove(id);
+            cancels.remove(id);
+        }
+    }
+
+    /**
+     * Returns the ID of the node running the analysis.
+     *
+     * @param id ID of the analysis
+     * @return node ID or null if the analysis is not running on any node
+     */
+    public String getOwner(String id) {
+        return isShared() ? operations.get(id) : null;
+    }
+
+    /**
+     * Signals the owning node to cancel the analysis.
+     *
+     * @param id ID of the analysis
+     * @return true if the analysis runs on some node and the cancel signal was sent, false otherwise
+     */
+    public boolean requestCancel(String id) {
+        String owner = getOwner(id);
+
+        if (owner == null) {
+            return false;
+        }
+
+        LOGGER.info("Requesting node {} to cancel analysis {}", owner, id);
+        cancels.put(id, nodeId, CANCEL_LIFESPAN_MILLIS, TimeUnit.MILLISECONDS);
+
+        return true;
+    }
+
+    private static String createNodeId() {
+        String host;
+
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * Listener receiving the cancel signals from all the nodes connected to the remote server.
+     */
+    @ClientListener
+    public static class CancelListener {
+        private final Consumer<String> cancelHandler;
+
+        CancelListener(Consumer<String> cancelHandler) {
+            this.cancelHandler = cancelHandler;
+        }
+
+        @ClientCacheEntryCreated
+        public void handleCreated(ClientCacheEntryCreatedEvent<String> event) {
+            handleCancel(event.getKey());
+        }
+
+        @ClientCacheEntryModified
+        public void handleModified(ClientCacheEntryModifiedEvent<String> event) {
+            handleCancel(event.getKey());
+        }
+
+        private void handleCancel(String id) {
+            LOGGER.debug("Received cancel signal for analysis {}", id);
+            cancelHandler.accept(id);
+        }
+    }
+
+    /**
+     * Listener receiving the cancel signals from all the nodes of the embedded cluster.
+     */
+    @Listener(clustered = true)
+    public static class ClusteredCancelListener {
+        private final Consumer<String> cancelHandler;
+
+        ClusteredCancelListener(Consumer<String> cancelHandler) {
+            this.cancelHandler = cancelHandler;
+        }
+
+        @CacheEntryCreated
+        public void handleCreated(CacheEntryCreatedEvent<String, String> event) {
+            handleCancel(event.getKey());
+        }
+
+        @CacheEntryModified
+        public void handleModified(CacheEntryModifiedEvent<String, String> event) {
+            handleCancel(event.getKey());
+        }
+
+        private void handleCancel(String id) {
+            LOGGER.debug("Received cancel signal for analysis {}", id);
+            cancelHandler.accept(id);
+        }
+    }
+}
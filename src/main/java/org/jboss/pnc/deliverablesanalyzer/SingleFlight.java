@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.UnaryOperator;
+
+import org.eclipse.microprofile.metrics.Counter;
+
+/**
+ * Shares the loading of the same keys between concurrent callers. When a key is requested while another caller is
+ * already loading it, the key is not loaded again, but the caller waits for the result of the other caller. The
+ * callers which only wait get a copy of the result, so that they don't modify the result of the others.
+ *
+ * @param <K> type of the keys
+ * @param <V> type of the values
+ */
+public class SingleFlight<K, V> {
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter suppressed;
+
+    private final UnaryOperator<V> copier;
+
+    /**
+     * Creates the single flight.
+     *
+     * @param suppressed counter of the keys which were not loaded, because they were already being loaded
+     * @param copier creates a copy of a loaded value for the waiting callers
+     */
+    public SingleFlight(Counter suppressed, UnaryOperator<V> copier) {
+        this.suppressed = suppressed;
+        this.copier = copier;
+    }
+
+    /**
+     * Loads the values of the keys. The keys which are already being loaded by other callers are not passed to the
+     * loader, but their values are awaited. The keys owned by this caller are loaded first, so that the callers never
+     * wait for each other in a cycle.
+     *
+     * @param keys keys to load
+     * @param loader loader of the values, it must return a value for every key in the same order
+     * @param exceptionType type of the exception thrown by the loader
+     * @param <E> type of the exception thrown by the loader
+     * @return values of the keys in the same order
+     * @throws E if the loader of any key failed
+     * @throws CancellationException if the caller was interrupted while waiting for another caller
+     */
+    public <E extends Exception> List<V> load(List<K> keys, Loader<K, V, E> loader, Class<E> exceptionType)
+            throws E {
+        int size = keys.size();
+        List<CompletableFuture<V>> futures = new ArrayList<>(size);
+        boolean[] shared = new boolean[size];
+        List<K> ownedKeys = new ArrayList<>(size);
+        List<CompletableFuture<V>> ownedFutures = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            K key = keys.get(i);
+            CompletableFuture<V> future = new CompletableFuture<>();
+            CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+
+            if (existing == null) {
+                ownedKeys.add(key);
+                ownedFutures.add(future);
+                futures.add(future);
+            } else {
+                suppressed.inc();
+                shared[i] = true;
+                futures.add(existing);
+            }
+        }
+
+        if (!ownedKeys.isEmpty()) {
+            load(ownedKeys, ownedFutures, loader);
+        }
+
+        List<V> values = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            V value = await(futures.get(i), exceptionType);
+            values.add(shared[i] && value != null ? copier.apply(value) : value);
+        }
+
+        return values;
+    }
+
+    /**
+     * Returns the number of keys being loaded.
+     *
+     * @return number of keys
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    private <E extends Exception> void load(
+            List<K> ownedKeys,
+            List<CompletableFuture<V>> ownedFutures,
+            Loader<K, V, E> loader) throws E {
+        try {
+            List<V> values = loader.load(ownedKeys);
+
+            for (int i = 0; i < ownedFutures.size(); i++) {
+                ownedFutures.get(i).complete(values.get(i));
+            }
+        } catch (Throwable t) {
+            for (CompletableFuture<V> future : ownedFutures) {
+                future.completeExceptionally(t);
+            }
+
+            throw t;
+        } finally {
+            for (int i = 0; i < ownedKeys.size(); i++) {
+                inFlight.remove(ownedKeys.get(i), ownedFutures.get(i));
+            }
+        }
+    }
+
+    private static <V, E extends Exception> V await(CompletableFuture<V> future, Class<E> exceptionType) throws E {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for a shared lookup");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (exceptionType.isInstance(cause)) {
+                throw exceptionType.cast(cause);
+            }
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Loader of the values of several keys.
+     *
+     * @param <K> type of the keys
+     * @param <V> type of the values
+     * @param <E> type of the exception thrown by the loader
+     */
+    @FunctionalInterface
+    public interface Loader<K, V, E extends Exception> {
+        List<V> load(List<K> keys) throws E;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.jboss.pnc.build.finder.koji.ClientSession;
+
+import com.redhat.red.build.koji.KojiClientException;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveQuery;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveType;
+import com.redhat.red.build.koji.model.xmlrpc.KojiBuildInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiIdOrName;
+import com.redhat.red.build.koji.model.xmlrpc.KojiRpmInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiTagInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiTaskInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiTaskRequest;
+
+/**
+ * Koji session sharing the concurrent lookups of the same archives, builds and RPMs, which are the lookups done on the
+ * misses of the checksums, builds and RPMs caches.
+ */
+public class SingleFlightClientSession implements ClientSession {
+    private final ClientSession delegate;
+
+    private final SingleFlight<String, List<KojiArchiveInfo>> archives;
+
+    private final SingleFlight<Object, KojiBuildInfo> builds;
+
+    private final SingleFlight<Object, KojiRpmInfo> rpms;
+
+    public SingleFlightClientSession(
+            ClientSession delegate,
+            SingleFlight<String, List<KojiArchiveInfo>> archives,
+            SingleFlight<Object, KojiBuildInfo> builds,
+            SingleFlight<Object, KojiRpmInfo> rpms) {
+        this.delegate = delegate;
+        this.archives = archives;
+        this.builds = builds;
+        this.rpms = rpms;
+    }
+
+    @Override
+    public List<KojiArchiveInfo> listArchives(KojiArchiveQuery query) throws KojiClientException {
+        return delegate.listArchives(query);
+    }
+
+    @Override
+    public List<List<KojiArchiveInfo>> listArchives(List<KojiArchiveQuery> queries) throws KojiClientException {
+        // Only the lookups by checksum are shared, any other query is sent as it is
+        if (queries.stream().anyMatch(query -> query.getChecksum() == null)) {
+            return delegate.listArchives(queries);
+        }
+
+        List<String> checksums = queries.stream().map(KojiArchiveQuery::getChecksum).collect(Collectors.toList());
+
+        return archives.load(
+                checksums,
+                keys -> delegate.listArchives(
+                        keys.stream().map(key -> new KojiArchiveQuery().withChecksum(key)).collect(Collectors.toList())),
+                KojiClientException.class);
+    }
+
+    @Override
+    public Map<String, KojiArchiveType> getArchiveTypeMap() throws KojiClientException {
+        return delegate.getArchiveTypeMap();
+    }
+
+    @Override
+    public KojiBuildInfo getBuild(int buildId) throws KojiClientException {
+        return delegate.getBuild(buildId);
+    }
+
+    @Override
+    public KojiTaskInfo getTaskInfo(int taskId, boolean request) throws KojiClientException {
+        return delegate.getTaskInfo(taskId, request);
+    }
+
+    @Override
+    public KojiTaskRequest getTaskRequest(int taskId) throws KojiClientException {
+        return delegate.getTaskRequest(taskId);
+    }
+
+    @Override
+    public List<KojiTagInfo> listTags(int id) throws KojiClientException {
+        return delegate.listTags(id);
+    }
+
+    @Override
+    public void enrichArchiveTypeInfo(List<KojiArchiveInfo> archiveInfos) throws KojiClientException {
+        delegate.enrichArchiveTypeInfo(archiveInfos);
+    }
+
+    @Override
+    public List<KojiBuildInfo> getBuild(List<KojiIdOrName> idsOrNames) throws KojiClientException {
+        return builds.load(
+                getKeys(idsOrNames),
+                keys -> delegate.getBuild(toIdsOrNames(keys)),
+                KojiClientException.class);
+    }
+
+    @Override
+    public List<KojiRpmInfo> getRPM(List<KojiIdOrName> idsOrNames) throws KojiClientException {
+        return rpms.load(getKeys(idsOrNames), keys -> delegate.getRPM(toIdsOrNames(keys)), KojiClientException.class);
+    }
+
+    @Override
+    public List<KojiTaskInfo> getTaskInfo(List<Integer> taskIds, List<Boolean> requests) throws KojiClientException {
+        return delegate.getTaskInfo(taskIds, requests);
+    }
+
+    @Override
+    public List<List<KojiRpmInfo>> listBuildRPMs(List<KojiIdOrName> idsOrNames) throws KojiClientException {
+        return delegate.listBuildRPMs(idsOrNames);
+    }
+
+    @Override
+    public List<List<KojiTagInfo>> listTags(List<KojiIdOrName> idsOrNames) throws KojiClientException {
+        return delegate.listTags(idsOrNames);
+    }
+
+    // KojiIdOrName doesn't implement equality, so the ID or the name is used as the key
+    private static List<Object> getKeys(List<KojiIdOrName> idsOrNames) {
+        return idsOrNames.stream()
+                .map(idOrName -> idOrName.getId() != null ? idOrName.getId() : idOrName.getName())
+                .collect(Collectors.toList());
+    }
+
+    private static List<KojiIdOrName> toIdsOrNames(List<Object> keys) {
+        return keys.stream().map(KojiIdOrName::getFor).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+import org.eclipse.microprofile.metrics.Timer;
+import org.jboss.pnc.build.finder.koji.ClientSession;
+import org.jboss.pnc.build.finder.pnc.client.PncClient;
+import org.jboss.pnc.deliverablesanalyzer.model.StageTimings;
+
+/**
+ * Times the stages of the analyses. Every run of a stage updates the {@value #STAGE} timer of the stage and the
+ * {@link StageTimings} of its analysis, which is sent with the analysis report. The timers are tagged by stage only,
+ * since a tag per analysis would register new metrics for every analysis.
+ */
+@ApplicationScoped
+public class StageTimer {
+    /**
+     * Duration of the runs of a stage of the analyses.
+     */
+    public static final String STAGE = "analysis.stage";
+
+    @Inject
+    MetricRegistry registry;
+
+    private final Map<Stage, Timer> timers = new EnumMap<>(Stage.class);
+
+    @PostConstruct
+    void init() {
+        for (Stage stage : Stage.values()) {
+            timers.put(
+                    stage,
+                    registry.timer(
+                            Metadata.builder()
+                                    .withName(STAGE)
+                                    .withDescription("Duration of the runs of a stage of the analyses")
+                                    .withType(MetricType.TIMER)
+                                    .withUnit(MetricUnits.NANOSECONDS)
+                                    .build(),
+                            new Tag("stage", stage.getName())));
+        }
+    }
+
+    /**
+     * Records a run of a stage.
+     *
+     * @param stage stage
+     * @param nanos duration of the run
+     * @param timings timings of the analysis
+     */
+    public void record(Stage stage, long nanos, StageTimings timings) {
+        timers.get(stage).update(Duration.ofNanos(nanos));
+        timings.record(stage.getName(), nanos);
+    }
+
+    /**
+     * Runs a task as a run of a stage.
+     *
+     * @param stage stage
+     * @param timings timings of the analysis
+     * @param task task
+     * @param <T> type of the result
+     * @return result of the task
+     * @throws Exception if the task fails
+     */
+    public <T> T time(Stage stage, StageTimings timings, Callable<T> task) throws Exception {
+        long start = System.nanoTime();
+        timings.enter(stage.getName());
+
+        try {
+            return task.call();
+        } finally {
+            timings.exit(stage.getName());
+            record(stage, System.nanoTime() - start, timings);
+        }
+    }
+
+    /**
+     * Returns a Koji session timing its calls as the {@link Stage#KOJI} stage of an analysis.
+     *
+     * @param session Koji session
+     * @param timings timings of the analysis
+     * @return timed Koji session
+     */
+    public ClientSession wrap(ClientSession session, StageTimings timings) {
+        return (ClientSession) Proxy.newProxyInstance(
+                ClientSession.class.getClassLoader(),
+                new Class<?>[] { ClientSession.class },
+                new TimedCalls(session, Stage.KOJI, timings));
+    }
+
+    /**
+     * Returns a PNC client timing its calls as the {@link Stage#PNC} stage of an analysis.
+     *
+     * @param client PNC client
+     * @param timings timings of the analysis
+     * @return timed PNC client
+     */
+    public PncClient wrap(PncClient client, StageTimings timings) {
+        return (PncClient) Proxy.newProxyInstance(
+                PncClient.class.getClassLoader(),
+                new Class<?>[] { PncClient.class },
+                new TimedCalls(client, Stage.PNC, timings));
+    }
+
+    /**
+     * Stages of the analysis pipeline.
+     * <ul>
+     * <li>QUEUE: wait of the analysis and of every URL for a thread</li>
+     * <li>CHECKSUMS: download, unpacking and checksums of a deliverable, which Build Finder does in a single pass</li>
+     * <li>LOOKUP: lookup of the builds of a deliverable, running while its checksums are computed</li>
+     * <li>KOJI: Koji calls of the lookup</li>
+     * <li>PNC: PNC calls of the lookup</li>
+     * <li>RESULT: creation of the result of a deliverable from the found builds</li>
+     * <li>CALLBACK: delivery of the analysis report</li>
+     * </ul>
+     */
+    public enum Stage {
+        QUEUE, CHECKSUMS, LOOKUP, KOJI, PNC, RESULT, CALLBACK;
+
+        public String getName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final class TimedCalls implements InvocationHandler {
+        private final Object delegate;
+
+        private final Stage stage;
+
+        private final StageTimings timings;
+
+        private TimedCalls(Object delegate, Stage stage, StageTimings timings) {
+            this.delegate = delegate;
+            this.stage = stage;
+            this.timings = timings;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class || "close".equals(method.getName())) {
+                return invoke(method, args);
+            }
+
+            long start = System.nanoTime();
+            timings.enter(stage.getName());
+
+            try {
+                return invoke(method, args);
+            } finally {
+                timings.exit(stage.getName());
+                record(stage, System.nanoTime() - start, timings);
+            }
+        }
+
+        private Object invoke(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(delegate, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
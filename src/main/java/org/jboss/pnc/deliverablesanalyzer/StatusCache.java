@@ -16,21 +16,143 @@
 package org.jboss.pnc.deliverablesanalyzer;
 
 import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
-import org.apache.commons.collections4.map.PassiveExpiringMap;
-
+/**
+ * Statuses of the analyses of the node, each kept for a day after it was put. The statuses are put by the REST threads
+ * while the activity endpoint and the readiness check read them, so the cache is thread-safe and its views are copies
+ * of the live entries, taken by {@link #snapshot()}.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the statuses
+ */
 @Singleton
-public class StatusCache<K, V> extends PassiveExpiringMap<K, V> {
-    private static final long serialVersionUID = -5602712310506571554L;
-
+public class StatusCache<K, V> extends AbstractMap<K, V> {
     private static final long TIME_TO_LIVE_MILLIS = Duration.ofDays(1L).toMillis();
 
+    private final ConcurrentMap<K, Expiring<V>> entries = new ConcurrentHashMap<>();
+
+    private final long timeToLiveMillis;
+
+    private final LongSupplier clock;
+
     @Inject
     public StatusCache() {
-        super(TIME_TO_LIVE_MILLIS, new ConcurrentHashMap<>());
+        this(TIME_TO_LIVE_MILLIS, System::currentTimeMillis);
+    }
+
+    StatusCache(long timeToLiveMillis, LongSupplier clock) {
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Puts the status of an analysis, which expires after the time to live. The expired statuses are removed first.
+     *
+     * @param key the key of the status
+     * @param value the status
+     * @return the previous status, or null if there was none or it has expired
+     */
+    @Override
+    public V put(K key, V value) {
+        long now = clock.getAsLong();
+        removeExpired(now);
+        Expiring<V> previous = entries.put(key, new Expiring<>(value, now + timeToLiveMillis));
+        return previous != null && !previous.isExpired(now) ? previous.value : null;
+    }
+
+    /**
+     * Returns the status of an analysis.
+     *
+     * @param key the key of the status
+     * @return the status, or null if there is none or it has expired
+     */
+    @Override
+    public V get(Object key) {
+        Expiring<V> entry = entries.get(key);
+
+        if (entry == null) {
+            return null;
+        }
+
+        if (entry.isExpired(clock.getAsLong())) {
+            entries.remove(key, entry);
+            return null;
+        }
+
+        return entry.value;
+    }
+
+    @Override
+    public V remove(Object key) {
+        Expiring<V> entry = entries.remove(key);
+        return entry != null && !entry.isExpired(clock.getAsLong()) ? entry.value : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Returns a copy of the statuses which have not expired, so iterating over it never races with the puts.
+     *
+     * @return copy of the entries
+     */
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return snapshot().entrySet();
+    }
+
+    /**
+     * Returns a copy of the statuses which have not expired. Later changes of the cache are not reflected in the copy.
+     *
+     * @return the statuses by key
+     */
+    public Map<K, V> snapshot() {
+        long now = clock.getAsLong();
+        removeExpired(now);
+        Map<K, V> snapshot = new HashMap<>();
+
+        for (Map.Entry<K, Expiring<V>> entry : entries.entrySet()) {
+            if (!entry.getValue().isExpired(now)) {
+                snapshot.put(entry.getKey(), entry.getValue().value);
+            }
+        }
+
+        return snapshot;
+    }
+
+    private void removeExpired(long now) {
+        entries.values().removeIf(entry -> entry.isExpired(now));
+    }
+
+    private static final class Expiring<V> {
+        private final V value;
+
+        private final long expiresAtMillis;
+
+        private Expiring(V value, long expiresAtMillis) {
+            this.value = value;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAtMillis;
+        }
     }
 }
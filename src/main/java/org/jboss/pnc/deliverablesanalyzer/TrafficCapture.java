@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.pnc.build.finder.koji.ClientSession;
+import org.jboss.pnc.deliverablesanalyzer.BatchingPncClient.ArtifactQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records the Koji and PNC traffic of real analyses into a local archive, or replays a recorded archive in place of
+ * Koji and PNC, so that {@link Finder} and the cache and lookup tuning can be benchmarked offline against a fixed
+ * workload and latency profile.
+ */
+@ApplicationScoped
+public class TrafficCapture {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TrafficCapture.class);
+
+    /**
+     * Whether the traffic is recorded, replayed, or neither.
+     */
+    @ConfigProperty(name = "capture.mode", defaultValue = "OFF")
+    CaptureMode mode;
+
+    /**
+     * Archive of the recorded traffic.
+     */
+    @ConfigProperty(name = "capture.file", defaultValue = "traffic.jsonl")
+    String file;
+
+    /**
+     * Factor of the recorded latencies when replaying: 1 replays the recorded latencies, 0 doesn't wait at all.
+     */
+    @ConfigProperty(name = "capture.replay.latency-factor", defaultValue = "1.0")
+    double latencyFactor;
+
+    private TrafficRecorder recorder;
+
+    private TrafficReplay replay;
+
+    @PostConstruct
+    void init() {
+        Path path = Paths.get(file);
+
+        try {
+            switch (mode) {
+                case RECORD:
+                    recorder = new TrafficRecorder(path);
+                    LOGGER.info("Recording the Koji and PNC traffic into {}", path.toAbsolutePath());
+                    break;
+                case REPLAY:
+                    replay = TrafficReplay.load(path, latencyFactor);
+                    LOGGER.info(
+                            "Replaying {} Koji and PNC queries from {} with latency factor {}",
+                            replay.size(),
+                            path.toAbsolutePath(),
+                            latencyFactor);
+                    break;
+                default:
+                    break;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open the traffic archive " + path, e);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (recorder != null) {
+            try {
+                recorder.close();
+            } catch (IOException e) {
+                LOGGER.warn("Failed to close the traffic archive: {}", e.getMessage());
+            }
+        }
+
+        if (replay != null && replay.getMisses() > 0L) {
+            LOGGER.warn("{} replayed queries were not recorded and had no result", replay.getMisses());
+        }
+    }
+
+    public CaptureMode getMode() {
+        return mode;
+    }
+
+    public boolean isReplaying() {
+        return mode == CaptureMode.REPLAY;
+    }
+
+    /**
+     * Returns a Koji session answering from the recorded traffic.
+     *
+     * @return replaying session
+     */
+    public ClientSession createReplaySession() {
+        return new ReplayClientSession(replay);
+    }
+
+    /**
+     * Returns the Koji session recording its traffic when recording.
+     *
+     * @param session Koji session
+     * @return recording session, or the session itself
+     */
+    public ClientSession wrap(ClientSession session) {
+        return recorder != null ? new RecordingClientSession(session, recorder) : session;
+    }
+
+    /**
+     * Returns the artifact query recording its traffic when recording, or answering from the recorded traffic when
+     * replaying.
+     *
+     * @param query PNC artifact query
+     * @return recording or replaying query, or the query itself
+     */
+    public ArtifactQuery wrap(ArtifactQuery query) {
+        if (recorder != null) {
+            return recorder.record(query);
+        }
+
+        if (replay != null) {
+            return replay.artifactQuery();
+        }
+
+        return query;
+    }
+
+    /**
+     * Enum to describe the capture modes of the traffic.
+     */
+    public enum CaptureMode {
+        OFF, RECORD, REPLAY
+    }
+}
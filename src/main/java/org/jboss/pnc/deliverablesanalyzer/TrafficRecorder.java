@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jboss.pnc.build.finder.core.BuildFinderObjectMapper;
+import org.jboss.pnc.deliverablesanalyzer.BatchingPncClient.ArtifactQuery;
+import org.jboss.pnc.dto.Artifact;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Records the Koji and PNC traffic of the analyses into a JSON lines archive, which {@link TrafficReplay} serves
+ * offline. Every line is a remote call: its method, its number of queries, its latency in nanoseconds, and the results
+ * of its queries by query key. The result of a query is only written the first time it is seen, so the archive grows
+ * with the distinct queries and not with the number of analyses.
+ * <p>
+ * The archive is appended to, so that several runs can be recorded into the same archive. A failure to write the
+ * archive is logged and doesn't fail the analysis.
+ */
+public class TrafficRecorder implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TrafficRecorder.class);
+
+    private final ObjectMapper mapper = createMapper();
+
+    /**
+     * Writes the lines with the default inclusion of a plain mapper, so that the queries without results are recorded
+     * too.
+     */
+    private final ObjectWriter lineWriter = new ObjectMapper().writer();
+
+    private final Set<String> recorded = ConcurrentHashMap.newKeySet();
+
+    private final Writer writer;
+
+    public TrafficRecorder(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        writer = Files.newBufferedWriter(
+                file,
+                StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Records a remote call.
+     *
+     * @param method name of the remote method
+     * @param keys keys of the queries of the call
+     * @param results results of the queries, in the order of the keys
+     * @param nanos latency of the call
+     */
+    public void record(String method, List<String> keys, List<?> results, long nanos) {
+        ObjectNode line = mapper.createObjectNode();
+        line.put("method", method);
+        line.put("size", keys.size());
+        line.put("nanos", nanos);
+        ObjectNode values = line.putObject("results");
+
+        for (int i = 0; i < keys.size(); i++) {
+            String key = keys.get(i);
+
+            if (recorded.add(method + ' ' + key)) {
+                values.set(key, mapper.valueToTree(results.get(i)));
+            }
+        }
+
+        try {
+            String json = lineWriter.writeValueAsString(line);
+
+            synchronized (writer) {
+                writer.write(json);
+                writer.write('\n');
+                writer.flush();
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Failed to record a call of {}: {}", method, e.getMessage());
+        }
+    }
+
+    /**
+     * Returns an artifact query recording the artifacts found by the query, by checksum.
+     *
+     * @param query artifact query
+     * @return recording artifact query
+     */
+    public ArtifactQuery record(ArtifactQuery query) {
+        return (field, checksums) -> {
+            long start = System.nanoTime();
+            Collection<Artifact> artifacts = query.getArtifacts(field, checksums);
+            long nanos = System.nanoTime() - start;
+            Map<String, List<Artifact>> artifactsByChecksum = new HashMap<>(checksums.size());
+
+            for (Artifact artifact : artifacts) {
+                String value = getChecksum(artifact, field);
+
+                if (value != null) {
+                    artifactsByChecksum.computeIfAbsent(value.toLowerCase(Locale.ROOT), key -> new ArrayList<>(1))
+                            .add(artifact);
+                }
+            }
+
+            List<String> keys = new ArrayList<>(checksums.size());
+            List<List<Artifact>> results = new ArrayList<>(checksums.size());
+
+            for (String checksum : checksums) {
+                String key = checksum.toLowerCase(Locale.ROOT);
+                keys.add(key);
+                results.add(artifactsByChecksum.getOrDefault(key, Collections.emptyList()));
+            }
+
+            record(pncMethod(field), keys, results, nanos);
+
+            return artifacts;
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (writer) {
+            writer.close();
+        }
+    }
+
+    /**
+     * Returns the name of the recorded method of the artifact lookups by a checksum field.
+     *
+     * @param field name of the checksum field
+     * @return method name
+     */
+    static String pncMethod(String field) {
+        return "pnc." + field;
+    }
+
+    /**
+     * Creates the mapper of the archive, which handles both the Koji objects and the PNC DTOs.
+     *
+     * @return object mapper
+     */
+    static ObjectMapper createMapper() {
+        ObjectMapper mapper = new BuildFinderObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        mapper.disable(SerializationFeature.INDENT_OUTPUT);
+        return mapper;
+    }
+
+    private static String getChecksum(Artifact artifact, String field) {
+        switch (field) {
+            case "md5":
+                return artifact.getMd5();
+            case "sha1":
+                return artifact.getSha1();
+            case "sha256":
+                return artifact.getSha256();
+            default:
+                throw new IllegalArgumentException("Unknown checksum field " + field);
+        }
+    }
+}
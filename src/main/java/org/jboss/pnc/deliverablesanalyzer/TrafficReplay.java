@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.jboss.pnc.deliverablesanalyzer.BatchingPncClient.ArtifactQuery;
+import org.jboss.pnc.dto.Artifact;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Serves the Koji and PNC traffic recorded by {@link TrafficRecorder}, so that the analyses can be benchmarked offline
+ * and reproducibly. The results are answered per query, so the replay doesn't depend on how the queries are batched:
+ * the batching and the tuning can be changed between the recording and the replay.
+ * <p>
+ * Every call waits for the latency the recorded calls of its method had for its number of queries, multiplied by the
+ * latency factor. A query which wasn't recorded has no result and is counted as a miss.
+ */
+public class TrafficReplay {
+    private final ObjectMapper mapper = TrafficRecorder.createMapper();
+
+    private final Map<String, Map<String, JsonNode>> results = new HashMap<>();
+
+    private final Map<String, LatencyProfile> latencies = new HashMap<>();
+
+    private final double latencyFactor;
+
+    private final LongAdder misses = new LongAdder();
+
+    private final JavaType artifactsType = mapper.getTypeFactory()
+            .constructCollectionType(List.class, Artifact.class);
+
+    TrafficReplay(double latencyFactor) {
+        this.latencyFactor = latencyFactor;
+    }
+
+    /**
+     * Loads an archive written by {@link TrafficRecorder}.
+     *
+     * @param file archive
+     * @param latencyFactor factor of the recorded latencies, zero replays without waiting
+     * @return replay of the archive
+     * @throws IOException if the archive can't be read
+     */
+    public static TrafficReplay load(Path file, double latencyFactor) throws IOException {
+        TrafficReplay replay = new TrafficReplay(latencyFactor);
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    replay.add(replay.mapper.readTree(line));
+                }
+            }
+        }
+
+        return replay;
+    }
+
+    void add(JsonNode line) {
+        String method = line.get("method").asText();
+        Map<String, JsonNode> values = results.computeIfAbsent(method, key -> new HashMap<>());
+        Iterator<Map.Entry<String, JsonNode>> fields = line.get("results").fields();
+
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            values.putIfAbsent(field.getKey(), field.getValue());
+        }
+
+        latencies.computeIfAbsent(method, key -> new LatencyProfile())
+                .add(line.get("size").asInt(), line.get("nanos").asLong());
+    }
+
+    /**
+     * Returns the number of queries which weren't recorded.
+     *
+     * @return number of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of recorded queries.
+     *
+     * @return number of queries
+     */
+    public int size() {
+        return results.values().stream().mapToInt(Map::size).sum();
+    }
+
+    /**
+     * Returns the recorded result of a query.
+     *
+     * @param method name of the remote method
+     * @param key key of the query
+     * @param type type of the result
+     * @param missing result if the query wasn't recorded
+     * @param <T> type of the result
+     * @return result
+     */
+    public <T> T get(String method, String key, JavaType type, Supplier<T> missing) {
+        JsonNode value = find(method, key);
+
+        if (value == null) {
+            return missing.get();
+        }
+
+        return mapper.convertValue(value, type);
+    }
+
+    /**
+     * Updates an object with the recorded result of a query.
+     *
+     * @param method name of the remote method
+     * @param key key of the query
+     * @param target object to update
+     * @throws IOException if the recorded result doesn't fit the object
+     */
+    public void update(String method, String key, Object target) throws IOException {
+        JsonNode value = find(method, key);
+
+        if (value != null) {
+            mapper.readerForUpdating(target).readValue(value);
+        }
+    }
+
+    /**
+     * Waits as long as the recorded calls of a method with the same number of queries took.
+     *
+     * @param method name of the remote method
+     * @param size number of queries of the call
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void pause(String method, int size) throws InterruptedException {
+        LatencyProfile profile = latencies.get(method);
+
+        if (profile == null || latencyFactor <= 0.0) {
+            return;
+        }
+
+        long nanos = (long) (profile.estimate(size) * latencyFactor);
+
+        if (nanos > 0L) {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        }
+    }
+
+    /**
+     * Returns an artifact query answering the recorded artifacts of the checksums.
+     *
+     * @return artifact query
+     */
+    public ArtifactQuery artifactQuery() {
+        return (field, checksums) -> {
+            String method = TrafficRecorder.pncMethod(field);
+
+            try {
+                pause(method, checksums.size());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while replaying a PNC request");
+            }
+
+            List<Artifact> artifacts = new ArrayList<>(checksums.size());
+
+            for (String checksum : checksums) {
+                artifacts.addAll(
+                        get(method, checksum.toLowerCase(Locale.ROOT), artifactsType, Collections::emptyList));
+            }
+
+            return artifacts;
+        };
+    }
+
+    private JsonNode find(String method, String key) {
+        JsonNode value = results.getOrDefault(method, Collections.emptyMap()).get(key);
+
+        if (value == null) {
+            misses.increment();
+        }
+
+        return value;
+    }
+
+    /**
+     * Latency of the calls of a method as a function of their number of queries, fitted by least squares to the
+     * recorded calls. When all the recorded calls had the same number of queries, their mean latency is used.
+     */
+    static class LatencyProfile {
+        private long count;
+
+        private double sumSize;
+
+        private double sumNanos;
+
+        private double sumSizeSquares;
+
+        private double sumProducts;
+
+        void add(int size, long nanos) {
+            count++;
+            sumSize += size;
+            sumNanos += nanos;
+            sumSizeSquares += (double) size * size;
+            sumProducts += (double) size * nanos;
+        }
+
+        double estimate(int size) {
+            if (count == 0L) {
+                return 0.0;
+            }
+
+            double meanSize = sumSize / count;
+            double meanNanos = sumNanos / count;
+            double variance = sumSizeSquares / count - meanSize * meanSize;
+
+            if (variance < 1e-9) {
+                return meanNanos;
+            }
+
+            double slope = (sumProducts / count - meanSize * meanNanos) / variance;
+
+            return Math.max(0.0, meanNanos + slope * (size - meanSize));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.health;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.Readiness;
+import org.jboss.pnc.deliverablesanalyzer.CacheWarmer;
+
+/**
+ * Reports the progress of the cache warm-up. The service is ready while the caches are warming up, since the entries
+ * which are not in memory yet are read from the store.
+ */
+@Readiness
+@ApplicationScoped
+public class CacheWarmupHealthCheck implements HealthCheck {
+    @Inject
+    CacheWarmer cacheWarmer;
+
+    @Override
+    public HealthCheckResponse call() {
+        long hotKeysTotal = cacheWarmer.getHotKeysTotal();
+        long hotKeysLoaded = cacheWarmer.getHotKeysLoaded();
+        long hotKeysPercent = hotKeysTotal > 0L ? hotKeysLoaded * 100L / hotKeysTotal : 100L;
+
+        return HealthCheckResponse.named("cache-warmup")
+                .up()
+                .withData("state", cacheWarmer.getState().name())
+                .withData("hotKeysLoaded", hotKeysLoaded)
+                .withData("hotKeysTotal", hotKeysTotal)
+                .withData("hotKeysPercent", hotKeysPercent)
+                .withData("entriesLoaded", cacheWarmer.getEntriesLoaded())
+                .build();
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.health;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.HealthCheckResponseBuilder;
+import org.eclipse.microprofile.health.Readiness;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.jboss.pnc.build.finder.core.BuildConfig;
+import org.jboss.pnc.deliverablesanalyzer.AnalysisExecutors;
+import org.jboss.pnc.deliverablesanalyzer.CircuitBreaker;
+import org.jboss.pnc.deliverablesanalyzer.KojiProvider;
+import org.jboss.pnc.deliverablesanalyzer.StatusCache;
+import org.jboss.pnc.deliverablesanalyzer.model.FinderStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.quarkus.runtime.configuration.MemorySize;
+
+/**
+ * Reports whether the node has the capacity for another analysis, so that the load balancer sends the new analyses
+ * to the nodes with capacity. The node is not ready while it runs as many analyses as its analysis executor has
+ * threads, queues as many analyses as allowed, or while its scratch disk or its heap is nearly full. The analyses
+ * already accepted are not affected.
+ * <p>
+ * A Koji circuit breaker which is not closed only marks the node as degraded, since Koji is shared by all the nodes
+ * and taking them all out of the load balancer wouldn't spread the load.
+ */
+@Readiness
+@ApplicationScoped
+public class CapacityHealthCheck implements HealthCheck {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CapacityHealthCheck.class);
+
+    /**
+     * Number of analyses waiting for a thread at which the node stops accepting new analyses.
+     */
+    @ConfigProperty(name = "health.capacity.max-queued", defaultValue = "4")
+    int maxQueued;
+
+    /**
+     * Free space of the scratch disk below which the node stops accepting new analyses.
+     */
+    @ConfigProperty(name = "health.capacity.min-free-scratch", defaultValue = "1G")
+    MemorySize minFreeScratch;
+
+    /**
+     * Percentage of the maximum heap left after the last garbage collection below which the node stops accepting
+     * new analyses.
+     */
+    @ConfigProperty(name = "health.capacity.min-free-heap-percent", defaultValue = "10")
+    int minFreeHeapPercent;
+
+    @Inject
+    StatusCache<String, FinderStatus> statuses;
+
+    @Inject
+    BuildConfig applicationConfig;
+
+    @Inject
+    MetricRegistry registry;
+
+    @Inject
+    AnalysisExecutors executors;
+
+    @Override
+    public HealthCheckResponse call() {
+        int running = 0;
+        int queued = 0;
+
+        for (FinderStatus status : statuses.snapshot().values()) {
+            FinderStatus.State state = status.getState();
+
+            if (state == FinderStatus.State.QUEUED) {
+                queued++;
+            } else if (state != FinderStatus.State.FINISHED) {
+                running++;
+            }
+        }
+
+        long freeScratch = Math.min(
+                getUsableSpace(Paths.get(applicationConfig.getOutputDirectory())),
+                getUsableSpace(Paths.get(System.getProperty("java.io.tmpdir"))));
+
+        return check(
+                running,
+                executors.getAnalysisThreads(),
+                queued,
+                freeScratch,
+                getFreeHeapPercent(),
+                getKojiBreakerState());
+    }
+
+    HealthCheckResponse check(
+            int running,
+            int maxRunning,
+            int queued,
+            long freeScratch,
+            long freeHeapPercent,
+            CircuitBreaker.State kojiBreaker) {
+        List<String> full = new ArrayList<>(4);
+
+        if (running >= maxRunning) {
+            full.add("running");
+        }
+
+        if (queued >= maxQueued) {
+            full.add("queued");
+        }
+
+        if (freeScratch < minFreeScratch.asLongValue()) {
+            full.add("scratch");
+        }
+
+        if (freeHeapPercent < minFreeHeapPercent) {
+            full.add("heap");
+        }
+
+        HealthCheckResponseBuilder builder = HealthCheckResponse.named("capacity")
+                .status(full.isEmpty())
+                .withData("running", running)
+                .withData("maxRunning", maxRunning)
+                .withData("queued", queued)
+                .withData("maxQueued", maxQueued)
+                .withData("freeScratchBytes", freeScratch)
+                .withData("freeHeapPercent", freeHeapPercent)
+                .withData("kojiBreaker", kojiBreaker.name())
+                .withData("degraded", kojiBreaker != CircuitBreaker.State.CLOSED);
+
+        if (!full.isEmpty()) {
+            builder.withData("full", String.join(",", full));
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Returns the worst state of the Koji circuit breakers, read from their gauges.
+     */
+    private CircuitBreaker.State getKojiBreakerState() {
+        int ordinal = registry.getGauges((id, metric) -> KojiProvider.BREAKER_STATE.equals(id.getName()))
+                .values()
+                .stream()
+                .map(Gauge<?>::getValue)
+                .filter(Number.class::isInstance)
+                .mapToInt(value -> ((Number) value).intValue())
+                .max()
+                .orElse(0);
+        CircuitBreaker.State[] states = CircuitBreaker.State.values();
+
+        return states[Math.min(Math.max(ordinal, 0), states.length - 1)];
+    }
+
+    /**
+     * Returns the usable space of the file store of a path, or of its closest existing parent since the output
+     * directory is only created by the first analysis.
+     */
+    static long getUsableSpace(Path path) {
+        Path existing = path.toAbsolutePath();
+
+        while (existing != null && !Files.exists(existing)) {
+            existing = existing.getParent();
+        }
+
+        if (existing == null) {
+            return Long.MAX_VALUE;
+        }
+
+        try {
+            return Files.getFileStore(existing).getUsableSpace();
+        } catch (IOException e) {
+            LOGGER.debug("Failed to get usable space of {}: {}", existing, e.getMessage());
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Returns the percentage of the maximum heap which is free. The heap pools are measured after their last
+     * collection where the JVM reports it, so that garbage waiting to be collected isn't counted as used.
+     */
+    static long getFreeHeapPercent() {
+        long max = Runtime.getRuntime().maxMemory();
+
+        if (max <= 0L || max == Long.MAX_VALUE) {
+            return 100L;
+        }
+
+        long used = 0L;
+
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                MemoryUsage usage = pool.getCollectionUsage();
+                used += (usage != null ? usage : pool.getUsage()).getUsed();
+            }
+        }
+
+        return Math.max(0L, (max - used) * 100L / max);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Span of an analysis, from the start of its task until its callback was performed.
+ */
+@Name(AnalysisEvent.NAME)
+@Label("Analysis")
+@Category({ AnalysisEvent.CATEGORY })
+@Description("Analysis of a list of deliverables")
+@StackTrace(false)
+public class AnalysisEvent extends jdk.jfr.Event {
+    public static final String NAME = "org.jboss.pnc.deliverablesanalyzer.Analysis";
+
+    /**
+     * Category of the events of the service.
+     */
+    public static final String CATEGORY = "Deliverables Analyzer";
+
+    @Label("Analysis ID")
+    @AnalysisId
+    String analysisId;
+
+    @Label("URLs")
+    @Description("Number of deliverables")
+    int urls;
+
+    @Label("Outcome")
+    @Description("SUCCESS, FAILURE or CANCELLED")
+    String outcome;
+
+    public AnalysisEvent(String analysisId, int urls) {
+        this.analysisId = analysisId;
+        this.urls = urls;
+    }
+
+    public void setOutcome(String outcome) {
+        this.outcome = outcome;
+    }
+}
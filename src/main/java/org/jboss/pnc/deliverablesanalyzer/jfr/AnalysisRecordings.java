@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.jfr;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.quarkus.runtime.configuration.MemorySize;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+/**
+ * Flight recordings of single analyses. A recording is started for an analysis ID, stopped when the analysis with
+ * this ID finishes, or after the maximum duration, and kept until it is downloaded or discarded. A recording contains
+ * all the events of the JVM while it runs, including the ones of the other analyses, but the events of the service
+ * carry the analysis ID they belong to. The JDK events carrying the environment, the system properties, the JVM
+ * arguments and the command lines of the processes are always disabled, since the recordings are downloaded from an
+ * unauthenticated endpoint and these can contain credentials.
+ */
+@ApplicationScoped
+public class AnalysisRecordings {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AnalysisRecordings.class);
+
+    /**
+     * JDK events which can contain credentials, disabled whatever the settings.
+     */
+    static final List<String> SENSITIVE_EVENTS = List.of(
+            "jdk.InitialEnvironmentVariable",
+            "jdk.InitialSystemProperty",
+            "jdk.JVMInformation",
+            "jdk.SystemProcess");
+
+    /**
+     * Name of the JFR settings of the recordings: default, profile or the path of a custom .jfc file.
+     */
+    @ConfigProperty(name = "jfr.settings", defaultValue = "profile")
+    String settings;
+
+    /**
+     * Duration after which a recording stops even if its analysis didn't finish.
+     */
+    @ConfigProperty(name = "jfr.max-duration", defaultValue = "1h")
+    Duration maxDuration;
+
+    /**
+     * Size after which a recording drops its oldest events.
+     */
+    @ConfigProperty(name = "jfr.max-size", defaultValue = "100M")
+    MemorySize maxSize;
+
+    /**
+     * Number of recordings which may be kept at once, running or waiting to be downloaded.
+     */
+    @ConfigProperty(name = "jfr.max-recordings", defaultValue = "4")
+    int maxRecordings;
+
+    private final Map<String, Recording> recordings = new HashMap<>();
+
+    /**
+     * Starts a recording for an analysis, which may already be running or not yet requested.
+     *
+     * @param id analysis ID
+     * @return false if there already is a recording for the analysis
+     * @throws IOException if the settings couldn't be read
+     * @throws ParseException if the settings couldn't be parsed
+     * @throws IllegalStateException if the maximum number of recordings are kept
+     */
+    public synchronized boolean start(String id) throws IOException, ParseException {
+        if (recordings.containsKey(id)) {
+            return false;
+        }
+
+        if (recordings.size() >= maxRecordings) {
+            throw new IllegalStateException(
+                    "Only " + maxRecordings + " recordings may be kept at once, download or discard one of them");
+        }
+
+        Recording recording = new Recording(getConfiguration(settings));
+        recording.setName("analysis-" + id);
+        recording.setToDisk(true);
+        recording.setMaxSize(maxSize.asLongValue());
+        recording.setDuration(maxDuration);
+        recording.enable(AnalysisEvent.class);
+        recording.enable(DeliverableEvent.class);
+        recording.enable(LookupBatchEvent.class);
+        recording.enable(CacheMissEvent.class);
+        recording.enable(CallbackEvent.class);
+        SENSITIVE_EVENTS.forEach(recording::disable);
+        recording.start();
+        recordings.put(id, recording);
+
+        LOGGER.info("Started flight recording of analysis with ID {} using settings {}", id, settings);
+
+        return true;
+    }
+
+    /**
+     * Stops the recording of an analysis, if there is one running.
+     *
+     * @param id analysis ID
+     */
+    public synchronized void stop(String id) {
+        Recording recording = recordings.get(id);
+
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+            LOGGER.info("Stopped flight recording of analysis with ID {}", id);
+        }
+    }
+
+    /**
+     * Stops the recording of an analysis if it is running, writes it into a temporary file and discards it.
+     *
+     * @param id analysis ID
+     * @return the file, which the caller has to delete, or null if there is no recording for the analysis
+     * @throws IOException if the recording couldn't be written
+     */
+    public Path dump(String id) throws IOException {
+        Recording recording;
+
+        synchronized (this) {
+            stop(id);
+            recording = recordings.remove(id);
+        }
+
+        if (recording == null) {
+            return null;
+        }
+
+        try {
+            Path file = Files.createTempFile("analysis-", ".jfr");
+
+            try {
+                recording.dump(file);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+
+            return file;
+        } finally {
+            recording.close();
+        }
+    }
+
+    /**
+     * Discards the recording of an analysis without writing it.
+     *
+     * @param id analysis ID
+     * @return false if there is no recording for the analysis
+     */
+    public synchronized boolean discard(String id) {
+        Recording recording = recordings.remove(id);
+
+        if (recording == null) {
+            return false;
+        }
+
+        recording.close();
+
+        return true;
+    }
+
+    @PreDestroy
+    synchronized void destroy() {
+        recordings.values().forEach(Recording::close);
+        recordings.clear();
+    }
+
+    private static Configuration getConfiguration(String settings) throws IOException, ParseException {
+        if (settings.endsWith(".jfc")) {
+            return Configuration.create(Path.of(settings));
+        }
+
+        return Configuration.getConfiguration(settings);
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Read of a cache which didn't find the entry. Misses are frequent, so the event has no stack trace.
+ */
+@Name(CacheMissEvent.NAME)
+@Label("Cache Miss")
+@Category({ AnalysisEvent.CATEGORY })
+@Description("Read of a cache which didn't find the entry")
+@StackTrace(false)
+public class CacheMissEvent extends jdk.jfr.Event {
+    public static final String NAME = "org.jboss.pnc.deliverablesanalyzer.CacheMiss";
+
+    @Label("Cache")
+    String cache;
+
+    public CacheMissEvent(String cache) {
+        this.cache = cache;
+    }
+}
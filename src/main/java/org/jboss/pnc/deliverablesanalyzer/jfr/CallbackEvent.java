@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Attempt to deliver the report of an analysis to its callback.
+ */
+@Name(CallbackEvent.NAME)
+@Label("Callback Attempt")
+@Category({ AnalysisEvent.CATEGORY })
+@Description("Attempt to deliver the report of an analysis to its callback")
+@StackTrace(false)
+public class CallbackEvent extends jdk.jfr.Event {
+    public static final String NAME = "org.jboss.pnc.deliverablesanalyzer.Callback";
+
+    @Label("Analysis ID")
+    @AnalysisId
+    String analysisId;
+
+    @Label("URL")
+    String url;
+
+    @Label("Attempt")
+    int attempt;
+
+    @Label("Succeeded")
+    boolean succeeded;
+
+    public CallbackEvent(String analysisId, String url, int attempt) {
+        this.analysisId = analysisId;
+        this.url = url;
+        this.attempt = attempt;
+    }
+
+    public void setSucceeded(boolean succeeded) {
+        this.succeeded = succeeded;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Span of the download and the checksums of a deliverable. Build Finder downloads, unpacks and hashes a deliverable
+ * in a single pass, so they are a single span.
+ */
+@Name(DeliverableEvent.NAME)
+@Label("Deliverable Checksums")
+@Category({ AnalysisEvent.CATEGORY })
+@Description("Download, unpacking and checksums of a deliverable")
+@StackTrace(false)
+public class DeliverableEvent extends jdk.jfr.Event {
+    public static final String NAME = "org.jboss.pnc.deliverablesanalyzer.Deliverable";
+
+    @Label("Analysis ID")
+    @AnalysisId
+    String analysisId;
+
+    @Label("URL")
+    String url;
+
+    @Label("Files")
+    @Description("Number of files which were hashed")
+    int files;
+
+    public DeliverableEvent(String analysisId, String url) {
+        this.analysisId = analysisId;
+        this.url = url;
+    }
+
+    public void setFiles(int files) {
+        this.files = files;
+    }
+}
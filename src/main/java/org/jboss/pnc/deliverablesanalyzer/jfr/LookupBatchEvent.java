@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.jfr;
+
+import org.jboss.pnc.deliverablesanalyzer.Batcher;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Koji multicall or PNC request shared by the lookups of the running analyses. The event is committed when the batch
+ * returns, so its latency is a field rather than its duration.
+ */
+@Name(LookupBatchEvent.NAME)
+@Label("Lookup Batch")
+@Category({ AnalysisEvent.CATEGORY })
+@Description("Koji multicall or PNC request shared by the lookups of the running analyses")
+@StackTrace(false)
+public class LookupBatchEvent extends jdk.jfr.Event {
+    public static final String NAME = "org.jboss.pnc.deliverablesanalyzer.LookupBatch";
+
+    @Label("System")
+    @Description("koji or pnc")
+    String system;
+
+    @Label("Size")
+    @Description("Number of queries in the batch")
+    int size;
+
+    @Label("Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    long latency;
+
+    @Label("Failed")
+    boolean failed;
+
+    /**
+     * Returns an observer of the batches of a system committing an event for every batch before passing it on.
+     *
+     * @param system koji or pnc
+     * @param delegate observer to pass the batches on to
+     * @return observer
+     */
+    public static Batcher.Observer observe(String system, Batcher.Observer delegate) {
+        return (size, latencyNanos, failed) -> {
+            LookupBatchEvent event = new LookupBatchEvent();
+
+            if (event.isEnabled()) {
+                event.system = system;
+                event.size = size;
+                event.latency = latencyNanos;
+                event.failed = failed;
+                event.commit();
+            }
+
+            delegate.batchSent(size, latencyNanos, failed);
+        };
+    }
+}
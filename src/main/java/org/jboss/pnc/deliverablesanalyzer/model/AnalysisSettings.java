@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.model;
+
+import java.io.Serializable;
+import java.util.Set;
+
+import org.jboss.pnc.build.finder.core.BuildConfig;
+import org.jboss.pnc.build.finder.core.ChecksumType;
+
+/**
+ * Performance settings applied to an analysis
+ */
+public class AnalysisSettings implements Serializable {
+
+    /**
+     * Number of Koji multicalls sent in parallel
+     */
+    private int kojiNumThreads;
+
+    /**
+     * Number of checksums in a Koji multicall
+     */
+    private int kojiMulticallSize;
+
+    /**
+     * Number of checksums in a PNC request
+     */
+    private int pncPartitionSize;
+
+    /**
+     * Types of the computed checksums
+     */
+    private Set<ChecksumType> checksumTypes;
+
+    /**
+     * Whether the archives inside the archives are not analyzed
+     */
+    private boolean disableRecursion;
+
+    /**
+     * Fingerprint of the settings affecting the results of the analysis
+     */
+    private String configFingerprint;
+
+    /**
+     * Settings of the request configuration which are ignored, since the lookups are batched with the other analyses
+     */
+    private Set<String> batchedSettings;
+
+    public AnalysisSettings() {
+    }
+
+    public AnalysisSettings(BuildConfig config) {
+        this.kojiNumThreads = config.getKojiNumThreads();
+        this.kojiMulticallSize = config.getKojiMulticallSize();
+        this.pncPartitionSize = config.getPncPartitionSize();
+        this.checksumTypes = config.getChecksumTypes();
+        this.disableRecursion = Boolean.TRUE.equals(config.getDisableRecursion());
+    }
+
+    public int getKojiNumThreads() {
+        return kojiNumThreads;
+    }
+
+    public void setKojiNumThreads(int kojiNumThreads) {
+        this.kojiNumThreads = kojiNumThreads;
+    }
+
+    public int getKojiMulticallSize() {
+        return kojiMulticallSize;
+    }
+
+    public void setKojiMulticallSize(int kojiMulticallSize) {
+        this.kojiMulticallSize = kojiMulticallSize;
+    }
+
+    public int getPncPartitionSize() {
+        return pncPartitionSize;
+    }
+
+    public void setPncPartitionSize(int pncPartitionSize) {
+        this.pncPartitionSize = pncPartitionSize;
+    }
+
+    public Set<ChecksumType> getChecksumTypes() {
+        return checksumTypes;
+    }
+
+    public void setChecksumTypes(Set<ChecksumType> checksumTypes) {
+        this.checksumTypes = checksumTypes;
+    }
+
+    public boolean isDisableRecursion() {
+        return disableRecursion;
+    }
+
+    public void setDisableRecursion(boolean disableRecursion) {
+        this.disableRecursion = disableRecursion;
+    }
+
+    public String getConfigFingerprint() {
+        return configFingerprint;
+    }
+
+    public void setConfigFingerprint(String configFingerprint) {
+        this.configFingerprint = configFingerprint;
+    }
+
+    public Set<String> getBatchedSettings() {
+        return batchedSettings;
+    }
+
+    public void setBatchedSettings(Set<String> batchedSettings) {
+        this.batchedSettings = batchedSettings;
+    }
+
+    @Override
+    public String toString() {
+        return "AnalysisSettings{" + "kojiNumThreads=" + kojiNumThreads + ", kojiMulticallSize=" + kojiMulticallSize
+                + ", pncPartitionSize=" + pncPartitionSize + ", checksumTypes=" + checksumTypes
+                + ", disableRecursion=" + disableRecursion + ", configFingerprint='" + configFingerprint + '\''
+                + ", batchedSettings=" + batchedSettings + '}';
+    }
+}
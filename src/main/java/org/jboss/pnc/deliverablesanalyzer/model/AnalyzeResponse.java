@@ -34,11 +34,22 @@ public class AnalyzeResponse implements Serializable {
      */
     private Request cancelRequest;
 
+    /**
+     * Performance settings applied to this analysis
+     */
+    private AnalysisSettings settings;
+
     public AnalyzeResponse(String id, Request cancelRequest) {
         this.id = id;
         this.cancelRequest = cancelRequest;
     }
 
+    public AnalyzeResponse(String id, Request cancelRequest, AnalysisSettings settings) {
+        this.id = id;
+        this.cancelRequest = cancelRequest;
+        this.settings = settings;
+    }
+
     public AnalyzeResponse() {
     }
 
@@ -50,6 +61,10 @@ public class AnalyzeResponse implements Serializable {
         return cancelRequest;
     }
 
+    public AnalysisSettings getSettings() {
+        return settings;
+    }
+
     public void setId(String id) {
         this.id = id;
     }
@@ -58,8 +73,13 @@ public class AnalyzeResponse implements Serializable {
         this.cancelRequest = cancelRequest;
     }
 
+    public void setSettings(AnalysisSettings settings) {
+        this.settings = settings;
+    }
+
     @Override
     public String toString() {
-        return "AnalyzeResponse{" + "id='" + id + '\'' + ", cancelRequest=" + cancelRequest + '}';
+        return "AnalyzeResponse{" + "id='" + id + '\'' + ", cancelRequest=" + cancelRequest + ", settings=" + settings
+                + '}';
     }
 }
@@ -17,8 +17,10 @@ package org.jboss.pnc.deliverablesanalyzer.model;
 
 import static org.jboss.pnc.build.finder.core.AnsiUtils.boldRed;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.validation.constraints.NotNull;
@@ -49,10 +51,31 @@ public class FinderStatus implements DistributionAnalyzerListener, BuildFinderLi
     @NotNull
     private final Map<String, BuildCheckedEvent> map;
 
+    private volatile LookupTuning tuning;
+
+    private final StageTimings timings;
+
+    @JsonIgnore
+    private final AtomicInteger filesHashed;
+
+    @JsonIgnore
+    private final long acceptedNanos;
+
+    @JsonIgnore
+    private volatile long startedNanos;
+
+    private volatile State state;
+
+    private volatile List<String> urls;
+
     public FinderStatus() {
         done = new AtomicInteger(0);
         total = new AtomicInteger(-1);
         map = new ConcurrentHashMap<>();
+        timings = new StageTimings();
+        filesHashed = new AtomicInteger(0);
+        acceptedNanos = System.nanoTime();
+        state = State.QUEUED;
     }
 
     @PositiveOrZero
@@ -79,6 +102,104 @@ public class FinderStatus implements DistributionAnalyzerListener, BuildFinderLi
         return percent;
     }
 
+    /**
+     * Returns the batch sizes and parallelism of the lookups chosen for the analysis.
+     *
+     * @return tuning of the lookups or null if the tuning is disabled
+     */
+    public LookupTuning getTuning() {
+        return tuning;
+    }
+
+    public void setTuning(LookupTuning tuning) {
+        this.tuning = tuning;
+    }
+
+    /**
+     * Returns the time the analysis spent in every stage so far.
+     *
+     * @return timings of the stages
+     */
+    public StageTimings getTimings() {
+        return timings;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Marks the analysis as started, once a thread picked it up.
+     */
+    public void start() {
+        startedNanos = System.nanoTime();
+        state = State.RUNNING;
+    }
+
+    public void setState(State state) {
+        this.state = state;
+    }
+
+    /**
+     * Returns whether the analysis is queued or running.
+     *
+     * @return false once the analysis finished
+     */
+    @JsonIgnore
+    public boolean isActive() {
+        return state != State.FINISHED;
+    }
+
+    public List<String> getUrls() {
+        return urls;
+    }
+
+    public void setUrls(List<String> urls) {
+        this.urls = urls;
+    }
+
+    /**
+     * Returns the time since the analysis was accepted.
+     *
+     * @return elapsed milliseconds
+     */
+    @JsonIgnore
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - acceptedNanos);
+    }
+
+    /**
+     * Returns the time since the analysis started.
+     *
+     * @return milliseconds since the start, 0 while queued
+     */
+    @JsonIgnore
+    public long getRunningMillis() {
+        long started = startedNanos;
+        return started != 0L ? TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) : 0L;
+    }
+
+    /**
+     * Returns the number of files hashed by the deliverables whose checksums are complete.
+     *
+     * @return number of files
+     */
+    @JsonIgnore
+    public int getFilesHashed() {
+        return filesHashed.get();
+    }
+
+    /**
+     * Returns the number of checksums whose builds weren't looked up yet.
+     *
+     * @return number of checksums, or -1 while no checksums are complete
+     */
+    @JsonIgnore
+    public int getChecksumsPending() {
+        int totalInt = total.intValue();
+        return totalInt >= 0 ? Math.max(0, totalInt - done.intValue()) : -1;
+    }
+
     @Override
     public void buildChecked(BuildCheckedEvent event) {
         int totalInt = total.intValue();
@@ -101,5 +222,13 @@ public class FinderStatus implements DistributionAnalyzerListener, BuildFinderLi
     @Override
     public void checksumsComputed(ChecksumsComputedEvent event) {
         total.set(event.getCount());
+        filesHashed.addAndGet(event.getCount());
+    }
+
+    /**
+     * Where an analysis is in its lifecycle.
+     */
+    public enum State {
+        QUEUED, RUNNING, CALLBACK, FINISHED
     }
 }
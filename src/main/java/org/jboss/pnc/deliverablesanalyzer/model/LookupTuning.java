@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.model;
+
+import java.io.Serializable;
+
+/**
+ * Batch sizes and parallelism of the Koji and PNC lookups chosen for an analysis, together with the latency and error
+ * rate observed when they were chosen. Only the batched lookups are tuned, the fields of a kind of lookups which is not
+ * batched are null.
+ */
+public class LookupTuning implements Serializable {
+    /**
+     * Number of checksums in a Koji multicall
+     */
+    private Integer kojiMulticallSize;
+
+    /**
+     * Number of Koji multicalls sent in parallel
+     */
+    private Integer kojiNumThreads;
+
+    /**
+     * Number of checksums in a PNC request
+     */
+    private Integer pncPartitionSize;
+
+    /**
+     * Number of PNC requests sent in parallel
+     */
+    private Integer pncNumThreads;
+
+    /**
+     * Average latency of the Koji multicalls in milliseconds
+     */
+    private Long kojiLatencyMillis;
+
+    /**
+     * Average ratio of the failed Koji multicalls
+     */
+    private Double kojiErrorRate;
+
+    /**
+     * Average latency of the PNC requests in milliseconds
+     */
+    private Long pncLatencyMillis;
+
+    /**
+     * Average ratio of the failed PNC requests
+     */
+    private Double pncErrorRate;
+
+    public Integer getKojiMulticallSize() {
+        return kojiMulticallSize;
+    }
+
+    public void setKojiMulticallSize(Integer kojiMulticallSize) {
+        this.kojiMulticallSize = kojiMulticallSize;
+    }
+
+    public Integer getKojiNumThreads() {
+        return kojiNumThreads;
+    }
+
+    public void setKojiNumThreads(Integer kojiNumThreads) {
+        this.kojiNumThreads = kojiNumThreads;
+    }
+
+    public Integer getPncPartitionSize() {
+        return pncPartitionSize;
+    }
+
+    public void setPncPartitionSize(Integer pncPartitionSize) {
+        this.pncPartitionSize = pncPartitionSize;
+    }
+
+    public Integer getPncNumThreads() {
+        return pncNumThreads;
+    }
+
+    public void setPncNumThreads(Integer pncNumThreads) {
+        this.pncNumThreads = pncNumThreads;
+    }
+
+    public Long getKojiLatencyMillis() {
+        return kojiLatencyMillis;
+    }
+
+    public void setKojiLatencyMillis(Long kojiLatencyMillis) {
+        this.kojiLatencyMillis = kojiLatencyMillis;
+    }
+
+    public Double getKojiErrorRate() {
+        return kojiErrorRate;
+    }
+
+    public void setKojiErrorRate(Double kojiErrorRate) {
+        this.kojiErrorRate = kojiErrorRate;
+    }
+
+    public Long getPncLatencyMillis() {
+        return pncLatencyMillis;
+    }
+
+    public void setPncLatencyMillis(Long pncLatencyMillis) {
+        this.pncLatencyMillis = pncLatencyMillis;
+    }
+
+    public Double getPncErrorRate() {
+        return pncErrorRate;
+    }
+
+    public void setPncErrorRate(Double pncErrorRate) {
+        this.pncErrorRate = pncErrorRate;
+    }
+
+    @Override
+    public String toString() {
+        return "LookupTuning{" + "kojiMulticallSize=" + kojiMulticallSize + ", kojiNumThreads=" + kojiNumThreads
+                + ", pncPartitionSize=" + pncPartitionSize + ", pncNumThreads=" + pncNumThreads
+                + ", kojiLatencyMillis=" + kojiLatencyMillis + ", kojiErrorRate=" + kojiErrorRate
+                + ", pncLatencyMillis=" + pncLatencyMillis + ", pncErrorRate=" + pncErrorRate + '}';
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.model;
+
+import java.util.List;
+
+/**
+ * Analyses queued and running on a node and the scratch disk they use
+ */
+public class NodeActivity {
+    /**
+     * Queued and running analyses, oldest first
+     */
+    private final List<RunningAnalysis> analyses;
+
+    /**
+     * Bytes used in the scratch directories shared by the analyses: the output directory and the cache of the
+     * downloaded and unpacked deliverables
+     */
+    private final long scratchBytes;
+
+    public NodeActivity(List<RunningAnalysis> analyses, long scratchBytes) {
+        this.analyses = analyses;
+        this.scratchBytes = scratchBytes;
+    }
+
+    public List<RunningAnalysis> getAnalyses() {
+        return analyses;
+    }
+
+    public long getScratchBytes() {
+        return scratchBytes;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.model;
+
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.pnc.deliverablesanalyzer.StageTimer.Stage;
+
+/**
+ * Snapshot of what a queued or running analysis is doing
+ */
+public class RunningAnalysis {
+    /**
+     * Analysis ID
+     */
+    private String id;
+
+    /**
+     * Where the analysis is in its lifecycle
+     */
+    private FinderStatus.State state;
+
+    /**
+     * URLs of the deliverables
+     */
+    private List<String> urls;
+
+    /**
+     * Time since the analysis was accepted in milliseconds
+     */
+    private long elapsedMillis;
+
+    /**
+     * Time since the analysis started in milliseconds, 0 while queued
+     */
+    private long runningMillis;
+
+    /**
+     * Number of runs in progress of every stage, and of deliverables in progress
+     */
+    private Map<String, Integer> running;
+
+    /**
+     * Number of threads working on the analysis: its deliverables, checksums and lookups in progress
+     */
+    private int threads;
+
+    /**
+     * Number of files hashed by the deliverables whose checksums are complete
+     */
+    private int filesHashed;
+
+    /**
+     * Number of checksums whose builds weren't looked up yet, -1 while no checksums are complete
+     */
+    private int checksumsPending;
+
+    /**
+     * Number of Koji and PNC calls in progress
+     */
+    private int lookupsOutstanding;
+
+    /**
+     * Percentage of the checksums whose builds were looked up
+     */
+    private int percent;
+
+    /**
+     * Remaining time estimated from the progress so far in milliseconds, null before any progress
+     */
+    private Long estimatedRemainingMillis;
+
+    /**
+     * Batch sizes and parallelism of the lookups of the analysis
+     */
+    private LookupTuning tuning;
+
+    /**
+     * Takes a snapshot of an analysis from its status.
+     *
+     * @param id analysis ID
+     * @param status status of the analysis
+     * @return the snapshot
+     */
+    public static RunningAnalysis of(String id, FinderStatus status) {
+        StageTimings timings = status.getTimings();
+        RunningAnalysis analysis = new RunningAnalysis();
+        analysis.id = id;
+        analysis.state = status.getState();
+        analysis.urls = status.getUrls();
+        analysis.elapsedMillis = status.getElapsedMillis();
+        analysis.runningMillis = status.getRunningMillis();
+        analysis.running = timings.getRunning();
+        analysis.threads = timings.getRunning(StageTimings.DELIVERABLES)
+                + timings.getRunning(Stage.CHECKSUMS.getName()) + timings.getRunning(Stage.LOOKUP.getName());
+        analysis.filesHashed = status.getFilesHashed();
+        analysis.checksumsPending = status.getChecksumsPending();
+        analysis.lookupsOutstanding = timings.getRunning(Stage.KOJI.getName())
+                + timings.getRunning(Stage.PNC.getName());
+        analysis.percent = status.getPercent();
+        analysis.estimatedRemainingMillis = estimateRemaining(analysis.runningMillis, analysis.percent);
+        analysis.tuning = status.getTuning();
+        return analysis;
+    }
+
+    static Long estimateRemaining(long runningMillis, int percent) {
+        if (percent <= 0 || percent >= 100) {
+            return null;
+        }
+
+        return runningMillis * (100L - percent) / percent;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public FinderStatus.State getState() {
+        return state;
+    }
+
+    public List<String> getUrls() {
+        return urls;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public long getRunningMillis() {
+        return runningMillis;
+    }
+
+    public Map<String, Integer> getRunning() {
+        return running;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getFilesHashed() {
+        return filesHashed;
+    }
+
+    public int getChecksumsPending() {
+        return checksumsPending;
+    }
+
+    public int getLookupsOutstanding() {
+        return lookupsOutstanding;
+    }
+
+    public int getPercent() {
+        return percent;
+    }
+
+    public Long getEstimatedRemainingMillis() {
+        return estimatedRemainingMillis;
+    }
+
+    public LookupTuning getTuning() {
+        return tuning;
+    }
+
+    @Override
+    public String toString() {
+        return "RunningAnalysis{" + "id='" + id + '\'' + ", state=" + state + ", elapsedMillis=" + elapsedMillis
+                + ", running=" + running + ", percent=" + percent + '}';
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.model;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Time spent by an analysis in every stage of the pipeline. The stages which run several times, like the Koji and PNC
+ * calls, are summed, so stages running in parallel can add up to more than the duration of the analysis.
+ * <p>
+ * It also counts the runs of every stage in progress, and the deliverables in progress, to show what a running
+ * analysis is doing. These counters are updated without locking, since the Koji and PNC calls update them.
+ */
+public class StageTimings implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Name under which the deliverables in progress are counted.
+     */
+    public static final String DELIVERABLES = "deliverables";
+
+    private final Map<String, StageTiming> stages = new LinkedHashMap<>();
+
+    private final Map<String, AtomicInteger> running = new ConcurrentHashMap<>();
+
+    /**
+     * Adds a run of a stage.
+     *
+     * @param stage name of the stage
+     * @param nanos duration of the run
+     */
+    public synchronized void record(String stage, long nanos) {
+        stages.computeIfAbsent(stage, key -> new StageTiming()).add(nanos);
+    }
+
+    /**
+     * Returns the timing of every stage which ran, in the order the stages first ran.
+     *
+     * @return timings by stage name
+     */
+    public synchronized Map<String, StageTiming> getStages() {
+        Map<String, StageTiming> copy = new LinkedHashMap<>(stages.size());
+        stages.forEach((name, timing) -> copy.put(name, timing.copy()));
+        return copy;
+    }
+
+    /**
+     * Counts a run of a stage as in progress.
+     *
+     * @param stage name of the stage
+     */
+    public void enter(String stage) {
+        running.computeIfAbsent(stage, key -> new AtomicInteger()).incrementAndGet();
+    }
+
+    /**
+     * Counts a run of a stage as no longer in progress.
+     *
+     * @param stage name of the stage
+     */
+    public void exit(String stage) {
+        AtomicInteger count = running.get(stage);
+
+        if (count != null) {
+            count.decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the number of runs in progress of every stage which has any.
+     *
+     * @return runs in progress by stage name
+     */
+    @JsonIgnore
+    public Map<String, Integer> getRunning() {
+        Map<String, Integer> copy = new LinkedHashMap<>(running.size());
+
+        running.forEach((name, count) -> {
+            int value = count.get();
+
+            if (value > 0) {
+                copy.put(name, value);
+            }
+        });
+
+        return copy;
+    }
+
+    /**
+     * Returns the number of runs in progress of a stage.
+     *
+     * @param stage name of the stage
+     * @return runs in progress
+     */
+    public int getRunning(String stage) {
+        AtomicInteger count = running.get(stage);
+        return count != null ? Math.max(0, count.get()) : 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "StageTimings{" + "stages=" + stages + '}';
+    }
+
+    /**
+     * Number of runs of a stage and their total and longest duration.
+     */
+    public static class StageTiming implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Number of runs
+         */
+        private long count;
+
+        /**
+         * Total duration of the runs in nanoseconds
+         */
+        private long totalNanos;
+
+        /**
+         * Longest run in nanoseconds
+         */
+        private long maxNanos;
+
+        void add(long nanos) {
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        StageTiming copy() {
+            StageTiming copy = new StageTiming();
+            copy.count = count;
+            copy.totalNanos = totalNanos;
+            copy.maxNanos = maxNanos;
+            return copy;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(totalNanos);
+        }
+
+        public long getMaxMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(maxNanos);
+        }
+
+        @Override
+        public String toString() {
+            return "StageTiming{" + "count=" + count + ", totalMillis=" + getTotalMillis() + ", maxMillis="
+                    + getMaxMillis() + '}';
+        }
+    }
+}
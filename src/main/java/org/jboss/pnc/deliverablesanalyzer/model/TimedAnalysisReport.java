@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.model;
+
+import java.util.List;
+
+import org.jboss.pnc.api.deliverablesanalyzer.dto.AnalysisReport;
+import org.jboss.pnc.api.deliverablesanalyzer.dto.FinderResult;
+
+/**
+ * Analysis report sent to the callback together with the time the analysis spent in every stage. The callback
+ * delivery itself can't be part of the report it delivers, so it is only published in the metrics.
+ */
+public class TimedAnalysisReport extends AnalysisReport {
+    private static final long serialVersionUID = 1L;
+
+    private final StageTimings timings;
+
+    public TimedAnalysisReport(List<FinderResult> results, StageTimings timings) {
+        super(results);
+        this.timings = timings;
+    }
+
+    public TimedAnalysisReport(Throwable errorCause, StageTimings timings) {
+        super(errorCause);
+        this.timings = timings;
+    }
+
+    public StageTimings getTimings() {
+        return timings;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.rest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.jboss.pnc.build.finder.core.BuildConfig;
+import org.jboss.pnc.deliverablesanalyzer.StatusCache;
+import org.jboss.pnc.deliverablesanalyzer.model.FinderStatus;
+import org.jboss.pnc.deliverablesanalyzer.model.NodeActivity;
+import org.jboss.pnc.deliverablesanalyzer.model.RunningAnalysis;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@ApplicationScoped
+public class ActivityResource implements ActivityService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ActivityResource.class);
+
+    /**
+     * Directory where Build Finder downloads and unpacks the deliverables.
+     */
+    private static final String VFS_CACHE = "vfs_cache";
+
+    @Inject
+    StatusCache<String, FinderStatus> statuses;
+
+    @Inject
+    BuildConfig applicationConfig;
+
+    @Override
+    public NodeActivity getActivity() {
+        List<RunningAnalysis> analyses = new ArrayList<>();
+
+        for (Map.Entry<String, FinderStatus> entry : statuses.snapshot().entrySet()) {
+            if (entry.getValue().isActive()) {
+                analyses.add(RunningAnalysis.of(entry.getKey(), entry.getValue()));
+            }
+        }
+
+        analyses.sort(Comparator.comparingLong(RunningAnalysis::getElapsedMillis).reversed());
+
+        long scratchBytes = getSize(Paths.get(applicationConfig.getOutputDirectory()))
+                + getSize(Paths.get(System.getProperty("java.io.tmpdir"), VFS_CACHE));
+
+        return new NodeActivity(analyses, scratchBytes);
+    }
+
+    /**
+     * Returns the size of the files in a directory. The files deleted while walking the directory are skipped.
+     */
+    static long getSize(Path directory) {
+        if (!Files.isDirectory(directory)) {
+            return 0L;
+        }
+
+        try (Stream<Path> stream = Files.walk(directory)) {
+            return stream.filter(Files::isRegularFile).mapToLong(ActivityResource::getFileSize).sum();
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.debug("Failed to measure directory {}: {}", directory, e.getMessage());
+            return 0L;
+        }
+    }
+
+    private static long getFileSize(Path file) {
+        try {
+            return Files.size(file);
+        } catch (NoSuchFileException e) {
+            return 0L;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -18,7 +18,10 @@ package org.jboss.pnc.deliverablesanalyzer.rest;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.CancellationException;
 
 import javax.enterprise.context.ApplicationScoped;
@@ -31,25 +34,50 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 
 import org.apache.commons.codec.digest.DigestUtils;
-import org.eclipse.microprofile.context.ManagedExecutor;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.pnc.api.deliverablesanalyzer.dto.AnalysisReport;
 import org.jboss.pnc.api.deliverablesanalyzer.dto.AnalyzePayload;
 import org.jboss.pnc.api.deliverablesanalyzer.dto.FinderResult;
 import org.jboss.pnc.api.dto.Request;
 import org.jboss.pnc.build.finder.core.BuildConfig;
+import org.jboss.pnc.build.finder.core.ChecksumType;
+import org.jboss.pnc.deliverablesanalyzer.AnalysisExecutors;
+import org.jboss.pnc.deliverablesanalyzer.BuildConfigCache;
+import org.jboss.pnc.deliverablesanalyzer.EffectiveConfig;
 import org.jboss.pnc.deliverablesanalyzer.Finder;
+import org.jboss.pnc.deliverablesanalyzer.KojiLookupBroker;
+import org.jboss.pnc.deliverablesanalyzer.LookupTuner;
+import org.jboss.pnc.deliverablesanalyzer.PncProvider;
+import org.jboss.pnc.deliverablesanalyzer.StageTimer;
+import org.jboss.pnc.deliverablesanalyzer.StageTimer.Stage;
 import org.jboss.pnc.deliverablesanalyzer.StatusCache;
+import org.jboss.pnc.deliverablesanalyzer.jfr.AnalysisEvent;
+import org.jboss.pnc.deliverablesanalyzer.jfr.AnalysisRecordings;
+import org.jboss.pnc.deliverablesanalyzer.jfr.CallbackEvent;
+import org.jboss.pnc.deliverablesanalyzer.model.AnalysisSettings;
 import org.jboss.pnc.deliverablesanalyzer.model.AnalyzeResponse;
 import org.jboss.pnc.deliverablesanalyzer.model.FinderStatus;
+import org.jboss.pnc.deliverablesanalyzer.model.LookupTuning;
+import org.jboss.pnc.deliverablesanalyzer.model.StageTimings;
+import org.jboss.pnc.deliverablesanalyzer.model.TimedAnalysisReport;
+import org.jboss.pnc.deliverablesanalyzer.tracing.Tracing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+
 @ApplicationScoped
 public class AnalyzeResource implements AnalyzeService {
     private static final Logger LOGGER = LoggerFactory.getLogger(AnalyzeResource.class);
 
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
     @Inject
-    ManagedExecutor executor;
+    AnalysisExecutors executors;
 
     @Inject
     StatusCache<String, FinderStatus> statuses;
@@ -66,6 +94,45 @@ public class AnalyzeResource implements AnalyzeService {
     @Inject
     HttpClient httpClient;
 
+    @Inject
+    LookupTuner lookupTuner;
+
+    @Inject
+    KojiLookupBroker kojiLookupBroker;
+
+    @Inject
+    PncProvider pncProvider;
+
+    @Inject
+    BuildConfigCache buildConfigCache;
+
+    @Inject
+    StageTimer stageTimer;
+
+    @Inject
+    AnalysisRecordings recordings;
+
+    @Inject
+    Tracer tracer;
+
+    /**
+     * Highest {@code kojiNumThreads} a request can set.
+     */
+    @ConfigProperty(name = "analysis.max-koji-num-threads", defaultValue = "24")
+    int maxKojiNumThreads;
+
+    /**
+     * Highest {@code kojiMulticallSize} a request can set.
+     */
+    @ConfigProperty(name = "analysis.max-koji-multicall-size", defaultValue = "100")
+    int maxKojiMulticallSize;
+
+    /**
+     * Highest {@code pncPartitionSize} a request can set.
+     */
+    @ConfigProperty(name = "analysis.max-pnc-partition-size", defaultValue = "100")
+    int maxPncPartitionSize;
+
     @Context
     UriInfo uriInfo;
 
@@ -80,66 +147,104 @@ public class AnalyzeResource implements AnalyzeService {
     }
 
     @Override
-    public Response analyze(AnalyzePayload analyzePayload) throws URISyntaxException {
+    public Response analyze(AnalyzePayload analyzePayload, boolean recheckNotFound) throws URISyntaxException {
         List<String> urls = analyzePayload.getUrls();
         LOGGER.info(
-                "Analysis request accepted: [urls: {}, config: {}, callback: {}, heartbeat: {}",
+                "Analysis request accepted: [urls: {}, config: {}, callback: {}, heartbeat: {}, recheck not found: {}",
                 analyzePayload.getUrls(),
                 analyzePayload.getConfig(),
                 analyzePayload.getCallback(),
-                analyzePayload.getHeartbeat());
-        BuildConfig specificConfig = validateInputsLoadConfig(urls, analyzePayload.getConfig());
+                analyzePayload.getHeartbeat(),
+                recheckNotFound);
+        validateInputs(urls);
+        LookupTuning tuning = lookupTuner.tune();
+        EffectiveConfig effectiveConfig = loadConfig(analyzePayload.getConfig());
+        BuildConfig specificConfig = effectiveConfig.getConfig(tuning);
+        AnalysisSettings settings = new AnalysisSettings(specificConfig);
+        settings.setConfigFingerprint(effectiveConfig.getFingerprint());
+        settings.setBatchedSettings(getBatchedSettings());
 
         String id = DigestUtils.sha256Hex(urls.get(0));
+        LOGGER.info("Analysis with ID {} uses settings {}", id, settings);
         FinderStatus status = new FinderStatus();
-        statuses.putIfAbsent(id, status);
+        status.setTuning(tuning);
+        status.setUrls(urls);
+        statuses.put(id, status);
+
+        Span span = tracer.spanBuilder("analysis").startSpan();
+        span.setAttribute("analysis.id", id);
+        span.setAttribute("analysis.urls", urls.size());
 
         if (analyzePayload.getHeartbeat() != null) {
-            heartbeatScheduler.subscribeRequest(id, analyzePayload.getHeartbeat());
+            heartbeatScheduler.subscribeRequest(id, analyzePayload.getHeartbeat(), span);
         }
 
-        executor.runAsync(() -> {
+        StageTimings timings = status.getTimings();
+        long accepted = System.nanoTime();
+
+        executors.getAnalyses().execute(Tracing.wrap(span, () -> {
+            AnalysisEvent event = new AnalysisEvent(id, urls.size());
+            event.begin();
+            stageTimer.record(Stage.QUEUE, System.nanoTime() - accepted, timings);
+            status.start();
             LOGGER.info("Analysis with ID {} was initiated. Starting analysis of these URLs: {}", id, urls);
             AnalysisReport analysisReport = null;
             try {
-                List<FinderResult> finderResults = finder.find(id, urls, status, status, specificConfig);
-                analysisReport = new AnalysisReport(finderResults);
+                List<FinderResult> finderResults = finder
+                        .find(id, urls, status, status, specificConfig, recheckNotFound, timings);
+                analysisReport = new TimedAnalysisReport(finderResults, timings);
+                event.setOutcome("SUCCESS");
                 LOGGER.debug("Analysis finished successfully. Analysis results: {}", analysisReport);
             } catch (CancellationException ce) {
+                event.setOutcome("CANCELLED");
                 // The task was cancelled => don't send results using callback
                 LOGGER.info("Analysis with ID {} was cancelled. No callback will be performed. Exception: {}", id, ce);
             } catch (Throwable e) {
-                analysisReport = new AnalysisReport(e);
+                analysisReport = new TimedAnalysisReport(e, timings);
+                event.setOutcome("FAILURE");
+                Tracing.setError(span, e);
                 LOGGER.warn("Analysis with ID {} failed due to {}", id, e);
             }
 
+            LOGGER.info("Analysis with ID {} spent {}", id, timings);
+
+            boolean delivered = true;
+
             if (analysisReport != null) {
-                if (!performCallback(analyzePayload.getCallback(), analysisReport)) {
-                    heartbeatScheduler.unsubscribeRequest(id);
-                    LOGGER.info("Analysis with ID {} was finished, but callback couldn't be performed!", id);
-                    return;
-                }
+                status.setState(FinderStatus.State.CALLBACK);
+                long callbackStart = System.nanoTime();
+                delivered = performCallback(id, analyzePayload.getCallback(), analysisReport);
+                stageTimer.record(Stage.CALLBACK, System.nanoTime() - callbackStart, timings);
             }
 
+            status.setState(FinderStatus.State.FINISHED);
+            event.commit();
+            span.end();
+            recordings.stop(id);
             heartbeatScheduler.unsubscribeRequest(id);
-            LOGGER.info("Analysis with ID {} was successfully finished and callback was performed.", id);
-        });
 
-        return Response.ok().type(MediaType.APPLICATION_JSON).entity(createAnalyzeResponse(id)).build();
+            if (delivered) {
+                LOGGER.info("Analysis with ID {} was successfully finished and callback was performed.", id);
+            } else {
+                LOGGER.info("Analysis with ID {} was finished, but callback couldn't be performed!", id);
+            }
+        }));
+
+        return Response.ok().type(MediaType.APPLICATION_JSON).entity(createAnalyzeResponse(id, settings)).build();
     }
 
-    private AnalyzeResponse createAnalyzeResponse(String id) throws URISyntaxException {
+    private AnalyzeResponse createAnalyzeResponse(String id, AnalysisSettings settings) throws URISyntaxException {
         String cancelUrl = uriInfo.getAbsolutePath() + "/" + id + "/cancel";
-        return new AnalyzeResponse(id, new Request(Request.Method.POST, new URI(cancelUrl)));
+        return new AnalyzeResponse(id, new Request(Request.Method.POST, new URI(cancelUrl)), settings);
     }
 
-    private boolean performCallback(org.jboss.pnc.api.dto.Request callback, AnalysisReport result) {
+    private boolean performCallback(String id, org.jboss.pnc.api.dto.Request callback, AnalysisReport result) {
         try {
-            httpClient.performHttpRequest(callback, result);
+            attemptCallback(id, callback, result, 1);
             return true;
         } catch (Exception e) {
             try {
-                httpClient.performHttpRequest(callback, result);
+                attemptCallback(id, callback, result, 2);
                 return true;
             } catch (Exception ioException) {
                 LOGGER.warn("Unable to send results using callback!", ioException);
@@ -148,20 +253,36 @@ public class AnalyzeResource implements AnalyzeService {
         }
     }
 
-    private BuildConfig validateInputsLoadConfig(List<String> urls, String config) {
+    private void attemptCallback(String id, org.jboss.pnc.api.dto.Request callback, AnalysisReport result, int attempt)
+            throws Exception {
+        CallbackEvent event = new CallbackEvent(id, String.valueOf(callback.getUri()), attempt);
+        event.begin();
+
+        try {
+            httpClient.performHttpRequest(callback, result);
+            event.setSucceeded(true);
+        } finally {
+            event.commit();
+        }
+    }
+
+    private static void validateInputs(List<String> urls) {
         if (urls.isEmpty()) {
             throw new BadRequestException("No URL was specified");
         }
-        BuildConfig specificConfig;
+    }
+
+    private EffectiveConfig loadConfig(String config) {
+        EffectiveConfig effectiveConfig;
         try {
-            specificConfig = prepareConfig(config);
+            effectiveConfig = buildConfigCache.get(config, this::prepareConfig);
         } catch (IOException e) {
             throw new BadRequestException("The provided config couldn't be parsed!", e);
         }
-        return specificConfig;
+        return effectiveConfig;
     }
 
-    private BuildConfig prepareConfig(String rawConfig) throws IOException {
+    BuildConfig prepareConfig(String rawConfig, Set<String> requestedSettings) throws IOException {
         BuildConfig specificConfig = BuildConfig.copy(applicationConfig);
 
         if (rawConfig != null) {
@@ -177,8 +298,102 @@ public class AnalyzeResource implements AnalyzeService {
             if (config.getArchiveTypes() != null) {
                 specificConfig.setArchiveTypes(config.getArchiveTypes());
             }
+
+            // The getters of the performance settings return the defaults when not set, so check the raw config
+            JsonNode fields = OBJECT_MAPPER.readTree(rawConfig);
+
+            if (isSet(fields, "koji-num-threads")) {
+                specificConfig.setKojiNumThreads(
+                        limit("kojiNumThreads", config.getKojiNumThreads(), maxKojiNumThreads));
+                requestedSettings.add("kojiNumThreads");
+            }
+
+            // The batched lookups are sent in shared requests sized by the tuner, so the requested sizes are ignored
+            if (isSet(fields, "koji-multicall-size")) {
+                if (kojiLookupBroker.isBatching()) {
+                    LOGGER.warn("Requested kojiMulticallSize is ignored, since the Koji lookups are batched");
+                } else {
+                    specificConfig.setKojiMulticallSize(
+                            limit("kojiMulticallSize", config.getKojiMulticallSize(), maxKojiMulticallSize));
+                    requestedSettings.add("kojiMulticallSize");
+                }
+            }
+
+            if (isSet(fields, "pnc-partition-size")) {
+                if (pncProvider.isBatching()) {
+                    LOGGER.warn("Requested pncPartitionSize is ignored, since the PNC lookups are batched");
+                } else {
+                    specificConfig.setPncPartitionSize(
+                            limit("pncPartitionSize", config.getPncPartitionSize(), maxPncPartitionSize));
+                    requestedSettings.add("pncPartitionSize");
+                }
+            }
+
+            if (isSet(fields, "checksum-type")) {
+                specificConfig.setChecksumTypes(limitChecksumTypes(config.getChecksumTypes()));
+            }
+
+            if (isSet(fields, "disable-recursion")) {
+                specificConfig.setDisableRecursion(config.getDisableRecursion());
+            }
         }
 
         return specificConfig;
     }
+
+    /**
+     * Returns the settings which can't be set by a request, since the lookups of all the analyses are batched into
+     * shared requests sized by the {@link LookupTuner}.
+     *
+     * @return names of the settings in the request configuration
+     */
+    private Set<String> getBatchedSettings() {
+        Set<String> batchedSettings = new TreeSet<>();
+
+        if (kojiLookupBroker.isBatching()) {
+            batchedSettings.add("koji-multicall-size");
+        }
+
+        if (pncProvider.isBatching()) {
+            batchedSettings.add("pnc-partition-size");
+        }
+
+        return batchedSettings;
+    }
+
+    private static boolean isSet(JsonNode fields, String name) {
+        return fields != null && fields.hasNonNull(name);
+    }
+
+    private static int limit(String name, int value, int max) {
+        int limited = Math.max(1, Math.min(value, max));
+
+        if (limited != value) {
+            LOGGER.warn("Requested {} {} is limited to {}", name, value, limited);
+        }
+
+        return limited;
+    }
+
+    /**
+     * Only the checksum types enabled on the server can be requested, since the caches exist only for them.
+     */
+    private Set<ChecksumType> limitChecksumTypes(Set<ChecksumType> requested) {
+        Set<ChecksumType> enabled = applicationConfig.getChecksumTypes();
+        Set<ChecksumType> checksumTypes = EnumSet.noneOf(ChecksumType.class);
+
+        for (ChecksumType checksumType : requested) {
+            if (enabled.contains(checksumType)) {
+                checksumTypes.add(checksumType);
+            } else {
+                LOGGER.warn("Requested checksum type {} is not enabled", checksumType);
+            }
+        }
+
+        if (checksumTypes.isEmpty()) {
+            throw new BadRequestException("None of the requested checksum types " + requested + " is enabled");
+        }
+
+        return checksumTypes;
+    }
 }
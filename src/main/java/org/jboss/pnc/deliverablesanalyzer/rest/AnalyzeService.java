@@ -21,10 +21,12 @@ import javax.annotation.security.PermitAll;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -106,6 +108,11 @@ public interface AnalyzeService {
                             + "Users can specify an alternate config for the BuildFinder, which is used "
                             + "as the analysis engine internally."
                             + "The callback is an object AnalysisResult as a JSON.",
-                    schema = @Schema(type = SchemaType.OBJECT)) AnalyzePayload analyzePayload)
+                    schema = @Schema(type = SchemaType.OBJECT)) AnalyzePayload analyzePayload,
+            @QueryParam("recheck-not-found") @DefaultValue("false") @Parameter(
+                    name = "recheck-not-found",
+                    description = "Look up again the checksums which were recently not found in Koji and PNC "
+                            + "instead of skipping them.",
+                    schema = @Schema(type = SchemaType.BOOLEAN)) boolean recheckNotFound)
             throws URISyntaxException;
 }
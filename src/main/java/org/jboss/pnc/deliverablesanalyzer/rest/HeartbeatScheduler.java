@@ -25,6 +25,8 @@ import org.jboss.pnc.api.dto.Request;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Scope;
 import io.quarkus.scheduler.Scheduled;
 
 /**
@@ -40,24 +42,38 @@ public class HeartbeatScheduler {
     @Inject
     HttpClient httpClient;
 
-    private Map<String, Request> subscribedRequests = new ConcurrentHashMap<>();
+    private Map<String, Subscription> subscribedRequests = new ConcurrentHashMap<>();
 
     @Scheduled(every = "{heartbeatPeriod}")
     void performHeartbeats() {
         subscribedRequests.forEach((k, v) -> {
-            try {
-                httpClient.performHttpRequest(v);
+            try (Scope scope = v.span.makeCurrent()) {
+                httpClient.performHttpRequest(v.request);
             } catch (Exception e) {
                 LOGGER.warn("Heartbeat failed with an exception!", e);
             }
         });
     }
 
-    public void subscribeRequest(String id, Request request) {
-        subscribedRequests.put(id, request);
+    public void subscribeRequest(String id, Request request, Span span) {
+        subscribedRequests.put(id, new Subscription(request, span));
     }
 
     public void unsubscribeRequest(String id) {
         subscribedRequests.remove(id);
     }
+
+    /**
+     * Heartbeat request with the span of its analysis, so that the heartbeats join the trace of the analysis.
+     */
+    private static final class Subscription {
+        private final Request request;
+
+        private final Span span;
+
+        private Subscription(Request request, Span span) {
+            this.request = request;
+            this.span = span;
+        }
+    }
 }
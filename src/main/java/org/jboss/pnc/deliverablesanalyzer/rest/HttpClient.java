@@ -21,6 +21,7 @@ import java.util.Collection;
 
 import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
 import javax.ws.rs.ProcessingException;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
@@ -31,12 +32,20 @@ import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
 
 import org.jboss.pnc.api.dto.Request;
+import org.jboss.pnc.deliverablesanalyzer.tracing.Tracing;
 import org.jboss.resteasy.specimpl.MultivaluedMapImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+
 /**
  * Simple HTTP client wrapper
  *
@@ -51,6 +60,12 @@ public class HttpClient {
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    @Inject
+    OpenTelemetry openTelemetry;
+
+    @Inject
+    Tracer tracer;
+
     public HttpClient() {
         client = ClientBuilder.newBuilder().build();
     }
@@ -107,8 +122,30 @@ public class HttpClient {
     }
 
     private Response invokeHttpRequest(Request request, Entity<?> entity) throws IOException, ProcessingException {
+        Span span = tracer.spanBuilder("HTTP " + request.getMethod()).setSpanKind(SpanKind.CLIENT).startSpan();
+        span.setAttribute("http.method", String.valueOf(request.getMethod()));
+        span.setAttribute("http.url", String.valueOf(request.getUri()));
+
+        try (Scope scope = span.makeCurrent()) {
+            Response response = sendHttpRequest(request, entity);
+            span.setAttribute("http.status_code", response.getStatus());
+            return response;
+        } catch (IOException | RuntimeException e) {
+            Tracing.setError(span, e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    private Response sendHttpRequest(Request request, Entity<?> entity) throws IOException, ProcessingException {
         WebTarget target = client.target(request.getUri().toString());
-        Invocation.Builder requestBuilder = target.request().headers(headersToMap(request.getHeaders()));
+        MultivaluedMap<String, Object> headers = headersToMap(request.getHeaders());
+        openTelemetry.getPropagators()
+                .getTextMapPropagator()
+                .inject(Context.current(), headers, (carrier, key, value) -> carrier.putSingle(key, value));
+
+        Invocation.Builder requestBuilder = target.request().headers(headers);
 
         switch (request.getMethod()) {
             case GET:
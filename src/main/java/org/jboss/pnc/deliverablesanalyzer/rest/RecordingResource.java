@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.rest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.jboss.pnc.deliverablesanalyzer.jfr.AnalysisRecordings;
+
+@ApplicationScoped
+public class RecordingResource implements RecordingService {
+    @Inject
+    AnalysisRecordings recordings;
+
+    @Override
+    public Response start(String id) throws IOException, ParseException {
+        boolean started;
+
+        try {
+            started = recordings.start(id);
+        } catch (IllegalStateException e) {
+            throw new ClientErrorException(e.getMessage(), Response.Status.CONFLICT);
+        }
+
+        if (!started) {
+            throw new ClientErrorException(
+                    "There already is a recording of the analysis with ID " + id,
+                    Response.Status.CONFLICT);
+        }
+
+        return Response.ok().build();
+    }
+
+    @Override
+    public Response download(String id) throws IOException {
+        Path file = recordings.dump(id);
+
+        if (file == null) {
+            throw new NotFoundException("There is no recording of the analysis with ID " + id);
+        }
+
+        StreamingOutput output = stream -> {
+            try {
+                Files.copy(file, stream);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        };
+
+        String fileName = "analysis-" + id.replaceAll("[^0-9A-Za-z-]", "_") + ".jfr";
+
+        return Response.ok(output, MediaType.APPLICATION_OCTET_STREAM)
+                .header("Content-Disposition", "attachment; filename=\"" + fileName + "\"")
+                .build();
+    }
+
+    @Override
+    public Response discard(String id) {
+        if (recordings.discard(id)) {
+            return Response.ok().build();
+        }
+
+        throw new NotFoundException("There is no recording of the analysis with ID " + id);
+    }
+}
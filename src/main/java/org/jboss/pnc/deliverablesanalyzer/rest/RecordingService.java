@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.rest;
+
+import java.io.IOException;
+import java.text.ParseException;
+
+import javax.annotation.security.PermitAll;
+import javax.validation.constraints.NotEmpty;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.enums.ParameterStyle;
+import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+
+@Path("/admin/recordings")
+public interface RecordingService {
+    @Operation(
+            summary = "Starts a flight recording of an analysis",
+            description = "Starts a JDK Flight Recorder recording, which stops when the analysis with the ID "
+                    + "finishes. The analysis may already be running or may be requested later.")
+    @APIResponse(responseCode = "200", description = "Recording was started.")
+    @APIResponse(
+            responseCode = "409",
+            description = "There already is a recording of the analysis, or too many recordings are kept.",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON,
+                    schema = @Schema(implementation = ErrorMessage.class)))
+    @POST
+    @Path("{id}")
+    @PermitAll
+    Response start(
+            @PathParam("id") @NotEmpty @Parameter(
+                    name = "id",
+                    description = "ID of the analysis",
+                    schema = @Schema(type = SchemaType.STRING),
+                    required = true,
+                    style = ParameterStyle.SIMPLE) String id)
+            throws IOException, ParseException;
+
+    @Operation(
+            summary = "Downloads the flight recording of an analysis",
+            description = "Stops the recording of the analysis if it is still running, returns it as a .jfr file "
+                    + "and discards it.")
+    @APIResponse(
+            responseCode = "200",
+            description = "The recording.",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_OCTET_STREAM,
+                    schema = @Schema(type = SchemaType.STRING, format = "binary")))
+    @APIResponse(
+            responseCode = "404",
+            description = "There is no recording of the analysis.",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON,
+                    schema = @Schema(implementation = ErrorMessage.class)))
+    @GET
+    @Path("{id}")
+    @Produces(MediaType.APPLICATION_OCTET_STREAM)
+    @PermitAll
+    Response download(
+            @PathParam("id") @NotEmpty @Parameter(
+                    name = "id",
+                    description = "ID of the analysis",
+                    schema = @Schema(type = SchemaType.STRING),
+                    required = true,
+                    style = ParameterStyle.SIMPLE) String id)
+            throws IOException;
+
+    @Operation(
+            summary = "Discards the flight recording of an analysis",
+            description = "Stops and discards the recording of the analysis without returning it.")
+    @APIResponse(responseCode = "200", description = "Recording was discarded.")
+    @APIResponse(
+            responseCode = "404",
+            description = "There is no recording of the analysis.",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON,
+                    schema = @Schema(implementation = ErrorMessage.class)))
+    @DELETE
+    @Path("{id}")
+    @PermitAll
+    Response discard(
+            @PathParam("id") @NotEmpty @Parameter(
+                    name = "id",
+                    description = "ID of the analysis",
+                    schema = @Schema(type = SchemaType.STRING),
+                    required = true,
+                    style = ParameterStyle.SIMPLE) String id);
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.tracing;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.EventData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+/**
+ * Appends the ended spans to a JSON lines file in the OTLP JSON encoding, one export request per span, which the
+ * OpenTelemetry Collector reads with its {@code otlpjsonfile} receiver. The file is flushed when a local root span,
+ * usually an analysis, ends. A failure to write the file is logged and doesn't fail the traced operation.
+ */
+public class FileSpanExporter implements SpanExporter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileSpanExporter.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final int STATUS_OK = 1;
+
+    private static final int STATUS_ERROR = 2;
+
+    private final Writer writer;
+
+    public FileSpanExporter(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        writer = Files.newBufferedWriter(
+                file,
+                StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<SpanData> spans) {
+        try {
+            synchronized (writer) {
+                boolean flush = false;
+
+                for (SpanData span : spans) {
+                    writer.write(MAPPER.writeValueAsString(toOtlp(span)));
+                    writer.write('\n');
+                    flush |= isLocalRoot(span);
+                }
+
+                if (flush) {
+                    writer.flush();
+                }
+            }
+
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            LOGGER.warn("Failed to export {} spans: {}", spans.size(), e.getMessage());
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        synchronized (writer) {
+            try {
+                writer.flush();
+                return CompletableResultCode.ofSuccess();
+            } catch (IOException e) {
+                LOGGER.warn("Failed to flush the span file: {}", e.getMessage());
+                return CompletableResultCode.ofFailure();
+            }
+        }
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        synchronized (writer) {
+            try {
+                writer.close();
+                return CompletableResultCode.ofSuccess();
+            } catch (IOException e) {
+                LOGGER.warn("Failed to close the span file: {}", e.getMessage());
+                return CompletableResultCode.ofFailure();
+            }
+        }
+    }
+
+    private static boolean isLocalRoot(SpanData span) {
+        SpanContext parent = span.getParentSpanContext();
+        return !parent.isValid() || parent.isRemote() || span.getKind() == SpanKind.SERVER;
+    }
+
+    /**
+     * Encodes a span as an OTLP JSON export request.
+     *
+     * @param span the span
+     * @return the export request
+     */
+    static ObjectNode toOtlp(SpanData span) {
+        ObjectNode request = MAPPER.createObjectNode();
+        ObjectNode resourceSpans = request.putArray("resourceSpans").addObject();
+        addAttributes(resourceSpans.putObject("resource").putArray("attributes"), span.getResource().getAttributes());
+        ObjectNode scopeSpans = resourceSpans.putArray("scopeSpans").addObject();
+        scopeSpans.putObject("scope").put("name", span.getInstrumentationLibraryInfo().getName());
+        ObjectNode otlpSpan = scopeSpans.putArray("spans").addObject();
+        otlpSpan.put("traceId", span.getTraceId());
+        otlpSpan.put("spanId", span.getSpanId());
+
+        if (span.getParentSpanContext().isValid()) {
+            otlpSpan.put("parentSpanId", span.getParentSpanId());
+        }
+
+        otlpSpan.put("name", span.getName());
+        // The OTLP kinds start at 1 for INTERNAL, in the order of SpanKind
+        otlpSpan.put("kind", span.getKind().ordinal() + 1);
+        otlpSpan.put("startTimeUnixNano", Long.toString(span.getStartEpochNanos()));
+        otlpSpan.put("endTimeUnixNano", Long.toString(span.getEndEpochNanos()));
+        addAttributes(otlpSpan.putArray("attributes"), span.getAttributes());
+
+        if (!span.getEvents().isEmpty()) {
+            ArrayNode events = otlpSpan.putArray("events");
+
+            for (EventData event : span.getEvents()) {
+                ObjectNode otlpEvent = events.addObject();
+                otlpEvent.put("timeUnixNano", Long.toString(event.getEpochNanos()));
+                otlpEvent.put("name", event.getName());
+                addAttributes(otlpEvent.putArray("attributes"), event.getAttributes());
+            }
+        }
+
+        ObjectNode status = otlpSpan.putObject("status");
+
+        if (span.getStatus().getStatusCode() == StatusCode.ERROR) {
+            status.put("code", STATUS_ERROR);
+            status.put("message", span.getStatus().getDescription());
+        } else if (span.getStatus().getStatusCode() == StatusCode.OK) {
+            status.put("code", STATUS_OK);
+        }
+
+        return request;
+    }
+
+    private static void addAttributes(ArrayNode otlpAttributes, Attributes attributes) {
+        attributes.forEach((key, value) -> {
+            ObjectNode attribute = otlpAttributes.addObject();
+            attribute.put("key", key.getKey());
+            addValue(attribute.putObject("value"), value);
+        });
+    }
+
+    private static void addValue(ObjectNode otlpValue, Object value) {
+        if (value instanceof Boolean) {
+            otlpValue.put("boolValue", (Boolean) value);
+        } else if (value instanceof Long) {
+            // OTLP JSON encodes 64-bit integers as strings
+            otlpValue.put("intValue", value.toString());
+        } else if (value instanceof Double) {
+            otlpValue.put("doubleValue", (Double) value);
+        } else if (value instanceof List) {
+            ArrayNode values = otlpValue.putObject("arrayValue").putArray("values");
+
+            for (Object element : (List<?>) value) {
+                addValue(values.addObject(), element);
+            }
+        } else {
+            otlpValue.put("stringValue", String.valueOf(value));
+        }
+    }
+}
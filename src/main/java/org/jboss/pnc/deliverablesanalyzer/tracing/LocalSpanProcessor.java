@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.tracing;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Singleton;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.quarkus.arc.Unremovable;
+
+/**
+ * Exports the spans locally, to a file or to memory, without a collector. The OpenTelemetry extension registers it as
+ * a span processor next to the OTLP exporter, and it exports nothing unless {@code tracing.exporter} selects an
+ * exporter.
+ */
+@Unremovable
+@Singleton
+public class LocalSpanProcessor implements SpanProcessor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocalSpanProcessor.class);
+
+    public enum ExporterType {
+        NONE, FILE, MEMORY
+    }
+
+    /**
+     * Exporter of the spans: NONE, FILE or MEMORY.
+     */
+    @ConfigProperty(name = "tracing.exporter", defaultValue = "NONE")
+    ExporterType exporterType;
+
+    /**
+     * File the FILE exporter appends the spans to, as OTLP JSON lines.
+     */
+    @ConfigProperty(name = "tracing.file", defaultValue = "traces.jsonl")
+    Path file;
+
+    /**
+     * Number of the latest spans the MEMORY exporter keeps.
+     */
+    @ConfigProperty(name = "tracing.memory.max-spans", defaultValue = "10000")
+    int maxSpans;
+
+    private InMemorySpanExporter memoryExporter;
+
+    private SpanProcessor delegate;
+
+    @PostConstruct
+    void init() {
+        switch (exporterType) {
+            case FILE:
+                try {
+                    delegate = SimpleSpanProcessor.create(new FileSpanExporter(file));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to open span file " + file, e);
+                }
+
+                LOGGER.info("Exporting spans to file {}", file.toAbsolutePath());
+                break;
+            case MEMORY:
+                memoryExporter = new InMemorySpanExporter(maxSpans);
+                delegate = SimpleSpanProcessor.create(memoryExporter);
+                LOGGER.info("Keeping the latest {} spans in memory", maxSpans);
+                break;
+            default:
+                delegate = null;
+                break;
+        }
+    }
+
+    @Override
+    public void onStart(Context parentContext, ReadWriteSpan span) {
+        // The exported spans are only read once ended
+    }
+
+    @Override
+    public boolean isStartRequired() {
+        return false;
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span) {
+        if (delegate != null) {
+            delegate.onEnd(span);
+        }
+    }
+
+    @Override
+    public boolean isEndRequired() {
+        return delegate != null;
+    }
+
+    @Override
+    public CompletableResultCode forceFlush() {
+        return delegate != null ? delegate.forceFlush() : CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        return delegate != null ? delegate.shutdown() : CompletableResultCode.ofSuccess();
+    }
+
+    /**
+     * Returns the spans kept by the MEMORY exporter.
+     *
+     * @return the spans in the order they ended, or an empty list for the other exporters
+     */
+    public List<SpanData> getSpans() {
+        return memoryExporter != null ? memoryExporter.getSpans() : Collections.emptyList();
+    }
+
+    /**
+     * Drops the spans kept by the MEMORY exporter.
+     */
+    public void reset() {
+        if (memoryExporter != null) {
+            memoryExporter.reset();
+        }
+    }
+}
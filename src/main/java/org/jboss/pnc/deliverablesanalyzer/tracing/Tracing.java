@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.tracing;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import org.infinispan.commons.api.BasicCache;
+import org.infinispan.commons.api.BasicCacheContainer;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+
+/**
+ * Hands the active span over to the tasks run by executors, and starts the spans of the calls to Koji, PNC and the
+ * caches. The tasks and the calls of a thread without a recording span aren't traced.
+ */
+public final class Tracing {
+    private static final Set<String> CACHE_METHODS = Set
+            .of("get", "put", "putAll", "putIfAbsent", "replace", "remove", "containsKey");
+
+    private Tracing() {
+    }
+
+    /**
+     * Returns a task which runs with the given span active.
+     *
+     * @param span the span
+     * @param task the task
+     * @return the task continuing the trace
+     */
+    public static Runnable wrap(Span span, Runnable task) {
+        return Context.current().with(span).wrap(task);
+    }
+
+    /**
+     * Returns a task which runs in a new span, child of the span active when this method was called.
+     *
+     * @param tracer the tracer
+     * @param name name of the span
+     * @param task the task
+     * @param <T> the result type
+     * @return the traced task, or the task itself if no span is recording
+     */
+    public static <T> Callable<T> span(Tracer tracer, String name, Callable<T> task) {
+        Context parent = Context.current();
+
+        if (!Span.fromContext(parent).isRecording()) {
+            return task;
+        }
+
+        return () -> {
+            Span span = tracer.spanBuilder(name).setParent(parent).startSpan();
+
+            try (Scope scope = span.makeCurrent()) {
+                return task.call();
+            } catch (Exception | Error e) {
+                setError(span, e);
+                throw e;
+            } finally {
+                span.end();
+            }
+        };
+    }
+
+    /**
+     * Marks the span as failed.
+     *
+     * @param span the span
+     * @param t the failure
+     */
+    public static void setError(Span span, Throwable t) {
+        span.recordException(t);
+        span.setStatus(StatusCode.ERROR, String.valueOf(t));
+    }
+
+    /**
+     * Returns a proxy running every call in a client span named by the prefix and the method. The parent of the span
+     * is the span active in the calling thread, or else the span active when this method was called, since the
+     * lookups of Build Finder run in its own threads.
+     *
+     * @param tracer the tracer
+     * @param type the proxied interface
+     * @param target the proxied object, may be null
+     * @param prefix prefix of the span names
+     * @param <T> the proxied interface
+     * @return the traced proxy, or the object itself if no span is recording
+     */
+    public static <T> T proxy(Tracer tracer, Class<T> type, T target, String prefix) {
+        if (target == null || !Span.current().isRecording()) {
+            return target;
+        }
+
+        return type.cast(
+                Proxy.newProxyInstance(
+                        type.getClassLoader(),
+                        new Class<?>[] { type },
+                        new TracedCalls(tracer, target, Context.current(), prefix, null, null)));
+    }
+
+    /**
+     * Returns a cache container whose caches run their reads and writes in client spans.
+     *
+     * @param tracer the tracer
+     * @param container the cache container, may be null
+     * @return the traced cache container, or the container itself if no span is recording
+     */
+    public static BasicCacheContainer proxy(Tracer tracer, BasicCacheContainer container) {
+        if (container == null || !Span.current().isRecording()) {
+            return container;
+        }
+
+        Context parent = Context.current();
+
+        return (BasicCacheContainer) Proxy.newProxyInstance(
+                BasicCacheContainer.class.getClassLoader(),
+                new Class<?>[] { BasicCacheContainer.class },
+                (proxy, method, args) -> {
+                    Object result = invoke(container, method, args);
+
+                    if (result instanceof BasicCache && "getCache".equals(method.getName())) {
+                        String name = ((BasicCache<?, ?>) result).getName();
+
+                        return Proxy.newProxyInstance(
+                                BasicCache.class.getClassLoader(),
+                                new Class<?>[] { BasicCache.class },
+                                new TracedCalls(tracer, result, parent, "cache.", name, CACHE_METHODS));
+                    }
+
+                    return result;
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class TracedCalls implements InvocationHandler {
+        private final Tracer tracer;
+
+        private final Object target;
+
+        private final Context parent;
+
+        private final String prefix;
+
+        private final String cache;
+
+        private final Set<String> methods;
+
+        private TracedCalls(
+                Tracer tracer,
+                Object target,
+                Context parent,
+                String prefix,
+                String cache,
+                Set<String> methods) {
+            this.tracer = tracer;
+            this.target = target;
+            this.parent = parent;
+            this.prefix = prefix;
+            this.cache = cache;
+            this.methods = methods;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            if (method.getDeclaringClass() == Object.class || "close".equals(name)
+                    || (methods != null && !methods.contains(name))) {
+                return Tracing.invoke(target, method, args);
+            }
+
+            Span span = tracer.spanBuilder(prefix + name)
+                    .setParent(Span.current().isRecording() ? Context.current() : parent)
+                    .setSpanKind(SpanKind.CLIENT)
+                    .startSpan();
+
+            if (cache != null) {
+                span.setAttribute("cache", cache);
+            }
+
+            if (args != null && args.length > 0 && args[0] instanceof Collection) {
+                span.setAttribute("queries", ((Collection<?>) args[0]).size());
+            }
+
+            try (Scope scope = span.makeCurrent()) {
+                return Tracing.invoke(target, method, args);
+            } catch (Throwable t) {
+                setError(span, t);
+                throw t;
+            } finally {
+                span.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.worker;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.graalvm.nativeimage.ImageInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.quarkus.runtime.Startup;
+import io.quarkus.runtime.configuration.MemorySize;
+
+/**
+ * Warm pool of analysis worker JVMs. In the {@link Mode#FORKED} mode, the download, unpacking and checksums of every
+ * deliverable run in a worker JVM with its own heap, so that a huge deliverable which runs out of memory or pauses for
+ * long collections only fails its own analysis. The workers are started in advance and reused, and a worker which
+ * exits or is left in an unknown state is replaced in the background, so the start of a JVM is not on the path of an
+ * analysis.
+ * <p>
+ * The workers run the main class of the service in a JVM, so the forked mode is only supported in JVM mode and the
+ * native executable refuses to start with it.
+ */
+@Startup
+@ApplicationScoped
+public class AnalysisWorkers {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AnalysisWorkers.class);
+
+    public static final String IDLE = "analysis.workers.idle";
+
+    public static final String REPLACED = "analysis.workers.replaced";
+
+    private static final long POLL_SECONDS = 1L;
+
+    /**
+     * Where the deliverables are analyzed.
+     */
+    public enum Mode {
+        IN_PROCESS, FORKED
+    }
+
+    @ConfigProperty(name = "analysis.worker.mode", defaultValue = "IN_PROCESS")
+    Mode mode;
+
+    /**
+     * Number of worker JVMs, which is the number of deliverables analyzed at the same time.
+     */
+    @ConfigProperty(name = "analysis.worker.pool-size", defaultValue = "4")
+    int poolSize;
+
+    /**
+     * Maximum heap of every worker JVM.
+     */
+    @ConfigProperty(name = "analysis.worker.max-heap", defaultValue = "1G")
+    MemorySize maxHeap;
+
+    /**
+     * Additional options of the worker JVMs.
+     */
+    @ConfigProperty(name = "analysis.worker.jvm-args")
+    Optional<List<String>> jvmArgs;
+
+    @Inject
+    MetricRegistry registry;
+
+    private final BlockingQueue<Worker> idle = new LinkedBlockingQueue<>();
+
+    private final Set<Worker> workers = ConcurrentHashMap.newKeySet();
+
+    private ExecutorService spawner;
+
+    private Counter replaced;
+
+    private volatile IOException startFailure;
+
+    private volatile boolean closed;
+
+    @PostConstruct
+    void init() {
+        if (!isForked()) {
+            return;
+        }
+
+        if (ImageInfo.inImageRuntimeCode()) {
+            throw new IllegalStateException("The FORKED analysis.worker.mode is only supported in JVM mode");
+        }
+
+        spawner = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "analysis-worker-spawner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        registry.gauge(
+                Metadata.builder()
+                        .withName(IDLE)
+                        .withDescription("Number of analysis worker JVMs waiting for a deliverable")
+                        .withType(MetricType.GAUGE)
+                        .withUnit(MetricUnits.NONE)
+                        .build(),
+                idle::size);
+        replaced = registry.counter(
+                Metadata.builder()
+                        .withName(REPLACED)
+                        .withDescription("Number of analysis worker JVMs which exited or were stopped and replaced")
+                        .withType(MetricType.COUNTER)
+                        .build());
+        LOGGER.info("Starting {} analysis workers with {} of heap", poolSize, maxHeap.asLongValue());
+
+        for (int i = 0; i < poolSize; i++) {
+            spawner.execute(this::spawn);
+        }
+    }
+
+    @PreDestroy
+    void destroy() {
+        closed = true;
+
+        if (spawner != null) {
+            spawner.shutdownNow();
+        }
+
+        workers.forEach(Worker::destroy);
+    }
+
+    public boolean isForked() {
+        return mode == Mode.FORKED;
+    }
+
+    /**
+     * Takes an idle worker, waiting until one is available.
+     *
+     * @return the worker
+     * @throws IOException if no worker could be started
+     * @throws InterruptedException if interrupted while waiting
+     */
+    Worker borrow() throws IOException, InterruptedException {
+        while (true) {
+            Worker worker = idle.poll(POLL_SECONDS, TimeUnit.SECONDS);
+
+            if (worker == null) {
+                IOException failure = startFailure;
+
+                if (failure != null && workers.isEmpty()) {
+                    throw new IOException("No analysis worker could be started", failure);
+                }
+            } else if (worker.isAlive()) {
+                return worker;
+            } else {
+                discard(worker);
+            }
+        }
+    }
+
+    /**
+     * Gives a worker back to the pool.
+     *
+     * @param worker the worker
+     * @param reusable whether the worker finished its last analysis and can take another one
+     */
+    void release(Worker worker, boolean reusable) {
+        if (reusable && worker.isAlive() && !closed) {
+            idle.add(worker);
+        } else {
+            discard(worker);
+        }
+    }
+
+    private void discard(Worker worker) {
+        workers.remove(worker);
+        worker.destroy();
+
+        if (!closed) {
+            LOGGER.info("Replacing analysis worker {}", worker.getPid());
+            replaced.inc();
+            spawner.execute(this::spawn);
+        }
+    }
+
+    private void spawn() {
+        try {
+            Worker worker = Worker.start(getCommand());
+            workers.add(worker);
+            idle.add(worker);
+            startFailure = null;
+            LOGGER.debug("Started analysis worker {}", worker.getPid());
+        } catch (IOException e) {
+            LOGGER.error("Failed to start analysis worker", e);
+            startFailure = e;
+        }
+    }
+
+    List<String> getCommand() {
+        List<String> command = new ArrayList<>();
+        command.add(
+                ProcessHandle.current()
+                        .info()
+                        .command()
+                        .orElseGet(() -> Paths.get(System.getProperty("java.home"), "bin", "java").toString()));
+        command.add("-Xmx" + maxHeap.asLongValue());
+        command.add("-XX:+ExitOnOutOfMemoryError");
+        command.add("-Djava.io.tmpdir=" + System.getProperty("java.io.tmpdir"));
+        command.add("-Djava.util.logging.manager=org.jboss.logmanager.LogManager");
+        jvmArgs.ifPresent(command::addAll);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(WorkerMain.class.getName());
+
+        return command;
+    }
+}
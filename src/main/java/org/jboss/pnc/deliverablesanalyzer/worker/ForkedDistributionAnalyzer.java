@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.worker;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.commons.collections4.MultiValuedMap;
+import org.apache.commons.collections4.multimap.HashSetValuedHashMap;
+import org.jboss.pnc.build.finder.core.BuildConfig;
+import org.jboss.pnc.build.finder.core.Checksum;
+import org.jboss.pnc.build.finder.core.ChecksumType;
+import org.jboss.pnc.build.finder.core.ChecksumsComputedEvent;
+import org.jboss.pnc.build.finder.core.DistributionAnalyzer;
+import org.jboss.pnc.build.finder.core.DistributionAnalyzerListener;
+import org.jboss.pnc.build.finder.core.FileError;
+import org.jboss.pnc.build.finder.core.JSONUtils;
+import org.jboss.pnc.build.finder.core.LocalFile;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Distribution analyzer computing the checksums of a deliverable in an analysis worker JVM. The checksums to look up
+ * are put in the queue read by the Build Finder as the worker sends them, so the lookup overlaps the checksums as in
+ * the service.
+ */
+public class ForkedDistributionAnalyzer extends DistributionAnalyzer {
+    private final String id;
+
+    private final String url;
+
+    private final BuildConfig config;
+
+    private final AnalysisWorkers workers;
+
+    private final BlockingQueue<Checksum> queue = new LinkedBlockingQueue<>();
+
+    private final MultiValuedMap<String, Checksum> files = new HashSetValuedHashMap<>();
+
+    private final Set<String> added = new HashSet<>();
+
+    private final Map<ChecksumType, MultiValuedMap<String, LocalFile>> checksums = new EnumMap<>(ChecksumType.class);
+
+    private final List<FileError> fileErrors = new ArrayList<>();
+
+    private DistributionAnalyzerListener listener;
+
+    public ForkedDistributionAnalyzer(String id, String url, BuildConfig config, AnalysisWorkers workers) {
+        super(Collections.singletonList(url), config);
+        this.id = id;
+        this.url = url;
+        this.config = config;
+        this.workers = workers;
+    }
+
+    @Override
+    public Map<ChecksumType, MultiValuedMap<String, LocalFile>> call() throws IOException {
+        Worker worker;
+
+        try {
+            worker = workers.borrow();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queue.add(new Checksum());
+            throw new InterruptedIOException("Interrupted while waiting for an analysis worker");
+        }
+
+        boolean reusable = false;
+
+        try {
+            worker.send(
+                    WorkerMessages.MAPPER.createObjectNode()
+                            .put(WorkerMessages.ID, id)
+                            .put(WorkerMessages.URL, url)
+                            .put(WorkerMessages.CONFIG, JSONUtils.dumpString(config)));
+
+            while (true) {
+                // A cancelled analysis destroys its worker, even while it downloads, and the worker is replaced
+                if (Thread.interrupted()) {
+                    throw new InterruptedIOException("Analysis of " + url + " was interrupted");
+                }
+
+                JsonNode message;
+
+                try {
+                    message = worker.receive();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Analysis of " + url + " was interrupted");
+                }
+
+                if (message.has(WorkerMessages.PROGRESS)) {
+                    if (listener != null) {
+                        listener.checksumsComputed(
+                                new ChecksumsComputedEvent(message.get(WorkerMessages.PROGRESS).asInt()));
+                    }
+                } else if (message.has(WorkerMessages.QUEUED)) {
+                    for (JsonNode node : message.get(WorkerMessages.QUEUED)) {
+                        Checksum checksum = WorkerMessages.toChecksum(node);
+                        addFile(checksum);
+                        queue.add(checksum);
+                    }
+                } else if (message.has(WorkerMessages.CHECKSUMS)) {
+                    for (JsonNode node : message.get(WorkerMessages.CHECKSUMS)) {
+                        addChecksum(WorkerMessages.toChecksum(node));
+                    }
+                } else if (message.has(WorkerMessages.DONE)) {
+                    for (JsonNode node : message.get(WorkerMessages.DONE)) {
+                        fileErrors.add(WorkerMessages.toFileError(node));
+                    }
+
+                    reusable = true;
+                    return checksums;
+                } else if (message.has(WorkerMessages.ERROR)) {
+                    reusable = true;
+                    String error = message.get(WorkerMessages.ERROR).asText();
+                    throw new IOException("Analysis worker failed to analyze " + url + ": " + error);
+                }
+            }
+        } finally {
+            workers.release(worker, reusable);
+            // Ends the lookup of the Build Finder
+            queue.add(new Checksum());
+        }
+    }
+
+    private void addChecksum(Checksum checksum) {
+        addFile(checksum);
+        checksums.computeIfAbsent(checksum.getType(), type -> new HashSetValuedHashMap<>())
+                .put(checksum.getValue(), new LocalFile(checksum.getFilename(), checksum.getFileSize()));
+    }
+
+    private synchronized void addFile(Checksum checksum) {
+        if (added.add(checksum.getType() + ":" + checksum.getValue() + ":" + checksum.getFilename())) {
+            files.put(checksum.getFilename(), checksum);
+        }
+    }
+
+    @Override
+    public BlockingQueue<Checksum> getQueue() {
+        return queue;
+    }
+
+    @Override
+    public synchronized Map<String, Collection<Checksum>> getFiles() {
+        return Collections.unmodifiableMap(files.asMap());
+    }
+
+    @Override
+    public Collection<FileError> getFileErrors() {
+        return Collections.unmodifiableList(fileErrors);
+    }
+
+    @Override
+    public Map<ChecksumType, MultiValuedMap<String, LocalFile>> getChecksums() {
+        return checksums;
+    }
+
+    @Override
+    public void setListener(DistributionAnalyzerListener listener) {
+        super.setListener(listener);
+        this.listener = listener;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.worker;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Handle of an analysis worker JVM, exchanging {@link WorkerMessages} with it over its standard input and output. The
+ * output is read by a thread of its own, so that a thread waiting for a message can be interrupted.
+ */
+final class Worker {
+    /**
+     * Queued after the last message, since the messages are never empty.
+     */
+    private static final String END = "";
+
+    private final Process process;
+
+    private final BufferedReader reader;
+
+    private final Writer writer;
+
+    private final BlockingQueue<String> messages = new LinkedBlockingQueue<>();
+
+    private Worker(Process process) {
+        this.process = process;
+        this.reader = new BufferedReader(new InputStreamReader(process.getInputStream(), UTF_8));
+        this.writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), UTF_8));
+    }
+
+    static Worker start(List<String> command) throws IOException {
+        Worker worker = new Worker(new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start());
+        Thread thread = new Thread(worker::read, "analysis-worker-reader-" + worker.getPid());
+        thread.setDaemon(true);
+        thread.start();
+        return worker;
+    }
+
+    private void read() {
+        try {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                messages.add(line);
+            }
+        } catch (IOException e) {
+            // The output is closed when the worker is destroyed
+        } finally {
+            messages.add(END);
+        }
+    }
+
+    long getPid() {
+        return process.pid();
+    }
+
+    boolean isAlive() {
+        return process.isAlive();
+    }
+
+    void send(JsonNode message) throws IOException {
+        writer.write(WorkerMessages.MAPPER.writeValueAsString(message));
+        writer.write('\n');
+        writer.flush();
+    }
+
+    /**
+     * Reads the next message of the worker, waiting until it is sent.
+     *
+     * @return the message
+     * @throws IOException if the worker exited, e.g. when it ran out of memory
+     * @throws InterruptedException if interrupted while waiting, the worker must then be destroyed
+     */
+    JsonNode receive() throws IOException, InterruptedException {
+        String line = messages.take();
+
+        if (line.isEmpty()) {
+            messages.add(END);
+            throw new IOException("Analysis worker " + getPid() + " exited" + getExitStatus());
+        }
+
+        return WorkerMessages.MAPPER.readTree(line);
+    }
+
+    void destroy() {
+        process.destroyForcibly();
+    }
+
+    private String getExitStatus() {
+        try {
+            return process.isAlive() ? "" : " with code " + process.exitValue();
+        } catch (IllegalThreadStateException e) {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.worker;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.ConsoleHandler;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+
+import org.apache.commons.collections4.MultiValuedMap;
+import org.jboss.pnc.build.finder.core.BuildConfig;
+import org.jboss.pnc.build.finder.core.Checksum;
+import org.jboss.pnc.build.finder.core.ChecksumType;
+import org.jboss.pnc.build.finder.core.ChecksumsComputedEvent;
+import org.jboss.pnc.build.finder.core.DistributionAnalyzer;
+import org.jboss.pnc.build.finder.core.LocalFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Entry point of an analysis worker JVM. The worker downloads, unpacks and computes the checksums of one deliverable
+ * after the other, as requested on its standard input, and streams the {@link WorkerMessages} back on its standard
+ * output. Anything else printed on the standard output is redirected to the standard error, which the worker shares
+ * with the service.
+ */
+public final class WorkerMain {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WorkerMain.class);
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private static final long POLL_MILLIS = 100L;
+
+    private final Writer writer;
+
+    private final ExecutorService runner = Executors.newSingleThreadExecutor();
+
+    private WorkerMain(Writer writer) {
+        this.writer = writer;
+    }
+
+    public static void main(String[] args) throws IOException {
+        PrintStream out = System.out;
+        System.setOut(System.err);
+        configureLogging();
+        WorkerMain worker = new WorkerMain(new BufferedWriter(new OutputStreamWriter(out, UTF_8)));
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, UTF_8))) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                worker.analyze(WorkerMessages.MAPPER.readTree(line));
+            }
+        } finally {
+            worker.runner.shutdownNow();
+        }
+    }
+
+    /**
+     * Replaces the handler of the Quarkus log manager, which keeps the records until Quarkus configures the logging,
+     * with a console handler, since Quarkus doesn't start in the worker. The worker is started with the JBoss log
+     * manager as the log manager of the JDK, so that this applies to the loggers of SLF4J.
+     */
+    private static void configureLogging() {
+        java.util.logging.Logger root = java.util.logging.Logger.getLogger("");
+
+        for (Handler handler : root.getHandlers()) {
+            root.removeHandler(handler);
+        }
+
+        root.addHandler(new ConsoleHandler());
+        root.setLevel(Level.INFO);
+    }
+
+    private void analyze(JsonNode request) {
+        String id = request.path(WorkerMessages.ID).asText();
+        String url = request.path(WorkerMessages.URL).asText();
+        LOGGER.info("Analysis worker started analysis {} of {}", id, url);
+
+        try {
+            BuildConfig config = BuildConfig.load(request.path(WorkerMessages.CONFIG).asText());
+            DistributionAnalyzer analyzer = new DistributionAnalyzer(Collections.singletonList(url), config);
+            analyzer.setListener(this::progress);
+            Future<Map<ChecksumType, MultiValuedMap<String, LocalFile>>> future = runner.submit(() -> analyzer.call());
+
+            streamQueue(analyzer, future);
+
+            for (Map.Entry<ChecksumType, MultiValuedMap<String, LocalFile>> entry : future.get().entrySet()) {
+                List<Checksum> chunk = new ArrayList<>(CHUNK_SIZE);
+
+                for (Map.Entry<String, LocalFile> file : entry.getValue().entries()) {
+                    chunk.add(new Checksum(entry.getKey(), file.getKey(), file.getValue()));
+
+                    if (chunk.size() == CHUNK_SIZE) {
+                        send(WorkerMessages.checksums(WorkerMessages.CHECKSUMS, chunk));
+                        chunk.clear();
+                    }
+                }
+
+                if (!chunk.isEmpty()) {
+                    send(WorkerMessages.checksums(WorkerMessages.CHECKSUMS, chunk));
+                }
+            }
+
+            send(WorkerMessages.done(analyzer.getFileErrors()));
+            LOGGER.info("Analysis worker finished analysis {} of {}", id, url);
+        } catch (ExecutionException e) {
+            fail(id, url, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(id, url, e);
+        } catch (IOException | RuntimeException e) {
+            fail(id, url, e);
+        }
+    }
+
+    /**
+     * Sends the checksums queued by the analyzer for the lookup until it puts the checksum without value which ends the
+     * queue, or until it stops.
+     */
+    private void streamQueue(DistributionAnalyzer analyzer, Future<?> future)
+            throws IOException, InterruptedException {
+        BlockingQueue<Checksum> queue;
+
+        // The analyzer creates its queue when it starts
+        while ((queue = analyzer.getQueue()) == null) {
+            if (future.isDone()) {
+                return;
+            }
+
+            Thread.sleep(10L);
+        }
+
+        List<Checksum> chunk = new ArrayList<>(CHUNK_SIZE);
+
+        while (true) {
+            Checksum checksum = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+
+            if (checksum == null) {
+                if (future.isDone() && queue.isEmpty()) {
+                    return;
+                }
+
+                continue;
+            }
+
+            chunk.add(checksum);
+            queue.drainTo(chunk, CHUNK_SIZE - chunk.size());
+            boolean end = chunk.removeIf(queued -> queued.getValue() == null);
+
+            if (!chunk.isEmpty()) {
+                send(WorkerMessages.checksums(WorkerMessages.QUEUED, chunk));
+                chunk.clear();
+            }
+
+            if (end) {
+                return;
+            }
+        }
+    }
+
+    private void progress(ChecksumsComputedEvent event) {
+        send(WorkerMessages.MAPPER.createObjectNode().put(WorkerMessages.PROGRESS, event.getCount()));
+    }
+
+    private void fail(String id, String url, Throwable t) {
+        LOGGER.warn("Analysis worker failed analysis {} of {}", id, url, t);
+        send(WorkerMessages.MAPPER.createObjectNode().put(WorkerMessages.ERROR, String.valueOf(t)));
+    }
+
+    private synchronized void send(ObjectNode message) {
+        try {
+            writer.write(WorkerMessages.MAPPER.writeValueAsString(message));
+            writer.write('\n');
+            writer.flush();
+        } catch (IOException e) {
+            // The controller is gone, the worker exits when its standard input is closed
+            LOGGER.debug("Failed to send message to the controller: {}", e.getMessage());
+        }
+    }
+}
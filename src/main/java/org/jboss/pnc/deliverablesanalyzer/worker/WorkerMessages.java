@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.worker;
+
+import java.util.Collection;
+
+import org.jboss.pnc.build.finder.core.Checksum;
+import org.jboss.pnc.build.finder.core.ChecksumType;
+import org.jboss.pnc.build.finder.core.FileError;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Messages exchanged with an analysis worker, one JSON object per line. The controller writes a request with the
+ * {@link #ID}, {@link #URL} and {@link #CONFIG} of a deliverable to the standard input of the worker, which answers on
+ * its standard output with:
+ * <ul>
+ * <li>{@link #PROGRESS}: number of files whose checksums were computed</li>
+ * <li>{@link #QUEUED}: MD5 checksums to look up, sent while the deliverable is analyzed</li>
+ * <li>{@link #CHECKSUMS}: checksums of every type, sent in chunks once the deliverable is analyzed</li>
+ * <li>{@link #DONE}: end of the analysis, with the errors of the files which couldn't be read</li>
+ * <li>{@link #ERROR}: end of a failed analysis</li>
+ * </ul>
+ */
+final class WorkerMessages {
+    static final ObjectMapper MAPPER = new ObjectMapper();
+
+    static final String ID = "id";
+
+    static final String URL = "url";
+
+    static final String CONFIG = "config";
+
+    static final String PROGRESS = "progress";
+
+    static final String QUEUED = "queued";
+
+    static final String CHECKSUMS = "checksums";
+
+    static final String DONE = "done";
+
+    static final String ERROR = "error";
+
+    private static final String TYPE = "type";
+
+    private static final String VALUE = "value";
+
+    private static final String FILENAME = "filename";
+
+    private static final String SIZE = "size";
+
+    private static final String MESSAGE = "message";
+
+    private WorkerMessages() {
+    }
+
+    static ObjectNode checksums(String kind, Collection<Checksum> checksums) {
+        ObjectNode message = MAPPER.createObjectNode();
+        ArrayNode array = message.putArray(kind);
+
+        for (Checksum checksum : checksums) {
+            array.addObject()
+                    .put(TYPE, checksum.getType().name())
+                    .put(VALUE, checksum.getValue())
+                    .put(FILENAME, checksum.getFilename())
+                    .put(SIZE, checksum.getFileSize());
+        }
+
+        return message;
+    }
+
+    static Checksum toChecksum(JsonNode node) {
+        return new Checksum(
+                ChecksumType.valueOf(node.path(TYPE).asText()),
+                node.path(VALUE).asText(),
+                node.path(FILENAME).asText(),
+                node.path(SIZE).asLong());
+    }
+
+    static ObjectNode done(Collection<FileError> fileErrors) {
+        ObjectNode message = MAPPER.createObjectNode();
+        ArrayNode array = message.putArray(DONE);
+
+        for (FileError fileError : fileErrors) {
+            array.addObject().put(FILENAME, fileError.getFilename()).put(MESSAGE, fileError.getMessage());
+        }
+
+        return message;
+    }
+
+    static FileError toFileError(JsonNode node) {
+        return new FileError(node.path(FILENAME).asText(), node.path(MESSAGE).asText());
+    }
+}
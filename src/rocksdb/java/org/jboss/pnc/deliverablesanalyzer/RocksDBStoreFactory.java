@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.nio.file.Paths;
+
+import org.infinispan.configuration.cache.PersistenceConfigurationBuilder;
+import org.infinispan.persistence.rocksdb.configuration.RocksDBStoreConfigurationBuilder;
+
+/**
+ * Adds the Infinispan RocksDB store. It is only built by the rocksdb profile, because the RocksDB JNI library bundles
+ * the native libraries of every platform.
+ */
+public class RocksDBStoreFactory implements CacheStoreFactory {
+    @Override
+    public CacheProvider.StoreType getStoreType() {
+        return CacheProvider.StoreType.ROCKSDB;
+    }
+
+    @Override
+    public void addStore(PersistenceConfigurationBuilder persistence, String location) {
+        persistence.addStore(RocksDBStoreConfigurationBuilder.class)
+                .segmented(true)
+                .shared(false)
+                .preload(false)
+                .fetchPersistentState(true)
+                .purgeOnStartup(false)
+                .location(Paths.get(location, "rocksdb", "data").toString())
+                .expiredLocation(Paths.get(location, "rocksdb", "expired").toString());
+    }
+}
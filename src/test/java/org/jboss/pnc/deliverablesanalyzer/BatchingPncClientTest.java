@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Collectors;
+
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.jboss.pnc.build.finder.pnc.client.PncClient;
+import org.jboss.pnc.client.RemoteCollection;
+import org.jboss.pnc.client.RemoteResourceException;
+import org.jboss.pnc.dto.Artifact;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.smallrye.metrics.MetricsRegistryImpl;
+
+class BatchingPncClientTest {
+    private static final String MISSING = "ffff";
+
+    private final List<String> queries = Collections.synchronizedList(new ArrayList<>());
+
+    private final List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    private final ExecutorService senders = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+        senders.shutdownNow();
+    }
+
+    private BatchingPncClient createClient(int partitionSize, Duration window, boolean fail) {
+        PncClient delegate = (PncClient) Proxy.newProxyInstance(
+                PncClient.class.getClassLoader(),
+                new Class<?>[] { PncClient.class },
+                (proxy, method, args) -> {
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        MetricRegistry registry = new MetricsRegistryImpl();
+
+        return new BatchingPncClient(delegate, (field, checksums) -> {
+            queries.add(BatchingPncClient.getQuery(field, checksums));
+
+            if (fail) {
+                throw new RemoteResourceException(new IllegalStateException("PNC is down"));
+            }
+
+            // Every checksum except MISSING matches one artifact
+            return checksums.stream()
+                    .filter(checksum -> !MISSING.equals(checksum))
+                    .map(checksum -> Artifact.builder().id("id-" + checksum).md5(checksum).build())
+                    .collect(Collectors.toList());
+        },
+                () -> partitionSize,
+                window,
+                scheduler,
+                senders,
+                registry.counter(Metadata.builder().withName("requests").withType(MetricType.COUNTER).build()),
+                registry.histogram(Metadata.builder().withName("sizes").withType(MetricType.HISTOGRAM).build()),
+                (size, latencyNanos, failed) -> latencies.add(latencyNanos));
+    }
+
+    private static RemoteCollection<Artifact> getArtifactsByMd5(PncClient client, String md5) {
+        try {
+            return client.getArtifactsByMd5(md5);
+        } catch (RemoteResourceException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    void testConcurrentLookupsShareRequest() throws Exception {
+        // given
+        BatchingPncClient client = createClient(10, Duration.ofMillis(500L), false);
+
+        // when
+        CompletableFuture<RemoteCollection<Artifact>> first = CompletableFuture
+                .supplyAsync(() -> getArtifactsByMd5(client, "aaaa"));
+        CompletableFuture<RemoteCollection<Artifact>> second = CompletableFuture
+                .supplyAsync(() -> getArtifactsByMd5(client, MISSING));
+        CompletableFuture.allOf(first, second).join();
+
+        // then
+        assertEquals(1, queries.size());
+        assertTrue(queries.get(0).startsWith("md5=in=("));
+        assertTrue(queries.get(0).endsWith(";build=isnull=false"));
+        assertEquals("id-aaaa", first.get().iterator().next().getId());
+        assertEquals(0, second.get().size());
+    }
+
+    @Test
+    void testFullPartitionIsSentWithoutWaiting() throws Exception {
+        // given
+        BatchingPncClient client = createClient(1, Duration.ofHours(1L), false);
+
+        // when
+        RemoteCollection<Artifact> artifacts = client.getArtifactsByMd5("aaaa");
+
+        // then
+        assertEquals(List.of("md5=in=(aaaa);build=isnull=false"), queries);
+        assertEquals(1, artifacts.size());
+        assertEquals(1, latencies.size());
+    }
+
+    @Test
+    void testFailureIsPropagated() {
+        // given
+        BatchingPncClient client = createClient(10, Duration.ofMillis(1L), true);
+
+        // when/then
+        assertThrows(RemoteResourceException.class, () -> client.getArtifactsByMd5("aaaa"));
+    }
+
+    @Test
+    void testQuery() {
+        // when
+        String query = BatchingPncClient.getQuery("sha1", List.of("a", "b"));
+
+        // then
+        assertEquals("sha1=in=(a,b);build=isnull=false", query);
+    }
+}
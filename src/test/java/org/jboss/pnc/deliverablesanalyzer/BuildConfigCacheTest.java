@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import org.jboss.pnc.build.finder.core.BuildConfig;
+import org.jboss.pnc.build.finder.core.BuildFinderObjectMapper;
+import org.jboss.pnc.build.finder.core.JSONUtils;
+import org.jboss.pnc.deliverablesanalyzer.model.LookupTuning;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+class BuildConfigCacheTest {
+    private static final String RAW_CONFIG = "{\"excludes\": [\"^.*/pom[.]xml$\"]}";
+
+    private final BuildConfigCache cache = new BuildConfigCache();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private BuildConfig load(String rawConfig, Set<String> requestedSettings) throws IOException {
+        loads.incrementAndGet();
+
+        BuildConfig config = rawConfig != null ? BuildConfig.load(rawConfig) : new BuildConfig();
+        config.setOutputDirectory("/tmp/analysis-" + loads.get());
+        config.setKojiMulticallSize(4);
+        config.setKojiNumThreads(2);
+        requestedSettings.add("kojiNumThreads");
+
+        return config;
+    }
+
+    private static LookupTuning createTuning(int kojiMulticallSize) {
+        LookupTuning tuning = new LookupTuning();
+        tuning.setKojiMulticallSize(kojiMulticallSize);
+        tuning.setKojiNumThreads(kojiMulticallSize);
+        return tuning;
+    }
+
+    @Test
+    void testSameConfigIsInterned() throws IOException {
+        // when
+        EffectiveConfig first = cache.get(RAW_CONFIG, this::load);
+        EffectiveConfig second = cache.get(RAW_CONFIG, this::load);
+
+        // then
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals("^.*/pom[.]xml$", first.getConfig(null).getExcludes().get(0).pattern());
+    }
+
+    @Test
+    void testTuningIsAppliedToTheViews() throws IOException {
+        // when
+        EffectiveConfig first = cache.get(RAW_CONFIG, this::load);
+        EffectiveConfig second = cache.get(RAW_CONFIG, this::load);
+        BuildConfig firstConfig = first.getConfig(createTuning(8));
+        BuildConfig secondConfig = second.getConfig(createTuning(16));
+
+        // then
+        assertSame(first, second);
+        assertEquals(8, firstConfig.getKojiMulticallSize());
+        assertEquals(16, secondConfig.getKojiMulticallSize());
+        assertEquals(2, secondConfig.getKojiNumThreads());
+        assertEquals(4, first.getConfig(null).getKojiMulticallSize());
+    }
+
+    @Test
+    void testSharedConfigIsReadOnly() throws IOException {
+        // given
+        BuildConfig config = cache.get(RAW_CONFIG, this::load).getConfig(createTuning(8));
+        List<Pattern> excludes = config.getExcludes();
+
+        // when/then
+        assertThrows(UnsupportedOperationException.class, () -> config.setKojiMulticallSize(1));
+        assertThrows(UnsupportedOperationException.class, () -> excludes.add(Pattern.compile("a")));
+        assertEquals(1, cache.get(RAW_CONFIG, this::load).getConfig(null).getExcludes().size());
+    }
+
+    @Test
+    void testViewIsSerializedWithTheTuning() throws IOException {
+        // given
+        BuildConfig config = cache.get(RAW_CONFIG, this::load).getConfig(createTuning(8));
+
+        // when
+        JsonNode json = new BuildFinderObjectMapper().readTree(JSONUtils.dumpString(config));
+
+        // then
+        assertEquals(8, json.get("kojiMulticallSize").asInt());
+        assertEquals(2, json.get("kojiNumThreads").asInt());
+        assertEquals("^.*/pom[.]xml$", json.get("excludes").get(0).asText());
+    }
+
+    @Test
+    void testExcludesChangeFingerprint() throws IOException {
+        // when
+        EffectiveConfig first = cache.get(RAW_CONFIG, this::load);
+        EffectiveConfig second = cache.get(null, this::load);
+
+        // then
+        assertNotEquals(first.getFingerprint(), second.getFingerprint());
+    }
+
+    @Test
+    void testFingerprintIgnoresOrder() throws IOException {
+        // given
+        BuildConfig first = new BuildConfig();
+        first.setExcludes(List.of(Pattern.compile("a"), Pattern.compile("b")));
+        BuildConfig second = new BuildConfig();
+        second.setExcludes(List.of(Pattern.compile("b"), Pattern.compile("a")));
+
+        // when/then
+        assertEquals(BuildConfigCache.getFingerprint(first), BuildConfigCache.getFingerprint(second));
+    }
+}
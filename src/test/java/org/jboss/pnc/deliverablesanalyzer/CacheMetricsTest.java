@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Optional;
+
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.Tag;
+import org.infinispan.commons.api.BasicCache;
+import org.infinispan.commons.api.BasicCacheContainer;
+import org.infinispan.configuration.cache.StorageType;
+import org.jboss.pnc.build.finder.core.BuildConfig;
+import org.jboss.pnc.build.finder.core.ChecksumType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.smallrye.metrics.MetricsRegistryImpl;
+
+class CacheMetricsTest {
+    private static final Tag BUILDS = new Tag("cache", "builds");
+
+    @TempDir
+    Path location;
+
+    private BasicCacheContainer createCacheContainer() throws IOException {
+        BuildConfig config = new BuildConfig();
+        config.setChecksumTypes(Collections.singleton(ChecksumType.md5));
+
+        CacheProvider cacheProvider = new CacheProvider();
+        cacheProvider.config = config;
+        cacheProvider.infinispanMode = CacheProvider.InfinispanMode.EMBEDDED;
+        cacheProvider.infinispanCacheLocation = Optional.of(location.toString());
+        cacheProvider.infinispanMemoryStorage = StorageType.HEAP;
+        cacheProvider.infinispanMemoryMaxCount = Optional.empty();
+        cacheProvider.infinispanMemoryMaxSize = Optional.empty();
+        cacheProvider.infinispanStore = CacheProvider.StoreType.SINGLE_FILE;
+
+        return cacheProvider.initCaches();
+    }
+
+    private static CacheMetrics createCacheMetrics(MetricsRegistryImpl registry) {
+        CacheMetrics cacheMetrics = new CacheMetrics();
+        cacheMetrics.registry = registry;
+        return cacheMetrics;
+    }
+
+    private static long getGaugeValue(MetricsRegistryImpl registry, String name) {
+        Gauge<?> gauge = registry.getGauges().get(new MetricID(name, BUILDS));
+        return ((Number) gauge.getValue()).longValue();
+    }
+
+    @Test
+    void testHitsMissesAndLatencies() throws IOException {
+        // given
+        MetricsRegistryImpl registry = new MetricsRegistryImpl();
+        BasicCacheContainer cacheContainer = createCacheContainer();
+
+        try {
+            BasicCacheContainer instrumented = createCacheMetrics(registry).instrument(cacheContainer);
+            BasicCache<Integer, String> cache = instrumented.getCache("builds");
+
+            // when
+            cache.put(1, "one");
+            cache.get(1);
+            cache.get(1);
+            cache.get(2);
+
+            // then
+            assertSame(cache, instrumented.getCache("builds"));
+            assertEquals(2L, registry.getCounters().get(new MetricID(InstrumentedCacheContainer.HITS, BUILDS)).getCount());
+            assertEquals(
+                    1L,
+                    registry.getCounters().get(new MetricID(InstrumentedCacheContainer.MISSES, BUILDS)).getCount());
+            assertEquals(3L, registry.getTimers().get(new MetricID(InstrumentedCacheContainer.GETS, BUILDS)).getCount());
+            assertEquals(1L, registry.getTimers().get(new MetricID(InstrumentedCacheContainer.PUTS, BUILDS)).getCount());
+        } finally {
+            cacheContainer.stop();
+        }
+    }
+
+    @Test
+    void testEntriesAndStoreSize() throws IOException {
+        // given
+        MetricsRegistryImpl registry = new MetricsRegistryImpl();
+        BasicCacheContainer cacheContainer = createCacheContainer();
+
+        try {
+            BasicCache<Integer, String> cache = cacheContainer.getCache("builds");
+
+            for (int i = 0; i < 100; i++) {
+                cache.put(i, "build-" + i);
+            }
+
+            // when
+            createCacheMetrics(registry).register(cacheContainer);
+
+            // then
+            assertEquals(100L, getGaugeValue(registry, CacheMetrics.ENTRIES));
+            assertTrue(getGaugeValue(registry, CacheMetrics.STORE_SIZE) > 0L);
+        } finally {
+            cacheContainer.stop();
+        }
+    }
+
+    @Test
+    void testStoreSizeCountsOnlyFilesOfCache() throws IOException {
+        // given
+        Files.write(location.resolve("builds.dat"), new byte[10]);
+        Files.createDirectories(location.resolve("rocksdb").resolve("data").resolve("builds"));
+        Files.write(location.resolve("rocksdb").resolve("data").resolve("builds").resolve("000001.sst"), new byte[5]);
+        Files.write(location.resolve("builds-pnc.dat"), new byte[100]);
+
+        // when
+        long size = CacheMetrics.getStoreSize(location, "builds");
+
+        // then
+        assertEquals(15L, size);
+        assertEquals(0L, CacheMetrics.getStoreSize(location.resolve("missing"), "builds"));
+    }
+
+    @Test
+    void testDisabledCacheIsNotInstrumented() {
+        assertNull(createCacheMetrics(new MetricsRegistryImpl()).instrument(null));
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Optional;
+
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.StorageType;
+import org.infinispan.manager.DefaultCacheManager;
+import org.jboss.pnc.build.finder.core.BuildConfig;
+import org.jboss.pnc.build.finder.core.ChecksumType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CacheProviderTest {
+    private static final int ENTRIES = 1000;
+
+    private static final long MAX_COUNT = 100L;
+
+    @TempDir
+    Path location;
+
+    private CacheProvider createCacheProvider(StorageType storage, Long maxCount, String maxSize) {
+        BuildConfig config = new BuildConfig();
+        config.setChecksumTypes(Collections.singleton(ChecksumType.md5));
+
+        CacheProvider cacheProvider = new CacheProvider();
+        cacheProvider.config = config;
+        cacheProvider.infinispanMode = CacheProvider.InfinispanMode.EMBEDDED;
+        cacheProvider.infinispanCacheLocation = Optional.of(location.toString());
+        cacheProvider.infinispanMemoryStorage = storage;
+        cacheProvider.infinispanMemoryMaxCount = Optional.ofNullable(maxCount);
+        cacheProvider.infinispanMemoryMaxSize = Optional.ofNullable(maxSize);
+        cacheProvider.infinispanStore = CacheProvider.StoreType.SINGLE_FILE;
+
+        return cacheProvider;
+    }
+
+    private static void fill(Cache<Integer, String> cache) {
+        for (int i = 0; i < ENTRIES; i++) {
+            cache.put(i, "build-" + i);
+        }
+    }
+
+    private static void assertAllEntriesPresent(Cache<Integer, String> cache) {
+        for (int i = 0; i < ENTRIES; i++) {
+            assertEquals("build-" + i, cache.get(i));
+        }
+    }
+
+    @Test
+    void testOffHeapCountBoundedCachePassivatesToStore() throws IOException {
+        DefaultCacheManager cacheManager = createCacheProvider(StorageType.OFF_HEAP, MAX_COUNT, null)
+                .setupEmbeddedCacheManager(false);
+
+        try {
+            Cache<Integer, String> cache = cacheManager.getCache("builds");
+            fill(cache);
+
+            assertTrue(cache.getAdvancedCache().getStats().getCurrentNumberOfEntriesInMemory() <= MAX_COUNT);
+            assertTrue(cache.getAdvancedCache().getStats().getOffHeapMemoryUsed() > 0L);
+            assertAllEntriesPresent(cache);
+        } finally {
+            cacheManager.stop();
+        }
+    }
+
+    @Test
+    void testHeapSizeBoundedCachePassivatesToStore() throws IOException {
+        DefaultCacheManager cacheManager = createCacheProvider(StorageType.HEAP, null, "16KB")
+                .setupEmbeddedCacheManager(false);
+
+        try {
+            Cache<Integer, String> cache = cacheManager.getCache("builds");
+            fill(cache);
+
+            assertTrue(cache.getAdvancedCache().getStats().getCurrentNumberOfEntriesInMemory() < ENTRIES);
+            assertTrue(cache.getAdvancedCache().getStats().getDataMemoryUsed() <= 16L * 1024L);
+            assertAllEntriesPresent(cache);
+        } finally {
+            cacheManager.stop();
+        }
+    }
+
+    @Test
+    void testEntriesSurviveRestart() throws IOException {
+        CacheProvider cacheProvider = createCacheProvider(StorageType.OFF_HEAP, MAX_COUNT, null);
+        DefaultCacheManager cacheManager = cacheProvider.setupEmbeddedCacheManager(false);
+        fill(cacheManager.getCache("builds"));
+        cacheManager.stop();
+
+        cacheManager = cacheProvider.setupEmbeddedCacheManager(false);
+
+        try {
+            Cache<Integer, String> cache = cacheManager.getCache("builds");
+
+            assertTrue(cache.getAdvancedCache().getStats().getCurrentNumberOfEntriesInMemory() <= MAX_COUNT);
+            assertAllEntriesPresent(cache);
+        } finally {
+            cacheManager.stop();
+        }
+    }
+
+    @Test
+    void testMaxCountAndMaxSizeAreExclusive() {
+        CacheProvider cacheProvider = createCacheProvider(StorageType.HEAP, MAX_COUNT, "16KB");
+
+        assertThrows(IllegalArgumentException.class, cacheProvider::initCaches);
+    }
+}
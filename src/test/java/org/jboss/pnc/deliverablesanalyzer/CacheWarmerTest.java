@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.StorageType;
+import org.infinispan.distribution.DistributionManager;
+import org.infinispan.distribution.LocalizedCacheTopology;
+import org.infinispan.manager.DefaultCacheManager;
+import org.jboss.pnc.build.finder.core.BuildConfig;
+import org.jboss.pnc.build.finder.core.ChecksumType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CacheWarmerTest {
+    private static final int ENTRIES = 1000;
+
+    private static final int HOT_ENTRIES = 10;
+
+    @TempDir
+    Path location;
+
+    private CacheProvider createCacheProvider(Long maxCount) {
+        BuildConfig config = new BuildConfig();
+        config.setChecksumTypes(Collections.singleton(ChecksumType.md5));
+
+        CacheProvider cacheProvider = new CacheProvider();
+        cacheProvider.config = config;
+        cacheProvider.infinispanMode = CacheProvider.InfinispanMode.EMBEDDED;
+        cacheProvider.infinispanCacheLocation = Optional.of(location.toString());
+        cacheProvider.infinispanMemoryStorage = StorageType.HEAP;
+        cacheProvider.infinispanMemoryMaxCount = Optional.ofNullable(maxCount);
+        cacheProvider.infinispanMemoryMaxSize = Optional.empty();
+        cacheProvider.infinispanStore = CacheProvider.StoreType.SINGLE_FILE;
+
+        return cacheProvider;
+    }
+
+    private static CacheProvider createClusteredCacheProvider(Path nodeLocation) {
+        BuildConfig config = new BuildConfig();
+        config.setChecksumTypes(Collections.singleton(ChecksumType.md5));
+
+        CacheProvider cacheProvider = new CacheProvider();
+        cacheProvider.config = config;
+        cacheProvider.infinispanMode = CacheProvider.InfinispanMode.CLUSTERED;
+        cacheProvider.infinispanCacheLocation = Optional.of(nodeLocation.toString());
+        cacheProvider.infinispanClusterName = "cache-warmer-test";
+        cacheProvider.infinispanClusterStack = "tcp";
+        cacheProvider.infinispanClusterNumOwners = 1;
+        cacheProvider.infinispanMemoryStorage = StorageType.HEAP;
+        cacheProvider.infinispanMemoryMaxCount = Optional.empty();
+        cacheProvider.infinispanMemoryMaxSize = Optional.empty();
+        cacheProvider.infinispanStore = CacheProvider.StoreType.SINGLE_FILE;
+
+        return cacheProvider;
+    }
+
+    private static CacheWarmer createCacheWarmer(DefaultCacheManager cacheManager) {
+        CacheWarmer cacheWarmer = new CacheWarmer();
+        cacheWarmer.maxKeys = 100;
+        cacheWarmer.full = true;
+        cacheWarmer.start(cacheManager);
+        await().atMost(Duration.ofSeconds(30L)).until(() -> cacheWarmer.getState() == CacheWarmer.State.WARM);
+
+        return cacheWarmer;
+    }
+
+    @Test
+    void testHotKeysAreLoadedFirstAfterRestart() throws IOException {
+        // given
+        CacheProvider cacheProvider = createCacheProvider(100L);
+        DefaultCacheManager cacheManager = cacheProvider.setupEmbeddedCacheManager(false);
+        CacheWarmer cacheWarmer = createCacheWarmer(cacheManager);
+        Cache<Integer, String> cache = cacheManager.getCache("builds");
+
+        for (int i = 0; i < ENTRIES; i++) {
+            cache.put(i, "build-" + i);
+        }
+
+        for (int i = 0; i < HOT_ENTRIES; i++) {
+            for (int j = 0; j <= i; j++) {
+                cache.get(i);
+            }
+        }
+
+        cacheWarmer.stop();
+        cacheManager.stop();
+
+        // when
+        cacheManager = cacheProvider.setupEmbeddedCacheManager(false);
+
+        try {
+            cacheWarmer = createCacheWarmer(cacheManager);
+            cache = cacheManager.getCache("builds");
+
+            // then
+            assertTrue(Files.isRegularFile(location.resolve("hot-keys").resolve("builds")));
+            assertTrue(cacheWarmer.getHotKeysTotal() >= HOT_ENTRIES);
+            assertEquals(cacheWarmer.getHotKeysTotal(), cacheWarmer.getHotKeysLoaded());
+
+            for (int i = 0; i < HOT_ENTRIES; i++) {
+                assertTrue(cache.getAdvancedCache().getDataContainer().containsKey(i));
+            }
+        } finally {
+            cacheWarmer.stop();
+            cacheManager.stop();
+        }
+    }
+
+    @Test
+    void testAllEntriesAreLoadedWhenMemoryIsNotBounded() throws IOException {
+        // given
+        CacheProvider cacheProvider = createCacheProvider(null);
+        DefaultCacheManager cacheManager = cacheProvider.setupEmbeddedCacheManager(false);
+        Cache<Integer, String> cache = cacheManager.getCache("builds");
+
+        for (int i = 0; i < ENTRIES; i++) {
+            cache.put(i, "build-" + i);
+        }
+
+        cacheManager.stop();
+
+        // when
+        cacheManager = cacheProvider.setupEmbeddedCacheManager(false);
+        CacheWarmer cacheWarmer = null;
+
+        try {
+            cache = cacheManager.getCache("builds");
+
+            assertEquals(0, cache.getAdvancedCache().getDataContainer().size());
+
+            cacheWarmer = createCacheWarmer(cacheManager);
+
+            // then
+            assertEquals(ENTRIES, cache.getAdvancedCache().getDataContainer().size());
+            assertEquals(ENTRIES, cacheWarmer.getEntriesLoaded());
+        } finally {
+            if (cacheWarmer != null) {
+                cacheWarmer.stop();
+            }
+
+            cacheManager.stop();
+        }
+    }
+
+    @Test
+    void testOnlyLocallyOwnedEntriesAreLoadedInCluster() throws IOException {
+        // given
+        System.setProperty("jgroups.bind.address", "127.0.0.1");
+        DefaultCacheManager first = createClusteredCacheProvider(location.resolve("first"))
+                .setupEmbeddedCacheManager(true);
+        DefaultCacheManager second = createClusteredCacheProvider(location.resolve("second"))
+                .setupEmbeddedCacheManager(true);
+        CacheWarmer cacheWarmer = null;
+
+        try {
+            Cache<Integer, String> cache = first.getCache("builds");
+            second.getCache("builds");
+            DistributionManager distributionManager = cache.getAdvancedCache().getDistributionManager();
+            await().atMost(Duration.ofSeconds(30L))
+                    .until(
+                            () -> distributionManager.getCacheTopology().getMembers().size() == 2
+                                    && !distributionManager.isRehashInProgress());
+
+            for (int i = 0; i < ENTRIES; i++) {
+                cache.put(i, "build-" + i);
+            }
+
+            LocalizedCacheTopology topology = distributionManager.getCacheTopology();
+            long owned = IntStream.range(0, ENTRIES).filter(topology::isReadOwner).count();
+
+            // when
+            cacheWarmer = createCacheWarmer(first);
+
+            // then
+            assertTrue(owned < ENTRIES);
+            assertEquals(owned, cacheWarmer.getEntriesLoaded());
+        } finally {
+            if (cacheWarmer != null) {
+                cacheWarmer.stop();
+            }
+
+            second.stop();
+            first.stop();
+            System.clearProperty("jgroups.bind.address");
+        }
+    }
+
+    @Test
+    void testKeyEncoding() {
+        assertEquals("S2c8b8a0f", CacheWarmer.encodeKey("2c8b8a0f"));
+        assertEquals("I42", CacheWarmer.encodeKey(42));
+        assertNull(CacheWarmer.encodeKey(42L));
+        assertNull(CacheWarmer.encodeKey("multi\nline"));
+        assertEquals("2c8b8a0f", CacheWarmer.decodeKey("S2c8b8a0f"));
+        assertEquals(42, CacheWarmer.decodeKey("I42"));
+        assertNull(CacheWarmer.decodeKey("Inot-a-number"));
+        assertNull(CacheWarmer.decodeKey("X42"));
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+    private final AtomicLong now = new AtomicLong();
+
+    private final CircuitBreaker breaker = new CircuitBreaker(2, Duration.ofSeconds(10L), now::get);
+
+    private void fail() {
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+    }
+
+    @Test
+    void testOpensAfterConsecutiveFailures() {
+        // when
+        fail();
+        fail();
+
+        // then
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void testSuccessResetsFailures() {
+        // when
+        fail();
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        fail();
+
+        // then
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void testTrialCallClosesBreaker() {
+        // given
+        fail();
+        fail();
+        now.addAndGet(Duration.ofSeconds(10L).toNanos());
+
+        // when
+        boolean trial = breaker.tryAcquire();
+        boolean concurrent = breaker.tryAcquire();
+        breaker.onSuccess();
+
+        // then
+        assertTrue(trial);
+        assertFalse(concurrent);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void testFailedTrialCallReopensBreaker() {
+        // given
+        fail();
+        fail();
+        now.addAndGet(Duration.ofSeconds(10L).toNanos());
+
+        // when
+        fail();
+
+        // then
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+}
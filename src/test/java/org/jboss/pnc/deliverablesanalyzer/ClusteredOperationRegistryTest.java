@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.Configuration;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.configuration.global.GlobalConfigurationBuilder;
+import org.infinispan.manager.DefaultCacheManager;
+import org.infinispan.remoting.transport.jgroups.JGroupsTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs two registries, as if they were two replicas, on top of two embedded cache managers joined in a cluster on the
+ * loopback address.
+ */
+class ClusteredOperationRegistryTest {
+    private static final String CLUSTER_NAME = "clustered-operation-registry-test";
+
+    private DefaultCacheManager firstCacheManager;
+
+    private DefaultCacheManager secondCacheManager;
+
+    private SharedOperationRegistry first;
+
+    private SharedOperationRegistry second;
+
+    private final List<String> cancelledOnFirst = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void startCluster() {
+        System.setProperty("jgroups.bind.address", "127.0.0.1");
+
+        firstCacheManager = createCacheManager("first");
+        secondCacheManager = createCacheManager("second");
+
+        await().atMost(Duration.ofSeconds(30L)).until(() -> secondCacheManager.getMembers().size() == 2);
+
+        first = new SharedOperationRegistry();
+        first.start(firstCacheManager, cancelledOnFirst::add);
+
+        second = new SharedOperationRegistry();
+        second.start(secondCacheManager, id -> {
+        });
+    }
+
+    @AfterEach
+    void stopCluster() {
+        first.stop();
+        second.stop();
+        secondCacheManager.stop();
+        firstCacheManager.stop();
+        System.clearProperty("jgroups.bind.address");
+    }
+
+    private static DefaultCacheManager createCacheManager(String nodeName) {
+        GlobalConfigurationBuilder globalConfig = GlobalConfigurationBuilder.defaultClusteredBuilder();
+        globalConfig.transport()
+                .clusterName(CLUSTER_NAME)
+                .nodeName(nodeName)
+                .addProperty(JGroupsTransport.CONFIGURATION_FILE, "default-configs/default-jgroups-tcp.xml");
+
+        DefaultCacheManager cacheManager = new DefaultCacheManager(globalConfig.build());
+        Configuration configuration = new ConfigurationBuilder().clustering().cacheMode(CacheMode.REPL_SYNC).build();
+        cacheManager.defineConfiguration(SharedOperationRegistry.OPERATIONS_CACHE, configuration);
+        cacheManager.defineConfiguration(SharedOperationRegistry.CANCELS_CACHE, configuration);
+
+        return cacheManager;
+    }
+
+    @Test
+    void testCancelIsForwardedToOwner() {
+        // given
+        first.register("analysis-1");
+
+        // when
+        boolean forwarded = second.requestCancel("analysis-1");
+
+        // then
+        assertTrue(first.isShared());
+        assertTrue(forwarded);
+        assertEquals(first.getNodeId(), second.getOwner("analysis-1"));
+        await().atMost(Duration.ofSeconds(5L)).until(() -> cancelledOnFirst.contains("analysis-1"));
+    }
+}
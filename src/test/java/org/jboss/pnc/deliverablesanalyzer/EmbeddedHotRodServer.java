@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import org.infinispan.client.hotrod.RemoteCacheManager;
+import org.infinispan.client.hotrod.configuration.ConfigurationBuilder;
+import org.infinispan.configuration.cache.Configuration;
+import org.infinispan.configuration.global.GlobalConfigurationBuilder;
+import org.infinispan.manager.DefaultCacheManager;
+import org.infinispan.server.hotrod.HotRodServer;
+import org.infinispan.server.hotrod.configuration.HotRodServerConfigurationBuilder;
+
+/**
+ * Embedded Hot Rod server for the tests of the remote caches. The server binds an ephemeral port chosen by the
+ * operating system, so that it never races with other processes for a free port.
+ */
+final class EmbeddedHotRodServer implements AutoCloseable {
+    private static final String HOST = "127.0.0.1";
+
+    private final DefaultCacheManager cacheManager;
+
+    private final HotRodServer server;
+
+    private EmbeddedHotRodServer(DefaultCacheManager cacheManager, HotRodServer server) {
+        this.cacheManager = cacheManager;
+        this.server = server;
+    }
+
+    /**
+     * Starts a server with local caches.
+     *
+     * @param cacheNames the names of the caches
+     * @return the started server
+     */
+    static EmbeddedHotRodServer start(String... cacheNames) {
+        DefaultCacheManager cacheManager = new DefaultCacheManager(
+                new GlobalConfigurationBuilder().nonClusteredDefault().build());
+        Configuration configuration = new org.infinispan.configuration.cache.ConfigurationBuilder().build();
+
+        for (String cacheName : cacheNames) {
+            cacheManager.defineConfiguration(cacheName, configuration);
+        }
+
+        HotRodServer server = new HotRodServer();
+
+        try {
+            server.start(new HotRodServerConfigurationBuilder().host(HOST).port(0).build(), cacheManager);
+        } catch (RuntimeException e) {
+            cacheManager.stop();
+            throw e;
+        }
+
+        return new EmbeddedHotRodServer(cacheManager, server);
+    }
+
+    /**
+     * Returns a client configuration pointing to the server.
+     *
+     * @return the client configuration
+     */
+    ConfigurationBuilder newClientConfiguration() {
+        ConfigurationBuilder builder = new ConfigurationBuilder();
+        builder.addServer().host(HOST).port(server.getPort());
+        return builder;
+    }
+
+    /**
+     * Returns a new client of the server.
+     *
+     * @return the client
+     */
+    RemoteCacheManager newClient() {
+        return new RemoteCacheManager(newClientConfiguration().build());
+    }
+
+    @Override
+    public void close() {
+        server.stop();
+        cacheManager.stop();
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.jboss.pnc.build.finder.core.BuildConfig;
+import org.jboss.pnc.build.finder.koji.ClientSession;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import com.redhat.red.build.koji.KojiClientException;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveQuery;
+
+import io.smallrye.metrics.MetricsRegistryImpl;
+
+class KojiLookupBrokerTest {
+    private final List<Integer> multicalls = Collections.synchronizedList(new ArrayList<>());
+
+    private KojiLookupBroker broker;
+
+    private KojiLookupBroker createBroker(int multicallSize, long windowMillis) {
+        BuildConfig config = new BuildConfig();
+        config.setKojiMulticallSize(multicallSize);
+        config.setKojiNumThreads(2);
+
+        broker = new KojiLookupBroker();
+        broker.windowMillis = windowMillis;
+        broker.threads = Optional.empty();
+        broker.registry = new MetricsRegistryImpl();
+        broker.tuner = LookupTunerTest.createTuner(config, false);
+
+        return broker;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (broker != null) {
+            broker.stop();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private ClientSession createKojiSession(boolean fail) {
+        return (ClientSession) Proxy.newProxyInstance(
+                ClientSession.class.getClassLoader(),
+                new Class<?>[] { ClientSession.class },
+                (proxy, method, args) -> {
+                    List<KojiArchiveQuery> queries = (List<KojiArchiveQuery>) args[0];
+                    multicalls.add(queries.size());
+
+                    if (fail) {
+                        throw new KojiClientException("Koji is down");
+                    }
+
+                    return queries.stream().map(query -> {
+                        KojiArchiveInfo archive = new KojiArchiveInfo();
+                        archive.setChecksum(query.getChecksum());
+                        return List.of(archive);
+                    }).collect(Collectors.toList());
+                });
+    }
+
+    private static List<KojiArchiveQuery> createQueries(String prefix, int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new KojiArchiveQuery().withChecksum(prefix + i))
+                .collect(Collectors.toList());
+    }
+
+    private static List<List<KojiArchiveInfo>> listArchives(ClientSession session, List<KojiArchiveQuery> queries) {
+        try {
+            return session.listArchives(queries);
+        } catch (KojiClientException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    void testConcurrentLookupsShareMulticall() throws Exception {
+        // given
+        ClientSession session = createBroker(10, 500L).wrap(createKojiSession(false));
+
+        // when
+        CompletableFuture<List<List<KojiArchiveInfo>>> first = CompletableFuture
+                .supplyAsync(() -> listArchives(session, createQueries("a", 3)));
+        CompletableFuture<List<List<KojiArchiveInfo>>> second = CompletableFuture
+                .supplyAsync(() -> listArchives(session, createQueries("b", 4)));
+
+        // then
+        assertEquals(List.of(7), multicallsAfter(first, second));
+        assertEquals("a2", first.get().get(2).get(0).getChecksum());
+        assertEquals("b0", second.get().get(0).get(0).getChecksum());
+    }
+
+    @Test
+    void testFullMulticallIsSentWithoutWaiting() throws Exception {
+        // given
+        ClientSession session = createBroker(2, Duration.ofHours(1L).toMillis()).wrap(createKojiSession(false));
+
+        // when
+        List<List<KojiArchiveInfo>> results = session.listArchives(createQueries("a", 4));
+
+        // then
+        assertEquals(4, results.size());
+        assertEquals(List.of(2, 2), multicalls);
+    }
+
+    @Test
+    void testFailureIsPropagated() {
+        // given
+        ClientSession session = createBroker(10, 1L).wrap(createKojiSession(true));
+
+        // when/then
+        assertThrows(KojiClientException.class, () -> session.listArchives(createQueries("a", 3)));
+    }
+
+    @Test
+    void testLookupsFailWhenBrokerIsStopped() {
+        // given
+        KojiLookupBroker stopped = createBroker(2, Duration.ofHours(1L).toMillis());
+        ClientSession session = stopped.wrap(createKojiSession(false));
+        stopped.stop();
+
+        // when
+        Executable lookup = () -> session.listArchives(createQueries("a", 3));
+
+        // then
+        assertTimeoutPreemptively(
+                Duration.ofSeconds(10L),
+                () -> assertThrows(RejectedExecutionException.class, lookup));
+        assertEquals(List.of(), multicalls);
+    }
+
+    @Test
+    void testDisabledBrokerDoesNotWrap() {
+        // given
+        ClientSession kojiSession = createKojiSession(false);
+
+        // when
+        ClientSession session = createBroker(10, 0L).wrap(kojiSession);
+
+        // then
+        assertSame(kojiSession, session);
+    }
+
+    private List<Integer> multicallsAfter(CompletableFuture<?>... futures) {
+        CompletableFuture.allOf(futures).join();
+        return multicalls;
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.jboss.pnc.build.finder.koji.ClientSession;
+import org.junit.jupiter.api.Test;
+
+import com.redhat.red.build.koji.KojiClientException;
+import com.redhat.red.build.koji.model.xmlrpc.KojiBuildInfo;
+
+import io.smallrye.metrics.MetricsRegistryImpl;
+
+class KojiSessionPoolTest {
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final Counter rejected = new MetricsRegistryImpl()
+            .counter(Metadata.builder().withName("rejected").withType(MetricType.COUNTER).build());
+
+    private ClientSession createKojiSession(boolean fail, long latencyMillis) {
+        return (ClientSession) Proxy.newProxyInstance(
+                ClientSession.class.getClassLoader(),
+                new Class<?>[] { ClientSession.class },
+                (proxy, method, args) -> {
+                    calls.incrementAndGet();
+                    Thread.sleep(latencyMillis);
+
+                    if (fail) {
+                        throw new KojiClientException("Koji is down");
+                    }
+
+                    KojiBuildInfo build = new KojiBuildInfo();
+                    build.setId((Integer) args[0]);
+                    return build;
+                });
+    }
+
+    private KojiSessionPool createPool(boolean fail, long latencyMillis, Duration latencyThreshold) {
+        ClientSession session = createKojiSession(fail, latencyMillis);
+
+        return new KojiSessionPool(
+                "koji.localhost",
+                List.of(session, session, session, session),
+                new AdaptiveLimiter(1, 4, latencyThreshold),
+                new CircuitBreaker(2, Duration.ofHours(1L)),
+                rejected);
+    }
+
+    @Test
+    void testCallReturnsSession() throws KojiClientException {
+        // given
+        KojiSessionPool pool = createPool(false, 0L, Duration.ofHours(1L));
+
+        // when
+        KojiBuildInfo build = pool.getBuild(1);
+
+        // then
+        assertEquals(1, build.getId());
+        assertEquals(0, pool.getActive());
+        assertEquals(4, pool.getLimiter().getLimit());
+        assertEquals(0, pool.getLimiter().getInFlight());
+    }
+
+    @Test
+    void testSlowCallsLowerLimit() throws KojiClientException {
+        // given
+        KojiSessionPool pool = createPool(false, 5L, Duration.ofNanos(1L));
+
+        // when
+        pool.getBuild(1);
+        int afterFirst = pool.getLimiter().getLimit();
+        pool.getBuild(2);
+        pool.getBuild(3);
+
+        // then
+        assertEquals(2, afterFirst);
+        assertEquals(1, pool.getLimiter().getLimit());
+    }
+
+    @Test
+    void testCancelWhileWaitingForLimitReleasesHalfOpenTrial() throws Exception {
+        // given
+        AtomicLong nanoTime = new AtomicLong();
+        AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, Duration.ofHours(1L));
+        CircuitBreaker breaker = new CircuitBreaker(1, Duration.ofSeconds(1L), nanoTime::get);
+        ClientSession session = createKojiSession(false, 0L);
+        KojiSessionPool pool = new KojiSessionPool("koji.localhost", List.of(session), limiter, breaker, rejected);
+        breaker.tryAcquire();
+        breaker.onFailure();
+        nanoTime.addAndGet(Duration.ofSeconds(2L).toNanos());
+        limiter.acquire();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<KojiBuildInfo> trial = executor.submit(() -> pool.getBuild(1));
+        await().atMost(Duration.ofSeconds(10L)).until(() -> breaker.getState() == CircuitBreaker.State.HALF_OPEN);
+
+        // when
+        trial.cancel(true);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10L, TimeUnit.SECONDS));
+        limiter.cancel();
+        KojiBuildInfo build = pool.getBuild(2);
+
+        // then
+        assertEquals(2, build.getId());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0L, rejected.getCount());
+    }
+
+    @Test
+    void testCancelledCallsAreNeitherFailuresNorSlowCalls() throws Exception {
+        // given
+        KojiSessionPool pool = createPool(false, Duration.ofHours(1L).toMillis(), Duration.ofNanos(1L));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<KojiBuildInfo> first = executor.submit(() -> pool.getBuild(1));
+        Future<KojiBuildInfo> second = executor.submit(() -> pool.getBuild(2));
+        await().atMost(Duration.ofSeconds(10L)).until(() -> calls.get() == 2);
+
+        // when
+        first.cancel(true);
+        second.cancel(true);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10L, TimeUnit.SECONDS));
+
+        // then
+        assertEquals(4, pool.getLimiter().getLimit());
+        assertEquals(0, pool.getLimiter().getInFlight());
+        assertEquals(0, pool.getActive());
+        assertEquals(CircuitBreaker.State.CLOSED, pool.getBreaker().getState());
+    }
+
+    @Test
+    void testOpenBreakerRejectsCalls() {
+        // given
+        KojiSessionPool pool = createPool(true, 0L, Duration.ofHours(1L));
+
+        // when
+        assertThrows(KojiClientException.class, () -> pool.getBuild(1));
+        assertThrows(KojiClientException.class, () -> pool.getBuild(2));
+        assertThrows(KojiClientException.class, () -> pool.getBuild(3));
+
+        // then
+        assertEquals(2, calls.get());
+        assertEquals(1L, rejected.getCount());
+        assertEquals(CircuitBreaker.State.OPEN, pool.getBreaker().getState());
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import org.jboss.pnc.build.finder.core.BuildConfig;
+import org.jboss.pnc.deliverablesanalyzer.model.LookupTuning;
+import org.junit.jupiter.api.Test;
+
+class LookupTunerTest {
+    private static final long TARGET_NANOS = Duration.ofSeconds(10L).toNanos();
+
+    private final LookupTuner.Controller controller = new LookupTuner.Controller(
+            100,
+            10,
+            200,
+            4,
+            1,
+            8,
+            Duration.ofNanos(TARGET_NANOS),
+            0.05D);
+
+    static LookupTuner createTuner(BuildConfig config, boolean enabled) {
+        LookupTuner tuner = new LookupTuner();
+        tuner.enabled = enabled;
+        tuner.config = config;
+        tuner.kojiTargetLatency = Duration.ofSeconds(10L);
+        tuner.pncTargetLatency = Duration.ofSeconds(5L);
+        tuner.maxErrorRate = 0.05D;
+        tuner.minKojiMulticallSize = Optional.empty();
+        tuner.maxKojiMulticallSize = Optional.empty();
+        tuner.minKojiThreads = Optional.empty();
+        tuner.maxKojiThreads = Optional.empty();
+        tuner.minPncPartitionSize = Optional.empty();
+        tuner.maxPncPartitionSize = Optional.empty();
+        tuner.minPncThreads = Optional.empty();
+        tuner.maxPncThreads = Optional.empty();
+        tuner.init();
+        return tuner;
+    }
+
+    private static LookupTuner createTuner(long kojiWindowMillis, long pncWindowMillis) {
+        BuildConfig config = new BuildConfig();
+        config.setKojiMulticallSize(100);
+        config.setKojiNumThreads(4);
+        config.setPncPartitionSize(20);
+        config.setPncNumThreads(4L);
+        LookupTuner tuner = createTuner(config, true);
+        tuner.kojiLookupBroker = new KojiLookupBroker();
+        tuner.kojiLookupBroker.windowMillis = kojiWindowMillis;
+        tuner.pncProvider = new PncProvider();
+        tuner.pncProvider.windowMillis = pncWindowMillis;
+        return tuner;
+    }
+
+    @Test
+    void testOnlyBatchedLookupsAreTuned() {
+        // given
+        LookupTuner tuner = createTuner(20L, 0L);
+        tuner.recordKoji(100, TARGET_NANOS / 100L, false);
+        tuner.recordPnc(20, TARGET_NANOS / 100L, false);
+
+        // when
+        LookupTuning tuning = tuner.tune();
+
+        // then
+        assertEquals(125, tuning.getKojiMulticallSize());
+        assertEquals(5, tuning.getKojiNumThreads());
+        assertNull(tuning.getPncPartitionSize());
+        assertNull(tuning.getPncNumThreads());
+        assertNull(tuning.getPncLatencyMillis());
+    }
+
+    @Test
+    void testNothingIsTunedWithoutBatching() {
+        // given
+        LookupTuner tuner = createTuner(0L, 0L);
+        tuner.recordKoji(100, TARGET_NANOS / 100L, false);
+
+        // when
+        LookupTuning tuning = tuner.tune();
+
+        // then
+        assertNull(tuning);
+    }
+
+    @Test
+    void testNothingChangesWithoutLookups() {
+        // when
+        controller.adjust();
+
+        // then
+        assertEquals(100, controller.getBatchSize());
+        assertEquals(4, controller.getThreads());
+    }
+
+    @Test
+    void testFastLookupsGrowBatchesAndParallelism() {
+        // given
+        controller.record(TARGET_NANOS / 10L, false);
+
+        // when
+        controller.adjust();
+
+        // then
+        assertEquals(125, controller.getBatchSize());
+        assertEquals(5, controller.getThreads());
+    }
+
+    @Test
+    void testSlowLookupsShrinkBatches() {
+        // given
+        controller.record(TARGET_NANOS * 2L, false);
+
+        // when
+        controller.adjust();
+
+        // then
+        assertEquals(50, controller.getBatchSize());
+        assertEquals(3, controller.getThreads());
+    }
+
+    @Test
+    void testFailuresHalveBatchesAndParallelism() {
+        // given
+        controller.record(TARGET_NANOS / 10L, true);
+
+        // when
+        controller.adjust();
+        controller.record(TARGET_NANOS / 10L, true);
+        controller.adjust();
+        controller.record(TARGET_NANOS / 10L, true);
+        controller.adjust();
+        controller.record(TARGET_NANOS / 10L, true);
+        controller.adjust();
+
+        // then
+        assertEquals(10, controller.getBatchSize());
+        assertEquals(1, controller.getThreads());
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Collections;
+
+import org.infinispan.client.hotrod.RemoteCache;
+import org.infinispan.client.hotrod.RemoteCacheManager;
+import org.infinispan.client.hotrod.configuration.ConfigurationBuilder;
+import org.infinispan.client.hotrod.configuration.NearCacheMode;
+import org.jboss.pnc.build.finder.core.BuildConfig;
+import org.jboss.pnc.build.finder.core.ChecksumType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Reads through the near cache configured by {@link CacheProvider} while another client modifies the entries.
+ */
+class NearCacheTest {
+    private static final int READS = 100;
+
+    private EmbeddedHotRodServer server;
+
+    private RemoteCacheManager reader;
+
+    private RemoteCacheManager writer;
+
+    @BeforeEach
+    void startServer() {
+        server = EmbeddedHotRodServer.start("builds");
+
+        BuildConfig config = new BuildConfig();
+        config.setChecksumTypes(Collections.singleton(ChecksumType.md5));
+        CacheProvider cacheProvider = new CacheProvider();
+        cacheProvider.config = config;
+        cacheProvider.infinispanNearCacheMaxEntries = 10;
+
+        ConfigurationBuilder readerBuilder = server.newClientConfiguration();
+        cacheProvider.configureNearCaches(readerBuilder);
+        reader = new RemoteCacheManager(readerBuilder.build());
+        writer = server.newClient();
+    }
+
+    @AfterEach
+    void stopServer() {
+        reader.stop();
+        writer.stop();
+        server.close();
+    }
+
+    @Test
+    void testNearCacheIsConfiguredForLookupCaches() {
+        assertEquals(NearCacheMode.INVALIDATED, reader.getConfiguration().remoteCaches().get("builds").nearCacheMode());
+        assertEquals(
+                NearCacheMode.INVALIDATED,
+                reader.getConfiguration().remoteCaches().get("checksums-pnc-md5").nearCacheMode());
+        assertNull(reader.getConfiguration().remoteCaches().get("files-md5"));
+    }
+
+    @Test
+    void testRepeatedReadsAreServedByNearCache() {
+        // given
+        writer.<Integer, String> getCache("builds").put(1, "build-1");
+        RemoteCache<Integer, String> cache = reader.getCache("builds");
+
+        // when
+        for (int i = 0; i < READS; i++) {
+            assertEquals("build-1", cache.get(1));
+        }
+
+        // then
+        assertEquals(1L, cache.clientStatistics().getRemoteHits());
+        assertEquals(READS - 1L, cache.clientStatistics().getNearCacheHits());
+        assertTrue(
+                CacheMetrics.getHitRatio(
+                        cache.clientStatistics().getNearCacheHits(),
+                        cache.clientStatistics().getNearCacheMisses()) > 0.9D);
+    }
+
+    @Test
+    void testModifiedEntryIsInvalidated() {
+        // given
+        RemoteCache<Integer, String> writerCache = writer.getCache("builds");
+        writerCache.put(1, "build-1");
+        RemoteCache<Integer, String> cache = reader.getCache("builds");
+        assertEquals("build-1", cache.get(1));
+
+        // when
+        writerCache.put(1, "build-1-modified");
+
+        // then
+        await().atMost(Duration.ofSeconds(5L)).until(() -> "build-1-modified".equals(cache.get(1)));
+        assertTrue(cache.clientStatistics().getNearCacheInvalidations() > 0L);
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.manager.DefaultCacheManager;
+import org.jboss.pnc.build.finder.koji.ClientSession;
+import org.jboss.pnc.build.finder.pnc.client.PncClient;
+import org.jboss.pnc.build.finder.pnc.client.StaticRemoteCollection;
+import org.jboss.pnc.client.RemoteCollection;
+import org.jboss.pnc.dto.Artifact;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveQuery;
+
+class NotFoundCacheTest {
+    private static final String FOUND = "found";
+
+    private static final String NOT_FOUND = "not-found";
+
+    private DefaultCacheManager cacheManager;
+
+    private NotFoundCache notFoundCache;
+
+    private final List<String> kojiLookups = new ArrayList<>();
+
+    private final List<String> pncLookups = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        cacheManager = new DefaultCacheManager();
+        cacheManager.defineConfiguration(NotFoundCache.CACHE_NAME, new ConfigurationBuilder().build());
+        notFoundCache = new NotFoundCache();
+        notFoundCache.lifespan = Duration.ofHours(1L);
+        notFoundCache.start(cacheManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cacheManager.stop();
+    }
+
+    @SuppressWarnings("unchecked")
+    private ClientSession createKojiSession() {
+        return (ClientSession) Proxy.newProxyInstance(
+                ClientSession.class.getClassLoader(),
+                new Class<?>[] { ClientSession.class },
+                (proxy, method, args) -> {
+                    List<KojiArchiveQuery> queries = (List<KojiArchiveQuery>) args[0];
+                    List<List<KojiArchiveInfo>> results = new ArrayList<>();
+
+                    for (KojiArchiveQuery query : queries) {
+                        kojiLookups.add(query.getChecksum());
+                        results.add(
+                                FOUND.equals(query.getChecksum()) ? List.of(new KojiArchiveInfo())
+                                        : new ArrayList<>());
+                    }
+
+                    return results;
+                });
+    }
+
+    private PncClient createPncClient() {
+        return (PncClient) Proxy.newProxyInstance(
+                PncClient.class.getClassLoader(),
+                new Class<?>[] { PncClient.class },
+                (proxy, method, args) -> {
+                    pncLookups.add((String) args[0]);
+                    return new StaticRemoteCollection<>(
+                            FOUND.equals(args[0]) ? List.of(Artifact.builder().id("1").build())
+                                    : Collections.emptyList());
+                });
+    }
+
+    private static List<KojiArchiveQuery> createQueries(String... checksums) {
+        return List.of(checksums)
+                .stream()
+                .map(checksum -> new KojiArchiveQuery().withChecksum(checksum))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void testNotFoundChecksumsAreNotLookedUpAgain() throws Exception {
+        // given
+        ClientSession session = notFoundCache.wrap(createKojiSession(), false);
+        session.listArchives(createQueries(FOUND, NOT_FOUND));
+
+        // when
+        List<List<KojiArchiveInfo>> results = session.listArchives(createQueries(NOT_FOUND, FOUND));
+
+        // then
+        assertEquals(List.of(FOUND, NOT_FOUND, FOUND), kojiLookups);
+        assertEquals(2, results.size());
+        assertTrue(results.get(0).isEmpty());
+        assertEquals(1, results.get(1).size());
+    }
+
+    @Test
+    void testRecheckLooksUpNotFoundChecksums() throws Exception {
+        // given
+        notFoundCache.wrap(createKojiSession(), false).listArchives(createQueries(NOT_FOUND));
+
+        // when
+        notFoundCache.wrap(createKojiSession(), true).listArchives(createQueries(NOT_FOUND));
+        notFoundCache.wrap(createKojiSession(), false).listArchives(createQueries(NOT_FOUND));
+
+        // then
+        assertEquals(List.of(NOT_FOUND, NOT_FOUND), kojiLookups);
+    }
+
+    @Test
+    void testRecheckForgetsChecksumsWhichAreFound() throws Exception {
+        // given
+        notFoundCache.markNotFound(NotFoundCache.kojiKey(FOUND));
+
+        // when
+        notFoundCache.wrap(createKojiSession(), true).listArchives(createQueries(FOUND));
+
+        // then
+        assertEquals(List.of(FOUND), kojiLookups);
+        assertFalse(notFoundCache.isNotFound(NotFoundCache.kojiKey(FOUND)));
+    }
+
+    @Test
+    void testPncNotFoundChecksumsAreNotLookedUpAgain() throws Exception {
+        // given
+        PncClient pncClient = notFoundCache.wrap(createPncClient(), false);
+        pncClient.getArtifactsByMd5(NOT_FOUND);
+        pncClient.getArtifactsByMd5(FOUND);
+
+        // when
+        RemoteCollection<Artifact> notFound = pncClient.getArtifactsByMd5(NOT_FOUND);
+        RemoteCollection<Artifact> found = pncClient.getArtifactsByMd5(FOUND);
+        pncClient.getArtifactsBySha1(NOT_FOUND);
+
+        // then
+        assertEquals(List.of(NOT_FOUND, FOUND, FOUND, NOT_FOUND), pncLookups);
+        assertEquals(0, notFound.size());
+        assertEquals(1, found.size());
+    }
+
+    @Test
+    void testKeysIncludeChecksumType() {
+        String md5 = "d41d8cd98f00b204e9800998ecf8427e";
+        String sha256 = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+
+        assertEquals("koji:md5:" + md5, NotFoundCache.kojiKey(md5));
+        assertEquals("koji:sha256:" + sha256, NotFoundCache.kojiKey(sha256));
+        assertEquals("pnc:sha1:" + md5, NotFoundCache.pncKey("sha1", md5));
+    }
+
+    @Test
+    void testDisabledCacheDoesNotWrap() {
+        // given
+        NotFoundCache disabled = new NotFoundCache();
+        disabled.start(null);
+        ClientSession session = createKojiSession();
+
+        // when
+        ClientSession wrapped = disabled.wrap(session, false);
+
+        // then
+        assertSame(session, wrapped);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class ResizableExecutorTest {
+    private final AtomicInteger threads = new AtomicInteger(1);
+
+    private final ResizableExecutor executor = new ResizableExecutor(threads::get, Executors.defaultThreadFactory());
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    private void block(CountDownLatch started) {
+        executor.execute(() -> {
+            started.countDown();
+
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    @Test
+    void testThreadsFollowTheSupplier() throws InterruptedException {
+        // given
+        CountDownLatch started = new CountDownLatch(2);
+        block(started);
+        block(started);
+
+        // when
+        boolean startedWithOne = started.await(200L, TimeUnit.MILLISECONDS);
+        threads.set(2);
+        block(new CountDownLatch(1));
+
+        // then
+        assertFalse(startedWithOne);
+        assertTrue(started.await(5L, TimeUnit.SECONDS));
+        assertEquals(2, executor.getThreads());
+    }
+
+    @Test
+    void testThreadsShrink() {
+        // given
+        threads.set(4);
+        executor.execute(() -> {
+        });
+
+        // when
+        threads.set(0);
+        executor.execute(() -> {
+        });
+
+        // then
+        assertEquals(1, executor.getThreads());
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.infinispan.client.hotrod.RemoteCacheManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs two registries, as if they were two replicas, against an embedded Hot Rod server.
+ */
+class SharedOperationRegistryTest {
+    private EmbeddedHotRodServer server;
+
+    private RemoteCacheManager firstCacheManager;
+
+    private RemoteCacheManager secondCacheManager;
+
+    private SharedOperationRegistry first;
+
+    private SharedOperationRegistry second;
+
+    private final List<String> cancelledOnFirst = new CopyOnWriteArrayList<>();
+
+    private final List<String> cancelledOnSecond = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void startServer() {
+        server = EmbeddedHotRodServer.start(
+                SharedOperationRegistry.OPERATIONS_CACHE,
+                SharedOperationRegistry.CANCELS_CACHE);
+        firstCacheManager = server.newClient();
+        secondCacheManager = server.newClient();
+
+        first = new SharedOperationRegistry();
+        first.start(firstCacheManager, cancelledOnFirst::add);
+
+        second = new SharedOperationRegistry();
+        second.start(secondCacheManager, cancelledOnSecond::add);
+    }
+
+    @AfterEach
+    void stopServer() {
+        first.stop();
+        second.stop();
+        firstCacheManager.stop();
+        secondCacheManager.stop();
+        server.close();
+    }
+
+    @Test
+    void testCancelIsForwardedToOwner() {
+        // given
+        first.register("analysis-1");
+
+        // when
+        boolean forwarded = second.requestCancel("analysis-1");
+
+        // then
+        assertTrue(forwarded);
+        assertEquals(first.getNodeId(), second.getOwner("analysis-1"));
+        await().atMost(Duration.ofSeconds(1L)).until(() -> cancelledOnFirst.contains("analysis-1"));
+    }
+
+    @Test
+    void testCancelOfUnknownAnalysis() {
+        assertFalse(second.requestCancel("analysis-2"));
+        assertNull(first.getOwner("analysis-2"));
+    }
+
+    @Test
+    void testUnregisterRemovesOperation() {
+        // given
+        first.register("analysis-3");
+
+        // when
+        first.unregister("analysis-3");
+
+        // then
+        assertNull(second.getOwner("analysis-3"));
+        assertFalse(second.requestCancel("analysis-3"));
+    }
+
+    @Test
+    void testLocalCacheIsNotShared() {
+        SharedOperationRegistry registry = new SharedOperationRegistry();
+        registry.start(null, id -> {
+        });
+
+        registry.register("analysis-4");
+
+        assertFalse(registry.isShared());
+        assertFalse(registry.requestCancel("analysis-4"));
+    }
+}
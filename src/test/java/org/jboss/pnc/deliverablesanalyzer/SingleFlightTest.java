@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.eclipse.microprofile.metrics.Counter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveInfo;
+
+import io.smallrye.metrics.MetricsRegistryImpl;
+
+class SingleFlightTest {
+    private Counter suppressed;
+
+    private SingleFlight<String, List<String>> singleFlight;
+
+    @BeforeEach
+    void setUp() {
+        suppressed = new MetricsRegistryImpl().counter(LookupSingleFlight.SUPPRESSED);
+        singleFlight = new SingleFlight<>(suppressed, ArrayList::new);
+    }
+
+    @Test
+    void testConcurrentLoadsOfSameKeyShareOneLookup() throws Exception {
+        // given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger lookups = new AtomicInteger();
+        SingleFlight.Loader<String, List<String>, Exception> loader = keys -> {
+            lookups.addAndGet(keys.size());
+            started.countDown();
+            release.await(10L, TimeUnit.SECONDS);
+            return keys.stream().map(key -> new ArrayList<>(List.of(key + "-value"))).collect(Collectors.toList());
+        };
+        CompletableFuture<List<List<String>>> first = CompletableFuture
+                .supplyAsync(() -> load(List.of("a", "b"), loader));
+        started.await(10L, TimeUnit.SECONDS);
+
+        // when
+        CompletableFuture<List<List<String>>> second = CompletableFuture.supplyAsync(() -> load(List.of("b"), loader));
+
+        while (suppressed.getCount() == 0L) {
+            Thread.sleep(10L);
+        }
+
+        release.countDown();
+
+        // then
+        assertEquals(List.of(List.of("a-value"), List.of("b-value")), first.get());
+        assertEquals(List.of(List.of("b-value")), second.get());
+        assertNotSame(first.get().get(1), second.get().get(0));
+        assertEquals(2, lookups.get());
+        assertEquals(1L, suppressed.getCount());
+        assertEquals(0, singleFlight.getInFlight());
+    }
+
+    @Test
+    void testFailureIsPropagatedToWaitingCallers() throws Exception {
+        // given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        SingleFlight.Loader<String, List<String>, Exception> loader = keys -> {
+            started.countDown();
+            release.await(10L, TimeUnit.SECONDS);
+            throw new IOException("lookup failed");
+        };
+        CompletableFuture<List<List<String>>> first = CompletableFuture.supplyAsync(() -> load(List.of("a"), loader));
+        started.await(10L, TimeUnit.SECONDS);
+
+        // when
+        CompletableFuture<List<List<String>>> second = CompletableFuture.supplyAsync(() -> load(List.of("a"), loader));
+
+        while (suppressed.getCount() == 0L) {
+            Thread.sleep(10L);
+        }
+
+        release.countDown();
+
+        // then
+        ExecutionException firstException = assertThrows(ExecutionException.class, first::get);
+        ExecutionException secondException = assertThrows(ExecutionException.class, second::get);
+        assertEquals(IOException.class, firstException.getCause().getCause().getClass());
+        assertSame(firstException.getCause().getCause(), secondException.getCause().getCause());
+        assertEquals(0, singleFlight.getInFlight());
+    }
+
+    @Test
+    void testKeyIsLoadedAgainAfterLookupFinished() throws Exception {
+        // given
+        AtomicInteger lookups = new AtomicInteger();
+        SingleFlight.Loader<String, List<String>, Exception> loader = keys -> {
+            lookups.incrementAndGet();
+            return Collections.singletonList(List.of("value"));
+        };
+
+        // when
+        singleFlight.load(List.of("a"), loader, Exception.class);
+        singleFlight.load(List.of("a"), loader, Exception.class);
+
+        // then
+        assertEquals(2, lookups.get());
+        assertEquals(0L, suppressed.getCount());
+    }
+
+    @Test
+    void testSharedArchivesAreCopiedDeeply() {
+        // given
+        KojiArchiveInfo archive = new KojiArchiveInfo();
+        archive.setArchiveId(1);
+        archive.setFilename("foo-1.0.jar");
+        archive.setChecksum("d41d8cd98f00b204e9800998ecf8427e");
+        List<KojiArchiveInfo> archives = List.of(archive);
+
+        // when
+        List<KojiArchiveInfo> copy = LookupSingleFlight.copyArchives(archives);
+        copy.get(0).setTypeName("jar");
+
+        // then
+        assertEquals(1, copy.size());
+        assertNotSame(archive, copy.get(0));
+        assertEquals("foo-1.0.jar", copy.get(0).getFilename());
+        assertEquals(archive.getChecksum(), copy.get(0).getChecksum());
+        assertNull(archive.getTypeName());
+    }
+
+    private List<List<String>> load(List<String> keys, SingleFlight.Loader<String, List<String>, Exception> loader) {
+        try {
+            return singleFlight.load(keys, loader, Exception.class);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.Tag;
+import org.jboss.pnc.build.finder.koji.ClientSession;
+import org.jboss.pnc.build.finder.pnc.client.PncClient;
+import org.jboss.pnc.deliverablesanalyzer.StageTimer.Stage;
+import org.jboss.pnc.deliverablesanalyzer.model.StageTimings;
+import org.jboss.pnc.deliverablesanalyzer.model.StageTimings.StageTiming;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.redhat.red.build.koji.KojiClientException;
+import com.redhat.red.build.koji.model.xmlrpc.KojiBuildInfo;
+
+import io.smallrye.metrics.MetricsRegistryImpl;
+
+class StageTimerTest {
+    private final StageTimer stageTimer = new StageTimer();
+
+    private final StageTimings timings = new StageTimings();
+
+    @BeforeEach
+    void setUp() {
+        stageTimer.registry = new MetricsRegistryImpl();
+        stageTimer.init();
+    }
+
+    private long getCount(Stage stage) {
+        return stageTimer.registry.getTimers()
+                .get(new MetricID(StageTimer.STAGE, new Tag("stage", stage.getName())))
+                .getCount();
+    }
+
+    @Test
+    void testTimeRecordsFailedRuns() {
+        // when
+        assertThrows(IllegalStateException.class, () -> stageTimer.time(Stage.RESULT, timings, () -> {
+            throw new IllegalStateException("Failed");
+        }));
+
+        // then
+        assertEquals(1L, getCount(Stage.RESULT));
+        assertEquals(1L, timings.getStages().get("result").getCount());
+    }
+
+    @Test
+    void testRunningStagesAreCounted() throws Exception {
+        // when
+        Map<String, Integer> running = stageTimer.time(Stage.CHECKSUMS, timings, timings::getRunning);
+
+        // then
+        assertEquals(Map.of("checksums", 1), running);
+        assertTrue(timings.getRunning().isEmpty());
+        assertEquals(0, timings.getRunning("checksums"));
+    }
+
+    @Test
+    void testWrappedSessionTimesEveryCall() throws KojiClientException {
+        // given
+        ClientSession session = (ClientSession) Proxy.newProxyInstance(
+                ClientSession.class.getClassLoader(),
+                new Class<?>[] { ClientSession.class },
+                (proxy, method, args) -> {
+                    Thread.sleep(5L);
+                    KojiBuildInfo build = new KojiBuildInfo();
+                    build.setId((Integer) args[0]);
+                    return build;
+                });
+        ClientSession timed = stageTimer.wrap(session, timings);
+
+        // when
+        KojiBuildInfo build = timed.getBuild(1);
+        timed.getBuild(2);
+
+        // then
+        StageTiming koji = timings.getStages().get("koji");
+        assertEquals(1, build.getId());
+        assertEquals(2L, koji.getCount());
+        assertEquals(2L, getCount(Stage.KOJI));
+        assertTrue(koji.getTotalMillis() >= 10L);
+    }
+
+    @Test
+    void testWrappedPncClientDoesNotTimeClose() {
+        // given
+        PncClient client = (PncClient) Proxy.newProxyInstance(
+                PncClient.class.getClassLoader(),
+                new Class<?>[] { PncClient.class },
+                (proxy, method, args) -> null);
+
+        // when
+        stageTimer.wrap(client, timings).close();
+
+        // then
+        Map<String, StageTiming> stages = timings.getStages();
+        assertFalse(stages.containsKey("pnc"));
+        assertEquals(0L, getCount(Stage.PNC));
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class StatusCacheTest {
+    private final AtomicLong now = new AtomicLong();
+
+    private final StatusCache<String, String> cache = new StatusCache<>(10L, now::get);
+
+    @Test
+    void testStatusExpires() {
+        // given
+        cache.put("a", "running");
+        now.set(5L);
+        cache.put("b", "queued");
+
+        // when
+        now.set(10L);
+
+        // then
+        assertNull(cache.get("a"));
+        assertEquals("queued", cache.get("b"));
+        assertEquals(Map.of("b", "queued"), cache.snapshot());
+    }
+
+    @Test
+    void testSnapshotIsACopy() {
+        // given
+        cache.put("a", "running");
+
+        // when
+        Map<String, String> snapshot = cache.snapshot();
+        cache.put("b", "queued");
+
+        // then
+        assertEquals(Map.of("a", "running"), snapshot);
+    }
+
+    @Test
+    void testSnapshotWhilePutting() throws Exception {
+        // given
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<?> puts = executor.submit(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    now.incrementAndGet();
+                    cache.put(Integer.toString(i), "running");
+                }
+            });
+
+            // when
+            while (!puts.isDone()) {
+                cache.snapshot().values().forEach(String::length);
+            }
+
+            // then
+            puts.get();
+            assertEquals(10, cache.snapshot().size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.jboss.pnc.build.finder.koji.ClientSession;
+import org.jboss.pnc.client.RemoteResourceException;
+import org.jboss.pnc.deliverablesanalyzer.BatchingPncClient.ArtifactQuery;
+import org.jboss.pnc.dto.Artifact;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.redhat.red.build.koji.KojiClientException;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveQuery;
+import com.redhat.red.build.koji.model.xmlrpc.KojiBuildInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiIdOrName;
+
+class TrafficReplayTest {
+    private static final String MISSING = "ffff";
+
+    @TempDir
+    Path dir;
+
+    @SuppressWarnings("unchecked")
+    private static ClientSession createKojiSession() {
+        return (ClientSession) Proxy.newProxyInstance(
+                ClientSession.class.getClassLoader(),
+                new Class<?>[] { ClientSession.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "listArchives":
+                            List<List<KojiArchiveInfo>> results = new ArrayList<>();
+
+                            for (KojiArchiveQuery query : (List<KojiArchiveQuery>) args[0]) {
+                                List<KojiArchiveInfo> archives = new ArrayList<>();
+
+                                if (!MISSING.equals(query.getChecksum())) {
+                                    KojiArchiveInfo archive = new KojiArchiveInfo();
+                                    archive.setArchiveId(query.getChecksum().length());
+                                    archive.setChecksum(query.getChecksum());
+                                    archive.setFilename(query.getChecksum() + ".jar");
+                                    archives.add(archive);
+                                }
+
+                                results.add(archives);
+                            }
+
+                            return results;
+                        case "getBuild":
+                            KojiBuildInfo build = new KojiBuildInfo();
+                            build.setId(((List<KojiIdOrName>) args[0]).get(0).getId());
+                            build.setName("build");
+                            return List.of(build);
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static KojiArchiveQuery checksumQuery(String checksum) {
+        return new KojiArchiveQuery().withChecksum(checksum);
+    }
+
+    @Test
+    void testReplayAnswersQueriesBatchedDifferently() throws IOException, KojiClientException {
+        // given
+        Path file = dir.resolve("traffic.jsonl");
+
+        try (TrafficRecorder recorder = new TrafficRecorder(file)) {
+            ClientSession session = new RecordingClientSession(createKojiSession(), recorder);
+            session.listArchives(List.of(checksumQuery("aa"), checksumQuery("bbb"), checksumQuery(MISSING)));
+            session.getBuild(List.of(KojiIdOrName.getFor(7)));
+        }
+
+        TrafficReplay traffic = TrafficReplay.load(file, 0.0);
+        ReplayClientSession replay = new ReplayClientSession(traffic);
+
+        // when
+        List<List<KojiArchiveInfo>> archives = replay
+                .listArchives(List.of(checksumQuery("bbb"), checksumQuery(MISSING), checksumQuery("cccc")));
+        List<KojiArchiveInfo> single = replay.listArchives(checksumQuery("aa"));
+        KojiBuildInfo build = replay.getBuild(7);
+        KojiBuildInfo unknown = replay.getBuild(8);
+
+        // then
+        assertEquals(1, archives.get(0).size());
+        assertEquals("bbb.jar", archives.get(0).get(0).getFilename());
+        assertEquals(3, archives.get(0).get(0).getArchiveId());
+        assertTrue(archives.get(1).isEmpty());
+        assertTrue(archives.get(2).isEmpty());
+        assertEquals("aa", single.get(0).getChecksum());
+        assertEquals("build", build.getName());
+        assertNull(unknown);
+        assertEquals(2L, traffic.getMisses());
+    }
+
+    @Test
+    void testReplayAnswersArtifactsByChecksum() throws IOException, RemoteResourceException {
+        // given
+        Path file = dir.resolve("traffic.jsonl");
+        ArtifactQuery remote = (field, checksums) -> checksums.stream()
+                .filter(checksum -> !MISSING.equals(checksum))
+                .map(checksum -> Artifact.builder().id("id-" + checksum).sha1(checksum.toUpperCase()).build())
+                .collect(Collectors.toList());
+
+        try (TrafficRecorder recorder = new TrafficRecorder(file)) {
+            recorder.record(remote).getArtifacts("sha1", List.of("aa", "bb", MISSING));
+        }
+
+        ArtifactQuery replay = TrafficReplay.load(file, 0.0).artifactQuery();
+
+        // when
+        Collection<Artifact> artifacts = replay.getArtifacts("sha1", List.of("BB", MISSING));
+        Collection<Artifact> md5s = replay.getArtifacts("md5", List.of("aa"));
+
+        // then
+        assertEquals(List.of("id-bb"), artifacts.stream().map(Artifact::getId).collect(Collectors.toList()));
+        assertTrue(md5s.isEmpty());
+    }
+
+    @Test
+    void testRecorderWritesEveryResultOnce() throws IOException {
+        // given
+        Path file = dir.resolve("traffic.jsonl");
+
+        // when
+        try (TrafficRecorder recorder = new TrafficRecorder(file)) {
+            recorder.record("koji.getBuild", List.of("1", "2"), List.of("one", "two"), 10L);
+            recorder.record("koji.getBuild", List.of("2", "3"), List.of("two", "three"), 20L);
+        }
+
+        TrafficReplay replay = TrafficReplay.load(file, 0.0);
+
+        // then
+        assertEquals(2, Files.readAllLines(file).size());
+        assertTrue(Files.readAllLines(file).get(1).contains("\"results\":{\"3\":\"three\"}"));
+        assertEquals(3, replay.size());
+    }
+
+    @Test
+    void testLatencyProfileFollowsBatchSize() {
+        // given
+        TrafficReplay.LatencyProfile profile = new TrafficReplay.LatencyProfile();
+        TrafficReplay.LatencyProfile constant = new TrafficReplay.LatencyProfile();
+
+        // when
+        profile.add(1, 20L);
+        profile.add(3, 40L);
+        profile.add(5, 60L);
+        constant.add(4, 10L);
+        constant.add(4, 30L);
+
+        // then
+        assertEquals(30.0, profile.estimate(2), 1e-6);
+        assertEquals(110.0, profile.estimate(10), 1e-6);
+        assertEquals(20.0, constant.estimate(100), 1e-6);
+        assertEquals(0.0, new TrafficReplay.LatencyProfile().estimate(1), 1e-6);
+    }
+}
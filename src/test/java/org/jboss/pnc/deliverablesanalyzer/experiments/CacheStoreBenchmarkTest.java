@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.experiments;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.configuration.global.GlobalConfigurationBuilder;
+import org.infinispan.eviction.EvictionStrategy;
+import org.infinispan.manager.DefaultCacheManager;
+import org.jboss.pnc.deliverablesanalyzer.CacheProvider;
+import org.jboss.pnc.deliverablesanalyzer.CacheProvider.StoreType;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares the persistent stores of the embedded caches filled with checksum keys. For every store and key count it
+ * reports the time to fill the store, the startup time of a cache manager over the filled store, the latency of
+ * random lookups and the disk footprint. The memory is bounded, so that the lookups hit the store.
+ * <p>
+ * The key counts can be overridden by the system property benchmark.keys, e.g. -Dbenchmark.keys=1000000. The
+ * ROCKSDB store needs the rocksdb profile.
+ */
+@Disabled
+public class CacheStoreBenchmarkTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheStoreBenchmarkTest.class);
+
+    private static final String CACHE_NAME = "checksums-md5";
+
+    private static final long MAX_COUNT_IN_MEMORY = 100_000L;
+
+    private static final int BATCH_SIZE = 10_000;
+
+    private static final int LOOKUPS = 100_000;
+
+    @TempDir
+    Path location;
+
+    static Stream<Arguments> stores() {
+        String keys = System.getProperty("benchmark.keys", "1000000,5000000,20000000");
+
+        return Arrays.stream(keys.split(","))
+                .map(Integer::valueOf)
+                .flatMap(
+                        count -> Arrays.stream(StoreType.values()).map(storeType -> Arguments.of(storeType, count)));
+    }
+
+    private DefaultCacheManager startCacheManager(StoreType storeType) {
+        GlobalConfigurationBuilder globalConfig = new GlobalConfigurationBuilder();
+        globalConfig.metrics().gauges(false).histograms(false);
+        globalConfig.globalState().persistentLocation(location.toString());
+
+        ConfigurationBuilder builder = new ConfigurationBuilder();
+        builder.memory().maxCount(MAX_COUNT_IN_MEMORY).whenFull(EvictionStrategy.REMOVE);
+        CacheProvider.addStore(builder.persistence(), storeType, location.toString());
+
+        DefaultCacheManager cacheManager = new DefaultCacheManager(globalConfig.build());
+        cacheManager.defineConfiguration(CACHE_NAME, builder.build());
+        cacheManager.getCache(CACHE_NAME);
+
+        return cacheManager;
+    }
+
+    private static String checksum(int i) {
+        return String.format("%032x", (long) i * 0x9E3779B97F4A7C15L);
+    }
+
+    private static long diskSize(Path path) throws IOException {
+        try (Stream<Path> files = Files.walk(path)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    public void testStore(StoreType storeType, int count) throws IOException {
+        // fill
+        long fillStart = System.nanoTime();
+        DefaultCacheManager cacheManager = startCacheManager(storeType);
+        Cache<String, String> cache = cacheManager.getCache(CACHE_NAME);
+        Map<String, String> batch = new HashMap<>(BATCH_SIZE);
+
+        for (int i = 0; i < count; i++) {
+            batch.put(checksum(i), "archive-" + i);
+
+            if (batch.size() == BATCH_SIZE) {
+                cache.putAll(batch);
+                batch.clear();
+            }
+        }
+
+        cache.putAll(batch);
+        cacheManager.stop();
+        long fillMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - fillStart);
+        long diskBytes = diskSize(location);
+
+        // startup
+        long startupStart = System.nanoTime();
+        cacheManager = startCacheManager(storeType);
+        long startupMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startupStart);
+
+        // lookups
+        try {
+            cache = cacheManager.getCache(CACHE_NAME);
+            Random random = new Random(count);
+            long[] latencies = new long[LOOKUPS];
+
+            for (int i = 0; i < LOOKUPS; i++) {
+                String key = checksum(random.nextInt(count));
+                long lookupStart = System.nanoTime();
+                String value = cache.get(key);
+                latencies[i] = System.nanoTime() - lookupStart;
+                assertNotNull(value);
+            }
+
+            Arrays.sort(latencies);
+
+            LOGGER.info(
+                    "store={} keys={} fill={}ms startup={}ms lookup p50={}us p99={}us p999={}us disk={}MiB",
+                    storeType,
+                    count,
+                    fillMillis,
+                    startupMillis,
+                    TimeUnit.NANOSECONDS.toMicros(latencies[LOOKUPS / 2]),
+                    TimeUnit.NANOSECONDS.toMicros(latencies[LOOKUPS * 99 / 100]),
+                    TimeUnit.NANOSECONDS.toMicros(latencies[LOOKUPS * 999 / 1000]),
+                    diskBytes / (1024L * 1024L));
+        } finally {
+            cacheManager.stop();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.health;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.nio.file.Path;
+
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.jboss.pnc.deliverablesanalyzer.CircuitBreaker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.quarkus.runtime.configuration.MemorySize;
+
+class CapacityHealthCheckTest {
+    private static final long GIB = 1024L * 1024L * 1024L;
+
+    private final CapacityHealthCheck check = new CapacityHealthCheck();
+
+    @BeforeEach
+    void setUp() {
+        check.maxQueued = 1;
+        check.minFreeScratch = new MemorySize(BigInteger.valueOf(GIB));
+        check.minFreeHeapPercent = 10;
+    }
+
+    @Test
+    void testUpWithCapacity() {
+        // when
+        HealthCheckResponse response = check.check(1, 2, 0, 2L * GIB, 50L, CircuitBreaker.State.CLOSED);
+
+        // then
+        assertEquals(HealthCheckResponse.Status.UP, response.getStatus());
+        assertEquals(Boolean.FALSE, response.getData().orElseThrow().get("degraded"));
+        assertFalse(response.getData().orElseThrow().containsKey("full"));
+    }
+
+    @Test
+    void testDownWhenFull() {
+        // when
+        HealthCheckResponse saturated = check.check(2, 2, 1, 2L * GIB, 50L, CircuitBreaker.State.CLOSED);
+        HealthCheckResponse exhausted = check.check(0, 2, 0, GIB - 1L, 5L, CircuitBreaker.State.CLOSED);
+
+        // then
+        assertEquals(HealthCheckResponse.Status.DOWN, saturated.getStatus());
+        assertEquals("running,queued", saturated.getData().orElseThrow().get("full"));
+        assertEquals(HealthCheckResponse.Status.DOWN, exhausted.getStatus());
+        assertEquals("scratch,heap", exhausted.getData().orElseThrow().get("full"));
+    }
+
+    @Test
+    void testDegradedWhenBreakerIsOpen() {
+        // when
+        HealthCheckResponse response = check.check(0, 2, 0, 2L * GIB, 50L, CircuitBreaker.State.OPEN);
+
+        // then
+        assertEquals(HealthCheckResponse.Status.UP, response.getStatus());
+        assertEquals(Boolean.TRUE, response.getData().orElseThrow().get("degraded"));
+        assertEquals("OPEN", response.getData().orElseThrow().get("kojiBreaker"));
+    }
+
+    @Test
+    void testUsableSpaceOfMissingDirectory(@TempDir Path directory) {
+        // when
+        long usable = CapacityHealthCheck.getUsableSpace(directory.resolve("missing").resolve("output"));
+
+        // then
+        assertTrue(usable > 0L);
+        assertTrue(usable < Long.MAX_VALUE);
+        assertTrue(CapacityHealthCheck.getFreeHeapPercent() <= 100L);
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.jfr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.runtime.configuration.MemorySize;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class AnalysisRecordingsTest {
+    private AnalysisRecordings recordings;
+
+    @BeforeEach
+    void setUp() {
+        recordings = new AnalysisRecordings();
+        recordings.settings = "default";
+        recordings.maxDuration = Duration.ofMinutes(1L);
+        recordings.maxSize = new MemorySize(BigInteger.valueOf(10L * 1024L * 1024L));
+        recordings.maxRecordings = 1;
+    }
+
+    @AfterEach
+    void tearDown() {
+        recordings.destroy();
+    }
+
+    private static List<RecordedEvent> readEvents(Path file) throws Exception {
+        List<RecordedEvent> events = new ArrayList<>();
+
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            if (event.getEventType().getName().startsWith("org.jboss.pnc.deliverablesanalyzer.")) {
+                events.add(event);
+            }
+        }
+
+        return events;
+    }
+
+    @Test
+    void testRecordingContainsEvents() throws Exception {
+        // given
+        recordings.start("id");
+        AnalysisEvent analysis = new AnalysisEvent("id", 1);
+        analysis.begin();
+        CallbackEvent callback = new CallbackEvent("id", "http://localhost/callback", 1);
+        callback.begin();
+        callback.setSucceeded(true);
+        callback.commit();
+        LookupBatchEvent.observe("koji", (size, latencyNanos, failed) -> {
+        }).batchSent(10, 1000L, false);
+        new CacheMissEvent("koji-archives").commit();
+        analysis.setOutcome("SUCCESS");
+        analysis.commit();
+
+        // when
+        recordings.stop("id");
+        Path file = recordings.dump("id");
+
+        // then
+        try {
+            List<RecordedEvent> events = readEvents(file);
+            assertEquals(4, events.size());
+            RecordedEvent batch = events.stream()
+                    .filter(event -> event.getEventType().getName().equals(LookupBatchEvent.NAME))
+                    .findFirst()
+                    .orElseThrow();
+            assertEquals("koji", batch.getString("system"));
+            assertEquals(10, batch.getInt("size"));
+            assertEquals(Duration.ofNanos(1000L), batch.getDuration("latency"));
+            RecordedEvent end = events.stream()
+                    .filter(event -> event.getEventType().getName().equals(AnalysisEvent.NAME))
+                    .findFirst()
+                    .orElseThrow();
+            assertEquals("id", end.getString("analysisId"));
+            assertEquals("SUCCESS", end.getString("outcome"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void testSensitiveEventsAreNotRecorded() throws Exception {
+        // given
+        recordings.settings = "profile";
+        recordings.start("id");
+
+        // when
+        Path file = recordings.dump("id");
+
+        // then
+        try {
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                assertFalse(
+                        AnalysisRecordings.SENSITIVE_EVENTS.contains(event.getEventType().getName()),
+                        event.getEventType().getName());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void testRecordingIsDiscardedAfterDump() throws Exception {
+        // given
+        recordings.start("id");
+
+        // when
+        Path file = recordings.dump("id");
+
+        // then
+        Files.deleteIfExists(file);
+        assertNull(recordings.dump("id"));
+        assertFalse(recordings.discard("id"));
+    }
+
+    @Test
+    void testLimits() throws Exception {
+        // given
+        assertTrue(recordings.start("id"));
+
+        // when/then
+        assertFalse(recordings.start("id"));
+        assertThrows(IllegalStateException.class, () -> recordings.start("other"));
+        assertTrue(recordings.discard("id"));
+        assertTrue(recordings.start("other"));
+    }
+}
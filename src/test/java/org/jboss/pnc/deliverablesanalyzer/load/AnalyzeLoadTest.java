@@ -0,0 +1,403 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.load;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.any;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static java.net.HttpURLConnection.HTTP_OK;
+import static org.jboss.pnc.api.dto.Request.Method.POST;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.SimpleTimer;
+import org.eclipse.microprofile.metrics.Timer;
+import org.jboss.pnc.api.deliverablesanalyzer.dto.AnalyzePayload;
+import org.jboss.pnc.api.dto.Request;
+import org.jboss.pnc.deliverablesanalyzer.load.LoadReport.Stage;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.WireMockServer;
+
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+
+/**
+ * Drives the analyze endpoint with synthetic deliverables at a fixed concurrency and reports the throughput, the
+ * end-to-end latency percentiles and the time spent in every stage. The deliverables are served by a local WireMock
+ * server, which also receives the callbacks, while the {@link LoadStandIns} answer the Koji XML-RPC calls and the PNC
+ * queries with a configurable latency. The dummy Koji session of the other tests is excluded, so that the analyses go
+ * through the Koji session pool.
+ * <p>
+ * The harness only runs when the number of analyses is given, e.g.
+ * {@code mvn test -Dtest=AnalyzeLoadTest -Dload.analyses=100 -Dload.concurrency=8}. The other system properties are:
+ * <ul>
+ * <li>load.concurrency: number of analyses running at the same time, 4 by default</li>
+ * <li>load.deliverables: number of distinct deliverables, reused round-robin, one per analysis by default</li>
+ * <li>load.jars: number of jars in a deliverable, 100 by default</li>
+ * <li>load.nested-jars: number of jars nested in every jar, 10 by default</li>
+ * <li>load.entry-size: size in bytes of the data of every jar, 1024 by default</li>
+ * <li>load.koji.latency-millis: latency of the Koji stand-in, 50 by default</li>
+ * <li>load.pnc.latency-millis: latency of the PNC stand-in, 20 by default</li>
+ * <li>load.pnc.hit-ratio: share of the checksums found in a generated PNC build, 0 by default</li>
+ * <li>load.koji.hit-ratio: share of the checksums found in a generated Koji build, 0 by default</li>
+ * <li>load.timeout-minutes: time to wait for the callback of an analysis, 10 by default</li>
+ * <li>load.config: build finder config passed with every analysis, none by default</li>
+ * <li>load.probe-millis: delay between two rounds of control-plane requests, 100 by default, 0 disables them</li>
+ * </ul>
+ * The stages are the time to accept an analysis, the time until its callback, the time spent waiting for the Koji and
+ * PNC stand-ins and every timer of the application metrics, measured as the difference between the start and the end
+ * of the run. While the analyses run, the version, readiness, running analyses and cancel endpoints are requested
+ * one after the other in rounds, and their latencies under load are reported separately. The report is logged and
+ * written to target/load-report.json.
+ */
+@QuarkusTest
+@TestProfile(AnalyzeLoadTest.Profile.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfSystemProperty(named = "load.analyses", matches = "[0-9]+")
+public class AnalyzeLoadTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AnalyzeLoadTest.class);
+
+    private static final int DELIVERABLES_PORT = 8082;
+
+    private static final String CALLBACK_PATH = "/callback/";
+
+    private final int analyses = Integer.getInteger("load.analyses", 0);
+
+    private final int concurrency = Integer.getInteger("load.concurrency", 4);
+
+    private final int deliverables = Integer.getInteger("load.deliverables", analyses);
+
+    private final int timeoutMinutes = Integer.getInteger("load.timeout-minutes", 10);
+
+    private final String config = System.getProperty("load.config");
+
+    private final int probeMillis = Integer.getInteger("load.probe-millis", 100);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private final Map<String, CompletableFuture<String>> callbacks = new ConcurrentHashMap<>();
+
+    private final Collection<Long> latencies = new ConcurrentLinkedQueue<>();
+
+    private final Collection<Long> requestNanos = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger failures = new AtomicInteger();
+
+    private final Map<String, Collection<Long>> probes = new TreeMap<>();
+
+    private WireMockServer deliverableServer;
+
+    private Path directory;
+
+    @TestHTTPResource("/api/analyze")
+    URL analyzeUrl;
+
+    @TestHTTPResource("/")
+    URL rootUrl;
+
+    @Inject
+    MetricRegistry registry;
+
+    @BeforeAll
+    public void beforeAll() throws IOException {
+        directory = Files.createTempDirectory("load-");
+        Path files = Files.createDirectory(directory.resolve("__files"));
+        DeliverableGenerator generator = new DeliverableGenerator(
+                Integer.getInteger("load.jars", 100),
+                Integer.getInteger("load.nested-jars", 10),
+                Integer.getInteger("load.entry-size", 1024));
+
+        for (int i = 0; i < deliverables; i++) {
+            generator.generate(files, i);
+        }
+
+        LOGGER.info("Generated {} deliverables of {} jars in {}", deliverables, generator.getJarCount(), directory);
+
+        deliverableServer = new WireMockServer(
+                options().port(DELIVERABLES_PORT).withRootDirectory(directory.toString()).containerThreads(50));
+
+        for (int i = 0; i < deliverables; i++) {
+            String filename = DeliverableGenerator.getFilename(i);
+            deliverableServer.stubFor(
+                    any(urlEqualTo("/" + filename)).willReturn(aResponse().withStatus(HTTP_OK).withBodyFile(filename)));
+        }
+
+        deliverableServer
+                .stubFor(post(urlPathMatching(CALLBACK_PATH + ".*")).willReturn(aResponse().withStatus(HTTP_OK)));
+        deliverableServer.addMockServiceRequestListener((request, response) -> {
+            CompletableFuture<String> callback = callbacks.get(request.getUrl());
+
+            if (callback != null) {
+                callback.complete(request.getBodyAsString());
+            }
+        });
+        deliverableServer.start();
+    }
+
+    @AfterAll
+    public void afterAll() throws IOException {
+        deliverableServer.stop();
+
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void testLoad() throws Exception {
+        Map<String, long[]> before = snapshotTimers();
+        int kojiCallsBefore = LoadStandIns.countCalls(LoadStandIns.KOJI_PORT);
+        int pncCallsBefore = LoadStandIns.countCalls(LoadStandIns.PNC_PORT);
+        ExecutorService drivers = Executors.newFixedThreadPool(concurrency);
+        AtomicInteger next = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>(concurrency);
+        ScheduledExecutorService prober = Executors.newSingleThreadScheduledExecutor();
+        List<ControlPlaneProbe> controlPlane = createProbes();
+        long start = System.nanoTime();
+
+        if (probeMillis > 0) {
+            prober.scheduleWithFixedDelay(() -> {
+                for (ControlPlaneProbe probe : controlPlane) {
+                    probe.send();
+                }
+            }, 0L, probeMillis, TimeUnit.MILLISECONDS);
+        }
+
+        for (int i = 0; i < concurrency; i++) {
+            futures.add(drivers.submit(() -> {
+                int index;
+
+                while ((index = next.getAndIncrement()) < analyses) {
+                    runAnalysis(index);
+                }
+
+                return null;
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        long wallNanos = System.nanoTime() - start;
+        drivers.shutdown();
+        prober.shutdown();
+        prober.awaitTermination(1L, TimeUnit.MINUTES);
+
+        List<Stage> stages = new ArrayList<>();
+        stages.add(new Stage("analyze.request", requestNanos.size(), sum(requestNanos)));
+        stages.add(new Stage("analyze.callback", latencies.size(), sum(latencies)));
+        int kojiCalls = LoadStandIns.countCalls(LoadStandIns.KOJI_PORT) - kojiCallsBefore;
+        int pncCalls = LoadStandIns.countCalls(LoadStandIns.PNC_PORT) - pncCallsBefore;
+        stages.add(new Stage("koji.wait", kojiCalls, waitNanos(kojiCalls, LoadStandIns.getKojiLatencyMillis())));
+        stages.add(new Stage("pnc.wait", pncCalls, waitNanos(pncCalls, LoadStandIns.getPncLatencyMillis())));
+
+        for (Map.Entry<String, long[]> entry : snapshotTimers().entrySet()) {
+            long[] previous = before.getOrDefault(entry.getKey(), new long[2]);
+            long count = entry.getValue()[0] - previous[0];
+
+            if (count > 0L) {
+                stages.add(new Stage(entry.getKey(), count, entry.getValue()[1] - previous[1]));
+            }
+        }
+
+        LoadReport report = LoadReport.create(concurrency, wallNanos, latencies, failures.get(), stages, probes);
+        LOGGER.info("Load report:{}{}", System.lineSeparator(), report);
+
+        try (OutputStream out = Files.newOutputStream(Paths.get("target", "load-report.json"))) {
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(out, report);
+        }
+
+        assertEquals(0, report.getFailures());
+    }
+
+    private void runAnalysis(int index) throws Exception {
+        String callbackPath = CALLBACK_PATH + index;
+        CompletableFuture<String> callback = new CompletableFuture<>();
+        callbacks.put(callbackPath, callback);
+
+        String url = "http://localhost:" + DELIVERABLES_PORT + "/"
+                + DeliverableGenerator.getFilename(index % deliverables);
+        Request callbackRequest = new Request(POST, new URI("http://localhost:" + DELIVERABLES_PORT + callbackPath));
+        AnalyzePayload payload = new AnalyzePayload(List.of(url), config, callbackRequest, null);
+        HttpRequest request = HttpRequest.newBuilder(analyzeUrl.toURI())
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(payload)))
+                .build();
+
+        long start = System.nanoTime();
+
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            requestNanos.add(System.nanoTime() - start);
+
+            if (response.statusCode() != HTTP_OK) {
+                LOGGER.warn("Analysis {} was rejected with status {}", index, response.statusCode());
+                failures.incrementAndGet();
+                return;
+            }
+
+            String result = callback.get(timeoutMinutes, TimeUnit.MINUTES);
+
+            if (result.contains("\"success\":true")) {
+                latencies.add(System.nanoTime() - start);
+            } else {
+                LOGGER.warn("Analysis {} failed: {}", index, result);
+                failures.incrementAndGet();
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Analysis {} did not finish", index, e);
+            failures.incrementAndGet();
+        } finally {
+            callbacks.remove(callbackPath);
+        }
+    }
+
+    private List<ControlPlaneProbe> createProbes() {
+        URI root = URI.create(rootUrl.toString());
+        HttpRequest cancel = HttpRequest.newBuilder(root.resolve("api/analyze/unknown/cancel"))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+
+        return List.of(
+                new ControlPlaneProbe("version", HttpRequest.newBuilder(root.resolve("api/version")).build()),
+                new ControlPlaneProbe("ready", HttpRequest.newBuilder(root.resolve("q/health/ready")).build()),
+                new ControlPlaneProbe("analyses", HttpRequest.newBuilder(root.resolve("api/admin/analyses")).build()),
+                new ControlPlaneProbe("cancel", cancel));
+    }
+
+    private Map<String, long[]> snapshotTimers() {
+        Map<String, long[]> snapshot = new TreeMap<>();
+
+        for (Map.Entry<MetricID, Timer> entry : registry.getTimers().entrySet()) {
+            Timer timer = entry.getValue();
+            snapshot.put(name(entry.getKey()), new long[] { timer.getCount(), timer.getElapsedTime().toNanos() });
+        }
+
+        for (Map.Entry<MetricID, SimpleTimer> entry : registry.getSimpleTimers().entrySet()) {
+            SimpleTimer timer = entry.getValue();
+            snapshot.put(name(entry.getKey()), new long[] { timer.getCount(), timer.getElapsedTime().toNanos() });
+        }
+
+        return snapshot;
+    }
+
+    private static String name(MetricID id) {
+        return id.getTags().isEmpty() ? id.getName() : id.getName() + "{" + id.getTagsAsString() + "}";
+    }
+
+    private static long waitNanos(int calls, int latencyMillis) {
+        return TimeUnit.MILLISECONDS.toNanos(latencyMillis) * calls;
+    }
+
+    private static long sum(Collection<Long> values) {
+        return values.stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * Request to a control-plane endpoint whose latency is recorded whatever the response, e.g. the readiness check is
+     * down while the node is full and the cancel of an unknown analysis is not found.
+     */
+    private class ControlPlaneProbe {
+        private final Collection<Long> nanos = new ConcurrentLinkedQueue<>();
+
+        private final HttpRequest request;
+
+        ControlPlaneProbe(String name, HttpRequest request) {
+            this.request = request;
+            probes.put(name, nanos);
+        }
+
+        void send() {
+            long start = System.nanoTime();
+
+            try {
+                client.send(request, HttpResponse.BodyHandlers.discarding());
+                nanos.add(System.nanoTime() - start);
+            } catch (IOException e) {
+                LOGGER.warn("Control-plane request {} failed", request.uri(), e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Starts the stand-ins before the application and uses the Koji session produced by the application instead of the
+     * dummy one. The analyses aren't traced, so that their spans aren't kept in memory.
+     */
+    public static class Profile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                    "quarkus.arc.exclude-types",
+                    "DummyKojiClientSessionProducer",
+                    "quarkus.opentelemetry.tracer.sampler",
+                    "off");
+        }
+
+        @Override
+        public List<TestResourceEntry> testResources() {
+            return List.of(new TestResourceEntry(LoadStandIns.class));
+        }
+    }
+}
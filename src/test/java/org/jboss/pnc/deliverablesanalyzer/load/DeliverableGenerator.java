@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.load;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Generates synthetic deliverables: a zip of jars, each of them holding nested jars. The content of every jar is
+ * derived from the index of the deliverable, so that different deliverables have different checksums, while generating
+ * the same deliverable twice gives the same checksums.
+ */
+public class DeliverableGenerator {
+    private static final byte[] MANIFEST = "Manifest-Version: 1.0\r\nCreated-By: load\r\n\r\n".getBytes();
+
+    // Fixed time of the entries, so that the checksums don't depend on when the deliverable is generated
+    private static final long ENTRY_TIME = 315532800000L;
+
+    private final int jars;
+
+    private final int nestedJars;
+
+    private final int entrySize;
+
+    /**
+     * Creates a generator.
+     *
+     * @param jars the number of jars in the deliverable
+     * @param nestedJars the number of jars nested in every jar
+     * @param entrySize the size in bytes of the data entry of every jar
+     */
+    public DeliverableGenerator(int jars, int nestedJars, int entrySize) {
+        this.jars = jars;
+        this.nestedJars = nestedJars;
+        this.entrySize = entrySize;
+    }
+
+    /**
+     * Returns the number of jars in a deliverable, including the nested ones.
+     *
+     * @return the number of jars
+     */
+    public int getJarCount() {
+        return jars * (1 + nestedJars);
+    }
+
+    /**
+     * Writes the deliverable with the given index into the directory.
+     *
+     * @param directory the directory
+     * @param index the index of the deliverable
+     * @return the path of the deliverable
+     * @throws IOException if an error occurs writing the deliverable
+     */
+    public Path generate(Path directory, int index) throws IOException {
+        Path path = directory.resolve(getFilename(index));
+        Random random = new Random(index);
+
+        try (OutputStream out = Files.newOutputStream(path); ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (int i = 0; i < jars; i++) {
+                ByteArrayOutputStream jar = new ByteArrayOutputStream();
+
+                try (ZipOutputStream jarZip = new ZipOutputStream(jar)) {
+                    putEntry(jarZip, "META-INF/MANIFEST.MF", MANIFEST);
+                    putEntry(jarZip, "data.bin", randomBytes(random));
+
+                    for (int j = 0; j < nestedJars; j++) {
+                        putEntry(jarZip, "lib/nested-" + j + ".jar", createJar(random));
+                    }
+                }
+
+                putEntry(zip, "lib/artifact-" + index + "-" + i + ".jar", jar.toByteArray());
+            }
+        }
+
+        return path;
+    }
+
+    /**
+     * Returns the file name of the deliverable with the given index.
+     *
+     * @param index the index of the deliverable
+     * @return the file name
+     */
+    public static String getFilename(int index) {
+        return "deliverable-" + index + ".zip";
+    }
+
+    private byte[] createJar(Random random) throws IOException {
+        ByteArrayOutputStream jar = new ByteArrayOutputStream();
+
+        try (ZipOutputStream jarZip = new ZipOutputStream(jar)) {
+            putEntry(jarZip, "META-INF/MANIFEST.MF", MANIFEST);
+            putEntry(jarZip, "data.bin", randomBytes(random));
+        }
+
+        return jar.toByteArray();
+    }
+
+    private byte[] randomBytes(Random random) {
+        byte[] bytes = new byte[entrySize];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static void putEntry(ZipOutputStream zip, String name, byte[] bytes) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTime(ENTRY_TIME);
+        zip.putNextEntry(entry);
+        zip.write(bytes);
+        zip.closeEntry();
+    }
+}
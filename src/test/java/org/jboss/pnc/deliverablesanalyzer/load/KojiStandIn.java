@@ -0,0 +1,301 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.load;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.common.FileSource;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.ResponseDefinitionTransformer;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+
+/**
+ * Answers the Koji XML-RPC calls of the analysis. The checksums accepted by the given predicate are found in Koji, the
+ * others are unknown. A known checksum is the only archive of a generated Maven build, whose id is derived from the
+ * checksum, so that the builds, their tags and their Maven coordinates can be generated from the ids alone. Every call
+ * of a multicall is answered on its own, so the stand-in works for any multicall size. The archive types are the ones
+ * recorded from a real Koji hub for the analyzeTestOKSimple test.
+ */
+public class KojiStandIn extends ResponseDefinitionTransformer {
+    public static final String NAME = "koji-stand-in";
+
+    private static final String ARCHIVE_TYPES_MAPPING = "analyzeTestOKSimple/brewHub/mappings/"
+            + "-da5d3f5e-1c99-49a1-9c78-4f8f5a62b488.json";
+
+    private static final Pattern METHOD_NAME = Pattern.compile("<methodName>([^<]+)</methodName>");
+
+    private static final Pattern CALL_NAME = Pattern
+            .compile("<name>methodName</name>\\s*<value>\\s*(?:<string>)?([^<]+)");
+
+    private static final Pattern CHECKSUM = Pattern
+            .compile("<name>checksum</name>\\s*<value>\\s*(?:<string>)?([0-9a-fA-F]+)");
+
+    private static final Pattern ID = Pattern.compile("<(?:int|i4)>(-?[0-9]+)</(?:int|i4)>");
+
+    private static final String CALL = "<name>methodName</name>";
+
+    private static final String EMPTY_LIST = "<value><array><data></data></array></value>";
+
+    private static final String NIL = "<value><nil/></value>";
+
+    private static final int BUILDS = 50;
+
+    private static final int FIRST_BUILD_ID = 1000;
+
+    private static final int ARCHIVES_PER_BUILD = 1_000_000;
+
+    private static final String GROUP_ID = "org.jboss.pnc.load";
+
+    private static final String TIME = "2020-01-01 00:00:00.000000";
+
+    private static final String TS = "1577836800.0";
+
+    private final int latencyMillis;
+
+    private final Predicate<String> known;
+
+    private final String archiveTypes;
+
+    /**
+     * Creates the stand-in.
+     *
+     * @param latencyMillis the delay of every response
+     * @param known whether a checksum is found in Koji
+     * @throws IOException if the recorded archive types can't be read
+     */
+    public KojiStandIn(int latencyMillis, Predicate<String> known) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.known = known;
+
+        try (InputStream in = KojiStandIn.class.getClassLoader().getResourceAsStream(ARCHIVE_TYPES_MAPPING)) {
+            archiveTypes = new ObjectMapper().readTree(in).get("response").get("body").asText();
+        }
+    }
+
+    @Override
+    public ResponseDefinition transform(
+            Request request,
+            ResponseDefinition responseDefinition,
+            FileSource files,
+            Parameters parameters) {
+        String body = request.getBodyAsString();
+        Matcher matcher = METHOD_NAME.matcher(body);
+        String method = matcher.find() ? matcher.group(1) : "";
+        String response;
+
+        switch (method) {
+            case "multiCall":
+                response = methodResponse("<value><array><data>" + answerCalls(body) + "</data></array></value>");
+                break;
+            case "getAPIVersion":
+                response = methodResponse("<value><int>1</int></value>");
+                break;
+            case "getArchiveTypes":
+                response = archiveTypes;
+                break;
+            default:
+                response = methodResponse(answer(method, body));
+                break;
+        }
+
+        return ResponseDefinitionBuilder.responseDefinition()
+                .withStatus(200)
+                .withHeader("Content-Type", "text/xml")
+                .withBody(response)
+                .withFixedDelay(latencyMillis)
+                .build();
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean applyGlobally() {
+        return false;
+    }
+
+    /**
+     * Returns the results of the calls of a multicall, every result wrapped in a list of one value.
+     */
+    private String answerCalls(String body) {
+        StringBuilder results = new StringBuilder();
+        int start = body.indexOf(CALL);
+
+        while (start >= 0) {
+            int end = body.indexOf(CALL, start + CALL.length());
+            String call = end >= 0 ? body.substring(start, end) : body.substring(start);
+            Matcher matcher = CALL_NAME.matcher(call);
+            String method = matcher.find() ? matcher.group(1).trim() : "";
+            results.append("<value><array><data>").append(answer(method, call)).append("</data></array></value>");
+            start = end;
+        }
+
+        return results.toString();
+    }
+
+    private String answer(String method, String call) {
+        switch (method) {
+            case "listArchives":
+                return listArchives(call);
+            case "getBuild":
+                return getBuild(parseId(call));
+            case "getBuildType":
+                return getBuildType(parseId(call));
+            case "getMavenArchive":
+                return getMavenArchive(parseId(call));
+            case "listTags":
+                return listTags(parseId(call));
+            case "getTaskInfo":
+                return NIL;
+            default:
+                return EMPTY_LIST;
+        }
+    }
+
+    private String listArchives(String call) {
+        Matcher matcher = CHECKSUM.matcher(call);
+
+        if (!matcher.find() || !known.test(matcher.group(1))) {
+            return EMPTY_LIST;
+        }
+
+        String checksum = matcher.group(1);
+        int archiveId = getArchiveId(checksum);
+        int buildId = getBuildId(archiveId);
+
+        return "<value><array><data>" + struct(
+                member("btype", "string", "maven"),
+                member("btype_id", "int", "2"),
+                member("build_id", "int", String.valueOf(buildId)),
+                member("checksum", "string", checksum),
+                member("checksum_type", "int", "0"),
+                member("filename", "string", getArtifactId(archiveId) + "-" + getVersion(buildId) + ".jar"),
+                member("id", "int", String.valueOf(archiveId)),
+                member("metadata_only", "boolean", "0"),
+                member("size", "int", "1024"),
+                member("type_description", "string", "Jar file"),
+                member("type_extensions", "string", "jar war rar ear sar kar jdocbook jdocbook-style plugin"),
+                member("type_id", "int", "1"),
+                member("type_name", "string", "jar")) + "</data></array></value>";
+    }
+
+    private static String getBuild(int buildId) {
+        String name = GROUP_ID + "-" + getBuildName(buildId);
+        String version = getVersion(buildId).replace('-', '_');
+
+        return struct(
+                member("build_id", "int", String.valueOf(buildId)),
+                member("completion_time", "string", TIME),
+                member("completion_ts", "double", TS),
+                member("creation_event_id", "int", String.valueOf(buildId)),
+                member("creation_time", "string", TIME),
+                member("creation_ts", "double", TS),
+                member("id", "int", String.valueOf(buildId)),
+                member("name", "string", name),
+                member("nvr", "string", name + "-" + version + "-1"),
+                member("owner_id", "int", "1"),
+                member("owner_name", "string", "load"),
+                member("package_id", "int", String.valueOf(buildId)),
+                member("package_name", "string", name),
+                member("release", "string", "1"),
+                member("start_time", "string", TIME),
+                member("start_ts", "double", TS),
+                member("state", "int", "1"),
+                member("version", "string", version),
+                member("volume_id", "int", "0"),
+                member("volume_name", "string", "DEFAULT"));
+    }
+
+    private static String getBuildType(int buildId) {
+        return struct(
+                "<member><name>maven</name>" + struct(
+                        member("build_id", "int", String.valueOf(buildId)),
+                        member("group_id", "string", GROUP_ID),
+                        member("artifact_id", "string", getBuildName(buildId)),
+                        member("version", "string", getVersion(buildId))) + "</member>");
+    }
+
+    private static String getMavenArchive(int archiveId) {
+        return struct(
+                member("archive_id", "int", String.valueOf(archiveId)),
+                member("group_id", "string", GROUP_ID),
+                member("artifact_id", "string", getArtifactId(archiveId)),
+                member("version", "string", getVersion(getBuildId(archiveId))));
+    }
+
+    private static String listTags(int buildId) {
+        return "<value><array><data>" + struct(
+                member("arches", "string", ""),
+                member("id", "int", String.valueOf(buildId)),
+                member("locked", "boolean", "0"),
+                member("maven_include_all", "boolean", "0"),
+                member("maven_support", "boolean", "1"),
+                member("name", "string", "load-" + (buildId % 5) + "-candidate"),
+                member("perm", "string", "admin"),
+                member("perm_id", "int", "1")) + "</data></array></value>";
+    }
+
+    /**
+     * Returns the id of the archive of a known checksum, which holds the id of its build.
+     */
+    private static int getArchiveId(String checksum) {
+        int hash = checksum.hashCode();
+        return (Math.floorMod(hash, BUILDS) + 1) * ARCHIVES_PER_BUILD + Math.floorMod(hash, ARCHIVES_PER_BUILD);
+    }
+
+    private static int getBuildId(int archiveId) {
+        return FIRST_BUILD_ID + archiveId / ARCHIVES_PER_BUILD;
+    }
+
+    private static String getBuildName(int buildId) {
+        return "build-" + buildId;
+    }
+
+    private static String getArtifactId(int archiveId) {
+        return "artifact-" + archiveId;
+    }
+
+    private static String getVersion(int buildId) {
+        return "1.0.0.redhat-" + buildId;
+    }
+
+    private static int parseId(String call) {
+        Matcher matcher = ID.matcher(call);
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : 0;
+    }
+
+    private static String member(String name, String type, String value) {
+        return "<member><name>" + name + "</name><value><" + type + ">" + value + "</" + type + "></value></member>";
+    }
+
+    private static String struct(String... members) {
+        return "<value><struct>" + String.join("", members) + "</struct></value>";
+    }
+
+    private static String methodResponse(String value) {
+        return "<?xml version='1.0'?>\n<methodResponse><params><param>" + value
+                + "</param></params></methodResponse>\n";
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.load;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Results of a load run: the throughput, the end-to-end latency percentiles, the time spent in every stage and the
+ * latency of the control-plane requests sent during the run.
+ */
+public class LoadReport {
+    private final int concurrency;
+
+    private final int analyses;
+
+    private final int failures;
+
+    private final double analysesPerMinute;
+
+    private final long p50Millis;
+
+    private final long p95Millis;
+
+    private final long p99Millis;
+
+    private final long maxMillis;
+
+    private final List<Stage> stages;
+
+    private final List<Probe> controlPlane;
+
+    private LoadReport(
+            int concurrency,
+            int analyses,
+            int failures,
+            double analysesPerMinute,
+            long[] sortedLatencies,
+            List<Stage> stages,
+            List<Probe> controlPlane) {
+        this.concurrency = concurrency;
+        this.analyses = analyses;
+        this.failures = failures;
+        this.analysesPerMinute = analysesPerMinute;
+        this.p50Millis = toMillis(percentile(sortedLatencies, 50.0D));
+        this.p95Millis = toMillis(percentile(sortedLatencies, 95.0D));
+        this.p99Millis = toMillis(percentile(sortedLatencies, 99.0D));
+        this.maxMillis = toMillis(sortedLatencies.length > 0 ? sortedLatencies[sortedLatencies.length - 1] : 0L);
+        this.stages = Collections.unmodifiableList(stages);
+        this.controlPlane = Collections.unmodifiableList(controlPlane);
+    }
+
+    /**
+     * Creates the report of a run.
+     *
+     * @param concurrency the number of analyses running at the same time
+     * @param wallNanos the duration of the run
+     * @param latencies the end-to-end latencies of the finished analyses
+     * @param failures the number of analyses which failed or timed out
+     * @param stages the time spent in every stage during the run
+     * @param probes the latencies of the control-plane requests during the run, by endpoint
+     * @return the report
+     */
+    public static LoadReport create(
+            int concurrency,
+            long wallNanos,
+            Collection<Long> latencies,
+            int failures,
+            List<Stage> stages,
+            Map<String, ? extends Collection<Long>> probes) {
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        double minutes = (double) wallNanos / TimeUnit.MINUTES.toNanos(1L);
+        double analysesPerMinute = minutes > 0.0D ? sorted.length / minutes : 0.0D;
+
+        List<Probe> controlPlane = probes.entrySet()
+                .stream()
+                .map(entry -> new Probe(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+
+        return new LoadReport(
+                concurrency,
+                sorted.length + failures,
+                failures,
+                analysesPerMinute,
+                sorted,
+                stages,
+                controlPlane);
+    }
+
+    /**
+     * Returns the nearest-rank percentile of sorted values.
+     *
+     * @param sorted the values in ascending order
+     * @param percentile the percentile, between 0 and 100
+     * @return the percentile or 0 if there are no values
+     */
+    static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0L;
+        }
+
+        int rank = (int) Math.ceil(percentile / 100.0D * sorted.length);
+
+        return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public int getAnalyses() {
+        return analyses;
+    }
+
+    public int getFailures() {
+        return failures;
+    }
+
+    public double getAnalysesPerMinute() {
+        return analysesPerMinute;
+    }
+
+    public long getP50Millis() {
+        return p50Millis;
+    }
+
+    public long getP95Millis() {
+        return p95Millis;
+    }
+
+    public long getP99Millis() {
+        return p99Millis;
+    }
+
+    public long getMaxMillis() {
+        return maxMillis;
+    }
+
+    public List<Stage> getStages() {
+        return stages;
+    }
+
+    public List<Probe> getControlPlane() {
+        return controlPlane;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(
+                String.format(
+                        "concurrency=%d analyses=%d failures=%d throughput=%.2f/min latency p50=%dms p95=%dms "
+                                + "p99=%dms max=%dms",
+                        concurrency,
+                        analyses,
+                        failures,
+                        analysesPerMinute,
+                        p50Millis,
+                        p95Millis,
+                        p99Millis,
+                        maxMillis));
+
+        for (Stage stage : stages) {
+            sb.append(System.lineSeparator()).append("  ").append(stage);
+        }
+
+        for (Probe probe : controlPlane) {
+            sb.append(System.lineSeparator()).append("  ").append(probe);
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Time spent in one stage of the analyses during the run.
+     */
+    public static class Stage {
+        private final String name;
+
+        private final long count;
+
+        private final long totalMillis;
+
+        public Stage(String name, long count, long totalNanos) {
+            this.name = name;
+            this.count = count;
+            this.totalMillis = TimeUnit.NANOSECONDS.toMillis(totalNanos);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalMillis() {
+            return totalMillis;
+        }
+
+        public double getMeanMillis() {
+            return count > 0L ? (double) totalMillis / count : 0.0D;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: count=%d total=%dms mean=%.2fms", name, count, totalMillis, getMeanMillis());
+        }
+    }
+
+    /**
+     * Latency of the requests sent to one control-plane endpoint while the analyses were running.
+     */
+    public static class Probe {
+        private final String name;
+
+        private final int count;
+
+        private final long p50Millis;
+
+        private final long p99Millis;
+
+        private final long maxMillis;
+
+        public Probe(String name, Collection<Long> latencies) {
+            long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            this.name = name;
+            this.count = sorted.length;
+            this.p50Millis = toMillis(percentile(sorted, 50.0D));
+            this.p99Millis = toMillis(percentile(sorted, 99.0D));
+            this.maxMillis = toMillis(sorted.length > 0 ? sorted[sorted.length - 1] : 0L);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public long getP50Millis() {
+            return p50Millis;
+        }
+
+        public long getP99Millis() {
+            return p99Millis;
+        }
+
+        public long getMaxMillis() {
+            return maxMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%s: count=%d latency p50=%dms p99=%dms max=%dms",
+                    name,
+                    count,
+                    p50Millis,
+                    p99Millis,
+                    maxMillis);
+        }
+    }
+}
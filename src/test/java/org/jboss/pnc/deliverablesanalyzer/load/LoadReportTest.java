@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.load;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+
+class LoadReportTest {
+    @Test
+    void testPercentiles() {
+        // given
+        List<Long> latencies = LongStream.rangeClosed(1L, 100L)
+                .map(TimeUnit.MILLISECONDS::toNanos)
+                .boxed()
+                .collect(Collectors.toList());
+
+        // when
+        LoadReport report = LoadReport.create(4, TimeUnit.MINUTES.toNanos(2L), latencies, 2, List.of(), Map.of());
+
+        // then
+        assertEquals(102, report.getAnalyses());
+        assertEquals(50.0D, report.getAnalysesPerMinute());
+        assertEquals(50L, report.getP50Millis());
+        assertEquals(95L, report.getP95Millis());
+        assertEquals(99L, report.getP99Millis());
+        assertEquals(100L, report.getMaxMillis());
+    }
+
+    @Test
+    void testControlPlanePercentiles() {
+        // given
+        List<Long> latencies = LongStream.rangeClosed(1L, 100L)
+                .map(TimeUnit.MILLISECONDS::toNanos)
+                .boxed()
+                .collect(Collectors.toList());
+
+        // when
+        LoadReport report = LoadReport.create(4, 1L, List.of(), 0, List.of(), Map.of("version", latencies));
+
+        // then
+        LoadReport.Probe probe = report.getControlPlane().get(0);
+        assertEquals("version", probe.getName());
+        assertEquals(100, probe.getCount());
+        assertEquals(50L, probe.getP50Millis());
+        assertEquals(99L, probe.getP99Millis());
+        assertEquals(100L, probe.getMaxMillis());
+    }
+
+    @Test
+    void testPercentileOfNoValues() {
+        assertEquals(0L, LoadReport.percentile(new long[0], 99.0D));
+    }
+}
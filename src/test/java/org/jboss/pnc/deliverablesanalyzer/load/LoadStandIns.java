@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.load;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.any;
+import static com.github.tomakehurst.wiremock.client.WireMock.anyRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.anyUrl;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.Map;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.HttpAdminClient;
+
+import io.quarkus.test.common.QuarkusTestResourceLifecycleManager;
+
+/**
+ * Starts the WireMock stand-ins of Koji and PNC before the application, so that the Koji sessions created at startup
+ * connect to them. The ports are the ones of the test config.json. The latencies are set by the system properties
+ * load.koji.latency-millis and load.pnc.latency-millis. The share of the checksums found in PNC and in Koji are set by
+ * load.pnc.hit-ratio and load.koji.hit-ratio, every other checksum is unknown. Whether a checksum is found only depends
+ * on the checksum, so the same deliverable gets the same builds in every analysis.
+ */
+public class LoadStandIns implements QuarkusTestResourceLifecycleManager {
+    public static final int PNC_PORT = 8083;
+
+    public static final int KOJI_PORT = 8084;
+
+    private static final int BUCKETS = 1000;
+
+    private WireMockServer pncServer;
+
+    private WireMockServer kojiServer;
+
+    public static int getKojiLatencyMillis() {
+        return Integer.getInteger("load.koji.latency-millis", 50);
+    }
+
+    public static int getPncLatencyMillis() {
+        return Integer.getInteger("load.pnc.latency-millis", 20);
+    }
+
+    public static double getPncHitRatio() {
+        return Double.parseDouble(System.getProperty("load.pnc.hit-ratio", "0"));
+    }
+
+    public static double getKojiHitRatio() {
+        return Double.parseDouble(System.getProperty("load.koji.hit-ratio", "0"));
+    }
+
+    /**
+     * Returns whether the checksum is found in PNC.
+     *
+     * @param checksum the checksum
+     * @return whether the checksum is found in PNC
+     */
+    public static boolean isKnownByPnc(String checksum) {
+        return getBucket(checksum) < getPncHitRatio();
+    }
+
+    /**
+     * Returns whether the checksum is found in Koji. The checksums found in PNC are never found in Koji, so that the
+     * hit ratios add up.
+     *
+     * @param checksum the checksum
+     * @return whether the checksum is found in Koji
+     */
+    public static boolean isKnownByKoji(String checksum) {
+        double bucket = getBucket(checksum);
+        return bucket >= getPncHitRatio() && bucket < getPncHitRatio() + getKojiHitRatio();
+    }
+
+    private static double getBucket(String checksum) {
+        return (double) Math.floorMod(checksum.toLowerCase(Locale.ROOT).hashCode(), BUCKETS) / BUCKETS;
+    }
+
+    /**
+     * Returns the number of calls received by the stand-in listening on the given port.
+     *
+     * @param port the port of the stand-in
+     * @return the number of calls
+     */
+    public static int countCalls(int port) {
+        HttpAdminClient admin = new HttpAdminClient("localhost", port);
+        return admin.countRequestsMatching(anyRequestedFor(anyUrl()).build()).getCount();
+    }
+
+    @Override
+    public Map<String, String> start() {
+        pncServer = new WireMockServer(
+                options().port(PNC_PORT)
+                        .containerThreads(100)
+                        .asynchronousResponseEnabled(true)
+                        .extensions(new PncStandIn(getPncLatencyMillis(), LoadStandIns::isKnownByPnc)));
+        pncServer.stubFor(
+                get(urlPathMatching("/pnc-rest/v2/.*")).willReturn(aResponse().withTransformers(PncStandIn.NAME)));
+        pncServer.start();
+
+        try {
+            kojiServer = new WireMockServer(
+                    options().port(KOJI_PORT)
+                            .containerThreads(100)
+                            .asynchronousResponseEnabled(true)
+                            .extensions(new KojiStandIn(getKojiLatencyMillis(), LoadStandIns::isKnownByKoji)));
+        } catch (IOException e) {
+            pncServer.stop();
+            throw new UncheckedIOException(e);
+        }
+
+        kojiServer.stubFor(any(anyUrl()).willReturn(aResponse().withTransformers(KojiStandIn.NAME)));
+        kojiServer.start();
+
+        return Map.of();
+    }
+
+    @Override
+    public void stop() {
+        if (kojiServer != null) {
+            kojiServer.stop();
+        }
+
+        if (pncServer != null) {
+            pncServer.stop();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.load;
+
+import static java.net.HttpURLConnection.HTTP_NOT_FOUND;
+import static java.net.HttpURLConnection.HTTP_OK;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.common.FileSource;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.ResponseDefinitionTransformer;
+import com.github.tomakehurst.wiremock.http.QueryParameter;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+
+/**
+ * Answers the PNC artifact lookups of the analysis, either one checksum per request or a batch of checksums in an
+ * {@code =in=} query. The checksums accepted by the given predicate are found in PNC, the others are unknown. A known
+ * checksum is an artifact of a generated successful build, whose id is derived from the checksum. None of the builds
+ * is pushed to Brew.
+ */
+public class PncStandIn extends ResponseDefinitionTransformer {
+    public static final String NAME = "pnc-stand-in";
+
+    private static final Pattern IN_QUERY = Pattern.compile("md5=in=\\(([^)]*)\\)");
+
+    private static final int BUILDS = 50;
+
+    private static final int FIRST_BUILD_ID = 5000;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final int latencyMillis;
+
+    private final Predicate<String> known;
+
+    /**
+     * Creates the stand-in.
+     *
+     * @param latencyMillis the delay of every response
+     * @param known whether a checksum is found in PNC
+     */
+    public PncStandIn(int latencyMillis, Predicate<String> known) {
+        this.latencyMillis = latencyMillis;
+        this.known = known;
+    }
+
+    @Override
+    public ResponseDefinition transform(
+            Request request,
+            ResponseDefinition responseDefinition,
+            FileSource files,
+            Parameters parameters) {
+        ResponseDefinitionBuilder response = ResponseDefinitionBuilder.responseDefinition()
+                .withFixedDelay(latencyMillis);
+
+        if (!request.getUrl().startsWith("/pnc-rest/v2/artifacts")) {
+            return response.withStatus(HTTP_NOT_FOUND).build();
+        }
+
+        List<ObjectNode> artifacts = new ArrayList<>();
+
+        for (String md5 : getChecksums(request)) {
+            if (known.test(md5)) {
+                artifacts.add(createArtifact(md5));
+            }
+        }
+
+        ObjectNode page = MAPPER.createObjectNode();
+        page.put("pageIndex", 0);
+        page.put("pageSize", artifacts.size());
+        page.put("totalPages", artifacts.isEmpty() ? 0 : 1);
+        page.put("totalHits", artifacts.size());
+        page.putArray("content").addAll(artifacts);
+
+        return response.withStatus(HTTP_OK)
+                .withHeader("Content-Type", "application/json")
+                .withBody(page.toString())
+                .build();
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean applyGlobally() {
+        return false;
+    }
+
+    private static List<String> getChecksums(Request request) {
+        QueryParameter md5 = request.queryParameter("md5");
+
+        if (md5.isPresent()) {
+            return md5.values();
+        }
+
+        QueryParameter query = request.queryParameter("q");
+
+        if (query.isPresent()) {
+            Matcher matcher = IN_QUERY.matcher(query.firstValue());
+
+            if (matcher.find()) {
+                return Arrays.asList(matcher.group(1).split(","));
+            }
+        }
+
+        return List.of();
+    }
+
+    private static ObjectNode createArtifact(String md5) {
+        int hash = md5.hashCode();
+        String buildId = String.valueOf(FIRST_BUILD_ID + Math.floorMod(hash, BUILDS));
+        String artifactId = "artifact-" + Math.floorMod(hash, Integer.MAX_VALUE);
+        String version = "1.0.0.redhat-" + buildId;
+        String filename = artifactId + "-" + version + ".jar";
+
+        ObjectNode artifact = MAPPER.createObjectNode();
+        artifact.put("id", String.valueOf(Math.floorMod(hash, Integer.MAX_VALUE)));
+        artifact.put("identifier", "org.jboss.pnc.load:" + artifactId + ":jar:" + version);
+        artifact.put("artifactQuality", "NEW");
+        artifact.put("md5", md5);
+        artifact.put("filename", filename);
+        artifact.put("deployPath", "/org/jboss/pnc/load/" + artifactId + "/" + version + "/" + filename);
+        artifact.put("size", 1024);
+
+        ObjectNode repository = artifact.putObject("targetRepository");
+        repository.put("id", "1");
+        repository.put("temporaryRepo", false);
+        repository.put("identifier", "indy-maven");
+        repository.put("repositoryType", "MAVEN");
+        repository.put("repositoryPath", "/api/content/maven/hosted/pnc-builds/");
+
+        ObjectNode build = artifact.putObject("build");
+        build.put("id", buildId);
+        build.put("submitTime", "2020-01-01T00:00:00.000Z");
+        build.put("startTime", "2020-01-01T00:00:00.000Z");
+        build.put("endTime", "2020-01-01T00:00:00.000Z");
+        build.put("progress", "FINISHED");
+        build.put("status", "SUCCESS");
+        build.put("buildContentId", "build-" + buildId);
+        build.put("temporaryBuild", false);
+
+        ObjectNode attributes = build.putObject("attributes");
+        attributes.put("BREW_BUILD_VERSION", version);
+        attributes.put("BREW_BUILD_NAME", "org.jboss.pnc.load:build-" + buildId);
+
+        return artifact;
+    }
+}
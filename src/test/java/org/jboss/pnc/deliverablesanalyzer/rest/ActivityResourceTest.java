@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.rest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.jboss.pnc.build.finder.core.BuildConfig;
+import org.jboss.pnc.build.finder.core.ChecksumsComputedEvent;
+import org.jboss.pnc.deliverablesanalyzer.StatusCache;
+import org.jboss.pnc.deliverablesanalyzer.model.FinderStatus;
+import org.jboss.pnc.deliverablesanalyzer.model.NodeActivity;
+import org.jboss.pnc.deliverablesanalyzer.model.RunningAnalysis;
+import org.jboss.pnc.deliverablesanalyzer.model.StageTimings;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ActivityResourceTest {
+    private final ActivityResource resource = new ActivityResource();
+
+    @TempDir
+    Path outputDirectory;
+
+    @BeforeEach
+    void setUp() {
+        BuildConfig config = new BuildConfig();
+        config.setOutputDirectory(outputDirectory.toString());
+        resource.applicationConfig = config;
+        resource.statuses = new StatusCache<>();
+    }
+
+    @Test
+    void testOnlyActiveAnalysesAreListed() throws IOException {
+        // given
+        FinderStatus running = new FinderStatus();
+        running.setUrls(List.of("http://localhost/a.zip"));
+        running.start();
+        running.checksumsComputed(new ChecksumsComputedEvent(10));
+        StageTimings timings = running.getTimings();
+        timings.enter(StageTimings.DELIVERABLES);
+        timings.enter("lookup");
+        timings.enter("koji");
+        timings.enter("pnc");
+        FinderStatus queued = new FinderStatus();
+        FinderStatus finished = new FinderStatus();
+        finished.setState(FinderStatus.State.FINISHED);
+        resource.statuses.put("running", running);
+        resource.statuses.put("queued", queued);
+        resource.statuses.put("finished", finished);
+        Files.write(outputDirectory.resolve("checksums-md5.json"), new byte[100]);
+
+        // when
+        NodeActivity activity = resource.getActivity();
+
+        // then
+        assertEquals(2, activity.getAnalyses().size());
+        RunningAnalysis analysis = activity.getAnalyses()
+                .stream()
+                .filter(a -> a.getId().equals("running"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(FinderStatus.State.RUNNING, analysis.getState());
+        assertEquals(10, analysis.getFilesHashed());
+        assertEquals(10, analysis.getChecksumsPending());
+        assertEquals(2, analysis.getThreads());
+        assertEquals(2, analysis.getLookupsOutstanding());
+        assertNull(analysis.getEstimatedRemainingMillis());
+        assertEquals(100L, ActivityResource.getSize(outputDirectory));
+    }
+}
@@ -96,7 +96,8 @@ public class AnalyzeResourceTestWithMockedBrew extends AnalyzeResourceTestAbstra
                 () -> wiremock.verify(
                         1,
                         postRequestedFor(urlEqualTo(callbackRelativePath))
-                                .withRequestBody(containing("\"success\":true"))));
+                                .withRequestBody(containing("\"success\":true"))
+                                .withRequestBody(containing("\"timings\":{\"stages\":{"))));
 
         // cleanup
         pncServer.stop();
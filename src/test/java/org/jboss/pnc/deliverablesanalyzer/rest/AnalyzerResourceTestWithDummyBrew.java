@@ -154,7 +154,8 @@ public class AnalyzerResourceTestWithDummyBrew extends AnalyzeResourceTestAbstra
         wiremock.stubFor(post(urlEqualTo(callbackRelativePath)).willReturn(aResponse().withStatus(HTTP_OK)));
 
         // when
-        analyzeResource.analyze(new AnalyzePayload(List.of("xxyy:/malformedUrl.zip"), null, callbackRequest, null));
+        analyzeResource
+                .analyze(new AnalyzePayload(List.of("xxyy:/malformedUrl.zip"), null, callbackRequest, null), false);
 
         // then
         verifyCallback(
@@ -16,6 +16,7 @@
 package org.jboss.pnc.deliverablesanalyzer.rest;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.equalToJson;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
 import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
@@ -26,6 +27,7 @@ import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options
 import static java.net.HttpURLConnection.HTTP_OK;
 import static org.jboss.pnc.api.dto.Request.Method.GET;
 import static org.jboss.pnc.api.dto.Request.Method.POST;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.io.IOException;
@@ -36,6 +38,7 @@ import javax.inject.Inject;
 import javax.ws.rs.ProcessingException;
 
 import org.jboss.pnc.api.dto.Request;
+import org.jboss.pnc.deliverablesanalyzer.tracing.LocalSpanProcessor;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -44,6 +47,11 @@ import org.junit.jupiter.api.TestInstance;
 
 import com.github.tomakehurst.wiremock.WireMockServer;
 
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.trace.data.SpanData;
 import io.quarkus.test.junit.QuarkusTest;
 
 /**
@@ -57,6 +65,12 @@ public class HttpClientTest {
     @Inject
     HttpClient httpClient;
 
+    @Inject
+    Tracer tracer;
+
+    @Inject
+    LocalSpanProcessor spans;
+
     protected static final int PORT = 8082;
 
     private WireMockServer wiremock = new WireMockServer(options().port(PORT));
@@ -137,6 +151,38 @@ public class HttpClientTest {
                         .withRequestBody(equalToJson("{\"a\" : 1, \"b\" : \"str\"}")));
     }
 
+    @Test
+    public void testTraceContextIsPropagated() throws Exception {
+        // given
+        String relativePath = "/testTraceContextIsPropagated";
+        String fullUrl = "http://localhost:" + PORT + relativePath;
+        Request request = new Request(GET, new URI(fullUrl));
+        wiremock.stubFor(get(urlEqualTo(relativePath)).willReturn(aResponse().withStatus(HTTP_OK)));
+        spans.reset();
+        Span span = tracer.spanBuilder("analysis").startSpan();
+
+        // when
+        try (Scope scope = span.makeCurrent()) {
+            httpClient.performHttpRequest(request);
+        } finally {
+            span.end();
+        }
+
+        // then
+        SpanData clientSpan = spans.getSpans()
+                .stream()
+                .filter(data -> data.getName().equals("HTTP GET"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(span.getSpanContext().getSpanId(), clientSpan.getParentSpanId());
+        assertEquals(Long.valueOf(HTTP_OK), clientSpan.getAttributes().get(AttributeKey.longKey("http.status_code")));
+        wiremock.verify(
+                1,
+                getRequestedFor(urlEqualTo(relativePath)).withHeader(
+                        "traceparent",
+                        equalTo("00-" + clientSpan.getTraceId() + "-" + clientSpan.getSpanId() + "-01")));
+    }
+
     static class TestPayload {
         private Integer a;
         private String b;
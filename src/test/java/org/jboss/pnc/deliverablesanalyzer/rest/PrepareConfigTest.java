@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.rest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.ws.rs.BadRequestException;
+
+import org.jboss.pnc.build.finder.core.BuildConfig;
+import org.jboss.pnc.build.finder.core.ChecksumType;
+import org.jboss.pnc.deliverablesanalyzer.EffectiveConfig;
+import org.jboss.pnc.deliverablesanalyzer.KojiLookupBroker;
+import org.jboss.pnc.deliverablesanalyzer.PncProvider;
+import org.jboss.pnc.deliverablesanalyzer.model.LookupTuning;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PrepareConfigTest {
+    private final AnalyzeResource resource = new AnalyzeResource();
+
+    @BeforeEach
+    void setUp() {
+        BuildConfig config = new BuildConfig();
+        config.setKojiNumThreads(12);
+        config.setKojiMulticallSize(8);
+        config.setPncPartitionSize(18);
+        config.setChecksumTypes(EnumSet.of(ChecksumType.md5, ChecksumType.sha256));
+        config.setDisableRecursion(false);
+
+        resource.applicationConfig = config;
+        resource.maxKojiNumThreads = 24;
+        resource.maxKojiMulticallSize = 100;
+        resource.maxPncPartitionSize = 50;
+        resource.kojiLookupBroker = createKojiLookupBroker(false);
+        resource.pncProvider = createPncProvider(false);
+    }
+
+    @Test
+    void testSettingsAreOverridden() throws IOException {
+        // when
+        BuildConfig config = resource.prepareConfig(
+                "{\"koji-num-threads\": 4, \"koji-multicall-size\": 20, \"checksum-type\": [\"sha256\"],"
+                        + " \"disable-recursion\": true}",
+                new HashSet<>());
+
+        // then
+        assertEquals(4, config.getKojiNumThreads());
+        assertEquals(20, config.getKojiMulticallSize());
+        assertEquals(18, config.getPncPartitionSize());
+        assertEquals(Set.of(ChecksumType.sha256), config.getChecksumTypes());
+        assertTrue(config.getDisableRecursion());
+    }
+
+    @Test
+    void testSettingsAreLimited() throws IOException {
+        // when
+        BuildConfig config = resource.prepareConfig(
+                "{\"koji-num-threads\": 1000, \"pnc-partition-size\": 1000, \"koji-multicall-size\": 0}",
+                new HashSet<>());
+
+        // then
+        assertEquals(24, config.getKojiNumThreads());
+        assertEquals(50, config.getPncPartitionSize());
+        assertEquals(1, config.getKojiMulticallSize());
+    }
+
+    @Test
+    void testBatchedSettingsAreIgnored() throws IOException {
+        // given
+        resource.kojiLookupBroker = createKojiLookupBroker(true);
+        resource.pncProvider = createPncProvider(true);
+
+        // when
+        BuildConfig config = resource.prepareConfig(
+                "{\"koji-num-threads\": 4, \"koji-multicall-size\": 20, \"pnc-partition-size\": 40}",
+                new HashSet<>());
+
+        // then
+        assertEquals(4, config.getKojiNumThreads());
+        assertEquals(8, config.getKojiMulticallSize());
+        assertEquals(18, config.getPncPartitionSize());
+    }
+
+    @Test
+    void testDisabledChecksumTypeIsRejected() {
+        // when/then
+        assertThrows(
+                BadRequestException.class,
+                () -> resource.prepareConfig("{\"checksum-type\": [\"sha1\"]}", Set.of()));
+    }
+
+    @Test
+    void testRequestOverridesTuning() throws IOException {
+        // given
+        LookupTuning tuning = new LookupTuning();
+        tuning.setKojiNumThreads(6);
+        tuning.setKojiMulticallSize(16);
+        tuning.setPncPartitionSize(30);
+        tuning.setPncNumThreads(5);
+
+        Set<String> requestedSettings = new HashSet<>();
+
+        // when
+        BuildConfig config = new EffectiveConfig(
+                resource.prepareConfig("{\"koji-num-threads\": 2}", requestedSettings),
+                requestedSettings,
+                "fingerprint").getConfig(tuning);
+
+        // then
+        assertEquals(Set.of("kojiNumThreads"), requestedSettings);
+        assertEquals(2, config.getKojiNumThreads());
+        assertEquals(16, config.getKojiMulticallSize());
+        assertEquals(30, config.getPncPartitionSize());
+        assertEquals(5L, config.getPncNumThreads());
+        assertFalse(config.getDisableRecursion());
+    }
+
+    private static KojiLookupBroker createKojiLookupBroker(boolean batching) {
+        return new KojiLookupBroker() {
+            @Override
+            public boolean isBatching() {
+                return batching;
+            }
+        };
+    }
+
+    private static PncProvider createPncProvider(boolean batching) {
+        return new PncProvider() {
+            @Override
+            public boolean isBatching() {
+                return batching;
+            }
+        };
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.tracing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+
+class FileSpanExporterTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testSpansAreWrittenAsOtlpJsonLines() throws IOException {
+        // given
+        Path file = tempDir.resolve("traces").resolve("traces.jsonl");
+        SdkTracerProvider provider = SdkTracerProvider.builder()
+                .addSpanProcessor(SimpleSpanProcessor.create(new FileSpanExporter(file)))
+                .build();
+        Tracer tracer = provider.get("test");
+
+        // when
+        Span root = tracer.spanBuilder("analysis").setNoParent().setSpanKind(SpanKind.SERVER).startSpan();
+        tracer.spanBuilder("lookup")
+                .setParent(Context.root().with(root))
+                .setAttribute("checksums", 3L)
+                .setAttribute("cached", true)
+                .setAttribute("url", "http://localhost/a.zip")
+                .startSpan()
+                .setStatus(StatusCode.ERROR, "Timeout")
+                .end();
+        root.end();
+        List<String> lines = Files.readAllLines(file);
+        provider.shutdown();
+
+        // then
+        assertEquals(2, lines.size());
+        JsonNode child = MAPPER.readTree(lines.get(0)).at("/resourceSpans/0/scopeSpans/0/spans/0");
+        JsonNode parent = MAPPER.readTree(lines.get(1)).at("/resourceSpans/0/scopeSpans/0/spans/0");
+        assertEquals("lookup", child.get("name").asText());
+        assertEquals(root.getSpanContext().getTraceId(), child.get("traceId").asText());
+        assertEquals(root.getSpanContext().getSpanId(), child.get("parentSpanId").asText());
+        assertEquals(1, child.get("kind").asInt());
+        assertEquals(2, child.at("/status/code").asInt());
+        assertEquals("Timeout", child.at("/status/message").asText());
+        assertEquals(3, child.get("attributes").size());
+        assertEquals("analysis", parent.get("name").asText());
+        assertEquals(2, parent.get("kind").asInt());
+        assertFalse(parent.has("parentSpanId"));
+        assertEquals(
+                "test",
+                MAPPER.readTree(lines.get(1)).at("/resourceSpans/0/scopeSpans/0/scope/name").asText());
+    }
+
+    @Test
+    void testAttributeValues() {
+        // given
+        SdkTracerProvider provider = SdkTracerProvider.builder().build();
+        Span span = provider.get("test")
+                .spanBuilder("span")
+                .setNoParent()
+                .setAttribute("long", 42L)
+                .setAttribute("double", 0.5)
+                .setAttribute("boolean", false)
+                .setAttribute("string", "value")
+                .startSpan();
+        span.end();
+
+        // when
+        JsonNode attributes = FileSpanExporter
+                .toOtlp(((ReadableSpan) span).toSpanData())
+                .at("/resourceSpans/0/scopeSpans/0/spans/0/attributes");
+
+        // then
+        assertEquals("42", findValue(attributes, "long").get("intValue").asText());
+        assertEquals(0.5, findValue(attributes, "double").get("doubleValue").asDouble());
+        assertFalse(findValue(attributes, "boolean").get("boolValue").asBoolean());
+        assertEquals("value", findValue(attributes, "string").get("stringValue").asText());
+        provider.shutdown();
+    }
+
+    private static JsonNode findValue(JsonNode attributes, String key) {
+        for (JsonNode attribute : attributes) {
+            if (attribute.get("key").asText().equals(key)) {
+                return attribute.get("value");
+            }
+        }
+
+        throw new AssertionError("No attribute " + key);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.tracing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+
+import org.infinispan.commons.api.BasicCache;
+import org.infinispan.commons.api.BasicCacheContainer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class TracingTest {
+    @Inject
+    Tracer tracer;
+
+    @Inject
+    LocalSpanProcessor spans;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private final ExecutorService pool = Executors.newSingleThreadExecutor();
+
+    @BeforeEach
+    void setUp() {
+        spans.reset();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    private List<SpanData> getSpans(Span root) {
+        return spans.getSpans()
+                .stream()
+                .filter(span -> span.getTraceId().equals(root.getSpanContext().getTraceId()))
+                .collect(Collectors.toList());
+    }
+
+    private SpanData findSpan(Span root, String name) {
+        return getSpans(root).stream().filter(span -> span.getName().equals(name)).findFirst().orElseThrow();
+    }
+
+    @Test
+    void testSpansFollowTheExecutorHops() throws Exception {
+        // given
+        Span root = tracer.spanBuilder("analysis").startSpan();
+        Callable<String> task;
+
+        try (Scope scope = root.makeCurrent()) {
+            task = Tracing.span(tracer, "url", () -> {
+                Callable<String> checksums = Tracing.span(tracer, "checksums", () -> "done");
+                return pool.submit(checksums).get();
+            });
+        }
+
+        // when
+        String result = executor.submit(task).get();
+        Span[] active = new Span[1];
+        executor.submit(Tracing.wrap(root, () -> active[0] = Span.current())).get();
+        root.end();
+
+        // then
+        assertEquals("done", result);
+        SpanData url = findSpan(root, "url");
+        SpanData checksums = findSpan(root, "checksums");
+        assertEquals(root.getSpanContext().getSpanId(), url.getParentSpanId());
+        assertEquals(url.getSpanId(), checksums.getParentSpanId());
+        assertEquals(root.getSpanContext().getTraceId(), checksums.getTraceId());
+        assertSame(root, active[0]);
+        assertFalse(Span.current().getSpanContext().isValid());
+    }
+
+    @Test
+    void testProxyTracesCallsAndFailures() {
+        // given
+        Span root = tracer.spanBuilder("analysis").startSpan();
+        Lookup lookup;
+
+        try (Scope scope = root.makeCurrent()) {
+            lookup = Tracing.proxy(tracer, Lookup.class, List::size, "koji.");
+        }
+
+        // when
+        int size = lookup.count(List.of("a", "b"));
+        assertThrows(NullPointerException.class, () -> lookup.count(null));
+
+        // then
+        assertEquals(2, size);
+        List<SpanData> ended = getSpans(root);
+        assertEquals(2, ended.size());
+        assertEquals("koji.count", ended.get(0).getName());
+        assertEquals(root.getSpanContext().getSpanId(), ended.get(0).getParentSpanId());
+        assertEquals(2L, ended.get(0).getAttributes().get(AttributeKey.longKey("queries")));
+        assertEquals(StatusCode.UNSET, ended.get(0).getStatus().getStatusCode());
+        assertEquals(SpanKind.CLIENT, ended.get(1).getKind());
+        assertEquals(StatusCode.ERROR, ended.get(1).getStatus().getStatusCode());
+        assertEquals(
+                NullPointerException.class.getName(),
+                ended.get(1).getEvents().get(0).getAttributes().get(AttributeKey.stringKey("exception.type")));
+    }
+
+    @Test
+    void testCacheOperationsAreTraced() {
+        // given
+        BasicCache<?, ?> cache = (BasicCache<?, ?>) Proxy.newProxyInstance(
+                BasicCache.class.getClassLoader(),
+                new Class<?>[] { BasicCache.class },
+                (proxy, method, args) -> "getName".equals(method.getName()) ? "builds" : null);
+        BasicCacheContainer container = (BasicCacheContainer) Proxy.newProxyInstance(
+                BasicCacheContainer.class.getClassLoader(),
+                new Class<?>[] { BasicCacheContainer.class },
+                (proxy, method, args) -> cache);
+        Span root = tracer.spanBuilder("analysis").startSpan();
+        BasicCacheContainer traced;
+
+        try (Scope scope = root.makeCurrent()) {
+            traced = Tracing.proxy(tracer, container);
+        }
+
+        // when
+        BasicCache<String, String> tracedCache = traced.getCache("builds");
+        tracedCache.get("key");
+        tracedCache.getName();
+
+        // then
+        List<SpanData> ended = getSpans(root);
+        assertEquals(1, ended.size());
+        assertEquals("cache.get", ended.get(0).getName());
+        assertEquals("builds", ended.get(0).getAttributes().get(AttributeKey.stringKey("cache")));
+        assertEquals(root.getSpanContext().getSpanId(), ended.get(0).getParentSpanId());
+    }
+
+    @Test
+    void testNothingIsTracedWithoutSpan() throws Exception {
+        // given
+        Lookup lookup = List::size;
+        Callable<String> task = () -> "done";
+
+        // when
+        Lookup proxy = Tracing.proxy(tracer, Lookup.class, lookup, "koji.");
+        Callable<String> span = Tracing.span(tracer, "url", task);
+
+        // then
+        assertSame(lookup, proxy);
+        assertSame(task, span);
+        assertEquals("done", span.call());
+    }
+
+    interface Lookup {
+        int count(List<String> queries);
+    }
+}
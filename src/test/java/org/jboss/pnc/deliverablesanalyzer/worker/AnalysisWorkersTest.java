@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.worker;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.collections4.MultiValuedMap;
+import org.jboss.pnc.build.finder.core.BuildConfig;
+import org.jboss.pnc.build.finder.core.Checksum;
+import org.jboss.pnc.build.finder.core.ChecksumType;
+import org.jboss.pnc.build.finder.core.DistributionAnalyzer;
+import org.jboss.pnc.build.finder.core.LocalFile;
+import org.jboss.pnc.deliverablesanalyzer.load.DeliverableGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.quarkus.runtime.configuration.MemorySize;
+import io.smallrye.metrics.MetricsRegistryImpl;
+
+class AnalysisWorkersTest {
+    private final AnalysisWorkers workers = new AnalysisWorkers();
+
+    @TempDir
+    Path directory;
+
+    private BuildConfig config;
+
+    @BeforeEach
+    void setUp() {
+        workers.mode = AnalysisWorkers.Mode.FORKED;
+        workers.poolSize = 1;
+        workers.maxHeap = new MemorySize(BigInteger.valueOf(256L * 1024L * 1024L));
+        workers.jvmArgs = Optional.empty();
+        workers.registry = new MetricsRegistryImpl();
+        workers.init();
+        config = new BuildConfig();
+        config.setOutputDirectory(directory.resolve("output").toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        workers.destroy();
+    }
+
+    private String createDeliverable() throws IOException {
+        return new DeliverableGenerator(3, 2, 64).generate(directory, 0).toUri().toString();
+    }
+
+    @Test
+    void testForkedChecksumsMatchInProcess() throws Exception {
+        // given
+        String url = createDeliverable();
+        ForkedDistributionAnalyzer forked = new ForkedDistributionAnalyzer("id", url, config, workers);
+        AtomicInteger progress = new AtomicInteger();
+        forked.setListener(event -> progress.addAndGet(event.getCount()));
+
+        // when
+        Map<ChecksumType, MultiValuedMap<String, LocalFile>> expected = new DistributionAnalyzer(
+                Collections.singletonList(url),
+                config).call();
+        Map<ChecksumType, MultiValuedMap<String, LocalFile>> actual = forked.call();
+
+        // then
+        assertEquals(expected.keySet(), actual.keySet());
+        assertEquals(9, actual.get(ChecksumType.md5).size());
+
+        for (ChecksumType type : expected.keySet()) {
+            assertEquals(expected.get(type).keySet(), actual.get(type).keySet());
+        }
+
+        List<Checksum> queued = new ArrayList<>();
+        forked.getQueue().drainTo(queued);
+        assertNull(queued.get(queued.size() - 1).getValue());
+        assertEquals(expected.get(ChecksumType.md5).size(), queued.size() - 1);
+        assertFalse(forked.getFiles().isEmpty());
+        assertTrue(progress.get() > 0);
+    }
+
+    @Test
+    void testFailureKeepsWorker() throws Exception {
+        // given
+        String url = "unknown://localhost/missing.zip";
+        ForkedDistributionAnalyzer forked = new ForkedDistributionAnalyzer("id", url, config, workers);
+
+        // when
+        assertThrows(IOException.class, forked::call);
+
+        // then
+        Worker worker = workers.borrow();
+        assertTrue(worker.isAlive());
+        workers.release(worker, true);
+    }
+
+    @Test
+    void testExitedWorkerIsReplaced() throws Exception {
+        // given
+        Worker worker = workers.borrow();
+        long pid = worker.getPid();
+
+        // when
+        worker.destroy();
+        assertThrows(IOException.class, worker::receive);
+        workers.release(worker, false);
+
+        // then
+        Worker replacement = workers.borrow();
+        assertTrue(replacement.isAlive());
+        assertNotEquals(pid, replacement.getPid());
+    }
+
+    @Test
+    void testCancelDestroysWorkerWhileDownloading() throws Exception {
+        // given
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch downloading = new CountDownLatch(1);
+
+        try (ServerSocket server = new ServerSocket(0)) {
+            // The server accepts the download and never answers
+            executor.submit(() -> {
+                try (Socket socket = server.accept()) {
+                    downloading.countDown();
+                    Thread.sleep(60_000L);
+                }
+
+                return null;
+            });
+            Worker worker = workers.borrow();
+            long pid = worker.getPid();
+            workers.release(worker, true);
+            ForkedDistributionAnalyzer forked = new ForkedDistributionAnalyzer(
+                    "id",
+                    "http://localhost:" + server.getLocalPort() + "/slow.zip",
+                    config,
+                    workers);
+            Future<?> future = executor.submit(forked::call);
+            assertTrue(downloading.await(30L, TimeUnit.SECONDS));
+
+            // when
+            future.cancel(true);
+
+            // then
+            await().atMost(10L, TimeUnit.SECONDS)
+                    .until(() -> !ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false));
+            Worker replacement = workers.borrow();
+            assertNotEquals(pid, replacement.getPid());
+            workers.release(replacement, true);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}